@@ -10,14 +10,19 @@
 package org.openmrs.module.fhir2.api.translators.impl;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import lombok.AccessLevel;
 import lombok.Setter;
 import org.hl7.fhir.r4.model.ListResource;
 import org.openmrs.Cohort;
 import org.openmrs.CohortMembership;
+import org.openmrs.Patient;
 import org.openmrs.annotation.OpenmrsProfile;
 import org.openmrs.module.fhir2.api.dao.FhirPatientDao;
 import org.openmrs.module.fhir2.api.translators.PatientReferenceTranslator;
@@ -31,6 +36,8 @@ import org.springframework.stereotype.Component;
 @OpenmrsProfile(openmrsPlatformVersion = "2.1.* - 2.*")
 public class CohortListEntryTranslatorImpl_2_1 extends CohortListEntryTranslatorImpl {
 	
+	private static final int PATIENT_BATCH_SIZE = 500;
+	
 	@Autowired
 	private PatientReferenceTranslator patientReferenceTranslator;
 	
@@ -39,15 +46,39 @@ public class CohortListEntryTranslatorImpl_2_1 extends CohortListEntryTranslator
 	
 	@Override
 	public List<ListResource.ListEntryComponent> toFhirResource(Cohort cohort) {
+		return toFhirResource(cohort, 0, Integer.MAX_VALUE);
+	}
+	
+	@Override
+	public List<ListResource.ListEntryComponent> toFhirResource(Cohort cohort, int offset, int count) {
 		if (cohort == null) {
 			return null;
 		}
 		
-		List<ListResource.ListEntryComponent> list = new ArrayList<>();
-		ListResource.ListEntryComponent entry = new ListResource.ListEntryComponent();
-		for (CohortMembership member : cohort.getMemberships()) {
-			if (!member.getVoided() && (member.getEndDate() == null || member.getEndDate().after(new Date()))) {
-				entry.setItem(patientReferenceTranslator.toFhirResource(patientDao.getPatientById(member.getPatientId())));
+		Date now = new Date();
+		List<CohortMembership> members = cohort.getMemberships().stream()
+		        .filter(member -> !member.getVoided() && (member.getEndDate() == null || member.getEndDate().after(now)))
+		        .sorted(Comparator.comparing(CohortMembership::getCohortMemberId,
+		            Comparator.nullsLast(Comparator.naturalOrder())))
+		        .skip(Math.max(offset, 0)).limit(Math.max(count, 0)).collect(Collectors.toList());
+		
+		List<ListResource.ListEntryComponent> list = new ArrayList<>(members.size());
+		
+		// patients are loaded with one query per batch rather than one query per member
+		for (int from = 0; from < members.size(); from += PATIENT_BATCH_SIZE) {
+			List<CohortMembership> batch = members.subList(from, Math.min(from + PATIENT_BATCH_SIZE, members.size()));
+			Map<Integer, Patient> patients = patientDao
+			        .getPatientsByIds(batch.stream().map(CohortMembership::getPatientId).collect(Collectors.toList()))
+			        .stream().collect(Collectors.toMap(Patient::getPatientId, Function.identity()));
+			
+			for (CohortMembership member : batch) {
+				Patient patient = patients.get(member.getPatientId());
+				if (patient == null) {
+					continue;
+				}
+				
+				ListResource.ListEntryComponent entry = new ListResource.ListEntryComponent();
+				entry.setItem(patientReferenceTranslator.toFhirResource(patient));
 				entry.setDate(member.getStartDate());
 				list.add(entry);
 			}
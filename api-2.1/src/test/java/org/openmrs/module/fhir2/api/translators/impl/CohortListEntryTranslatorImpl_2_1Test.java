@@ -17,6 +17,8 @@ import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -65,8 +67,7 @@ public class CohortListEntryTranslatorImpl_2_1Test {
 	
 	@Test
 	public void toFhirResource_shouldTranslateCohortMembershipToListEntries() {
-		Patient patient = new Patient();
-		patient.setId(1);
+		Patient patient = new Patient(1);
 		
 		Cohort cohort = new Cohort();
 		cohort.addMembership(new CohortMembership(1, new Date()));
@@ -74,7 +75,7 @@ public class CohortListEntryTranslatorImpl_2_1Test {
 		Reference patientReference = new Reference().setReference(FhirConstants.PATIENT + "/" + PATIENT_UUID)
 		        .setType(FhirConstants.PATIENT).setIdentifier(new Identifier().setValue(PATIENT_UUID));
 		
-		when(patientDao.getPatientById(1)).thenReturn(patient);
+		when(patientDao.getPatientsByIds(Collections.singletonList(1))).thenReturn(Collections.singletonList(patient));
 		when(patientReferenceTranslator.toFhirResource(patient)).thenReturn(patientReference);
 		
 		List<ListResource.ListEntryComponent> list = listEntryTranslatorImpl_2_1.toFhirResource(cohort);
@@ -84,6 +85,31 @@ public class CohortListEntryTranslatorImpl_2_1Test {
 		assertThat(list.get(0).getItem(), equalTo(patientReference));
 	}
 	
+	@Test
+	public void toFhirResource_shouldReturnRequestedPageOfListEntries() {
+		Cohort cohort = new Cohort();
+		for (int i = 1; i <= 4; i++) {
+			CohortMembership cohortMembership = new CohortMembership(i, new Date());
+			cohortMembership.setCohortMemberId(i);
+			cohort.addMembership(cohortMembership);
+		}
+		
+		Patient patient2 = new Patient(2);
+		Patient patient3 = new Patient(3);
+		Reference patient2Reference = new Reference().setReference(FhirConstants.PATIENT + "/2");
+		Reference patient3Reference = new Reference().setReference(FhirConstants.PATIENT + "/3");
+		
+		when(patientDao.getPatientsByIds(Arrays.asList(2, 3))).thenReturn(Arrays.asList(patient3, patient2));
+		when(patientReferenceTranslator.toFhirResource(patient2)).thenReturn(patient2Reference);
+		when(patientReferenceTranslator.toFhirResource(patient3)).thenReturn(patient3Reference);
+		
+		List<ListResource.ListEntryComponent> list = listEntryTranslatorImpl_2_1.toFhirResource(cohort, 1, 2);
+		assertThat(list, notNullValue());
+		assertThat(list.size(), equalTo(2));
+		assertThat(list.get(0).getItem(), equalTo(patient2Reference));
+		assertThat(list.get(1).getItem(), equalTo(patient3Reference));
+	}
+	
 	@Test
 	public void toFhirResource_shouldExcludeVoidedCohortMembers() {
 		Cohort cohort = new Cohort();
@@ -86,7 +86,7 @@ public class FhirConditionDaoImpl_2_2 extends BaseDaoImpl implements FhirConditi
 		
 		handleSort(criteria, sort);
 		
-		return criteria.list();
+		return searchReadOnly(criteria);
 	}
 	
 	@Override
@@ -50,6 +50,7 @@ public class FhirConditionServiceImpl_2_2 implements FhirConditionService {
 	}
 	
 	@Override
+	@Transactional(readOnly = true)
 	public Collection<Condition> searchConditions(ReferenceAndListParam patientParam, ReferenceAndListParam subjectParam,
 	        TokenAndListParam code, TokenAndListParam clinicalStatus, DateRangeParam onsetDate, QuantityParam onsetAge,
 	        DateRangeParam recordedDate, @Sort SortSpec sort) {
@@ -9,26 +9,207 @@
  */
 package org.openmrs.module.fhir2;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
+import org.openmrs.module.fhir2.api.FhirCacheStatisticsService;
+import org.openmrs.module.fhir2.api.FhirPersonNameIndexService;
+import org.openmrs.module.fhir2.api.dao.impl.LocationHierarchyIndex;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationBus;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyListener;
+import org.openmrs.module.fhir2.api.util.StartupCheck;
+import org.openmrs.module.fhir2.api.util.WarmUpTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 
 /**
  * This class contains the logic that is run every time this module is either started or shutdown
  */
 @SuppressWarnings("unused")
-public class FhirActivator extends BaseModuleActivator {
+public class FhirActivator extends BaseModuleActivator implements DaemonTokenAware {
 	
 	private static final Logger log = LoggerFactory.getLogger(FhirActivator.class);
 	
+	private DaemonToken daemonToken;
+	
+	private volatile Thread nameIndexBackfill;
+	
+	private volatile Thread warmUp;
+	
+	@Override
+	public void setDaemonToken(DaemonToken daemonToken) {
+		this.daemonToken = daemonToken;
+	}
+	
 	@Override
 	public void started() {
+		// deliberately not caught; a failed check means the module is misconfigured and must not start
+		for (StartupCheck startupCheck : Context.getRegisteredComponents(StartupCheck.class)) {
+			startupCheck.check();
+		}
+		
+		try {
+			for (LocationHierarchyIndex locationHierarchyIndex : Context
+			        .getRegisteredComponents(LocationHierarchyIndex.class)) {
+				locationHierarchyIndex.rebuild();
+			}
+		}
+		catch (Exception e) {
+			// the index is rebuilt on first use, so this is not fatal
+			log.warn("Could not build the location hierarchy index on startup", e);
+		}
+		
+		startNameIndexBackfill();
+		
+		try {
+			if (Boolean.parseBoolean(Context.getAdministrationService()
+			        .getGlobalProperty(FhirConstants.OPENMRS_FHIR_CACHE_STATISTICS_ENABLED))) {
+				for (FhirCacheStatisticsService cacheStatisticsService : Context
+				        .getRegisteredComponents(FhirCacheStatisticsService.class)) {
+					cacheStatisticsService.setStatisticsEnabled(true);
+				}
+			}
+		}
+		catch (Exception e) {
+			log.warn("Could not enable cache statistics on startup", e);
+		}
+		
+		try {
+			long pollInterval = NumberUtils.toLong(
+			    Context.getAdministrationService()
+			            .getGlobalProperty(FhirConstants.OPENMRS_FHIR_CACHE_INVALIDATION_POLL_INTERVAL),
+			    CacheInvalidationBus.DEFAULT_POLL_INTERVAL_SECONDS);
+			for (CacheInvalidationBus cacheInvalidationBus : Context.getRegisteredComponents(CacheInvalidationBus.class)) {
+				cacheInvalidationBus.start(pollInterval);
+			}
+			
+			for (FhirGlobalPropertyListener globalPropertyListener : Context
+			        .getRegisteredComponents(FhirGlobalPropertyListener.class)) {
+				Context.getAdministrationService().addGlobalPropertyListener(globalPropertyListener);
+			}
+		}
+		catch (Exception e) {
+			// caches still work on this server, but may serve data changed on other servers
+			log.warn("Could not start listening for cache invalidations", e);
+		}
+		
+		startWarmUp();
+		
 		log.info("Started FHIR");
 	}
 	
 	@Override
 	public void stopped() {
+		Thread backfill = nameIndexBackfill;
+		if (backfill != null) {
+			// the backfill records its progress after every batch, so it picks up from here on the next start
+			backfill.interrupt();
+			nameIndexBackfill = null;
+		}
+		
+		Thread runningWarmUp = warmUp;
+		if (runningWarmUp != null) {
+			runningWarmUp.interrupt();
+			warmUp = null;
+		}
+		
+		try {
+			for (FhirGlobalPropertyListener globalPropertyListener : Context
+			        .getRegisteredComponents(FhirGlobalPropertyListener.class)) {
+				Context.getAdministrationService().removeGlobalPropertyListener(globalPropertyListener);
+			}
+			
+			for (CacheInvalidationBus cacheInvalidationBus : Context.getRegisteredComponents(CacheInvalidationBus.class)) {
+				cacheInvalidationBus.stop();
+			}
+		}
+		catch (Exception e) {
+			log.warn("Could not stop listening for cache invalidations", e);
+		}
+		
 		log.info("Shutdown FHIR");
 	}
 	
+	/**
+	 * Indexes the person names created before the module was installed on a background thread, so that
+	 * startup doesn't wait for it. Until it completes, name searches query person_name directly.
+	 */
+	private void startNameIndexBackfill() {
+		try {
+			List<FhirPersonNameIndexService> personNameIndexServices = Context
+			        .getRegisteredComponents(FhirPersonNameIndexService.class);
+			if (personNameIndexServices.isEmpty()) {
+				return;
+			}
+			
+			FhirPersonNameIndexService personNameIndexService = personNameIndexServices.get(0);
+			nameIndexBackfill = Daemon.runInDaemonThread(() -> {
+				try {
+					long start = System.currentTimeMillis();
+					boolean moreNames = true;
+					while (moreNames && !Thread.currentThread().isInterrupted()) {
+						moreNames = personNameIndexService.indexNextNameBatch();
+					}
+					
+					if (!moreNames) {
+						log.info("Built the person name token index in {} ms", System.currentTimeMillis() - start);
+					}
+				}
+				catch (Exception e) {
+					// the backfill resumes from the last completed batch on the next start
+					log.warn("Could not build the person name token index", e);
+				}
+			}, daemonToken);
+		}
+		catch (Exception e) {
+			log.warn("Could not start building the person name token index", e);
+		}
+	}
+	
+	/**
+	 * Runs the {@link WarmUpTask}s on a background thread, so that startup doesn't wait for them
+	 */
+	private void startWarmUp() {
+		try {
+			if ("false".equalsIgnoreCase(
+			    Context.getAdministrationService().getGlobalProperty(FhirConstants.OPENMRS_FHIR_WARM_UP_ENABLED))) {
+				return;
+			}
+			
+			List<WarmUpTask> warmUpTasks = new ArrayList<>(Context.getRegisteredComponents(WarmUpTask.class));
+			AnnotationAwareOrderComparator.sort(warmUpTasks);
+			warmUp = Daemon.runInDaemonThread(() -> {
+				for (WarmUpTask warmUpTask : warmUpTasks) {
+					if (Thread.currentThread().isInterrupted()) {
+						return;
+					}
+					
+					long start = System.currentTimeMillis();
+					try {
+						warmUpTask.warmUp();
+						log.info("Ran {} in {} ms", warmUpTask.getClass().getSimpleName(),
+						    System.currentTimeMillis() - start);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					catch (Exception e) {
+						log.warn("Could not run {}", warmUpTask.getClass().getSimpleName(), e);
+					}
+				}
+			}, daemonToken);
+		}
+		catch (Exception e) {
+			// warming up only saves time on the first requests after a restart
+			log.warn("Could not warm up the FHIR server on startup", e);
+		}
+	}
+	
 }
@@ -0,0 +1,62 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change to the data behind one of the module's in-memory caches, recorded so that the other
+ * servers in a cluster can drop their copies. Rows are only ever appended, read in id order and
+ * deleted once every server has had time to see them.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "fhir_cache_invalidation")
+public class FhirCacheInvalidation implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public static final int MAX_CACHE_NAME_LENGTH = 50;
+	
+	public static final int MAX_CACHE_KEY_LENGTH = 255;
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "cache_invalidation_id")
+	private Long id;
+	
+	@Column(name = "cache_name", nullable = false, length = MAX_CACHE_NAME_LENGTH)
+	private String cacheName;
+	
+	// a null key means every entry of the cache
+	@Column(name = "cache_key", length = MAX_CACHE_KEY_LENGTH)
+	private String cacheKey;
+	
+	@Column(name = "node_id", nullable = false, length = 38)
+	private String nodeId;
+	
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "date_created", nullable = false)
+	private Date dateCreated;
+}
@@ -21,6 +21,8 @@ import javax.persistence.Table;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openmrs.BaseOpenmrsMetadata;
 import org.openmrs.ConceptSource;
 
@@ -28,6 +30,7 @@ import org.openmrs.ConceptSource;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "fhir_concept_source")
 public class FhirConceptSource extends BaseOpenmrsMetadata {
 	
@@ -62,6 +62,8 @@ public class FhirConstants {
 	
 	public static final String OBSERVATION_REFERENCE_RANGE_URI = "http://terminology.hl7.org/CodeSystem/referencerange-meaning";
 	
+	public static final String OBSERVATION_STATISTICS_URI = "http://hl7.org/fhir/observation-statistics";
+	
 	@Value("${project.version}")
 	public static String OPENMRS_FHIR_SERVER_VERSION;
 	
@@ -87,6 +89,36 @@ public class FhirConstants {
 	
 	public static final String OPENMRS_FHIR_MAXIMUM_PAGE_SIZE = "fhir2.paging.maximum";
 	
+	public static final String OPENMRS_FHIR_TOKEN_SECRET = "fhir2.authentication.tokenSecret";
+	
+	public static final String OPENMRS_FHIR_TOKEN_LIFETIME = "fhir2.authentication.tokenLifetime";
+	
+	public static final String OPENMRS_FHIR_NAME_TOKEN_INDEX_PROGRESS = "fhir2.nameTokenIndex.lastPersonNameId";
+	
+	public static final String OPENMRS_FHIR_SEARCH_FETCH_SIZE = "fhir2.search.fetchSize";
+	
+	public static final String OPENMRS_FHIR_REPLICA_JNDI_NAME = "fhir2.replica.jndiName";
+	
+	public static final String OPENMRS_FHIR_REPLICA_URL = "fhir2.replica.url";
+	
+	public static final String OPENMRS_FHIR_REPLICA_USERNAME = "fhir2.replica.username";
+	
+	public static final String OPENMRS_FHIR_REPLICA_PASSWORD = "fhir2.replica.password";
+	
+	public static final String OPENMRS_FHIR_REPLICA_PRIMARY_STICKINESS = "fhir2.replica.primaryStickinessSeconds";
+	
+	public static final String OPENMRS_FHIR_CACHE_STATISTICS_ENABLED = "fhir2.cache.statisticsEnabled";
+	
+	public static final String CACHE_REGION_PREFIX = "org.openmrs.module.fhir2";
+	
+	public static final String METADATA_QUERY_CACHE_REGION = CACHE_REGION_PREFIX + ".metadata";
+	
+	public static final String OPENMRS_FHIR_RESPONSE_CACHE_RESOURCE_TYPES = "fhir2.responseCache.resourceTypes";
+	
+	public static final String OPENMRS_FHIR_CACHE_INVALIDATION_POLL_INTERVAL = "fhir2.cacheInvalidation.pollIntervalSeconds";
+	
+	public static final String OPENMRS_FHIR_WARM_UP_ENABLED = "fhir2.warmUp.enabled";
+	
 	public static final String ENCOUNTER = "Encounter";
 	
 	public static final String OBSERVATION = "Observation";
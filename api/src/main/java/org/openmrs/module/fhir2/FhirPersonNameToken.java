@@ -0,0 +1,62 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import java.io.Serializable;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single normalised token of a person name, used to search names by prefix and phonetic key
+ * without scanning the {@code person_name} table. Rows are maintained by the module and should not
+ * be edited directly.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "fhir_person_name_token")
+public class FhirPersonNameToken implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public static final String GIVEN = "given";
+	
+	public static final String MIDDLE = "middle";
+	
+	public static final String FAMILY = "family";
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "person_name_token_id")
+	private Integer id;
+	
+	@Column(name = "person_name_id", nullable = false)
+	private Integer personNameId;
+	
+	@Column(name = "person_id", nullable = false)
+	private Integer personId;
+	
+	@Column(name = "name_part", nullable = false, length = 16)
+	private String namePart;
+	
+	@Column(name = "token", nullable = false, length = 50)
+	private String token;
+	
+	@Column(name = "phonetic_key", length = 16)
+	private String phoneticKey;
+}
@@ -19,6 +19,8 @@ import javax.persistence.Table;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openmrs.BaseOpenmrsMetadata;
 
 /**
@@ -28,6 +30,7 @@ import org.openmrs.BaseOpenmrsMetadata;
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "fhir_reference")
 public class FhirReference extends BaseOpenmrsMetadata {
 	
@@ -0,0 +1,64 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import java.io.Serializable;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A business identifier supplied by a client when conditionally creating or updating a resource,
+ * e.g. through {@code If-None-Exist: identifier=system|value}. Each identifier belongs to at most one
+ * resource of a given type, which is what makes retried creates safe to repeat. Rows are maintained
+ * by the module and should not be edited directly.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "fhir_resource_identifier", uniqueConstraints = @UniqueConstraint(name = "fhir_resource_identifier_unique",
+        columnNames = { "resource_type", "identifier_system", "identifier_value" }))
+public class FhirResourceIdentifier implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	// together these stay within the 767 byte key limit of older MySQL versions
+	public static final int MAX_RESOURCE_TYPE_LENGTH = 32;
+	
+	public static final int MAX_SYSTEM_LENGTH = 120;
+	
+	public static final int MAX_VALUE_LENGTH = 100;
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "resource_identifier_id")
+	private Integer id;
+	
+	@Column(name = "resource_type", nullable = false, length = MAX_RESOURCE_TYPE_LENGTH)
+	private String resourceType;
+	
+	// identifiers without a system are stored with an empty system so that they are still unique
+	@Column(name = "identifier_system", nullable = false, length = MAX_SYSTEM_LENGTH)
+	private String system;
+	
+	@Column(name = "identifier_value", nullable = false, length = MAX_VALUE_LENGTH)
+	private String value;
+	
+	@Column(name = "resource_uuid", nullable = false, length = 38)
+	private String resourceUuid;
+}
@@ -28,12 +28,15 @@ import java.util.Set;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openmrs.BaseOpenmrsMetadata;
 
 @Data(staticConstructor = "of")
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "fhir_task")
 public class FhirTask extends BaseOpenmrsMetadata {
 	
@@ -80,6 +83,7 @@ public class FhirTask extends BaseOpenmrsMetadata {
 	 * task is created to fulfill a procedureRequest ( = FocusOn ) to collect a specimen from a patient.
 	 */
 	@OneToMany
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@JoinTable(name = "fhir_task_based_on_reference", joinColumns = @JoinColumn(name = "task_id"), inverseJoinColumns = @JoinColumn(name = "reference_id"))
 	private Set<FhirReference> basedOnReferences;
 	
@@ -111,6 +115,7 @@ public class FhirTask extends BaseOpenmrsMetadata {
 	 * https://www.hl7.org/fhir/task-definitions.html#Task.input
 	 */
 	@OneToMany(cascade = CascadeType.ALL)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@JoinColumn(name = "task_id")
 	private Set<FhirTaskInput> input;
 	
@@ -118,7 +123,7 @@ public class FhirTask extends BaseOpenmrsMetadata {
 	 * Outputs produced by the Task. see https://www.hl7.org/fhir/task-definitions.html#Task.output
 	 */
 	@OneToMany(cascade = CascadeType.ALL)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@JoinColumn(name = "task_id")
-	
 	private Set<FhirTaskOutput> output;
 }
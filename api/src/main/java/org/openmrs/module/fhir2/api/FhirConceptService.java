@@ -9,6 +9,8 @@
  */
 package org.openmrs.module.fhir2.api;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 import org.openmrs.Concept;
@@ -18,4 +20,14 @@ public interface FhirConceptService {
 	Optional<Concept> getConceptByUuid(String uuid);
 	
 	Optional<Concept> getConceptBySourceNameAndCode(String sourceName, String code);
+	
+	/**
+	 * Resolves many codes in the same concept source at once, e.g. all the codes used by a resource
+	 *
+	 * @param sourceName the name or HL7 code of a concept source
+	 * @param codes the codes in that source to resolve
+	 * @return the concept each code is mapped to, keyed by code; codes that aren't mapped to any
+	 *         concept are left out
+	 */
+	Map<String, Concept> getConceptsBySourceNameAndCodes(String sourceName, Collection<String> codes);
 }
@@ -17,4 +17,14 @@ public interface FhirListService<T> {
 	
 	ListResource getListByUuid(@NotNull String uuid);
 	
+	/**
+	 * Returns the list with the given uuid including only a page of its entries
+	 *
+	 * @param uuid the uuid of the list
+	 * @param offset the index of the first entry to include
+	 * @param count the maximum number of entries to include
+	 * @return the list or null if no list has the given uuid
+	 */
+	ListResource getListByUuid(@NotNull String uuid, int offset, int count);
+	
 }
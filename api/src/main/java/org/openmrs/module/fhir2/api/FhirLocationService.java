@@ -14,7 +14,7 @@ import javax.validation.constraints.NotNull;
 import java.util.Collection;
 
 import ca.uhn.fhir.rest.api.SortSpec;
-import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import org.hl7.fhir.r4.model.Location;
@@ -24,6 +24,6 @@ public interface FhirLocationService {
 	Location getLocationByUuid(@NotNull String uuid);
 	
 	Collection<Location> searchForLocations(StringOrListParam name, StringOrListParam city, StringOrListParam country,
-	        StringOrListParam postalCode, StringOrListParam state, TokenOrListParam tag, ReferenceOrListParam parent,
+	        StringOrListParam postalCode, StringOrListParam state, TokenOrListParam tag, ReferenceAndListParam parent,
 	        SortSpec sort);
 }
@@ -21,6 +21,7 @@ import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringAndListParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import org.hl7.fhir.r4.model.Observation;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
 
 public interface FhirObservationService {
 	
@@ -30,4 +31,33 @@ public interface FhirObservationService {
 	        ReferenceAndListParam patientReference, ReferenceParam hasMemberReference, TokenAndListParam valueConcept,
 	        DateRangeParam valueDateParam, QuantityAndListParam valueQuantityParam, StringAndListParam valueStringParam,
 	        DateRangeParam date, TokenAndListParam code, SortSpec sort);
+	
+	/**
+	 * Finds the most recent observations of each code recorded for a patient, i.e. the
+	 * {@code Observation/$lastn} operation
+	 *
+	 * @param patientReference the patients whose observations to return
+	 * @param code the codes to return observations of or null for every code
+	 * @param max the number of observations to return for each patient and code
+	 * @return the observations, most recent first
+	 */
+	Collection<Observation> getLastnObservations(@NotNull ReferenceAndListParam patientReference, TokenAndListParam code,
+	        int max);
+	
+	/**
+	 * Computes statistics of the numeric observations of each code, i.e. the
+	 * {@code Observation/$stats} operation. Statistics are computed per code across every location,
+	 * unless they are requested per code and location.
+	 *
+	 * @param patientReference the patients whose observations to include or null for every patient
+	 * @param locationReference the locations whose observations to include or null for every location
+	 * @param code the codes to compute statistics for
+	 * @param period the dates of the observations to include or null for every date
+	 * @param statistics the statistics to return or an empty collection for every supported statistic
+	 * @param groupByLocation whether to compute separate statistics for each location
+	 * @return an Observation for each code and, if grouped, location with a component for each statistic
+	 */
+	Collection<Observation> getObservationStatistics(ReferenceAndListParam patientReference,
+	        ReferenceAndListParam locationReference, @NotNull TokenAndListParam code, DateRangeParam period,
+	        @NotNull Collection<ObservationStatistics.Statistic> statistics, boolean groupByLocation);
 }
@@ -18,6 +18,7 @@ import ca.uhn.fhir.rest.param.TokenOrListParam;
 import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Patient;
 import org.openmrs.PatientIdentifierType;
+import org.openmrs.module.fhir2.api.util.PatientMatchResults;
 
 public interface FhirPatientService {
 	
@@ -29,4 +30,18 @@ public interface FhirPatientService {
 	        TokenOrListParam identifier, TokenOrListParam gender, DateRangeParam birthDate, DateRangeParam deathDate,
 	        TokenOrListParam deceased, StringOrListParam city, StringOrListParam state, StringOrListParam postalCode,
 	        StringOrListParam country, SortSpec sort);
+	
+	/**
+	 * Finds the patients that are likely to be the same person as the given patient, for the
+	 * {@code $match} operation. Candidates are found by family name, birth year and gender and are then
+	 * scored on all of the given patient's demographics. Candidates born in the given patient's birth
+	 * year are found before those born a year either side, so that they are the ones scored if there
+	 * are too many candidates to score them all.
+	 *
+	 * @param patient the patient to match, which must have a family name and a birthdate
+	 * @param onlyCertainMatches whether to only return matches graded as certain
+	 * @param count the maximum number of matches to return
+	 * @return the matches, best first, and whether some candidates were left unscored
+	 */
+	PatientMatchResults matchPatients(Patient patient, boolean onlyCertainMatches, int count);
 }
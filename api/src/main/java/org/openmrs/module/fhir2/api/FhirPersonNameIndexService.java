@@ -0,0 +1,22 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api;
+
+public interface FhirPersonNameIndexService {
+	
+	/**
+	 * Indexes the next batch of person names, continuing after the last name indexed by the previous
+	 * batch, even if that batch ran before the server was restarted
+	 *
+	 * @return true if there may be more names to index or false once every name has been indexed, at
+	 *         which point the index is used for name searches
+	 */
+	boolean indexNextNameBatch();
+}
@@ -0,0 +1,62 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api;
+
+import javax.validation.constraints.NotNull;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.r4.model.DomainResource;
+import org.openmrs.module.fhir2.api.util.ConditionalWriteOutcome;
+
+/**
+ * Supports conditional creates and updates that match resources on a business identifier. The
+ * identifier is looked up, and recorded for new resources, in the same transaction as the write, so a
+ * retried request finds the resource written by the first attempt.
+ */
+public interface FhirResourceIdentifierService {
+	
+	/**
+	 * @param resourceType the FHIR resource type, e.g. "Task"
+	 * @param identifier the business identifier; a missing system matches identifiers without one
+	 * @return the uuid of the resource with the identifier or null if there is none
+	 */
+	String getResourceUuid(@NotNull String resourceType, @NotNull TokenParam identifier);
+	
+	/**
+	 * Creates a resource unless a resource of the same type already has the given identifier. An
+	 * identifier whose resource no longer exists is released and used for the new resource.
+	 *
+	 * @param resourceType the FHIR resource type, e.g. "Task"
+	 * @param identifier the business identifier the resource is created with
+	 * @param creator creates the resource
+	 * @param reader reads an existing resource by uuid, throwing {@link ResourceNotFoundException} if
+	 *            there is none; any other failure, e.g. a missing privilege, is passed on and leaves the
+	 *            identifier in place
+	 * @return the created resource or the existing resource with the identifier
+	 */
+	<T extends DomainResource> ConditionalWriteOutcome<T> createIfNoneExist(@NotNull String resourceType,
+	        @NotNull TokenParam identifier, @NotNull Supplier<T> creator, @NotNull Function<String, T> reader);
+	
+	/**
+	 * Updates the resource of the given type with the given identifier or, if there is none, creates it
+	 *
+	 * @param resourceType the FHIR resource type, e.g. "Task"
+	 * @param identifier the business identifier of the resource
+	 * @param updater updates the resource with the given uuid
+	 * @param creator creates the resource
+	 * @return the updated or created resource
+	 */
+	<T extends DomainResource> ConditionalWriteOutcome<T> updateByIdentifier(@NotNull String resourceType,
+	        @NotNull TokenParam identifier, @NotNull Function<String, T> updater, @NotNull Supplier<T> creator);
+}
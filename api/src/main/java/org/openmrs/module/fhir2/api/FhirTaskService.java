@@ -30,6 +30,14 @@ public interface FhirTaskService {
 	 */
 	Task getTaskByUuid(String uuid);
 	
+	/**
+	 * Get task by the UUID, reading it from the database even if it was already read in this session
+	 *
+	 * @param uuid
+	 * @return the current state of the task with given internal identifier
+	 */
+	Task getLatestTaskByUuid(String uuid);
+	
 	/**
 	 * Save task to the DB
 	 * 
@@ -66,4 +74,14 @@ public interface FhirTaskService {
 	 */
 	Collection<Task> searchForTasks(ReferenceParam basedOnReference, ReferenceParam ownerReference, TokenOrListParam status,
 	        SortSpec sort);
+	
+	/**
+	 * Claims up to count requested Tasks for the given owner by moving them to the accepted state.
+	 * Tasks claimed by one caller are never returned to another caller.
+	 *
+	 * @param ownerReference a reference to the owner of the Tasks to claim
+	 * @param count the maximum number of Tasks to claim
+	 * @return the claimed Tasks
+	 */
+	Collection<Task> claimTasks(ReferenceParam ownerReference, int count);
 }
@@ -0,0 +1,38 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api;
+
+import javax.validation.constraints.NotNull;
+
+import org.hl7.fhir.r4.model.Parameters;
+
+public interface FhirTerminologyService {
+	
+	/**
+	 * Translates a code from one FHIR concept source to the codes its concepts are mapped to in the
+	 * other sources, as the result of the {@code ConceptMap/$translate} operation
+	 *
+	 * @param system the url of the source of the code
+	 * @param code the code to translate
+	 * @param targetSystem the url of the source to translate into, or null for every registered source
+	 * @return the translation, which has a {@code result} of false if nothing matched
+	 */
+	Parameters translate(@NotNull String system, @NotNull String code, String targetSystem);
+	
+	/**
+	 * Looks up a code in a FHIR concept source, as the result of the {@code CodeSystem/$lookup}
+	 * operation
+	 *
+	 * @param system the url of the source of the code
+	 * @param code the code to look up
+	 * @return the details of the code or null if it is not mapped to any concept
+	 */
+	Parameters lookup(@NotNull String system, @NotNull String code);
+}
@@ -0,0 +1,28 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api;
+
+import javax.validation.constraints.NotNull;
+
+import org.hl7.fhir.r4.model.ValueSet;
+
+public interface FhirValueSetService {
+	
+	/**
+	 * Expands the concept set with the given uuid into the members matching the filter
+	 *
+	 * @param uuid the uuid of the concept set
+	 * @param filter words that each match must have a word starting with, or null for every member
+	 * @param offset the number of matching members to skip
+	 * @param count the maximum number of members to return, or null to return every remaining member
+	 * @return the value set with its expansion or null if there is no concept set with the uuid
+	 */
+	ValueSet expand(@NotNull String uuid, String filter, int offset, Integer count);
+}
@@ -0,0 +1,48 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao;
+
+import javax.validation.constraints.NotNull;
+
+import java.util.Date;
+import java.util.List;
+
+import org.openmrs.module.fhir2.FhirCacheInvalidation;
+
+/**
+ * Reads and writes the cluster-wide log of cache invalidations. Every method runs in its own short
+ * transaction, independent of any transaction active on the calling thread, so that it can be used
+ * from a background thread.
+ */
+public interface FhirCacheInvalidationDao {
+	
+	/**
+	 * @param invalidations the invalidations to append to the log
+	 */
+	void saveInvalidations(@NotNull List<FhirCacheInvalidation> invalidations);
+	
+	/**
+	 * @param id the id to read after
+	 * @param maxResults the maximum number of invalidations to return
+	 * @return the invalidations with an id greater than the given id, in id order
+	 */
+	List<FhirCacheInvalidation> getInvalidationsAfter(long id, int maxResults);
+	
+	/**
+	 * @return the id of the last invalidation in the log or 0 if the log is empty
+	 */
+	long getLatestInvalidationId();
+	
+	/**
+	 * @param date the date to delete invalidations before
+	 * @return the number of invalidations deleted
+	 */
+	int deleteInvalidationsBefore(@NotNull Date date);
+}
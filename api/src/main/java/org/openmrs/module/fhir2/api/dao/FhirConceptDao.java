@@ -9,7 +9,10 @@
  */
 package org.openmrs.module.fhir2.api.dao;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.openmrs.Concept;
 
@@ -18,4 +21,28 @@ public interface FhirConceptDao {
 	Optional<Concept> getConceptByUuid(String uuid);
 	
 	Optional<Concept> getConceptBySourceNameAndCode(String sourceName, String code);
+	
+	/**
+	 * @param sourceName the name or HL7 code of a concept source
+	 * @param codes the codes in that source to resolve
+	 * @return the non-retired concept each code is mapped to, keyed by code; codes that aren't mapped
+	 *         to any concept are left out
+	 */
+	Map<String, Concept> getConceptsBySourceNameAndCodes(String sourceName, Collection<String> codes);
+	
+	Optional<Concept> getConceptById(Integer id);
+	
+	/**
+	 * @param system the url of a FHIR concept source
+	 * @param code a code in that source
+	 * @return the ids of the concepts mapped to the code
+	 */
+	Set<Integer> getConceptIdsBySystemAndCode(String system, String code);
+	
+	/**
+	 * @param system the url of a FHIR concept source
+	 * @param conceptIds the ids of the concepts to look up
+	 * @return the codes each concept is mapped to in the source, keyed by concept id
+	 */
+	Map<Integer, Set<String>> getCodesBySystemAndConceptIds(String system, Collection<Integer> conceptIds);
 }
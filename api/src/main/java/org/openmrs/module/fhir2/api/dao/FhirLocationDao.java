@@ -15,7 +15,7 @@ import java.util.Collection;
 import java.util.List;
 
 import ca.uhn.fhir.rest.api.SortSpec;
-import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import org.openmrs.Location;
@@ -26,7 +26,7 @@ public interface FhirLocationDao {
 	Location getLocationByUuid(@NotNull String uuid);
 	
 	Collection<Location> searchForLocations(StringOrListParam name, StringOrListParam city, StringOrListParam country,
-	        StringOrListParam postalCode, StringOrListParam state, TokenOrListParam tag, ReferenceOrListParam parent,
+	        StringOrListParam postalCode, StringOrListParam state, TokenOrListParam tag, ReferenceAndListParam parent,
 	        SortSpec sort);
 	
 	List<LocationAttribute> getActiveAttributesByLocationAndAttributeTypeUuid(@NotNull Location location,
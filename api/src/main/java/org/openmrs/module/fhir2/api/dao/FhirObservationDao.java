@@ -12,6 +12,8 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.validation.constraints.NotNull;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
 
 import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.param.DateRangeParam;
@@ -21,6 +23,7 @@ import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringAndListParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import org.openmrs.Obs;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
 
 public interface FhirObservationDao {
 	
@@ -31,4 +34,48 @@ public interface FhirObservationDao {
 	        QuantityAndListParam valueQuantityParam, StringAndListParam valueStringParam, DateRangeParam date,
 	        
 	        TokenAndListParam code, SortSpec sort);
+	
+	/**
+	 * Searches for observations, mapping each match as it is read from the database. Matches are
+	 * detached from the session once they have been mapped, so the mapper must not keep references
+	 * to them.
+	 *
+	 * @param mapper a {@link Function} which maps each matching {@link Obs}
+	 * @param <T> the type matches are mapped to
+	 * @return the mapped matches, in the order of the search
+	 */
+	<T> Collection<T> searchForObservations(ReferenceAndListParam encounterReference,
+	        ReferenceAndListParam patientReference, ReferenceParam hasMemberReference, TokenAndListParam valueConcept,
+	        DateRangeParam valueDateParam, QuantityAndListParam valueQuantityParam, StringAndListParam valueStringParam,
+	        DateRangeParam date, TokenAndListParam code, SortSpec sort, @NotNull Function<Obs, T> mapper);
+	
+	/**
+	 * Finds the most recent observations of each concept recorded for the matching patients, mapping
+	 * each as it is read from the database. The most recent observations of each patient and concept
+	 * are read from the end of an index, so only the observations returned are read.
+	 *
+	 * @param patientReference the patients whose observations to return
+	 * @param code the concepts to return observations of or null for every concept
+	 * @param max the number of observations to return for each patient and concept
+	 * @param mapper a {@link Function} which maps each matching {@link Obs}
+	 * @param <T> the type matches are mapped to
+	 * @return the mapped matches, most recent first
+	 */
+	<T> Collection<T> getLastnObservations(@NotNull ReferenceAndListParam patientReference, TokenAndListParam code,
+	        int max, @NotNull Function<Obs, T> mapper);
+	
+	/**
+	 * Computes the count, minimum, maximum, average and sum of the matching numeric observations of
+	 * each concept in the database, without loading the observations
+	 *
+	 * @param patientReference the patients whose observations to include or null for every patient
+	 * @param locationReference the locations whose observations to include or null for every location
+	 * @param code the concepts to compute statistics for
+	 * @param period the dates of the observations to include or null for every date
+	 * @param groupByLocation whether to compute separate statistics for each location
+	 * @return the statistics of each concept and, if grouped, location
+	 */
+	List<ObservationStatistics> getObservationStatistics(ReferenceAndListParam patientReference,
+	        ReferenceAndListParam locationReference, TokenAndListParam code, DateRangeParam period,
+	        boolean groupByLocation);
 }
@@ -12,6 +12,8 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.validation.constraints.NotNull;
 
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.param.DateRangeParam;
@@ -26,8 +28,25 @@ public interface FhirPatientDao {
 	
 	Patient getPatientByUuid(@NotNull String uuid);
 	
+	List<Patient> getPatientsByIds(@NotNull Collection<Integer> ids);
+	
 	PatientIdentifierType getPatientIdentifierTypeByNameOrUuid(String name, String uuid);
 	
+	/**
+	 * Finds the patients sharing the blocking key of the {@code $match} operation: a family name that is,
+	 * or sounds like, one of the given family names, a birthdate in the given range and, if given, the
+	 * same gender. Voided patients are never returned.
+	 *
+	 * @param familyNames the family names to match
+	 * @param birthdateFrom the earliest birthdate to match, inclusive
+	 * @param birthdateTo the latest birthdate to match, exclusive
+	 * @param gender the OpenMRS gender to match or null to match any gender
+	 * @param maxResults the maximum number of patients to return
+	 * @return the ids of the matching patients
+	 */
+	List<Integer> getMatchCandidateIds(@NotNull Collection<String> familyNames, @NotNull Date birthdateFrom,
+	        @NotNull Date birthdateTo, String gender, int maxResults);
+	
 	Collection<Patient> searchForPatients(StringOrListParam name, StringOrListParam given, StringOrListParam family,
 	        TokenOrListParam identifier, TokenOrListParam gender, DateRangeParam birthDate, DateRangeParam deathDate,
 	        TokenOrListParam deceased, StringOrListParam city, StringOrListParam state, StringOrListParam postalCode,
@@ -0,0 +1,59 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao;
+
+import javax.validation.constraints.NotNull;
+
+import java.util.Collection;
+
+import org.openmrs.PersonName;
+
+public interface FhirPersonNameTokenDao {
+	
+	/**
+	 * @return true once every existing person name has been indexed, i.e. the index can be used for
+	 *         searches
+	 */
+	boolean isIndexComplete();
+	
+	void setIndexComplete(boolean indexComplete);
+	
+	/**
+	 * Replaces the tokens stored for each of the given names. Voided names and the names of voided
+	 * people are left without tokens.
+	 *
+	 * @param personNames the names to index
+	 */
+	void saveNameTokens(@NotNull Collection<PersonName> personNames);
+	
+	void deleteNameTokens(@NotNull Collection<Integer> personNameIds);
+	
+	/**
+	 * @return the id of the last name indexed by the backfill or null if the backfill has not started
+	 */
+	Integer getLastIndexedPersonNameId();
+	
+	/**
+	 * Records how far the backfill has got, so that it can resume there after a restart
+	 *
+	 * @param personNameId the id of the last name indexed
+	 */
+	void setLastIndexedPersonNameId(@NotNull Integer personNameId);
+	
+	/**
+	 * Indexes the next batch of person names in order of id, replacing any tokens they already have
+	 *
+	 * @param afterPersonNameId only names with an id greater than this are indexed; null to start at
+	 *            the beginning
+	 * @param batchSize the maximum number of names to index
+	 * @return the id of the last name indexed or null if there were no more names to index
+	 */
+	Integer indexNameBatch(Integer afterPersonNameId, int batchSize);
+}
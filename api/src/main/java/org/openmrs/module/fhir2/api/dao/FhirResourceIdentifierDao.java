@@ -0,0 +1,43 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao;
+
+import javax.validation.constraints.NotNull;
+
+import java.util.Collection;
+
+import org.openmrs.module.fhir2.FhirResourceIdentifier;
+
+public interface FhirResourceIdentifierDao {
+	
+	/**
+	 * @param resourceType the FHIR resource type, e.g. "Task"
+	 * @param system the system of the identifier; empty if the identifier has no system
+	 * @param value the value of the identifier
+	 * @return the uuid of the resource with the identifier or null if there is none
+	 */
+	String getResourceUuid(@NotNull String resourceType, @NotNull String system, @NotNull String value);
+	
+	/**
+	 * Saves the identifier and flushes it, so that an identifier already used by another resource fails
+	 * here rather than when the transaction commits
+	 *
+	 * @param resourceIdentifier the identifier to save
+	 * @return the saved identifier
+	 */
+	FhirResourceIdentifier saveResourceIdentifier(@NotNull FhirResourceIdentifier resourceIdentifier);
+	
+	/**
+	 * Deletes the identifiers of the given resources, e.g. because the resources were deleted or voided
+	 *
+	 * @param resourceUuids the uuids of the resources
+	 */
+	void deleteResourceIdentifiers(@NotNull Collection<String> resourceUuids);
+}
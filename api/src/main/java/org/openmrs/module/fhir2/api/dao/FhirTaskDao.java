@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.validation.constraints.NotNull;
 
 import java.util.Collection;
+import java.util.List;
 
 import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.param.ReferenceParam;
@@ -25,8 +26,27 @@ public interface FhirTaskDao {
 	
 	public FhirTask getTaskByUuid(@NotNull String taskUUID);
 	
+	/**
+	 * Like {@link #getTaskByUuid(String)}, but reloads the task from the database if it is already in
+	 * the session, so that changes committed by other sessions since it was first read are seen
+	 *
+	 * @param taskUUID the uuid of the task
+	 * @return the current state of the task, or {@code null} if there is none
+	 */
+	public FhirTask getLatestTaskByUuid(@NotNull String taskUUID);
+	
 	public Collection<FhirTask> getTasksByBasedOnUuid(Class<? extends DomainResource> resourceType, String uuid);
 	
 	public Collection<FhirTask> searchForTasks(ReferenceParam basedOnReference, ReferenceParam ownerReference,
 	        TokenOrListParam status, SortSpec sort);
+	
+	/**
+	 * Atomically moves up to {@code count} requested tasks belonging to the given owner to the accepted
+	 * state, so that concurrent workers never claim the same task
+	 *
+	 * @param ownerReference the owner of the tasks to claim
+	 * @param count the maximum number of tasks to claim
+	 * @return the claimed tasks, which may be empty
+	 */
+	public List<FhirTask> claimTasks(@NotNull ReferenceParam ownerReference, int count);
 }
@@ -11,7 +11,10 @@ package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hibernate.criterion.Restrictions.and;
 import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.ilike;
+import static org.hibernate.criterion.Restrictions.in;
 import static org.hibernate.criterion.Restrictions.isNull;
+import static org.hibernate.criterion.Restrictions.like;
 import static org.hibernate.criterion.Restrictions.or;
 import static org.hibernate.criterion.Restrictions.sqlRestriction;
 import static org.hl7.fhir.r4.model.Patient.SP_FAMILY;
@@ -25,18 +28,39 @@ import static org.hl7.fhir.r4.model.Person.SP_NAME;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import ca.uhn.fhir.rest.param.StringOrListParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Subqueries;
 import org.hibernate.sql.JoinType;
 import org.openmrs.PersonName;
+import org.openmrs.module.fhir2.FhirPersonNameToken;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameTokenDao;
+import org.openmrs.module.fhir2.api.util.PersonNameTokenizer;
+import org.springframework.beans.factory.annotation.Autowired;
 
 public abstract class AbstractPersonDaoImpl extends BaseDaoImpl {
 	
+	private static final int MIN_PHONETIC_TOKEN_LENGTH = 3;
+	
+	@Autowired
+	@Setter(AccessLevel.PACKAGE)
+	private FhirPersonNameTokenDao personNameTokenDao;
+	
 	/**
 	 * Returns the sqlAlias of the Person class for queries from this class
 	 *
@@ -44,6 +68,107 @@ public abstract class AbstractPersonDaoImpl extends BaseDaoImpl {
 	 */
 	protected abstract String getSqlAlias();
 	
+	/**
+	 * Uses the person name token index for name searches once it has been fully built, falling back to
+	 * matching the person_name columns directly for {@code :exact} and {@code :contains} searches and
+	 * for values that do not reduce to a single token
+	 */
+	@Override
+	protected void handleNames(Criteria criteria, StringOrListParam name, StringOrListParam given,
+	        StringOrListParam family) {
+		if (personNameTokenDao == null || !personNameTokenDao.isIndexComplete()) {
+			super.handleNames(criteria, name, given, family);
+			return;
+		}
+		
+		if (name == null && given == null && family == null) {
+			return;
+		}
+		
+		criteria.createAlias("names", "pn");
+		
+		if (name != null) {
+			handleOrListParamAsStream(name,
+			    (nameParam) -> Arrays.stream(StringUtils.split(nameParam.getValue(), " \t,"))
+			            .map(token -> new StringParam().setValue(token).setExact(nameParam.isExact())
+			                    .setContains(nameParam.isContains()))
+			            .flatMap(tokenParam -> handleNameToken(tokenParam, null,
+			                Arrays.asList("pn.givenName", "pn.middleName", "pn.familyName"))))
+			                    .ifPresent(criteria::add);
+		}
+		
+		if (given != null) {
+			handleOrListParamAsStream(given, (givenName) -> handleNameToken(givenName, FhirPersonNameToken.GIVEN,
+			    Arrays.asList("pn.givenName"))).ifPresent(criteria::add);
+		}
+		
+		if (family != null) {
+			handleOrListParamAsStream(family, (familyName) -> handleNameToken(familyName, FhirPersonNameToken.FAMILY,
+			    Arrays.asList("pn.familyName"))).ifPresent(criteria::add);
+		}
+	}
+	
+	/**
+	 * Restricts a search to people with a family name that is, or sounds like, one of the given family
+	 * names. This is the name part of the blocking key used to find candidates for the {@code $match}
+	 * operation, which is answered from the person name token index once it has been fully built.
+	 *
+	 * @param criteria the search
+	 * @param idProperty the property holding the person id in the search
+	 * @param familyNames the family names to match
+	 * @return the restriction or nothing if the family names contain no tokens
+	 */
+	protected Optional<Criterion> handleFamilyNameBlockingKey(Criteria criteria, String idProperty,
+	        Collection<String> familyNames) {
+		List<String> tokens = familyNames.stream().flatMap(familyName -> PersonNameTokenizer.tokenize(familyName).stream())
+		        .distinct().collect(Collectors.toList());
+		if (tokens.isEmpty()) {
+			return Optional.empty();
+		}
+		
+		if (personNameTokenDao == null || !personNameTokenDao.isIndexComplete()) {
+			criteria.createAlias("names", "pn");
+			return Optional.of(and(eq("pn.voided", false), or(tokens.stream()
+			        .map(token -> ilike("pn.familyName", token, MatchMode.START)).toArray(Criterion[]::new))));
+		}
+		
+		Criterion tokenMatch = in("pnt.token", tokens);
+		List<String> phoneticKeys = tokens.stream().map(PersonNameTokenizer::phoneticKey).filter(Objects::nonNull)
+		        .distinct().collect(Collectors.toList());
+		if (!phoneticKeys.isEmpty()) {
+			tokenMatch = or(tokenMatch, in("pnt.phoneticKey", phoneticKeys));
+		}
+		
+		return Optional.of(Subqueries.propertyIn(idProperty,
+		    DetachedCriteria.forClass(FhirPersonNameToken.class, "pnt").add(eq("pnt.namePart", FhirPersonNameToken.FAMILY))
+		            .add(tokenMatch).setProjection(Projections.property("pnt.personId"))));
+	}
+	
+	private Stream<Optional<Criterion>> handleNameToken(StringParam nameParam, String namePart,
+	        List<String> fallbackProperties) {
+		List<String> tokens = PersonNameTokenizer.tokenize(nameParam.getValue());
+		if (nameParam.isExact() || nameParam.isContains() || tokens.size() != 1) {
+			return fallbackProperties.stream().map(property -> propertyLike(property, nameParam));
+		}
+		
+		String token = tokens.get(0);
+		Criterion tokenMatch = like("pnt.token", token, MatchMode.START);
+		
+		// phonetic matching only applies to general name searches, given and family are matched by prefix
+		String phoneticKey = PersonNameTokenizer.phoneticKey(token);
+		if (namePart == null && phoneticKey != null && token.length() >= MIN_PHONETIC_TOKEN_LENGTH) {
+			tokenMatch = or(tokenMatch, eq("pnt.phoneticKey", phoneticKey));
+		}
+		
+		DetachedCriteria tokenCriteria = DetachedCriteria.forClass(FhirPersonNameToken.class, "pnt").add(tokenMatch)
+		        .setProjection(Projections.property("pnt.personNameId"));
+		if (namePart != null) {
+			tokenCriteria.add(eq("pnt.namePart", namePart));
+		}
+		
+		return Stream.of(Optional.of(Subqueries.propertyIn("pn.personNameId", tokenCriteria)));
+	}
+	
 	@Override
 	protected Collection<Order> paramToProps(SortState sortState) {
 		String param = sortState.getParameter();
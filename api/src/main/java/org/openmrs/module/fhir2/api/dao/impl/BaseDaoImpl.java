@@ -13,6 +13,7 @@ import static org.hibernate.criterion.Projections.property;
 import static org.hibernate.criterion.Restrictions.and;
 import static org.hibernate.criterion.Restrictions.between;
 import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.eqProperty;
 import static org.hibernate.criterion.Restrictions.ge;
 import static org.hibernate.criterion.Restrictions.gt;
 import static org.hibernate.criterion.Restrictions.ilike;
@@ -23,6 +24,7 @@ import static org.hibernate.criterion.Restrictions.lt;
 import static org.hibernate.criterion.Restrictions.ne;
 import static org.hibernate.criterion.Restrictions.not;
 import static org.hibernate.criterion.Restrictions.or;
+import static org.hibernate.criterion.Restrictions.sqlRestriction;
 import static org.hibernate.criterion.Subqueries.propertyEq;
 
 import javax.validation.constraints.NotNull;
@@ -35,12 +37,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -62,17 +68,24 @@ import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Subqueries;
 import org.hibernate.internal.CriteriaImpl;
 import org.hibernate.sql.JoinType;
 import org.hl7.fhir.exceptions.FHIRException;
@@ -81,6 +94,8 @@ import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Practitioner;
 import org.hl7.fhir.r4.model.codesystems.AdministrativeGender;
 import org.openmrs.module.fhir2.FhirConceptSource;
+import org.openmrs.module.fhir2.api.util.SearchResultStream;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * <p>
@@ -154,11 +169,41 @@ import org.openmrs.module.fhir2.FhirConceptSource;
  *   );
  * }</pre>
  * </p>
+ * <p>
+ * {@link #handleCodeableConcept(Criteria, TokenAndListParam, String, String, String)} avoids these
+ * joins altogether by resolving each system and its codes to a set of concept ids using the
+ * {@link ConceptMappingIndex}, so that the query only needs {@code c.concept_id in (?, ?, ?)}.
+ * </p>
+ * <p>
+ * Chained patient parameters, e.g. {@code subject.identifier}, are handled the same way by
+ * {@link #handlePatientReference(Criteria, ReferenceAndListParam, String)}: the matching patients are
+ * resolved to ids with a separate query, so the search doesn't join the patient's names or
+ * identifiers.
+ * </p>
+ * <p>
+ * Searches should be executed with {@link #searchReadOnly(Criteria)} or, where the caller can map each
+ * result as it is read, {@link #scrollReadOnly(Criteria, Function)}. Both load the results as
+ * read-only entities, so Hibernate neither keeps a snapshot of them nor dirty-checks them on flush.
+ * </p>
  */
 public abstract class BaseDaoImpl {
 	
 	private static final BigDecimal APPROX_RANGE = new BigDecimal(0.1);
 	
+	// the most patients matched by chained patient parameters that are passed to a search as ids
+	public static final int MAX_CHAINED_PATIENT_IDS = 1000;
+	
+	@Autowired
+	@Setter(AccessLevel.PACKAGE)
+	private ConceptMappingIndex conceptMappingIndex;
+	
+	@Autowired
+	@Setter(AccessLevel.PACKAGE)
+	private SearchFetchSize searchFetchSize;
+	
+	@Setter(AccessLevel.PACKAGE)
+	private int maxChainedPatientIds = MAX_CHAINED_PATIENT_IDS;
+	
 	/**
 	 * Converts an {@link Iterable} to a {@link Stream}
 	 *
@@ -620,6 +665,14 @@ public abstract class BaseDaoImpl {
 				    in(String.format("%s.conceptId", conceptAlias),
 				        tokensToParams(tokens).map(NumberUtils::toInt).collect(Collectors.toList())),
 				    in(String.format("%s.uuid", conceptAlias), tokensToList(tokens))));
+			} else if (conceptMappingIndex != null) {
+				// resolve the codes up-front so the query doesn't need to join the mapping tables
+				Set<Integer> conceptIds = conceptMappingIndex.getConceptIds(system, tokensToList(tokens));
+				if (conceptIds.isEmpty()) {
+					return Optional.of(sqlRestriction("1=0"));
+				}
+				
+				return Optional.of(in(String.format("%s.conceptId", conceptAlias), conceptIds));
 			} else {
 				if (!containsAlias(criteria, conceptMapAlias)) {
 					criteria.createAlias(String.format("%s.conceptMappings", conceptAlias), conceptMapAlias).createAlias(
@@ -687,40 +740,37 @@ public abstract class BaseDaoImpl {
 		if (patientReference != null) {
 			criteria.createAlias(associationPath, "p");
 			
+			// chained parameters are matched against the patient on its own, so that the joins to its names
+			// and identifiers don't multiply the rows of the main query
+			Map<String, String> chainedAliases = new LinkedHashMap<>();
+			List<Criterion> chainedCriteria = new ArrayList<>();
+			
 			handleAndListParam(patientReference, patientToken -> {
 				if (patientToken.getChain() != null) {
 					switch (patientToken.getChain()) {
 						case Patient.SP_IDENTIFIER:
-							if (!containsAlias(criteria, "pi")) {
-								criteria.createAlias("p.identifiers", "pi");
-							}
-							criteria.add(ilike("pi.identifier", patientToken.getValue()));
+							chainedAliases.put("cpi", "cp.identifiers");
+							chainedCriteria.add(ilike("cpi.identifier", patientToken.getValue()));
 							break;
 						case Patient.SP_GIVEN:
-							if (!containsAlias(criteria, "pn")) {
-								criteria.createAlias("p.names", "pn");
-							}
-							criteria.add(ilike("pn.givenName", patientToken.getValue(), MatchMode.START));
+							chainedAliases.put("cpn", "cp.names");
+							chainedCriteria.add(ilike("cpn.givenName", patientToken.getValue(), MatchMode.START));
 							break;
 						case Patient.SP_FAMILY:
-							if (!containsAlias(criteria, "pn")) {
-								criteria.createAlias("p.names", "pn");
-							}
-							criteria.add(ilike("pn.familyName", patientToken.getValue(), MatchMode.START));
+							chainedAliases.put("cpn", "cp.names");
+							chainedCriteria.add(ilike("cpn.familyName", patientToken.getValue(), MatchMode.START));
 							break;
 						case Patient.SP_NAME:
-							if (!containsAlias(criteria, "pn")) {
-								criteria.createAlias("p.names", "pn");
-							}
+							chainedAliases.put("cpn", "cp.names");
 							List<Optional<Criterion>> criterionList = new ArrayList<>();
 							
 							for (String token : StringUtils.split(patientToken.getValue(), " \t,")) {
-								criterionList.add(propertyLike("pn.givenName", token));
-								criterionList.add(propertyLike("pn.middleName", token));
-								criterionList.add(propertyLike("pn.familyName", token));
+								criterionList.add(propertyLike("cpn.givenName", token));
+								criterionList.add(propertyLike("cpn.middleName", token));
+								criterionList.add(propertyLike("cpn.familyName", token));
 							}
 							
-							criteria.add(or(toCriteriaArray(criterionList)));
+							chainedCriteria.add(or(toCriteriaArray(criterionList)));
 							break;
 					}
 				} else {
@@ -729,7 +779,45 @@ public abstract class BaseDaoImpl {
 				
 				return Optional.empty();
 			});
+			
+			if (!chainedCriteria.isEmpty()) {
+				criteria.add(handleChainedPatients(criteria, () -> {
+					DetachedCriteria chainedPatients = DetachedCriteria.forClass(org.openmrs.Patient.class, "cp");
+					chainedAliases.forEach((alias, path) -> chainedPatients.createAlias(path, alias));
+					chainedCriteria.forEach(chainedPatients::add);
+					return chainedPatients;
+				}));
+			}
+		}
+	}
+	
+	/**
+	 * Restricts a search to the patients matched by chained patient parameters. The patients are
+	 * resolved up-front, so that the search only needs {@code p.id in (?, ?, ?)}. If more than
+	 * {@link #MAX_CHAINED_PATIENT_IDS} patients match, the search uses a correlated {@code exists}
+	 * subquery instead.
+	 *
+	 * @param criteria the search, in which the referenced patient has the alias {@code p}
+	 * @param chainedPatients creates the criteria matching the chained parameters on
+	 *            {@link org.openmrs.Patient} with the alias {@code cp}
+	 * @return the criterion restricting the search to the matched patients
+	 */
+	@SuppressWarnings("unchecked")
+	protected Criterion handleChainedPatients(Criteria criteria, Supplier<DetachedCriteria> chainedPatients) {
+		Optional<Session> session = asImpl(criteria).map(CriteriaImpl::getSession).filter(Session.class::isInstance)
+		        .map(Session.class::cast);
+		if (session.isPresent()) {
+			List<Integer> patientIds = chainedPatients.get().setProjection(Projections.distinct(Projections.id()))
+			        .getExecutableCriteria(session.get()).setMaxResults(maxChainedPatientIds + 1).list();
+			if (patientIds.isEmpty()) {
+				return sqlRestriction("1=0");
+			} else if (patientIds.size() <= maxChainedPatientIds) {
+				return in("p.id", patientIds);
+			}
 		}
+		
+		return Subqueries
+		        .exists(chainedPatients.get().add(eqProperty("cp.id", "p.id")).setProjection(Projections.id()));
 	}
 	
 	protected Optional<Criterion> handlePersonAddress(String aliasPrefix, StringOrListParam city, StringOrListParam state,
@@ -936,6 +1024,78 @@ public abstract class BaseDaoImpl {
 		return orListParameter.getValuesAsQueryTokens().stream();
 	}
 	
+	/**
+	 * Runs a search, loading the results as read-only entities. The results can still be used to
+	 * navigate lazy associations, but changes to them are never flushed to the database.
+	 *
+	 * @param criteria the search to run
+	 * @param <T> the type of the results
+	 * @return the results of the search
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> List<T> searchReadOnly(@NotNull Criteria criteria) {
+		return criteria.setReadOnly(true).setFetchSize(getFetchSize()).list();
+	}
+	
+	/**
+	 * Runs a search, mapping each result as it is read from a forward-only cursor. Results are loaded
+	 * as read-only entities and are evicted from the session once every fetch size results have been
+	 * mapped, so the session does not grow with the number of results. As the results are evicted, the
+	 * mapper must not keep references to them.
+	 * <p>
+	 * Note that some JDBC drivers, e.g. MySQL Connector/J without {@code useCursorFetch=true}, read the
+	 * whole result set regardless of the fetch size.
+	 * </p>
+	 *
+	 * @param criteria the search to run
+	 * @param mapper a {@link Function} which maps each result while it is still attached to the session
+	 * @param <T> the type of the results
+	 * @param <R> the type the results are mapped to
+	 * @return the mapped results, in the order of the search, less any written to an active
+	 *         {@link SearchResultStream}
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T, R> List<R> scrollReadOnly(@NotNull Criteria criteria, @NotNull Function<T, R> mapper) {
+		int fetchSize = getFetchSize();
+		Optional<Session> session = asImpl(criteria).map(CriteriaImpl::getSession).filter(Session.class::isInstance)
+		        .map(Session.class::cast);
+		
+		List<R> mapped = new ArrayList<>();
+		List<T> attached = new ArrayList<>(fetchSize);
+		
+		ScrollableResults results = criteria.setReadOnly(true).setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				T result = (T) results.get(0);
+				R mappedResult = mapper.apply(result);
+				if (!SearchResultStream.offer(mappedResult)) {
+					mapped.add(mappedResult);
+				}
+				
+				attached.add(result);
+				
+				if (attached.size() >= fetchSize) {
+					session.ifPresent(s -> attached.forEach(s::evict));
+					attached.clear();
+				}
+			}
+			
+			session.ifPresent(s -> attached.forEach(s::evict));
+		}
+		finally {
+			results.close();
+		}
+		
+		return mapped;
+	}
+	
+	/**
+	 * @return the number of rows fetched from the database at a time by searches
+	 */
+	protected int getFetchSize() {
+		return searchFetchSize != null ? searchFetchSize.get() : SearchFetchSize.DEFAULT_FETCH_SIZE;
+	}
+	
 	protected Criterion[] toCriteriaArray(Collection<Optional<Criterion>> collection) {
 		return toCriteriaArray(collection.stream());
 	}
@@ -0,0 +1,257 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hibernate.criterion.Projections.property;
+import static org.hibernate.criterion.Restrictions.eq;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Projections;
+import org.openmrs.ConceptMap;
+import org.openmrs.module.fhir2.FhirConceptSource;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationBus;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of concept mappings, used to resolve {@code system|code} tokens to concept ids
+ * before a search is run so that searches don't need to join the concept mapping tables, and to
+ * translate codes between the concept sources registered as FHIR concept sources.
+ * <p>
+ * Mappings are loaded one FHIR concept source at a time, the first time that source's url is used.
+ * Mappings loaded within a transaction are only shared with other threads once that transaction
+ * commits, so data that is rolled back never ends up in the index. When a transaction that changed a
+ * concept mapping or reference term commits, {@link ConceptMappingInterceptor} drops just the
+ * affected concept sources from the index; changes to a FHIR concept source clear the whole index.
+ * The interceptor publishes the same changes to the {@link CacheInvalidationBus}, so the indexes of
+ * other servers in a cluster are updated as well.
+ * </p>
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class ConceptMappingIndex implements CacheInvalidationListener {
+	
+	public static final String CACHE_NAME = "conceptMappings";
+	
+	private static final Logger log = LoggerFactory.getLogger(ConceptMappingIndex.class);
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	private final AtomicLong generation = new AtomicLong();
+	
+	private final Map<String, SystemMappings> mappingsBySystem = new ConcurrentHashMap<>();
+	
+	private final ThreadLocal<PendingMappings> pendingMappings = new ThreadLocal<>();
+	
+	/**
+	 * Returns the ids of the concepts mapped to any of the given codes in the concept source
+	 * registered with the given url
+	 *
+	 * @param system the url of the FHIR concept source
+	 * @param codes the codes to resolve
+	 * @return the matching concept ids or an empty set if none of the codes are mapped
+	 */
+	public Set<Integer> getConceptIds(String system, Collection<String> codes) {
+		Map<String, Set<Integer>> conceptIdsByCode = getMappings(system).conceptIdsByCode;
+		
+		Set<Integer> result = new HashSet<>();
+		for (String code : codes) {
+			if (code != null) {
+				result.addAll(conceptIdsByCode.getOrDefault(normalize(code), Collections.emptySet()));
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the codes that the given concepts are mapped to in the concept source registered with
+	 * the given url
+	 *
+	 * @param system the url of the FHIR concept source
+	 * @param conceptIds the ids of the concepts
+	 * @return the codes of each concept that has any in the source, keyed by concept id
+	 */
+	public Map<Integer, Set<String>> getCodes(String system, Collection<Integer> conceptIds) {
+		Map<Integer, Set<String>> codesByConceptId = getMappings(system).codesByConceptId;
+		
+		Map<Integer, Set<String>> result = new HashMap<>();
+		for (Integer conceptId : conceptIds) {
+			Set<String> codes = codesByConceptId.get(conceptId);
+			if (codes != null) {
+				result.put(conceptId, Collections.unmodifiableSet(codes));
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Clears the index so that mappings are reloaded the next time they are used
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		mappingsBySystem.clear();
+	}
+	
+	/**
+	 * Drops the mappings of the given concept sources so that they are reloaded the next time they are
+	 * used, keeping the mappings of every other source
+	 *
+	 * @param conceptSourceIds the ids of the concept sources whose mappings changed
+	 */
+	public void invalidateConceptSources(Collection<Integer> conceptSourceIds) {
+		if (conceptSourceIds.isEmpty()) {
+			return;
+		}
+		
+		generation.incrementAndGet();
+		mappingsBySystem.values().removeIf(mappings -> mappings.conceptSourceId == null
+		        || conceptSourceIds.contains(mappings.conceptSourceId));
+	}
+	
+	@Override
+	public String getCacheName() {
+		return CACHE_NAME;
+	}
+	
+	/**
+	 * Drops the concept sources changed on another server, given as concept source ids
+	 *
+	 * @param keys the ids of the concept sources whose mappings changed or null to clear the index
+	 */
+	@Override
+	public void invalidate(Collection<String> keys) {
+		if (keys == null) {
+			invalidate();
+		} else {
+			invalidateConceptSources(keys.stream().map(Integer::valueOf).collect(Collectors.toSet()));
+		}
+	}
+	
+	/**
+	 * Called once the current thread's transaction has completed to share any mappings loaded in it
+	 *
+	 * @param committed whether the transaction was committed
+	 */
+	void transactionCompleted(boolean committed) {
+		PendingMappings pending = pendingMappings.get();
+		pendingMappings.remove();
+		
+		// if the index was changed while we were loading, the mappings we loaded may already be stale
+		if (committed && pending != null && pending.generation == generation.get()) {
+			pending.mappingsBySystem.forEach(mappingsBySystem::putIfAbsent);
+		}
+	}
+	
+	private SystemMappings getMappings(String system) {
+		String key = normalize(system);
+		SystemMappings mappings = mappingsBySystem.get(key);
+		if (mappings != null) {
+			return mappings;
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		PendingMappings pending = pendingMappings.get();
+		if (pending == null || pending.session != session) {
+			pending = new PendingMappings(session, generation.get());
+			pendingMappings.set(pending);
+		}
+		
+		return pending.mappingsBySystem.computeIfAbsent(key, k -> loadMappings(system));
+	}
+	
+	private SystemMappings loadMappings(String system) {
+		Integer conceptSourceId = (Integer) sessionFactory.getCurrentSession().createCriteria(FhirConceptSource.class)
+		        .createAlias("conceptSource", "cs").add(eq("url", system).ignoreCase())
+		        .setProjection(property("cs.conceptSourceId"))
+		        .setMaxResults(1).uniqueResult();
+		
+		if (conceptSourceId == null) {
+			return new SystemMappings(null, Collections.emptyMap(), Collections.emptyMap());
+		}
+		
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = sessionFactory.getCurrentSession().createCriteria(ConceptMap.class)
+		        .createAlias("concept", "c").createAlias("conceptReferenceTerm", "crt")
+		        .createAlias("crt.conceptSource", "cs").add(eq("cs.conceptSourceId", conceptSourceId))
+		        .setProjection(Projections.projectionList().add(property("crt.code")).add(property("c.conceptId")))
+		        .list();
+		
+		Map<String, Set<Integer>> conceptIdsByCode = new HashMap<>();
+		Map<Integer, Set<String>> codesByConceptId = new HashMap<>();
+		for (Object[] row : rows) {
+			conceptIdsByCode.computeIfAbsent(normalize((String) row[0]), k -> new HashSet<>()).add((Integer) row[1]);
+			codesByConceptId.computeIfAbsent((Integer) row[1], k -> new HashSet<>()).add((String) row[0]);
+		}
+		
+		log.debug("Loaded {} concept mappings for {}", rows.size(), system);
+		
+		return new SystemMappings(conceptSourceId, conceptIdsByCode, codesByConceptId);
+	}
+	
+	// systems and codes are matched without regard to case, as the database does with its default collation
+	private static String normalize(String value) {
+		return value == null ? "" : value.toLowerCase(Locale.ROOT);
+	}
+	
+	private static class SystemMappings {
+		
+		// null if no FHIR concept source is registered with the system's url
+		private final Integer conceptSourceId;
+		
+		// keyed by the normalized code
+		private final Map<String, Set<Integer>> conceptIdsByCode;
+		
+		private final Map<Integer, Set<String>> codesByConceptId;
+		
+		private SystemMappings(Integer conceptSourceId, Map<String, Set<Integer>> conceptIdsByCode,
+		    Map<Integer, Set<String>> codesByConceptId) {
+			this.conceptSourceId = conceptSourceId;
+			this.conceptIdsByCode = conceptIdsByCode;
+			this.codesByConceptId = codesByConceptId;
+		}
+	}
+	
+	private static class PendingMappings {
+		
+		private final Session session;
+		
+		private final long generation;
+		
+		private final Map<String, SystemMappings> mappingsBySystem = new HashMap<>();
+		
+		private PendingMappings(Session session, long generation) {
+			this.session = session;
+			this.generation = generation;
+		}
+	}
+}
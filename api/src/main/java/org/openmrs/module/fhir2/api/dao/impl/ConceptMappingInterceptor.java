@@ -0,0 +1,171 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+import org.openmrs.module.fhir2.FhirConceptSource;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate interceptor that keeps the {@link ConceptMappingIndex} and the
+ * {@link ConceptResolutionCache} up-to-date with changes to concept mappings, reference terms and
+ * FHIR concept sources, on this server and, through the {@link CacheInvalidationBus}, on every
+ * other server in the cluster
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class ConceptMappingInterceptor extends EmptyInterceptor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	// the ids of the concept sources whose mappings changed in the current transaction; a null id means
+	// the whole index needs to be cleared
+	private static final ThreadLocal<Set<Integer>> changedConceptSourceIds = new ThreadLocal<>();
+	
+	// whether a concept was retired or un-retired in the current transaction
+	private static final ThreadLocal<Boolean> changedConceptRetired = new ThreadLocal<>();
+	
+	// lazy to avoid a cycle between the session factory, its interceptors and the index
+	@Lazy
+	@Autowired
+	private ConceptMappingIndex conceptMappingIndex;
+	
+	@Lazy
+	@Autowired
+	private ConceptResolutionCache conceptResolutionCache;
+	
+	@Lazy
+	@Autowired
+	private CacheInvalidationBus cacheInvalidationBus;
+	
+	/**
+	 * @return whether the current thread's transaction has changed anything that concepts are resolved
+	 *         from, in which case anything resolved in it must not be shared
+	 */
+	static boolean hasUncommittedChanges() {
+		return changedConceptSourceIds.get() != null || changedConceptRetired.get() != null;
+	}
+	
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		markIfMapping(entity, null, propertyNames);
+		return false;
+	}
+	
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		markIfMapping(entity, previousState, propertyNames);
+		
+		if (entity instanceof Concept && !Objects.equals(getProperty(currentState, propertyNames, "retired"),
+		    getProperty(previousState, propertyNames, "retired"))) {
+			changedConceptRetired.set(Boolean.TRUE);
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		markIfMapping(entity, state, propertyNames);
+	}
+	
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		boolean committed = tx != null && tx.wasCommitted();
+		
+		Set<Integer> conceptSourceIds = changedConceptSourceIds.get();
+		boolean conceptRetiredChanged = changedConceptRetired.get() != null;
+		changedConceptRetired.remove();
+		if (committed && (conceptSourceIds != null || conceptRetiredChanged)) {
+			conceptResolutionCache.invalidate();
+			cacheInvalidationBus.publish(ConceptResolutionCache.CACHE_NAME, null);
+		}
+		
+		if (conceptSourceIds != null) {
+			changedConceptSourceIds.remove();
+			if (committed) {
+				if (conceptSourceIds.contains(null)) {
+					conceptMappingIndex.invalidate();
+					cacheInvalidationBus.publish(ConceptMappingIndex.CACHE_NAME, null);
+				} else {
+					conceptMappingIndex.invalidateConceptSources(conceptSourceIds);
+					cacheInvalidationBus.publish(ConceptMappingIndex.CACHE_NAME,
+					    conceptSourceIds.stream().map(String::valueOf).collect(Collectors.toList()));
+				}
+			}
+		}
+		
+		conceptMappingIndex.transactionCompleted(committed);
+	}
+	
+	private void markIfMapping(Object entity, Object[] previousState, String[] propertyNames) {
+		if (entity instanceof ConceptMap) {
+			ConceptReferenceTerm term = ((ConceptMap) entity).getConceptReferenceTerm();
+			mark(term == null ? null : term.getConceptSource());
+			
+			Object previousTerm = getProperty(previousState, propertyNames, "conceptReferenceTerm");
+			if (previousTerm instanceof ConceptReferenceTerm && previousTerm != term) {
+				mark(((ConceptReferenceTerm) previousTerm).getConceptSource());
+			}
+		} else if (entity instanceof ConceptReferenceTerm) {
+			ConceptSource conceptSource = ((ConceptReferenceTerm) entity).getConceptSource();
+			mark(conceptSource);
+			
+			Object previousSource = getProperty(previousState, propertyNames, "conceptSource");
+			if (previousSource instanceof ConceptSource && previousSource != conceptSource) {
+				mark((ConceptSource) previousSource);
+			}
+		} else if (entity instanceof FhirConceptSource) {
+			mark(null);
+		}
+	}
+	
+	private void mark(ConceptSource conceptSource) {
+		Set<Integer> conceptSourceIds = changedConceptSourceIds.get();
+		if (conceptSourceIds == null) {
+			conceptSourceIds = new HashSet<>();
+			changedConceptSourceIds.set(conceptSourceIds);
+		}
+		
+		conceptSourceIds.add(conceptSource == null ? null : conceptSource.getConceptSourceId());
+	}
+	
+	private static Object getProperty(Object[] state, String[] propertyNames, String propertyName) {
+		if (state == null || propertyNames == null) {
+			return null;
+		}
+		
+		for (int i = 0; i < propertyNames.length && i < state.length; i++) {
+			if (propertyName.equals(propertyNames[i])) {
+				return state[i];
+			}
+		}
+		
+		return null;
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hibernate.criterion.Projections.property;
+import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.in;
+import static org.hibernate.criterion.Restrictions.or;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Projections;
+import org.openmrs.ConceptMap;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of the concept that each code in a concept source resolves to, used when
+ * translating incoming codings so that the same codes don't need to be looked up on every write.
+ * <p>
+ * Codes that aren't mapped to any concept are cached as well. Codes that are mapped to more than one
+ * non-retired concept are never cached, so that callers can fall back to the concept service and get
+ * the same behaviour as before. The cache is cleared by {@link ConceptMappingInterceptor} whenever a
+ * transaction that changed a concept mapping, reference term, FHIR concept source or the retired
+ * status of a concept commits. Codes resolved in a transaction that has changed any of these are not
+ * cached, so data that is rolled back never ends up in the cache.
+ * </p>
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class ConceptResolutionCache implements CacheInvalidationListener {
+	
+	public static final String CACHE_NAME = "conceptResolution";
+	
+	public static final int MAX_ENTRIES = 10000;
+	
+	// keeps the IN clause of a single query to a reasonable size
+	private static final int MAX_CODES_PER_QUERY = 500;
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	private long generation = 0;
+	
+	private final Map<String, Optional<Integer>> conceptIds = new LinkedHashMap<String, Optional<Integer>>(16, 0.75f,
+	        true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Optional<Integer>> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	
+	/**
+	 * Resolves the given codes in the given concept source to the ids of the non-retired concepts
+	 * mapped to them. Codes that aren't cached yet are resolved with a single query.
+	 *
+	 * @param sourceName the name or HL7 code of the concept source
+	 * @param codes the codes to resolve
+	 * @return the id of the concept each code resolves to, or an empty optional if the code isn't mapped
+	 *         to any concept, keyed by code; codes mapped to more than one concept are left out
+	 */
+	public Map<String, Optional<Integer>> getConceptIds(String sourceName, Collection<String> codes) {
+		Map<String, Optional<Integer>> result = new HashMap<>();
+		Set<String> missing = new LinkedHashSet<>();
+		
+		synchronized (conceptIds) {
+			for (String code : codes) {
+				Optional<Integer> conceptId = conceptIds.get(key(sourceName, code));
+				if (conceptId != null) {
+					result.put(code, conceptId);
+				} else {
+					missing.add(code);
+				}
+			}
+		}
+		
+		if (!missing.isEmpty()) {
+			result.putAll(load(sourceName, missing));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Clears the cache so that codes are resolved again the next time they are used
+	 */
+	public void invalidate() {
+		synchronized (conceptIds) {
+			generation++;
+			conceptIds.clear();
+		}
+	}
+	
+	@Override
+	public String getCacheName() {
+		return CACHE_NAME;
+	}
+	
+	@Override
+	public void invalidate(Collection<String> keys) {
+		invalidate();
+	}
+	
+	/**
+	 * Drops a single code, e.g. because the concept it resolved to has since been retired
+	 *
+	 * @param sourceName the name or HL7 code of the concept source
+	 * @param code the code to drop
+	 */
+	void evict(String sourceName, String code) {
+		synchronized (conceptIds) {
+			conceptIds.remove(key(sourceName, code));
+		}
+	}
+	
+	int size() {
+		synchronized (conceptIds) {
+			return conceptIds.size();
+		}
+	}
+	
+	private Map<String, Optional<Integer>> load(String sourceName, Collection<String> codes) {
+		long loadGeneration;
+		synchronized (conceptIds) {
+			loadGeneration = generation;
+		}
+		
+		// mappings are matched the same way as the database does, which is usually case-insensitive
+		Map<String, Set<Integer>> conceptIdsByCode = new HashMap<>();
+		List<String> remaining = new ArrayList<>(codes);
+		for (int start = 0; start < remaining.size(); start += MAX_CODES_PER_QUERY) {
+			List<String> batch = remaining.subList(start, Math.min(start + MAX_CODES_PER_QUERY, remaining.size()));
+			
+			@SuppressWarnings("unchecked")
+			List<Object[]> rows = sessionFactory.getCurrentSession().createCriteria(ConceptMap.class)
+			        .createAlias("concept", "c").createAlias("conceptReferenceTerm", "crt")
+			        .createAlias("crt.conceptSource", "cs")
+			        .add(or(eq("cs.name", sourceName), eq("cs.hl7Code", sourceName))).add(in("crt.code", batch))
+			        .add(eq("c.retired", false))
+			        .setProjection(Projections.projectionList().add(property("crt.code")).add(property("c.conceptId")))
+			        .list();
+			
+			for (Object[] row : rows) {
+				conceptIdsByCode.computeIfAbsent(((String) row[0]).toLowerCase(Locale.ROOT), k -> new HashSet<>())
+				        .add((Integer) row[1]);
+			}
+		}
+		
+		Map<String, Optional<Integer>> loaded = new HashMap<>();
+		for (String code : codes) {
+			Set<Integer> ids = conceptIdsByCode.getOrDefault(code.toLowerCase(Locale.ROOT), Collections.emptySet());
+			if (ids.size() <= 1) {
+				loaded.put(code, ids.stream().findFirst());
+			}
+		}
+		
+		synchronized (conceptIds) {
+			// if the cache was cleared while we were loading, what we loaded may already be stale
+			if (loadGeneration == generation && !ConceptMappingInterceptor.hasUncommittedChanges()) {
+				loaded.forEach((code, conceptId) -> conceptIds.put(key(sourceName, code), conceptId));
+			}
+		}
+		
+		return loaded;
+	}
+	
+	private static String key(String sourceName, String code) {
+		return sourceName + "|" + code;
+	}
+}
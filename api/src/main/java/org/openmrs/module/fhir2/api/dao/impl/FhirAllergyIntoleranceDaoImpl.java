@@ -63,7 +63,7 @@ public class FhirAllergyIntoleranceDaoImpl extends BaseDaoImpl implements FhirAl
 		handleManifestation(criteria, manifestationCode);
 		handleBoolean("voided", convertStringStatusToBoolean(clinicalStatus)).ifPresent(criteria::add);
 		
-		return criteria.list();
+		return searchReadOnly(criteria);
 	}
 	
 	private void handleManifestation(Criteria criteria, TokenAndListParam code) {
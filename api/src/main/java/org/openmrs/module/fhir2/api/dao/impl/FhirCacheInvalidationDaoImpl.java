@@ -0,0 +1,98 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hibernate.criterion.Restrictions.gt;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.openmrs.module.fhir2.FhirCacheInvalidation;
+import org.openmrs.module.fhir2.api.dao.FhirCacheInvalidationDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class FhirCacheInvalidationDaoImpl implements FhirCacheInvalidationDao {
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	@Override
+	public void saveInvalidations(List<FhirCacheInvalidation> invalidations) {
+		if (invalidations.isEmpty()) {
+			return;
+		}
+		
+		inStatelessSession(session -> {
+			for (FhirCacheInvalidation invalidation : invalidations) {
+				session.insert(invalidation);
+			}
+			
+			return null;
+		});
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<FhirCacheInvalidation> getInvalidationsAfter(long id, int maxResults) {
+		// a range scan of the primary key, so polling stays cheap however long the log is
+		return inStatelessSession(session -> (List<FhirCacheInvalidation>) session
+		        .createCriteria(FhirCacheInvalidation.class).add(gt("id", id)).addOrder(Order.asc("id"))
+		        .setMaxResults(maxResults).list());
+	}
+	
+	@Override
+	public long getLatestInvalidationId() {
+		Long id = inStatelessSession(session -> (Long) session.createCriteria(FhirCacheInvalidation.class)
+		        .setProjection(Projections.max("id")).uniqueResult());
+		return id == null ? 0L : id;
+	}
+	
+	@Override
+	public int deleteInvalidationsBefore(Date date) {
+		return inStatelessSession(session -> session
+		        .createQuery("delete from FhirCacheInvalidation where dateCreated < :date").setTimestamp("date", date)
+		        .executeUpdate());
+	}
+	
+	// stateless sessions skip the session factory's interceptors and don't join the current thread's session
+	private <T> T inStatelessSession(Function<StatelessSession, T> work) {
+		StatelessSession session = sessionFactory.openStatelessSession();
+		Transaction transaction = null;
+		try {
+			transaction = session.beginTransaction();
+			T result = work.apply(session);
+			transaction.commit();
+			return result;
+		}
+		catch (RuntimeException e) {
+			if (transaction != null && transaction.isActive()) {
+				transaction.rollback();
+			}
+			
+			throw e;
+		}
+		finally {
+			session.close();
+		}
+	}
+}
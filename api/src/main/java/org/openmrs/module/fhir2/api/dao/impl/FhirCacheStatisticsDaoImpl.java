@@ -0,0 +1,61 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.dao.FhirCacheStatisticsDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class FhirCacheStatisticsDaoImpl implements FhirCacheStatisticsDao {
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	@Override
+	public boolean isStatisticsEnabled() {
+		return sessionFactory.getStatistics().isStatisticsEnabled();
+	}
+	
+	@Override
+	public void setStatisticsEnabled(boolean statisticsEnabled) {
+		sessionFactory.getStatistics().setStatisticsEnabled(statisticsEnabled);
+	}
+	
+	@Override
+	public Map<String, SecondLevelCacheStatistics> getCacheRegionStatistics() {
+		Statistics statistics = sessionFactory.getStatistics();
+		
+		// entity and collection regions are named after the mapped class, so they share the module's package
+		Map<String, SecondLevelCacheStatistics> regionStatistics = new TreeMap<>();
+		for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+			if (regionName.startsWith(FhirConstants.CACHE_REGION_PREFIX)) {
+				SecondLevelCacheStatistics cacheStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+				if (cacheStatistics != null) {
+					regionStatistics.put(regionName, cacheStatistics);
+				}
+			}
+		}
+		
+		return regionStatistics;
+	}
+}
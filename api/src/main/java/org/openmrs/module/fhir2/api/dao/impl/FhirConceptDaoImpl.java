@@ -9,7 +9,12 @@
  */
 package org.openmrs.module.fhir2.api.dao.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import lombok.AccessLevel;
 import lombok.Setter;
@@ -26,6 +31,12 @@ public class FhirConceptDaoImpl implements FhirConceptDao {
 	@Autowired
 	private ConceptService conceptService;
 	
+	@Autowired
+	private ConceptMappingIndex conceptMappingIndex;
+	
+	@Autowired
+	private ConceptResolutionCache conceptResolutionCache;
+	
 	@Override
 	public Optional<Concept> getConceptByUuid(String uuid) {
 		return Optional.ofNullable(conceptService.getConceptByUuid(uuid));
@@ -33,6 +44,49 @@ public class FhirConceptDaoImpl implements FhirConceptDao {
 	
 	@Override
 	public Optional<Concept> getConceptBySourceNameAndCode(String sourceName, String code) {
-		return Optional.ofNullable(conceptService.getConceptByMapping(code, sourceName, false));
+		return Optional.ofNullable(getConceptsBySourceNameAndCodes(sourceName, Collections.singleton(code)).get(code));
+	}
+	
+	@Override
+	public Map<String, Concept> getConceptsBySourceNameAndCodes(String sourceName, Collection<String> codes) {
+		Map<String, Optional<Integer>> conceptIds = conceptResolutionCache.getConceptIds(sourceName, codes);
+		
+		Map<String, Concept> result = new HashMap<>();
+		for (String code : codes) {
+			Optional<Integer> conceptId = conceptIds.get(code);
+			
+			Concept concept = null;
+			if (conceptId == null) {
+				// the code is mapped to more than one concept, so leave it to the concept service to pick one
+				concept = conceptService.getConceptByMapping(code, sourceName, false);
+			} else if (conceptId.isPresent()) {
+				concept = conceptService.getConcept(conceptId.get());
+				if (concept == null || Boolean.TRUE.equals(concept.getRetired())) {
+					conceptResolutionCache.evict(sourceName, code);
+					concept = conceptService.getConceptByMapping(code, sourceName, false);
+				}
+			}
+			
+			if (concept != null) {
+				result.put(code, concept);
+			}
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public Optional<Concept> getConceptById(Integer id) {
+		return Optional.ofNullable(conceptService.getConcept(id));
+	}
+	
+	@Override
+	public Set<Integer> getConceptIdsBySystemAndCode(String system, String code) {
+		return conceptMappingIndex.getConceptIds(system, Collections.singleton(code));
+	}
+	
+	@Override
+	public Map<Integer, Set<String>> getCodesBySystemAndConceptIds(String system, Collection<Integer> conceptIds) {
+		return conceptMappingIndex.getCodes(system, conceptIds);
 	}
 }
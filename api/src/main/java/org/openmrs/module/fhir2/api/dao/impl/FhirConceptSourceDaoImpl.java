@@ -12,12 +12,15 @@ package org.openmrs.module.fhir2.api.dao.impl;
 import static org.hibernate.criterion.Restrictions.eq;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import lombok.AccessLevel;
 import lombok.Setter;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Order;
 import org.openmrs.module.fhir2.FhirConceptSource;
+import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirConceptSourceDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -36,13 +39,20 @@ public class FhirConceptSourceDaoImpl implements FhirConceptSourceDao {
 	@Transactional(readOnly = true)
 	@SuppressWarnings("unchecked")
 	public Collection<FhirConceptSource> getFhirConceptSources() {
-		return sessionFactory.getCurrentSession().createCriteria(FhirConceptSource.class).list();
+		return sessionFactory.getCurrentSession().createCriteria(FhirConceptSource.class).setCacheable(true)
+		        .setCacheRegion(FhirConstants.METADATA_QUERY_CACHE_REGION).list();
 	}
 	
 	@Override
+	@SuppressWarnings("unchecked")
 	public Optional<FhirConceptSource> getFhirConceptSourceByUrl(String url) {
-		return Optional.ofNullable((FhirConceptSource) sessionFactory.getCurrentSession()
-		        .createCriteria(FhirConceptSource.class).add(eq("url", url)).add(eq("retired", false)).uniqueResult());
+		List<FhirConceptSource> sources = sessionFactory.getCurrentSession().createCriteria(FhirConceptSource.class)
+		        .add(eq("url", url).ignoreCase()).add(eq("retired", false)).addOrder(Order.asc("id")).setCacheable(true)
+		        .setCacheRegion(FhirConstants.METADATA_QUERY_CACHE_REGION).list();
+		
+		// several sources may only differ in the case of their url; an exact match wins, then the oldest source
+		return sources.stream().filter(source -> url.equals(source.getUrl())).findFirst().map(Optional::of)
+		        .orElseGet(() -> sources.stream().findFirst());
 	}
 	
 	@Override
@@ -50,6 +60,7 @@ public class FhirConceptSourceDaoImpl implements FhirConceptSourceDao {
 		return Optional
 		        .ofNullable((FhirConceptSource) sessionFactory.getCurrentSession().createCriteria(FhirConceptSource.class)
 		                .createAlias("conceptSource", "conceptSource").add(eq("conceptSource.name", sourceName))
-		                .add(eq("conceptSource.retired", false)).add(eq("retired", false)).uniqueResult());
+		                .add(eq("conceptSource.retired", false)).add(eq("retired", false)).setCacheable(true)
+		                .setCacheRegion(FhirConstants.METADATA_QUERY_CACHE_REGION).uniqueResult());
 	}
 }
@@ -50,6 +50,6 @@ public class FhirEncounterDaoImpl extends BaseDaoImpl implements FhirEncounterDa
 		handleParticipantReference(criteria, participant);
 		handlePatientReference(criteria, subject);
 		
-		return criteria.list();
+		return searchReadOnly(criteria);
 	}
 }
@@ -9,15 +9,24 @@
  */
 package org.openmrs.module.fhir2.api.dao.impl;
 
+import static org.hibernate.criterion.Restrictions.disjunction;
 import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.in;
+import static org.hibernate.criterion.Restrictions.or;
+import static org.hibernate.criterion.Restrictions.sqlRestriction;
 
 import javax.validation.constraints.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+import ca.uhn.fhir.model.api.IQueryParameterOr;
 import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.ReferenceOrListParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
@@ -28,12 +37,14 @@ import org.hibernate.Criteria;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Subqueries;
 import org.hibernate.sql.JoinType;
 import org.openmrs.Location;
 import org.openmrs.LocationAttribute;
 import org.openmrs.module.fhir2.api.dao.FhirLocationDao;
+import org.openmrs.module.fhir2.api.util.HierarchyReferenceParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -42,10 +53,16 @@ import org.springframework.stereotype.Component;
 @Setter(AccessLevel.PACKAGE)
 public class FhirLocationDaoImpl extends BaseDaoImpl implements FhirLocationDao {
 	
+	// some databases limit the number of values in an IN list, so large subtrees are split into several
+	private static final int IN_LIST_BATCH_SIZE = 1000;
+	
 	@Autowired
 	@Qualifier("sessionFactory")
 	SessionFactory sessionFactory;
 	
+	@Autowired
+	LocationHierarchyIndex locationHierarchyIndex;
+	
 	@Override
 	public Location getLocationByUuid(String uuid) {
 		return (Location) sessionFactory.getCurrentSession().createCriteria(Location.class).add(eq("uuid", uuid))
@@ -54,7 +71,7 @@ public class FhirLocationDaoImpl extends BaseDaoImpl implements FhirLocationDao
 	
 	@Override
 	public Collection<Location> searchForLocations(StringOrListParam name, StringOrListParam city, StringOrListParam country,
-	        StringOrListParam postalCode, StringOrListParam state, TokenOrListParam tag, ReferenceOrListParam parent,
+	        StringOrListParam postalCode, StringOrListParam state, TokenOrListParam tag, ReferenceAndListParam parent,
 	        SortSpec sort) {
 		
 		Criteria criteria = this.sessionFactory.getCurrentSession().createCriteria(Location.class);
@@ -69,7 +86,7 @@ public class FhirLocationDaoImpl extends BaseDaoImpl implements FhirLocationDao
 		handleParentLocation(criteria, parent);
 		handleSort(criteria, sort);
 		
-		return criteria.list();
+		return searchReadOnly(criteria);
 	}
 	
 	@Override
@@ -119,13 +136,64 @@ public class FhirLocationDaoImpl extends BaseDaoImpl implements FhirLocationDao
 		}
 	}
 	
-	private void handleParentLocation(Criteria criteria, ReferenceOrListParam parent) {
+	private void handleParentLocation(Criteria criteria, ReferenceAndListParam parent) {
 		if (parent != null) {
+			handleAndListParamBy(parent, this::handleParentLocations).ifPresent(criteria::add);
+		}
+	}
+	
+	private Optional<Criterion> handleParentLocations(IQueryParameterOr<ReferenceParam> parent) {
+		ReferenceOrListParam directParents = new ReferenceOrListParam();
+		Set<Integer> hierarchyLocationIds = null;
+		
+		for (ReferenceParam parentReference : parent.getValuesAsQueryTokens()) {
+			if (parentReference instanceof HierarchyReferenceParam) {
+				hierarchyLocationIds = hierarchyLocationIds == null ? new HashSet<>() : hierarchyLocationIds;
+				switch (((HierarchyReferenceParam) parentReference).getModifier()) {
+					case BELOW:
+						hierarchyLocationIds.addAll(locationHierarchyIndex.getSubtreeIds(parentReference.getIdPart()));
+						break;
+					case ABOVE:
+						hierarchyLocationIds.addAll(locationHierarchyIndex.getAncestorIds(parentReference.getIdPart()));
+						break;
+				}
+			} else {
+				directParents.addOr(parentReference);
+			}
+		}
+		
+		List<Criterion> parentCriteria = new ArrayList<>();
+		if (!directParents.getValuesAsQueryTokens().isEmpty()) {
 			DetachedCriteria criteriaForParent = DetachedCriteria.forClass(Location.class);
-			handleOrListParam(parent, this::handleParentReference).ifPresent(criteriaForParent::add);
+			handleOrListParam(directParents, this::handleParentReference).ifPresent(criteriaForParent::add);
 			criteriaForParent.setProjection(Projections.property("locationId"));
-			criteria.add(Subqueries.propertyIn("parentLocation.locationId", criteriaForParent));
+			parentCriteria.add(Subqueries.propertyIn("parentLocation.locationId", criteriaForParent));
 		}
+		
+		if (hierarchyLocationIds != null) {
+			parentCriteria.add(hierarchyLocationIds.isEmpty() ? sqlRestriction("1=0")
+			        : inBatches("locationId", new ArrayList<>(hierarchyLocationIds)));
+		}
+		
+		if (parentCriteria.isEmpty()) {
+			return Optional.empty();
+		}
+		
+		return Optional.of(parentCriteria.size() == 1 ? parentCriteria.get(0)
+		        : or(parentCriteria.toArray(new Criterion[0])));
+	}
+	
+	private static Criterion inBatches(String propertyName, List<Integer> values) {
+		if (values.size() <= IN_LIST_BATCH_SIZE) {
+			return in(propertyName, values);
+		}
+		
+		Disjunction batches = disjunction();
+		for (int from = 0; from < values.size(); from += IN_LIST_BATCH_SIZE) {
+			batches.add(in(propertyName, values.subList(from, Math.min(from + IN_LIST_BATCH_SIZE, values.size()))));
+		}
+		
+		return batches;
 	}
 	
 	private Optional<Criterion> handleParentReference(ReferenceParam parentReference) {
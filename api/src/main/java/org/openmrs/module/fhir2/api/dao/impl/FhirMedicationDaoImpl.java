@@ -58,7 +58,7 @@ public class FhirMedicationDaoImpl extends BaseDaoImpl implements FhirMedication
 		handleMedicationDosageForm(criteria, dosageForm);
 		handleBoolean("retired", convertStringStatusToBoolean(status)).ifPresent(criteria::add);
 		
-		return criteria.list();
+		return searchReadOnly(criteria);
 	}
 	
 	private void handleMedicationCode(Criteria criteria, TokenAndListParam code) {
@@ -10,11 +10,19 @@
 package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.in;
+import static org.hibernate.criterion.Restrictions.isNotNull;
 
 import javax.validation.constraints.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.param.DateRangeParam;
@@ -25,11 +33,18 @@ import ca.uhn.fhir.rest.param.StringAndListParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import org.hibernate.Criteria;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
 import org.hl7.fhir.r4.model.Observation;
+import org.openmrs.Concept;
+import org.openmrs.Location;
 import org.openmrs.Obs;
 import org.openmrs.module.fhir2.api.dao.FhirObservationDao;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -37,6 +52,9 @@ import org.springframework.stereotype.Component;
 @Component
 public class FhirObservationDaoImpl extends BaseDaoImpl implements FhirObservationDao {
 	
+	// the most observation ids loaded by one query of $lastn
+	private static final int LASTN_BATCH_SIZE = 1000;
+	
 	@Autowired
 	@Qualifier("sessionFactory")
 	private SessionFactory sessionFactory;
@@ -51,7 +69,98 @@ public class FhirObservationDaoImpl extends BaseDaoImpl implements FhirObservati
 	        ReferenceAndListParam patientReference, ReferenceParam hasMemberReference, TokenAndListParam valueConcept,
 	        DateRangeParam valueDateParam, QuantityAndListParam valueQuantityParam, StringAndListParam valueStringParam,
 	        DateRangeParam date, TokenAndListParam code, SortSpec sort) {
+		return searchReadOnly(createSearchCriteria(encounterReference, patientReference, hasMemberReference, valueConcept,
+		    valueDateParam, valueQuantityParam, valueStringParam, date, code, sort));
+	}
+	
+	@Override
+	public <T> Collection<T> searchForObservations(ReferenceAndListParam encounterReference,
+	        ReferenceAndListParam patientReference, ReferenceParam hasMemberReference, TokenAndListParam valueConcept,
+	        DateRangeParam valueDateParam, QuantityAndListParam valueQuantityParam, StringAndListParam valueStringParam,
+	        DateRangeParam date, TokenAndListParam code, SortSpec sort, Function<Obs, T> mapper) {
+		return scrollReadOnly(createSearchCriteria(encounterReference, patientReference, hasMemberReference, valueConcept,
+		    valueDateParam, valueQuantityParam, valueStringParam, date, code, sort), mapper);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Collection<T> getLastnObservations(ReferenceAndListParam patientReference, TokenAndListParam code, int max,
+	        Function<Obs, T> mapper) {
+		Session session = sessionFactory.getCurrentSession();
+		Criteria groups = session.createCriteria(Obs.class);
+		
+		handlePatientReference(groups, patientReference, "person");
+		handleCodedConcept(groups, code);
+		groups.add(eq("voided", false)).setProjection(Projections.projectionList()
+		        .add(Projections.groupProperty("person.personId")).add(Projections.groupProperty("concept.conceptId")));
+		
+		// the last n observations of each person and concept are read from the end of the
+		// person, concept and date index, so each costs a bounded range scan however many there are
+		List<Object[]> lastn = new ArrayList<>();
+		for (Object[] group : (List<Object[]>) groups.list()) {
+			lastn.addAll(session.createCriteria(Obs.class).add(eq("person.personId", group[0]))
+			        .add(eq("concept.conceptId", group[1])).add(eq("voided", false))
+			        .setProjection(
+			            Projections.projectionList().add(Projections.id()).add(Projections.property("obsDatetime")))
+			        .addOrder(Order.desc("obsDatetime")).addOrder(Order.desc("obsId")).setMaxResults(max).list());
+		}
+		
+		// most recent first; ties on the date are broken by the id
+		lastn.sort(Comparator.comparing((Object[] row) -> (Date) row[1]).thenComparing(row -> (Integer) row[0])
+		        .reversed());
+		List<Integer> obsIds = lastn.stream().map(row -> (Integer) row[0]).collect(Collectors.toList());
+		
+		// the ids are loaded in sorted batches, each in the same order, so the results stay most recent first
+		List<T> results = new ArrayList<>(obsIds.size());
+		for (int from = 0; from < obsIds.size(); from += LASTN_BATCH_SIZE) {
+			Criteria batch = session.createCriteria(Obs.class)
+			        .add(in("obsId", obsIds.subList(from, Math.min(from + LASTN_BATCH_SIZE, obsIds.size()))))
+			        .addOrder(Order.desc("obsDatetime")).addOrder(Order.desc("obsId"));
+			results.addAll(scrollReadOnly(batch, mapper));
+		}
+		
+		return results;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<ObservationStatistics> getObservationStatistics(ReferenceAndListParam patientReference,
+	        ReferenceAndListParam locationReference, TokenAndListParam code, DateRangeParam period,
+	        boolean groupByLocation) {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Obs.class);
+		
+		handlePatientReference(criteria, patientReference, "person");
+		handleLocationReference("l", locationReference).ifPresent(c -> criteria.createAlias("location", "l").add(c));
+		handleCodedConcept(criteria, code);
+		handleDateRange("obsDatetime", period).ifPresent(criteria::add);
+		criteria.add(eq("voided", false)).add(isNotNull("valueNumeric"));
+		
+		ProjectionList projections = Projections.projectionList().add(Projections.groupProperty("concept"));
+		if (groupByLocation) {
+			projections.add(Projections.groupProperty("location"));
+		}
+		
+		projections.add(Projections.rowCount()).add(Projections.min("valueNumeric"))
+		        .add(Projections.max("valueNumeric")).add(Projections.avg("valueNumeric"))
+		        .add(Projections.sum("valueNumeric"));
+		
+		List<Object[]> rows = criteria.setProjection(projections).list();
 		
+		int offset = groupByLocation ? 2 : 1;
+		List<ObservationStatistics> statistics = new ArrayList<>(rows.size());
+		for (Object[] row : rows) {
+			statistics.add(new ObservationStatistics((Concept) row[0], groupByLocation ? (Location) row[1] : null,
+			        ((Number) row[offset]).longValue(), toDouble(row[offset + 1]), toDouble(row[offset + 2]),
+			        toDouble(row[offset + 3]), toDouble(row[offset + 4])));
+		}
+		
+		return statistics;
+	}
+	
+	protected Criteria createSearchCriteria(ReferenceAndListParam encounterReference,
+	        ReferenceAndListParam patientReference, ReferenceParam hasMemberReference, TokenAndListParam valueConcept,
+	        DateRangeParam valueDateParam, QuantityAndListParam valueQuantityParam, StringAndListParam valueStringParam,
+	        DateRangeParam date, TokenAndListParam code, SortSpec sort) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Obs.class);
 		
 		handleEncounterReference("e", encounterReference).ifPresent(c -> criteria.createAlias("encounter", "e").add(c));
@@ -66,7 +175,7 @@ public class FhirObservationDaoImpl extends BaseDaoImpl implements FhirObservati
 		handleCodedConcept(criteria, code);
 		handleSort(criteria, sort);
 		
-		return criteria.list();
+		return criteria;
 	}
 	
 	protected void handleHasMemberReference(Criteria criteria, ReferenceParam hasMemberReference) {
@@ -103,6 +212,10 @@ public class FhirObservationDaoImpl extends BaseDaoImpl implements FhirObservati
 		return null;
 	}
 	
+	private static Double toDouble(Object value) {
+		return value == null ? null : ((Number) value).doubleValue();
+	}
+	
 	private void handleCodedConcept(Criteria criteria, TokenAndListParam code) {
 		if (code != null) {
 			criteria.createAlias("concept", "c");
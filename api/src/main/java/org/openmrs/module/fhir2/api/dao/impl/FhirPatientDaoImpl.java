@@ -11,12 +11,18 @@ package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hibernate.criterion.Restrictions.and;
 import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.ge;
+import static org.hibernate.criterion.Restrictions.in;
+import static org.hibernate.criterion.Restrictions.lt;
 import static org.hibernate.criterion.Restrictions.or;
 import static org.hl7.fhir.r4.model.Patient.SP_DEATH_DATE;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.param.DateRangeParam;
@@ -25,9 +31,13 @@ import ca.uhn.fhir.rest.param.TokenOrListParam;
 import lombok.AccessLevel;
 import lombok.Setter;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Projections;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifierType;
+import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirPatientDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -53,12 +63,26 @@ public class FhirPatientDaoImpl extends AbstractPersonDaoImpl implements FhirPat
 		        .uniqueResult();
 	}
 	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Patient> getPatientsByIds(Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		// names and identifiers are fetched eagerly as they are needed to build patient references
+		return sessionFactory.getCurrentSession().createCriteria(Patient.class).add(in("patientId", ids))
+		        .setFetchMode("names", FetchMode.JOIN).setFetchMode("identifiers", FetchMode.JOIN)
+		        .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY).list();
+	}
+	
 	@Override
 	@SuppressWarnings("unchecked")
 	public PatientIdentifierType getPatientIdentifierTypeByNameOrUuid(String name, String uuid) {
 		List<PatientIdentifierType> identifierTypes = (List<PatientIdentifierType>) sessionFactory.getCurrentSession()
 		        .createCriteria(PatientIdentifierType.class)
-		        .add(or(and(eq("name", name), eq("retired", false)), eq("uuid", uuid))).list();
+		        .add(or(and(eq("name", name), eq("retired", false)), eq("uuid", uuid))).setCacheable(true)
+		        .setCacheRegion(FhirConstants.METADATA_QUERY_CACHE_REGION).list();
 		
 		if (identifierTypes.isEmpty()) {
 			return null;
@@ -75,6 +99,27 @@ public class FhirPatientDaoImpl extends AbstractPersonDaoImpl implements FhirPat
 		}
 	}
 	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Integer> getMatchCandidateIds(Collection<String> familyNames, Date birthdateFrom, Date birthdateTo,
+	        String gender, int maxResults) {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class);
+		
+		Optional<Criterion> familyNameBlockingKey = handleFamilyNameBlockingKey(criteria, "patientId", familyNames);
+		if (!familyNameBlockingKey.isPresent()) {
+			return Collections.emptyList();
+		}
+		
+		criteria.add(familyNameBlockingKey.get()).add(eq("voided", false)).add(ge("birthdate", birthdateFrom))
+		        .add(lt("birthdate", birthdateTo));
+		if (gender != null) {
+			criteria.add(eq("gender", gender));
+		}
+		
+		return criteria.setProjection(Projections.distinct(Projections.property("patientId"))).setMaxResults(maxResults)
+		        .list();
+	}
+	
 	@Override
 	public Collection<Patient> searchForPatients(StringOrListParam name, StringOrListParam given, StringOrListParam family,
 	        TokenOrListParam identifier, TokenOrListParam gender, DateRangeParam birthDate, DateRangeParam deathDate,
@@ -94,7 +139,7 @@ public class FhirPatientDaoImpl extends AbstractPersonDaoImpl implements FhirPat
 		});
 		handleSort(criteria, sort);
 		
-		return criteria.list();
+		return searchReadOnly(criteria);
 	}
 	
 	@Override
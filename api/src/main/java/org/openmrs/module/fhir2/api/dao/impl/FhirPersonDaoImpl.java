@@ -68,7 +68,7 @@ public class FhirPersonDaoImpl extends AbstractPersonDaoImpl implements FhirPers
 		
 		handleSort(criteria, sort);
 		
-		return criteria.list();
+		return searchReadOnly(criteria);
 	}
 	
 	@Override
@@ -0,0 +1,171 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hibernate.criterion.Restrictions.gt;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hibernate.Criteria;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Order;
+import org.openmrs.GlobalProperty;
+import org.openmrs.PersonName;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.FhirPersonNameToken;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameTokenDao;
+import org.openmrs.module.fhir2.api.util.PersonNameTokenizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class FhirPersonNameTokenDaoImpl implements FhirPersonNameTokenDao {
+	
+	private static final int MAX_IDS_PER_STATEMENT = 1000;
+	
+	private static final String INSERT_TOKEN = "insert into fhir_person_name_token"
+	        + " (person_name_id, person_id, name_part, token, phonetic_key) values (?, ?, ?, ?, ?)";
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	private volatile boolean indexComplete = false;
+	
+	@Override
+	public boolean isIndexComplete() {
+		return indexComplete;
+	}
+	
+	@Override
+	public void setIndexComplete(boolean indexComplete) {
+		this.indexComplete = indexComplete;
+	}
+	
+	@Override
+	public void saveNameTokens(Collection<PersonName> personNames) {
+		List<PersonName> names = personNames.stream()
+		        .filter(pn -> pn.getPersonNameId() != null && pn.getPerson() != null && pn.getPerson().getPersonId() != null)
+		        .collect(Collectors.toList());
+		if (names.isEmpty()) {
+			return;
+		}
+		
+		deleteNameTokens(names.stream().map(PersonName::getPersonNameId).collect(Collectors.toList()));
+		
+		// voided names, and the names of voided people, keep no tokens so that searches no longer match them
+		List<PersonName> activeNames = names.stream().filter(pn -> !pn.getVoided() && !pn.getPerson().getVoided())
+		        .collect(Collectors.toList());
+		if (activeNames.isEmpty()) {
+			return;
+		}
+		
+		// tokens are written with plain JDBC as this is called from inside a Hibernate flush
+		sessionFactory.getCurrentSession().doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(INSERT_TOKEN)) {
+				for (PersonName name : activeNames) {
+					addTokens(statement, name, FhirPersonNameToken.GIVEN, name.getGivenName());
+					addTokens(statement, name, FhirPersonNameToken.MIDDLE, name.getMiddleName());
+					addTokens(statement, name, FhirPersonNameToken.FAMILY, name.getFamilyName());
+				}
+				
+				statement.executeBatch();
+			}
+		});
+	}
+	
+	@Override
+	public void deleteNameTokens(Collection<Integer> personNameIds) {
+		List<Integer> ids = personNameIds.stream().filter(Objects::nonNull).collect(Collectors.toList());
+		if (ids.isEmpty()) {
+			return;
+		}
+		
+		sessionFactory.getCurrentSession().doWork(connection -> {
+			for (int from = 0; from < ids.size(); from += MAX_IDS_PER_STATEMENT) {
+				List<Integer> batch = ids.subList(from, Math.min(from + MAX_IDS_PER_STATEMENT, ids.size()));
+				String placeholders = String.join(", ", batch.stream().map(id -> "?").collect(Collectors.toList()));
+				try (PreparedStatement statement = connection.prepareStatement(
+				    "delete from fhir_person_name_token where person_name_id in (" + placeholders + ")")) {
+					for (int i = 0; i < batch.size(); i++) {
+						statement.setInt(i + 1, batch.get(i));
+					}
+					
+					statement.executeUpdate();
+				}
+			}
+		});
+	}
+	
+	@Override
+	public Integer getLastIndexedPersonNameId() {
+		GlobalProperty progress = (GlobalProperty) sessionFactory.getCurrentSession().get(GlobalProperty.class,
+		    FhirConstants.OPENMRS_FHIR_NAME_TOKEN_INDEX_PROGRESS);
+		return progress == null ? null : NumberUtils.createInteger(StringUtils.trimToNull(progress.getPropertyValue()));
+	}
+	
+	@Override
+	public void setLastIndexedPersonNameId(Integer personNameId) {
+		GlobalProperty progress = (GlobalProperty) sessionFactory.getCurrentSession().get(GlobalProperty.class,
+		    FhirConstants.OPENMRS_FHIR_NAME_TOKEN_INDEX_PROGRESS);
+		if (progress == null) {
+			progress = new GlobalProperty(FhirConstants.OPENMRS_FHIR_NAME_TOKEN_INDEX_PROGRESS, null,
+			        "Id of the last person name added to the FHIR name token index by the startup backfill");
+		}
+		
+		progress.setPropertyValue(personNameId.toString());
+		sessionFactory.getCurrentSession().saveOrUpdate(progress);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public Integer indexNameBatch(Integer afterPersonNameId, int batchSize) {
+		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(PersonName.class);
+		if (afterPersonNameId != null) {
+			criteria.add(gt("personNameId", afterPersonNameId));
+		}
+		
+		criteria.addOrder(Order.asc("personNameId")).setMaxResults(batchSize);
+		
+		List<PersonName> names = new ArrayList<>(criteria.list());
+		if (names.isEmpty()) {
+			return null;
+		}
+		
+		saveNameTokens(names);
+		names.forEach(sessionFactory.getCurrentSession()::evict);
+		
+		return names.get(names.size() - 1).getPersonNameId();
+	}
+	
+	private void addTokens(PreparedStatement statement, PersonName name, String namePart, String value)
+	        throws SQLException {
+		for (String token : PersonNameTokenizer.tokenize(value)) {
+			statement.setInt(1, name.getPersonNameId());
+			statement.setInt(2, name.getPerson().getPersonId());
+			statement.setString(3, namePart);
+			statement.setString(4, token);
+			statement.setString(5, PersonNameTokenizer.phoneticKey(token));
+			statement.addBatch();
+		}
+	}
+}
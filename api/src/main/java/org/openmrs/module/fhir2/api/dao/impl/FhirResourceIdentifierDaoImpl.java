@@ -0,0 +1,80 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hibernate.criterion.Projections.property;
+import static org.hibernate.criterion.Restrictions.eq;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.module.fhir2.FhirResourceIdentifier;
+import org.openmrs.module.fhir2.api.dao.FhirResourceIdentifierDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class FhirResourceIdentifierDaoImpl implements FhirResourceIdentifierDao {
+	
+	private static final int MAX_UUIDS_PER_STATEMENT = 1000;
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	@Override
+	public String getResourceUuid(String resourceType, String system, String value) {
+		// the restrictions match the unique index, so this is a single index lookup
+		return (String) sessionFactory.getCurrentSession().createCriteria(FhirResourceIdentifier.class)
+		        .add(eq("resourceType", resourceType)).add(eq("system", system)).add(eq("value", value))
+		        .setProjection(property("resourceUuid")).uniqueResult();
+	}
+	
+	@Override
+	public FhirResourceIdentifier saveResourceIdentifier(FhirResourceIdentifier resourceIdentifier) {
+		Session session = sessionFactory.getCurrentSession();
+		session.saveOrUpdate(resourceIdentifier);
+		session.flush();
+		return resourceIdentifier;
+	}
+	
+	@Override
+	public void deleteResourceIdentifiers(Collection<String> resourceUuids) {
+		List<String> uuids = resourceUuids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+		if (uuids.isEmpty()) {
+			return;
+		}
+		
+		// plain JDBC, as this also runs while a session is being flushed
+		sessionFactory.getCurrentSession().doWork(connection -> {
+			for (int from = 0; from < uuids.size(); from += MAX_UUIDS_PER_STATEMENT) {
+				List<String> batch = uuids.subList(from, Math.min(from + MAX_UUIDS_PER_STATEMENT, uuids.size()));
+				String placeholders = String.join(", ", batch.stream().map(uuid -> "?").collect(Collectors.toList()));
+				try (PreparedStatement statement = connection.prepareStatement(
+				    "delete from fhir_resource_identifier where resource_uuid in (" + placeholders + ")")) {
+					for (int i = 0; i < batch.size(); i++) {
+						statement.setString(i + 1, batch.get(i));
+					}
+					
+					statement.executeUpdate();
+				}
+			}
+		});
+	}
+}
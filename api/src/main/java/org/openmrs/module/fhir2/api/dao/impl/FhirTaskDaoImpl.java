@@ -10,10 +10,17 @@
 package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.in;
 
 import javax.validation.constraints.NotNull;
 
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 import ca.uhn.fhir.model.api.annotation.ResourceDef;
@@ -22,13 +29,23 @@ import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import lombok.AccessLevel;
 import lombok.Setter;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StandardBasicTypes;
 import org.hl7.fhir.r4.model.DomainResource;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.module.fhir2.FhirTask;
 import org.openmrs.module.fhir2.api.dao.FhirTaskDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -37,10 +54,16 @@ import org.springframework.stereotype.Component;
 @Setter(AccessLevel.PACKAGE)
 public class FhirTaskDaoImpl extends BaseDaoImpl implements FhirTaskDao {
 	
+	private static final Logger log = LoggerFactory.getLogger(FhirTaskDaoImpl.class);
+	
+	private static final int MAX_CLAIM_ATTEMPTS = 3;
+	
 	@Autowired
 	@Qualifier("sessionFactory")
 	SessionFactory sessionFactory;
 	
+	private volatile Boolean skipLockedSupported;
+	
 	@Override
 	public FhirTask saveTask(FhirTask task) throws DAOException {
 		// TODO: Refactor - and figure out why CascadeType.ALL does not take care of this.
@@ -59,6 +82,17 @@ public class FhirTaskDaoImpl extends BaseDaoImpl implements FhirTaskDao {
 		        .uniqueResult();
 	}
 	
+	@Override
+	public FhirTask getLatestTaskByUuid(String uuid) {
+		FhirTask task = getTaskByUuid(uuid);
+		if (task != null) {
+			// the criteria query returns the instance already in the session, with the state it was read with
+			sessionFactory.getCurrentSession().refresh(task);
+		}
+		
+		return task;
+	}
+	
 	@Override
 	public Collection<FhirTask> getTasksByBasedOnUuid(Class<? extends DomainResource> clazz, String uuid) {
 		return (Collection<FhirTask>) sessionFactory.getCurrentSession().createCriteria(FhirTask.class)
@@ -95,7 +129,142 @@ public class FhirTaskDaoImpl extends BaseDaoImpl implements FhirTaskDao {
 		
 		handleSort(criteria, sort);
 		
-		return criteria.list();
+		return searchReadOnly(criteria);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<FhirTask> claimTasks(ReferenceParam ownerReference, int count) {
+		if (!validReferenceParam(ownerReference) || count < 1) {
+			return Collections.emptyList();
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		session.flush();
+		
+		List<Integer> claimedIds = isSkipLockedSupported() ? claimWithSkipLocked(ownerReference, count)
+		        : claimOptimistically(ownerReference, count);
+		
+		if (claimedIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		List<FhirTask> tasks = session.createCriteria(FhirTask.class).add(in("id", claimedIds)).addOrder(Order.asc("id"))
+		        .list();
+		
+		// tasks already in the session won't reflect the bulk update
+		for (FhirTask task : tasks) {
+			if (task.getStatus() != FhirTask.TaskStatus.ACCEPTED) {
+				session.refresh(task);
+			}
+		}
+		
+		return tasks;
+	}
+	
+	/**
+	 * Locks the next requested tasks for the owner, skipping any rows other workers have locked, and
+	 * then accepts all of them. Both statements run in the current transaction, so the rows stay locked
+	 * until it completes.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Integer> claimWithSkipLocked(ReferenceParam ownerReference, int count) {
+		List<Integer> ids = sessionFactory.getCurrentSession()
+		        .createSQLQuery("select t.task_id from fhir_task t "
+		                + "inner join fhir_reference o on t.owner_reference_id = o.reference_id "
+		                + "where t.status = :status and o.reference = :reference and o.target_type = :type "
+		                + "order by t.task_id limit " + count + " for update skip locked")
+		        .addScalar("task_id", StandardBasicTypes.INTEGER)
+		        .setParameter("status", FhirTask.TaskStatus.REQUESTED.name())
+		        .setParameter("reference", ownerReference.getIdPart())
+		        .setParameter("type", ownerReference.getResourceType()).list();
+		
+		if (!ids.isEmpty()) {
+			acceptTasks(ids);
+		}
+		
+		return ids;
+	}
+	
+	/**
+	 * Used where the database cannot skip locked rows. Each candidate task is accepted with an update
+	 * that only succeeds if the task is still requested, so a task claimed by another worker in the
+	 * meantime is simply passed over.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Integer> claimOptimistically(ReferenceParam ownerReference, int count) {
+		List<Integer> claimedIds = new ArrayList<>(count);
+		
+		for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS && claimedIds.size() < count; attempt++) {
+			List<Integer> candidateIds = sessionFactory.getCurrentSession().createCriteria(FhirTask.class)
+			        .createAlias("ownerReference", "o").add(eq("o.reference", ownerReference.getIdPart()))
+			        .add(eq("o.type", ownerReference.getResourceType()))
+			        .add(eq("status", FhirTask.TaskStatus.REQUESTED)).setProjection(Projections.id())
+			        .addOrder(Order.asc("id")).setMaxResults(count - claimedIds.size()).list();
+			
+			if (candidateIds.isEmpty()) {
+				break;
+			}
+			
+			for (Integer candidateId : candidateIds) {
+				if (acceptTasks(Collections.singletonList(candidateId)) > 0) {
+					claimedIds.add(candidateId);
+				}
+			}
+		}
+		
+		return claimedIds;
+	}
+	
+	private int acceptTasks(List<Integer> ids) {
+		User user = Context.getAuthenticatedUser();
+		
+		Query query = sessionFactory.getCurrentSession()
+		        .createQuery("update FhirTask set status = :accepted, dateChanged = :now"
+		                + (user == null ? "" : ", changedBy = :user") + " where id in (:ids) and status = :requested")
+		        .setParameter("accepted", FhirTask.TaskStatus.ACCEPTED).setParameter("now", new Date())
+		        .setParameterList("ids", ids).setParameter("requested", FhirTask.TaskStatus.REQUESTED);
+		
+		if (user != null) {
+			query.setParameter("user", user);
+		}
+		
+		return query.executeUpdate();
+	}
+	
+	private boolean isSkipLockedSupported() {
+		Boolean supported = skipLockedSupported;
+		if (supported == null) {
+			supported = sessionFactory.getCurrentSession().doReturningWork(connection -> {
+				DatabaseMetaData metaData = connection.getMetaData();
+				return supportsSkipLocked(metaData.getDatabaseProductName(), metaData.getDatabaseProductVersion(),
+				    metaData.getDatabaseMajorVersion(), metaData.getDatabaseMinorVersion());
+			});
+			
+			log.debug("Task claims will {}use SELECT ... FOR UPDATE SKIP LOCKED", supported ? "" : "not ");
+			skipLockedSupported = supported;
+		}
+		
+		return supported;
+	}
+	
+	static boolean supportsSkipLocked(String productName, String productVersion, int majorVersion, int minorVersion) {
+		String product = productName == null ? "" : productName.toLowerCase(Locale.ROOT);
+		String version = productVersion == null ? "" : productVersion.toLowerCase(Locale.ROOT);
+		
+		if (product.contains("mariadb") || version.contains("mariadb")) {
+			// MariaDB reports its version as e.g. "5.5.5-10.6.4-MariaDB" to old MySQL clients
+			String[] parts = version.replaceFirst("^5\\.5\\.5-", "").split("[.-]");
+			int major = parts.length > 0 ? NumberUtils.toInt(parts[0]) : 0;
+			int minor = parts.length > 1 ? NumberUtils.toInt(parts[1]) : 0;
+			return major > 10 || (major == 10 && minor >= 6);
+		} else if (product.contains("mysql")) {
+			return majorVersion >= 8;
+		} else if (product.contains("postgresql")) {
+			return majorVersion > 9 || (majorVersion == 9 && minorVersion >= 5);
+		}
+		
+		return false;
 	}
 	
 	@Override
@@ -0,0 +1,190 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Projections;
+import org.hibernate.sql.JoinType;
+import org.openmrs.Location;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationBus;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of the location hierarchy used to resolve {@code partof:below} and
+ * {@code partof:above} searches to a set of location ids without walking the tree one level at a
+ * time in the database.
+ * <p>
+ * The index is built with a single projection query over the location table. It is marked stale by
+ * {@link LocationHierarchyInterceptor} whenever a transaction that saved or deleted a location
+ * completes, on this server or, through the {@link CacheInvalidationBus}, on any other server in the
+ * cluster, and is rebuilt the next time it is used.
+ * </p>
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class LocationHierarchyIndex implements CacheInvalidationListener {
+	
+	public static final String CACHE_NAME = "locationHierarchy";
+	
+	private static final Logger log = LoggerFactory.getLogger(LocationHierarchyIndex.class);
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	private final AtomicLong generation = new AtomicLong();
+	
+	private volatile Hierarchy hierarchy;
+	
+	/**
+	 * Returns the ids of the location with the given uuid and all of its descendants
+	 *
+	 * @param uuid the uuid of the root of the subtree
+	 * @return the location ids in the subtree or an empty set if no location has the given uuid
+	 */
+	public Set<Integer> getSubtreeIds(String uuid) {
+		Hierarchy current = getHierarchy();
+		Integer root = current.idsByUuid.get(uuid);
+		if (root == null) {
+			return Collections.emptySet();
+		}
+		
+		Set<Integer> result = new HashSet<>();
+		Deque<Integer> queue = new ArrayDeque<>();
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			Integer locationId = queue.poll();
+			// guard against cycles in the data
+			if (result.add(locationId)) {
+				queue.addAll(current.childrenById.getOrDefault(locationId, Collections.emptyList()));
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the ids of the location with the given uuid and all of its ancestors
+	 *
+	 * @param uuid the uuid of the location to start from
+	 * @return the location ids on the path to the root or an empty set if no location has the given
+	 *         uuid
+	 */
+	public Set<Integer> getAncestorIds(String uuid) {
+		Hierarchy current = getHierarchy();
+		Integer locationId = current.idsByUuid.get(uuid);
+		
+		Set<Integer> result = new HashSet<>();
+		while (locationId != null && result.add(locationId)) {
+			locationId = current.parentsById.get(locationId);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Marks the index as stale so that it is rebuilt the next time it is queried
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		hierarchy = null;
+	}
+	
+	@Override
+	public String getCacheName() {
+		return CACHE_NAME;
+	}
+	
+	@Override
+	public void invalidate(Collection<String> keys) {
+		invalidate();
+	}
+	
+	/**
+	 * Rebuilds the index from the database
+	 */
+	public void rebuild() {
+		buildHierarchy();
+	}
+	
+	private synchronized Hierarchy buildHierarchy() {
+		long startGeneration = generation.get();
+		Hierarchy newHierarchy = new Hierarchy();
+		
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = sessionFactory.getCurrentSession().createCriteria(Location.class)
+		        .createAlias("parentLocation", "pl", JoinType.LEFT_OUTER_JOIN)
+		        .setProjection(Projections.projectionList().add(Projections.property("locationId"))
+		                .add(Projections.property("uuid")).add(Projections.property("pl.locationId")))
+		        .list();
+		
+		for (Object[] row : rows) {
+			Integer locationId = (Integer) row[0];
+			Integer parentId = (Integer) row[2];
+			
+			newHierarchy.idsByUuid.put((String) row[1], locationId);
+			if (parentId != null) {
+				newHierarchy.parentsById.put(locationId, parentId);
+				newHierarchy.childrenById.computeIfAbsent(parentId, k -> new ArrayList<>()).add(locationId);
+			}
+		}
+		
+		log.debug("Built location hierarchy index with {} locations", rows.size());
+		
+		// if a location was changed while we were building, leave the index stale so the next caller rebuilds it
+		if (generation.get() == startGeneration) {
+			hierarchy = newHierarchy;
+		}
+		
+		return newHierarchy;
+	}
+	
+	private Hierarchy getHierarchy() {
+		Hierarchy current = hierarchy;
+		if (current == null) {
+			synchronized (this) {
+				current = hierarchy;
+				if (current == null) {
+					current = buildHierarchy();
+				}
+			}
+		}
+		
+		return current;
+	}
+	
+	private static class Hierarchy {
+		
+		private final Map<String, Integer> idsByUuid = new HashMap<>();
+		
+		private final Map<Integer, Integer> parentsById = new HashMap<>();
+		
+		private final Map<Integer, List<Integer>> childrenById = new HashMap<>();
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.io.Serializable;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+import org.openmrs.Location;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate interceptor that keeps the {@link LocationHierarchyIndex} up-to-date. OpenMRS chains all
+ * {@link org.hibernate.Interceptor} beans into the session factory, so this sees every location
+ * saved, updated or deleted regardless of which module made the change.
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class LocationHierarchyInterceptor extends EmptyInterceptor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final ThreadLocal<Boolean> locationsChanged = new ThreadLocal<>();
+	
+	// lazy to avoid a cycle between the session factory, its interceptors and the index
+	@Lazy
+	@Autowired
+	private LocationHierarchyIndex locationHierarchyIndex;
+	
+	@Lazy
+	@Autowired
+	private CacheInvalidationBus cacheInvalidationBus;
+	
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		markIfLocation(entity);
+		return false;
+	}
+	
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		markIfLocation(entity);
+		return false;
+	}
+	
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		markIfLocation(entity);
+	}
+	
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		if (Boolean.TRUE.equals(locationsChanged.get())) {
+			locationsChanged.remove();
+			locationHierarchyIndex.invalidate();
+			if (tx != null && tx.wasCommitted()) {
+				cacheInvalidationBus.publish(LocationHierarchyIndex.CACHE_NAME, null);
+			}
+		}
+	}
+	
+	private void markIfLocation(Object entity) {
+		if (entity instanceof Location) {
+			locationsChanged.set(Boolean.TRUE);
+		}
+	}
+}
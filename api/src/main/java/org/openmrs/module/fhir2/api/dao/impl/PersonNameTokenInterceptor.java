@@ -0,0 +1,142 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+import org.openmrs.Person;
+import org.openmrs.PersonName;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameTokenDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate interceptor that keeps the person name token index in sync with the
+ * {@code person_name} table. Changed names, and the names of people who were voided or unvoided,
+ * are collected while a session is flushed and their tokens are rewritten once the flush completes,
+ * in the same transaction.
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class PersonNameTokenInterceptor extends EmptyInterceptor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final Logger log = LoggerFactory.getLogger(PersonNameTokenInterceptor.class);
+	
+	private static final ThreadLocal<Set<PersonName>> savedNames = ThreadLocal
+	        .withInitial(() -> Collections.newSetFromMap(new IdentityHashMap<>()));
+	
+	private static final ThreadLocal<Set<Integer>> deletedNameIds = ThreadLocal.withInitial(HashSet::new);
+	
+	private static final ThreadLocal<Set<Person>> voidedOrUnvoidedPeople = ThreadLocal
+	        .withInitial(() -> Collections.newSetFromMap(new IdentityHashMap<>()));
+	
+	// lazy to avoid a cycle between the session factory, its interceptors and the dao
+	@Lazy
+	@Autowired
+	private FhirPersonNameTokenDao personNameTokenDao;
+	
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		if (entity instanceof PersonName) {
+			savedNames.get().add((PersonName) entity);
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		if (entity instanceof PersonName) {
+			savedNames.get().add((PersonName) entity);
+		} else if (entity instanceof Person && isVoidedChanged(currentState, previousState, propertyNames)) {
+			voidedOrUnvoidedPeople.get().add((Person) entity);
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		if (entity instanceof PersonName && id != null) {
+			deletedNameIds.get().add((Integer) id);
+		}
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void postFlush(Iterator entities) {
+		if (savedNames.get().isEmpty() && deletedNameIds.get().isEmpty() && voidedOrUnvoidedPeople.get().isEmpty()) {
+			return;
+		}
+		
+		Set<PersonName> names = Collections.newSetFromMap(new IdentityHashMap<>());
+		names.addAll(savedNames.get());
+		List<Integer> deletedIds = new ArrayList<>(deletedNameIds.get());
+		List<Person> people = new ArrayList<>(voidedOrUnvoidedPeople.get());
+		clear();
+		
+		try {
+			// the names of a person who was voided or unvoided are re-indexed, which drops or restores their tokens
+			people.forEach(person -> names.addAll(person.getNames()));
+			
+			personNameTokenDao.deleteNameTokens(deletedIds);
+			personNameTokenDao.saveNameTokens(names);
+		}
+		catch (Exception e) {
+			// the index is only an optimisation; fall back to searching person_name directly until it is rebuilt
+			log.error("Could not update the person name token index; name searches will not use it until restart", e);
+			personNameTokenDao.setIndexComplete(false);
+		}
+	}
+	
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		clear();
+	}
+	
+	private void clear() {
+		savedNames.get().clear();
+		deletedNameIds.get().clear();
+		voidedOrUnvoidedPeople.get().clear();
+	}
+	
+	private static boolean isVoidedChanged(Object[] currentState, Object[] previousState, String[] propertyNames) {
+		if (previousState == null) {
+			return false;
+		}
+		
+		for (int i = 0; i < propertyNames.length; i++) {
+			if ("voided".equals(propertyNames[i])) {
+				return !Objects.equals(currentState[i], previousState[i]);
+			}
+		}
+		
+		return false;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.type.Type;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.module.fhir2.api.dao.FhirResourceIdentifierDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate interceptor that deletes the business identifiers recorded for conditional creates once
+ * their resource is deleted, voided or retired, so that the identifier can be used for a new
+ * resource. Resources are matched by uuid alone, as that is what the identifiers point at. The rows
+ * are deleted once the flush completes, in the same transaction.
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class ResourceIdentifierInterceptor extends EmptyInterceptor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final ThreadLocal<Set<String>> removedUuids = ThreadLocal.withInitial(HashSet::new);
+	
+	// lazy to avoid a cycle between the session factory, its interceptors and the dao
+	@Lazy
+	@Autowired
+	private FhirResourceIdentifierDao resourceIdentifierDao;
+	
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		if (entity instanceof OpenmrsObject && (becameTrue("voided", currentState, previousState, propertyNames)
+		        || becameTrue("retired", currentState, previousState, propertyNames))) {
+			add((OpenmrsObject) entity);
+		}
+		
+		return false;
+	}
+	
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		if (entity instanceof OpenmrsObject) {
+			add((OpenmrsObject) entity);
+		}
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void postFlush(Iterator entities) {
+		if (removedUuids.get().isEmpty()) {
+			return;
+		}
+		
+		List<String> uuids = new ArrayList<>(removedUuids.get());
+		removedUuids.get().clear();
+		resourceIdentifierDao.deleteResourceIdentifiers(uuids);
+	}
+	
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		removedUuids.get().clear();
+	}
+	
+	private static void add(OpenmrsObject entity) {
+		if (entity.getUuid() != null) {
+			removedUuids.get().add(entity.getUuid());
+		}
+	}
+	
+	private static boolean becameTrue(String propertyName, Object[] currentState, Object[] previousState,
+	        String[] propertyNames) {
+		for (int i = 0; i < propertyNames.length; i++) {
+			if (propertyName.equals(propertyNames[i])) {
+				// without a previous state, e.g. for a detached object, any voided object may have just been voided
+				return Boolean.TRUE.equals(currentState[i])
+				        && (previousState == null || !Boolean.TRUE.equals(previousState[i]));
+			}
+		}
+		
+		return false;
+	}
+}
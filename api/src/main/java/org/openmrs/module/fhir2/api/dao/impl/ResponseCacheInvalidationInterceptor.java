@@ -0,0 +1,148 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.type.Type;
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+import org.openmrs.Drug;
+import org.openmrs.DrugIngredient;
+import org.openmrs.Location;
+import org.openmrs.LocationAttribute;
+import org.openmrs.LocationTag;
+import org.openmrs.Person;
+import org.openmrs.PersonAddress;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.Provider;
+import org.openmrs.ProviderAttribute;
+import org.openmrs.User;
+import org.openmrs.module.fhir2.FhirConceptSource;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationBus;
+import org.openmrs.module.fhir2.api.util.EncodedResponseCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate interceptor that drops the cached responses of a resource type from the
+ * {@link EncodedResponseCache} once a transaction that changed any of the OpenMRS objects the resource
+ * type is built from commits, and tells the other servers in the cluster to do the same
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class ResponseCacheInvalidationInterceptor extends EmptyInterceptor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	// the resource type built from each kind of OpenMRS object
+	private static final Map<Class<?>, String> RESOURCE_TYPE_BY_CLASS = new LinkedHashMap<>();
+	
+	static {
+		RESOURCE_TYPE_BY_CLASS.put(Location.class, "Location");
+		RESOURCE_TYPE_BY_CLASS.put(LocationAttribute.class, "Location");
+		RESOURCE_TYPE_BY_CLASS.put(LocationTag.class, "Location");
+		RESOURCE_TYPE_BY_CLASS.put(Provider.class, "Practitioner");
+		RESOURCE_TYPE_BY_CLASS.put(ProviderAttribute.class, "Practitioner");
+		RESOURCE_TYPE_BY_CLASS.put(User.class, "Practitioner");
+		RESOURCE_TYPE_BY_CLASS.put(Person.class, "Practitioner");
+		RESOURCE_TYPE_BY_CLASS.put(PersonName.class, "Practitioner");
+		RESOURCE_TYPE_BY_CLASS.put(PersonAddress.class, "Practitioner");
+		RESOURCE_TYPE_BY_CLASS.put(PersonAttribute.class, "Practitioner");
+		RESOURCE_TYPE_BY_CLASS.put(Drug.class, "Medication");
+		RESOURCE_TYPE_BY_CLASS.put(DrugIngredient.class, "Medication");
+		RESOURCE_TYPE_BY_CLASS.put(Concept.class, "Medication");
+		RESOURCE_TYPE_BY_CLASS.put(ConceptName.class, "Medication");
+		RESOURCE_TYPE_BY_CLASS.put(ConceptMap.class, "Medication");
+		RESOURCE_TYPE_BY_CLASS.put(ConceptReferenceTerm.class, "Medication");
+		RESOURCE_TYPE_BY_CLASS.put(ConceptSource.class, "Medication");
+		RESOURCE_TYPE_BY_CLASS.put(FhirConceptSource.class, "Medication");
+	}
+	
+	private static final ThreadLocal<Set<String>> changedResourceTypes = new ThreadLocal<>();
+	
+	// lazy to avoid a cycle between the session factory, its interceptors and the cache
+	@Lazy
+	@Autowired
+	private EncodedResponseCache responseCache;
+	
+	@Lazy
+	@Autowired
+	private CacheInvalidationBus cacheInvalidationBus;
+	
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		mark(entity);
+		return false;
+	}
+	
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		mark(entity);
+		return false;
+	}
+	
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		mark(entity);
+	}
+	
+	@Override
+	public void onCollectionUpdate(Object collection, Serializable key) {
+		if (collection instanceof PersistentCollection) {
+			mark(((PersistentCollection) collection).getOwner());
+		}
+	}
+	
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		Set<String> resourceTypes = changedResourceTypes.get();
+		if (resourceTypes != null) {
+			changedResourceTypes.remove();
+			if (tx != null && tx.wasCommitted()) {
+				responseCache.invalidate(resourceTypes);
+				cacheInvalidationBus.publish(EncodedResponseCache.CACHE_NAME, resourceTypes);
+			}
+		}
+	}
+	
+	private void mark(Object entity) {
+		if (entity == null) {
+			return;
+		}
+		
+		for (Map.Entry<Class<?>, String> entry : RESOURCE_TYPE_BY_CLASS.entrySet()) {
+			if (entry.getKey().isInstance(entity)) {
+				Set<String> resourceTypes = changedResourceTypes.get();
+				if (resourceTypes == null) {
+					resourceTypes = new HashSet<>();
+					changedResourceTypes.set(resourceTypes);
+				}
+				
+				resourceTypes.add(entry.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.util.Collection;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.dao.FhirGlobalPropertyDao;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationListener;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the number of rows searches fetch from the database at a time, as configured by
+ * {@link FhirConstants#OPENMRS_FHIR_SEARCH_FETCH_SIZE}. The value is read the first time a search is
+ * run and again after the global property changes on any server in the cluster.
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class SearchFetchSize implements CacheInvalidationListener {
+	
+	public static final int DEFAULT_FETCH_SIZE = 100;
+	
+	@Autowired
+	private FhirGlobalPropertyDao globalPropertyDao;
+	
+	private volatile Integer fetchSize;
+	
+	/**
+	 * @return the number of rows fetched from the database at a time by searches
+	 */
+	public int get() {
+		Integer result = fetchSize;
+		if (result == null) {
+			int configuredFetchSize = NumberUtils.toInt(
+			    globalPropertyDao.getGlobalProperty(FhirConstants.OPENMRS_FHIR_SEARCH_FETCH_SIZE), DEFAULT_FETCH_SIZE);
+			result = configuredFetchSize > 0 ? configuredFetchSize : DEFAULT_FETCH_SIZE;
+			fetchSize = result;
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public String getCacheName() {
+		return FhirGlobalPropertyListener.CACHE_NAME;
+	}
+	
+	@Override
+	public void invalidate(Collection<String> keys) {
+		if (keys == null || keys.contains(FhirConstants.OPENMRS_FHIR_SEARCH_FETCH_SIZE)) {
+			fetchSize = null;
+		}
+	}
+}
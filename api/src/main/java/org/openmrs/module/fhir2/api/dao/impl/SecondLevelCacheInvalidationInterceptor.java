@@ -0,0 +1,186 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.Cache;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.Type;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationBus;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the module's entities in the second-level cache correct across a cluster. Changes committed
+ * on this server are published to the {@link CacheInvalidationBus} as {@code entityName#id} keys,
+ * and the entities, their collections and the module's query cache region are evicted on the other
+ * servers when they receive them.
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class SecondLevelCacheInvalidationInterceptor extends EmptyInterceptor implements CacheInvalidationListener {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public static final String CACHE_NAME = "entities";
+	
+	private static final ThreadLocal<Set<String>> changedEntities = new ThreadLocal<>();
+	
+	// lazy to avoid a cycle between the session factory, its interceptors and the bus
+	@Lazy
+	@Autowired
+	private CacheInvalidationBus cacheInvalidationBus;
+	
+	@Lazy
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		mark(entity, id);
+		return false;
+	}
+	
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		mark(entity, id);
+		return false;
+	}
+	
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		mark(entity, id);
+	}
+	
+	@Override
+	public void onCollectionUpdate(Object collection, Serializable key) {
+		if (collection instanceof PersistentCollection) {
+			mark(((PersistentCollection) collection).getOwner(), key);
+		}
+	}
+	
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		Set<String> entities = changedEntities.get();
+		if (entities != null) {
+			changedEntities.remove();
+			if (tx != null && tx.wasCommitted()) {
+				cacheInvalidationBus.publish(CACHE_NAME, entities);
+			}
+		}
+	}
+	
+	@Override
+	public String getCacheName() {
+		return CACHE_NAME;
+	}
+	
+	@Override
+	public void invalidate(Collection<String> keys) {
+		Cache cache = sessionFactory.getCache();
+		if (keys == null) {
+			for (String entityName : sessionFactory.getAllClassMetadata().keySet()) {
+				if (isModuleEntity(entityName)) {
+					evictEntity(cache, entityName, null);
+				}
+			}
+		} else {
+			for (String key : keys) {
+				int split = key.lastIndexOf('#');
+				if (split > 0) {
+					evictEntity(cache, key.substring(0, split), key.substring(split + 1));
+				}
+			}
+		}
+		
+		cache.evictQueryRegion(FhirConstants.METADATA_QUERY_CACHE_REGION);
+	}
+	
+	private void evictEntity(Cache cache, String entityName, String id) {
+		ClassMetadata metadata = sessionFactory.getClassMetadata(entityName);
+		if (metadata == null) {
+			return;
+		}
+		
+		Serializable identifier = parseIdentifier(metadata, id);
+		if (identifier == null) {
+			cache.evictEntityRegion(entityName);
+		} else {
+			cache.evictEntity(entityName, identifier);
+		}
+		
+		for (String role : sessionFactory.getAllCollectionMetadata().keySet()) {
+			if (role.startsWith(entityName + ".")) {
+				if (identifier == null) {
+					cache.evictCollectionRegion(role);
+				} else {
+					cache.evictCollection(role, identifier);
+				}
+			}
+		}
+	}
+	
+	private void mark(Object entity, Serializable id) {
+		// only entities kept in the second-level cache can be stale on other servers
+		if (entity == null || id == null || !isModuleEntity(entity.getClass().getName())
+		        || !entity.getClass().isAnnotationPresent(org.hibernate.annotations.Cache.class)) {
+			return;
+		}
+		
+		Set<String> entities = changedEntities.get();
+		if (entities == null) {
+			entities = new HashSet<>();
+			changedEntities.set(entities);
+		}
+		
+		entities.add(entity.getClass().getName() + "#" + id);
+	}
+	
+	private static boolean isModuleEntity(String entityName) {
+		return entityName.startsWith(FhirConstants.CACHE_REGION_PREFIX + ".");
+	}
+	
+	// only numeric and string ids are published; anything else evicts the whole region
+	private static Serializable parseIdentifier(ClassMetadata metadata, String id) {
+		if (id == null) {
+			return null;
+		}
+		
+		Class<?> identifierClass = metadata.getIdentifierType().getReturnedClass();
+		try {
+			if (Integer.class.equals(identifierClass)) {
+				return Integer.valueOf(id);
+			} else if (Long.class.equals(identifierClass)) {
+				return Long.valueOf(id);
+			} else if (String.class.equals(identifierClass)) {
+				return id;
+			}
+		}
+		catch (NumberFormatException ignored) {}
+		
+		return null;
+	}
+}
@@ -37,7 +37,7 @@ public class FhirAllergyIntoleranceServiceImpl implements FhirAllergyIntolerance
 	private FhirAllergyIntoleranceDao allergyIntoleranceDao;
 	
 	@Override
-	@Transactional
+	@Transactional(readOnly = true)
 	public AllergyIntolerance getAllergyIntoleranceByUuid(String uuid) {
 		return allergyIntoleranceTranslator.toFhirResource(allergyIntoleranceDao.getAllergyIntoleranceByUuid(uuid));
 	}
@@ -0,0 +1,43 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import java.util.Map;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.openmrs.module.fhir2.api.FhirCacheStatisticsService;
+import org.openmrs.module.fhir2.api.dao.FhirCacheStatisticsDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class FhirCacheStatisticsServiceImpl implements FhirCacheStatisticsService {
+	
+	@Autowired
+	private FhirCacheStatisticsDao dao;
+	
+	@Override
+	public boolean isStatisticsEnabled() {
+		return dao.isStatisticsEnabled();
+	}
+	
+	@Override
+	public void setStatisticsEnabled(boolean statisticsEnabled) {
+		dao.setStatisticsEnabled(statisticsEnabled);
+	}
+	
+	@Override
+	public Map<String, SecondLevelCacheStatistics> getCacheRegionStatistics() {
+		return dao.getCacheRegionStatistics();
+	}
+}
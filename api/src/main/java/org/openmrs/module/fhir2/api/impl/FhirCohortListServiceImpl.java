@@ -36,4 +36,10 @@ public class FhirCohortListServiceImpl implements FhirListService<Cohort> {
 	public ListResource getListByUuid(String uuid) {
 		return cohortListTranslator.toFhirResource(dao.getListByUuid(uuid));
 	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public ListResource getListByUuid(String uuid, int offset, int count) {
+		return cohortListTranslator.toFhirResource(dao.getListByUuid(uuid), offset, count);
+	}
 }
@@ -9,6 +9,8 @@
  */
 package org.openmrs.module.fhir2.api.impl;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 import lombok.AccessLevel;
@@ -39,4 +41,10 @@ public class FhirConceptServiceImpl implements FhirConceptService {
 	public Optional<Concept> getConceptBySourceNameAndCode(String sourceName, String code) {
 		return dao.getConceptBySourceNameAndCode(sourceName, code);
 	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, Concept> getConceptsBySourceNameAndCodes(String sourceName, Collection<String> codes) {
+		return dao.getConceptsBySourceNameAndCodes(sourceName, codes);
+	}
 }
@@ -34,6 +34,7 @@ public class FhirDiagnosticReportServiceImpl implements FhirDiagnosticReportServ
 	DiagnosticReportTranslator translator;
 	
 	@Override
+	@Transactional(readOnly = true)
 	public DiagnosticReport getDiagnosticReportByUuid(String uuid) {
 		return translator.toFhirResource(dao.getObsGroupByUuid(uuid));
 	}
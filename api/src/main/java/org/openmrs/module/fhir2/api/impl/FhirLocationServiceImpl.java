@@ -13,7 +13,7 @@ import java.util.Collection;
 import java.util.stream.Collectors;
 
 import ca.uhn.fhir.rest.api.SortSpec;
-import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import lombok.AccessLevel;
@@ -46,7 +46,7 @@ public class FhirLocationServiceImpl implements FhirLocationService {
 	@Override
 	@Transactional(readOnly = true)
 	public Collection<Location> searchForLocations(StringOrListParam name, StringOrListParam city, StringOrListParam country,
-	        StringOrListParam postalCode, StringOrListParam state, TokenOrListParam tag, ReferenceOrListParam parent,
+	        StringOrListParam postalCode, StringOrListParam state, TokenOrListParam tag, ReferenceAndListParam parent,
 	        SortSpec sort) {
 		return locationDao.searchForLocations(name, city, country, postalCode, state, tag, parent, sort).stream()
 		        .map(locationTranslator::toFhirResource).collect(Collectors.toList());
@@ -9,7 +9,10 @@
  */
 package org.openmrs.module.fhir2.api.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import ca.uhn.fhir.rest.api.SortSpec;
@@ -22,9 +25,12 @@ import ca.uhn.fhir.rest.param.TokenAndListParam;
 import lombok.AccessLevel;
 import lombok.Setter;
 import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Period;
 import org.openmrs.module.fhir2.api.FhirObservationService;
 import org.openmrs.module.fhir2.api.dao.FhirObservationDao;
+import org.openmrs.module.fhir2.api.translators.ObservationStatisticsTranslator;
 import org.openmrs.module.fhir2.api.translators.ObservationTranslator;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,6 +46,9 @@ public class FhirObservationServiceImpl implements FhirObservationService {
 	@Autowired
 	ObservationTranslator observationTranslator;
 	
+	@Autowired
+	ObservationStatisticsTranslator observationStatisticsTranslator;
+	
 	@Override
 	@Transactional(readOnly = true)
 	public Observation getObservationByUuid(String uuid) {
@@ -52,9 +61,43 @@ public class FhirObservationServiceImpl implements FhirObservationService {
 	        ReferenceAndListParam patientReference, ReferenceParam hasMemberReference, TokenAndListParam valueConcept,
 	        DateRangeParam valueDateParam, QuantityAndListParam valueQuantityParam, StringAndListParam valueStringParam,
 	        DateRangeParam date, TokenAndListParam code, SortSpec sort) {
-		return dao
-		        .searchForObservations(encounterReference, patientReference, hasMemberReference, valueConcept,
-		            valueDateParam, valueQuantityParam, valueStringParam, date, code, sort)
-		        .stream().map(observationTranslator::toFhirResource).collect(Collectors.toList());
+		// observations are translated as they are read, so they need not be held in the session
+		return dao.searchForObservations(encounterReference, patientReference, hasMemberReference, valueConcept,
+		    valueDateParam, valueQuantityParam, valueStringParam, date, code, sort, observationTranslator::toFhirResource);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Collection<Observation> getLastnObservations(ReferenceAndListParam patientReference, TokenAndListParam code,
+	        int max) {
+		return dao.getLastnObservations(patientReference, code, max, observationTranslator::toFhirResource);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Collection<Observation> getObservationStatistics(ReferenceAndListParam patientReference,
+	        ReferenceAndListParam locationReference, TokenAndListParam code, DateRangeParam period,
+	        Collection<ObservationStatistics.Statistic> statistics, boolean groupByLocation) {
+		Set<String> codes = statistics.stream().map(ObservationStatistics.Statistic::getCode).collect(Collectors.toSet());
+		Period effectivePeriod = period == null ? null
+		        : new Period().setStart(period.getLowerBoundAsInstant()).setEnd(period.getUpperBoundAsInstant());
+		
+		List<Observation> observations = new ArrayList<>();
+		for (ObservationStatistics conceptStatistics : dao.getObservationStatistics(patientReference, locationReference,
+		    code, period, groupByLocation)) {
+			Observation observation = observationStatisticsTranslator.toFhirResource(conceptStatistics);
+			if (!codes.isEmpty()) {
+				observation.getComponent()
+				        .removeIf(component -> !codes.contains(component.getCode().getCodingFirstRep().getCode()));
+			}
+			
+			if (effectivePeriod != null) {
+				observation.setEffective(effectivePeriod.copy());
+			}
+			
+			observations.add(observation);
+		}
+		
+		return observations;
 	}
 }
@@ -9,7 +9,15 @@
  */
 package org.openmrs.module.fhir2.api.impl;
 
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import ca.uhn.fhir.rest.api.SortSpec;
@@ -18,12 +26,20 @@ import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import lombok.AccessLevel;
 import lombok.Setter;
+import org.apache.commons.lang3.tuple.Pair;
+import org.hl7.fhir.r4.model.HumanName;
 import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Patient;
 import org.openmrs.PatientIdentifierType;
 import org.openmrs.module.fhir2.api.FhirPatientService;
 import org.openmrs.module.fhir2.api.dao.FhirPatientDao;
+import org.openmrs.module.fhir2.api.translators.GenderTranslator;
 import org.openmrs.module.fhir2.api.translators.PatientTranslator;
+import org.openmrs.module.fhir2.api.util.PatientMatch;
+import org.openmrs.module.fhir2.api.util.PatientMatchResults;
+import org.openmrs.module.fhir2.api.util.PatientMatchScorer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,9 +49,26 @@ import org.springframework.transaction.annotation.Transactional;
 @Setter(AccessLevel.PACKAGE)
 public class FhirPatientServiceImpl implements FhirPatientService {
 	
+	private static final Logger log = LoggerFactory.getLogger(FhirPatientServiceImpl.class);
+	
+	// the most candidates scored for a $match; the blocking key should keep well below this
+	static final int MAX_MATCH_CANDIDATES = 1000;
+	
+	// birth years recorded one year out are still found, as the year is often estimated
+	static final int MATCH_BIRTH_YEAR_TOLERANCE = 1;
+	
+	static final double MIN_MATCH_SCORE = 0.6;
+	
+	static final double PROBABLE_MATCH_SCORE = 0.8;
+	
+	static final double CERTAIN_MATCH_SCORE = 0.95;
+	
 	@Autowired
 	private PatientTranslator translator;
 	
+	@Autowired
+	private GenderTranslator genderTranslator;
+	
 	@Autowired
 	private FhirPatientDao dao;
 	
@@ -60,4 +93,81 @@ public class FhirPatientServiceImpl implements FhirPatientService {
 		return dao.searchForPatients(name, given, family, identifier, gender, birthDate, deathDate, deceased, city, state,
 		    postalCode, country, sort).stream().map(translator::toFhirResource).collect(Collectors.toList());
 	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public PatientMatchResults matchPatients(Patient patient, boolean onlyCertainMatches, int count) {
+		List<String> familyNames = patient.getName().stream().map(HumanName::getFamily).filter(Objects::nonNull)
+		        .collect(Collectors.toList());
+		if (familyNames.isEmpty() || patient.getBirthDate() == null || count <= 0) {
+			return new PatientMatchResults(Collections.emptyList(), false);
+		}
+		
+		String gender = genderTranslator.toOpenmrsType(patient.getGender());
+		// unknown and other genders are too often recorded inconsistently to block on
+		String blockingGender = "M".equals(gender) || "F".equals(gender) ? gender : null;
+		
+		// patients born in the same year are the likeliest matches, so they are found first and those born
+		// a year either side only fill what is left of the candidates that are scored
+		Set<Integer> candidateIds = new LinkedHashSet<>();
+		boolean incomplete = false;
+		for (int tolerance : new int[] { 0, MATCH_BIRTH_YEAR_TOLERANCE }) {
+			Date[] birthdateRange = getBirthYearRange(patient.getBirthDate(), tolerance);
+			// one more than is scored, to tell whether any were left out
+			List<Integer> ids = dao.getMatchCandidateIds(familyNames, birthdateRange[0], birthdateRange[1],
+			    blockingGender, MAX_MATCH_CANDIDATES + 1);
+			for (Integer id : ids) {
+				if (candidateIds.size() >= MAX_MATCH_CANDIDATES) {
+					break;
+				}
+				
+				candidateIds.add(id);
+			}
+			
+			if (ids.size() > MAX_MATCH_CANDIDATES) {
+				incomplete = true;
+				// the submitted demographics are not logged, as they identify the patient
+				log.warn("More than {} patients share the $match blocking key; only the first {} were scored",
+				    MAX_MATCH_CANDIDATES, MAX_MATCH_CANDIDATES);
+				break;
+			}
+		}
+		
+		PatientMatchScorer scorer = new PatientMatchScorer(patient, gender, this::getPatientIdentifierTypeByIdentifier);
+		List<Pair<org.openmrs.Patient, Double>> scored = new ArrayList<>();
+		for (org.openmrs.Patient candidate : dao.getPatientsByIds(candidateIds)) {
+			double score = scorer.score(candidate);
+			if (score >= (onlyCertainMatches ? CERTAIN_MATCH_SCORE : MIN_MATCH_SCORE)) {
+				scored.add(Pair.of(candidate, score));
+			}
+		}
+		
+		scored.sort((first, second) -> Double.compare(second.getRight(), first.getRight()));
+		return new PatientMatchResults(
+		        scored.stream().limit(count).map(match -> new PatientMatch(translator.toFhirResource(match.getLeft()),
+		            match.getRight(), toMatchGrade(match.getRight()))).collect(Collectors.toList()),
+		        incomplete);
+	}
+	
+	/**
+	 * @return the start, inclusive, and end, exclusive, of the given number of years either side of the
+	 *         year of the given birthdate
+	 */
+	private static Date[] getBirthYearRange(Date birthdate, int tolerance) {
+		Calendar birthYear = Calendar.getInstance();
+		birthYear.setTime(birthdate);
+		birthYear.set(birthYear.get(Calendar.YEAR) - tolerance, Calendar.JANUARY, 1, 0, 0, 0);
+		birthYear.set(Calendar.MILLISECOND, 0);
+		Date from = birthYear.getTime();
+		birthYear.add(Calendar.YEAR, 2 * tolerance + 1);
+		return new Date[] { from, birthYear.getTime() };
+	}
+	
+	private static PatientMatch.Grade toMatchGrade(double score) {
+		if (score >= CERTAIN_MATCH_SCORE) {
+			return PatientMatch.Grade.CERTAIN;
+		}
+		
+		return score >= PROBABLE_MATCH_SCORE ? PatientMatch.Grade.PROBABLE : PatientMatch.Grade.POSSIBLE;
+	}
 }
@@ -0,0 +1,42 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.openmrs.module.fhir2.api.FhirPersonNameIndexService;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameTokenDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@Transactional
+@Setter(AccessLevel.PACKAGE)
+public class FhirPersonNameIndexServiceImpl implements FhirPersonNameIndexService {
+	
+	private static final int BATCH_SIZE = 1000;
+	
+	@Autowired
+	private FhirPersonNameTokenDao dao;
+	
+	@Override
+	public boolean indexNextNameBatch() {
+		Integer lastPersonNameId = dao.indexNameBatch(dao.getLastIndexedPersonNameId(), BATCH_SIZE);
+		if (lastPersonNameId == null) {
+			dao.setIndexComplete(true);
+			return false;
+		}
+		
+		// saved in the same transaction as the tokens, so a batch is either indexed and recorded or neither
+		dao.setLastIndexedPersonNameId(lastPersonNameId);
+		return true;
+	}
+}
@@ -44,6 +44,7 @@ public class FhirPersonServiceImpl implements FhirPersonService {
 	}
 	
 	@Override
+	@Transactional(readOnly = true)
 	public Collection<Person> searchForPeople(StringOrListParam name, TokenOrListParam gender, DateRangeParam birthDate,
 	        StringOrListParam city, StringOrListParam state, StringOrListParam postalCode, StringOrListParam country,
 	        SortSpec sort) {
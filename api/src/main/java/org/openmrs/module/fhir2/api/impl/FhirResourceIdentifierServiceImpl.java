@@ -0,0 +1,131 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import java.util.Collections;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceVersionConflictException;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hl7.fhir.r4.model.DomainResource;
+import org.openmrs.module.fhir2.FhirResourceIdentifier;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
+import org.openmrs.module.fhir2.api.dao.FhirResourceIdentifierDao;
+import org.openmrs.module.fhir2.api.util.ConditionalWriteOutcome;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@Transactional
+@Setter(AccessLevel.PACKAGE)
+public class FhirResourceIdentifierServiceImpl implements FhirResourceIdentifierService {
+	
+	@Autowired
+	private FhirResourceIdentifierDao dao;
+	
+	@Override
+	@Transactional(readOnly = true)
+	public String getResourceUuid(String resourceType, TokenParam identifier) {
+		return dao.getResourceUuid(resourceType, getSystem(identifier), getValue(identifier));
+	}
+	
+	@Override
+	public <T extends DomainResource> ConditionalWriteOutcome<T> createIfNoneExist(String resourceType,
+	        TokenParam identifier, Supplier<T> creator, Function<String, T> reader) {
+		String existingUuid = dao.getResourceUuid(resourceType, getSystem(identifier), getValue(identifier));
+		if (existingUuid != null) {
+			try {
+				T existing = reader.apply(existingUuid);
+				if (existing == null) {
+					// we cannot tell whether the resource is gone, so the identifier stays with it
+					throw new ResourceVersionConflictException(
+					        "A " + resourceType + " with this identifier exists but could not be read");
+				}
+				
+				return new ConditionalWriteOutcome<>(existing, false);
+			}
+			catch (ResourceNotFoundException e) {
+				// the resource was removed without the interceptor seeing it, e.g. purged directly in the database
+				dao.deleteResourceIdentifiers(Collections.singleton(existingUuid));
+			}
+		}
+		
+		return new ConditionalWriteOutcome<>(create(resourceType, identifier, creator), true);
+	}
+	
+	@Override
+	public <T extends DomainResource> ConditionalWriteOutcome<T> updateByIdentifier(String resourceType,
+	        TokenParam identifier, Function<String, T> updater, Supplier<T> creator) {
+		String existingUuid = dao.getResourceUuid(resourceType, getSystem(identifier), getValue(identifier));
+		if (existingUuid != null) {
+			return new ConditionalWriteOutcome<>(updater.apply(existingUuid), false);
+		}
+		
+		return new ConditionalWriteOutcome<>(create(resourceType, identifier, creator), true);
+	}
+	
+	private <T extends DomainResource> T create(String resourceType, TokenParam identifier, Supplier<T> creator) {
+		T resource = creator.get();
+		if (resource == null || resource.getIdElement().getIdPart() == null) {
+			throw new InternalErrorException("Created " + resourceType + " has no id");
+		}
+		
+		FhirResourceIdentifier resourceIdentifier = new FhirResourceIdentifier();
+		resourceIdentifier.setResourceType(resourceType);
+		resourceIdentifier.setSystem(getSystem(identifier));
+		resourceIdentifier.setValue(getValue(identifier));
+		resourceIdentifier.setResourceUuid(resource.getIdElement().getIdPart());
+		
+		try {
+			dao.saveResourceIdentifier(resourceIdentifier);
+		}
+		catch (ConstraintViolationException e) {
+			// another request created a resource with this identifier first; rolling back this transaction
+			// discards our copy, and retrying the request will find theirs
+			throw new ResourceVersionConflictException(
+			        "A " + resourceType + " with this identifier was created concurrently, retry the request");
+		}
+		
+		return resource;
+	}
+	
+	private static String getSystem(TokenParam identifier) {
+		String system = StringUtils.defaultString(identifier.getSystem());
+		if (system.length() > FhirResourceIdentifier.MAX_SYSTEM_LENGTH) {
+			throw new InvalidRequestException(
+			        "Identifier system must be at most " + FhirResourceIdentifier.MAX_SYSTEM_LENGTH + " characters long");
+		}
+		
+		return system;
+	}
+	
+	private static String getValue(TokenParam identifier) {
+		String value = identifier.getValue();
+		if (StringUtils.isBlank(value)) {
+			throw new InvalidRequestException("Identifier value must not be empty");
+		}
+		
+		if (value.length() > FhirResourceIdentifier.MAX_VALUE_LENGTH) {
+			throw new InvalidRequestException(
+			        "Identifier value must be at most " + FhirResourceIdentifier.MAX_VALUE_LENGTH + " characters long");
+		}
+		
+		return value;
+	}
+}
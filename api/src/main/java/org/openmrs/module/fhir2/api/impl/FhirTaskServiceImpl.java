@@ -11,6 +11,7 @@ package org.openmrs.module.fhir2.api.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import ca.uhn.fhir.rest.api.SortSpec;
@@ -27,6 +28,7 @@ import org.openmrs.module.fhir2.FhirTask;
 import org.openmrs.module.fhir2.api.FhirTaskService;
 import org.openmrs.module.fhir2.api.dao.FhirTaskDao;
 import org.openmrs.module.fhir2.api.translators.TaskTranslator;
+import org.openmrs.module.fhir2.api.util.TaskChangeRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -36,12 +38,17 @@ import org.springframework.transaction.annotation.Transactional;
 @Setter(AccessLevel.PACKAGE)
 public class FhirTaskServiceImpl implements FhirTaskService {
 	
+	private static final int MAX_CLAIM_COUNT = 100;
+	
 	@Autowired
 	private FhirTaskDao dao;
 	
 	@Autowired
 	private TaskTranslator translator;
 	
+	@Autowired
+	private TaskChangeRegistry taskChangeRegistry;
+	
 	/**
 	 * Get task by the UUID
 	 * 
@@ -54,6 +61,18 @@ public class FhirTaskServiceImpl implements FhirTaskService {
 		return translator.toFhirResource(dao.getTaskByUuid(uuid));
 	}
 	
+	/**
+	 * Get task by the UUID, reading it from the database even if it was already read in this session
+	 *
+	 * @param uuid
+	 * @return the current state of the task with given internal identifier
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Task getLatestTaskByUuid(String uuid) {
+		return translator.toFhirResource(dao.getLatestTaskByUuid(uuid));
+	}
+	
 	/**
 	 * Save task to the DB
 	 * 
@@ -62,7 +81,9 @@ public class FhirTaskServiceImpl implements FhirTaskService {
 	 */
 	@Override
 	public Task saveTask(Task task) {
-		return translator.toFhirResource(dao.saveTask(translator.toOpenmrsType(task)));
+		FhirTask savedTask = dao.saveTask(translator.toOpenmrsType(task));
+		taskChangeRegistry.taskChanged(savedTask.getUuid());
+		return translator.toFhirResource(savedTask);
 	}
 	
 	/**
@@ -92,7 +113,9 @@ public class FhirTaskServiceImpl implements FhirTaskService {
 			throw new MethodNotAllowedException("No Task found to update. Use Post to create new Tasks.");
 		}
 		
-		return translator.toFhirResource(dao.saveTask(translator.toOpenmrsType(openmrsTask, task)));
+		FhirTask savedTask = dao.saveTask(translator.toOpenmrsType(openmrsTask, task));
+		taskChangeRegistry.taskChanged(savedTask.getUuid());
+		return translator.toFhirResource(savedTask);
 	}
 	
 	/**
@@ -104,6 +127,7 @@ public class FhirTaskServiceImpl implements FhirTaskService {
 	 * @return the saved task
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public Collection<Task> getTasksByBasedOn(Class<? extends DomainResource> clazz, String uuid) {
 		Collection<Task> associatedTasks = new ArrayList<>();
 		
@@ -131,4 +155,27 @@ public class FhirTaskServiceImpl implements FhirTaskService {
 		return dao.searchForTasks(basedOnReference, ownerReference, status, sort).stream().map(translator::toFhirResource)
 		        .collect(Collectors.toList());
 	}
+	
+	/**
+	 * Claims up to count requested Tasks for the given owner
+	 *
+	 * @param ownerReference A reference to the owner of the Tasks
+	 * @param count The maximum number of Tasks to claim, which is capped at 100
+	 * @return the claimed Tasks
+	 */
+	@Override
+	public Collection<Task> claimTasks(ReferenceParam ownerReference, int count) {
+		if (ownerReference == null || ownerReference.getResourceType() == null || ownerReference.getIdPart() == null) {
+			throw new InvalidRequestException("An owner reference of the form Type/id is required to claim Tasks");
+		}
+		
+		if (count < 1) {
+			throw new InvalidRequestException("The number of Tasks to claim must be at least 1");
+		}
+		
+		List<FhirTask> claimedTasks = dao.claimTasks(ownerReference, Math.min(count, MAX_CLAIM_COUNT));
+		claimedTasks.forEach(claimedTask -> taskChangeRegistry.taskChanged(claimedTask.getUuid()));
+		
+		return claimedTasks.stream().map(translator::toFhirResource).collect(Collectors.toList());
+	}
 }
@@ -0,0 +1,127 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.StringType;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.module.fhir2.FhirConceptSource;
+import org.openmrs.module.fhir2.api.FhirTerminologyService;
+import org.openmrs.module.fhir2.api.dao.FhirConceptDao;
+import org.openmrs.module.fhir2.api.dao.FhirConceptSourceDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@Transactional
+@Setter(AccessLevel.PACKAGE)
+public class FhirTerminologyServiceImpl implements FhirTerminologyService {
+	
+	@Autowired
+	private FhirConceptDao conceptDao;
+	
+	@Autowired
+	private FhirConceptSourceDao conceptSourceDao;
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Parameters translate(String system, String code, String targetSystem) {
+		Set<Integer> conceptIds = new TreeSet<>(conceptDao.getConceptIdsBySystemAndCode(system, code));
+		
+		Collection<String> targetSystems;
+		if (targetSystem != null) {
+			targetSystems = Collections.singletonList(targetSystem);
+		} else {
+			targetSystems = new ArrayList<>();
+			for (FhirConceptSource conceptSource : conceptSourceDao.getFhirConceptSources()) {
+				if (!Boolean.TRUE.equals(conceptSource.getRetired()) && !system.equalsIgnoreCase(conceptSource.getUrl())) {
+					targetSystems.add(conceptSource.getUrl());
+				}
+			}
+		}
+		
+		List<Coding> matches = new ArrayList<>();
+		if (!conceptIds.isEmpty()) {
+			for (String target : targetSystems) {
+				Map<Integer, Set<String>> codesByConceptId = conceptDao.getCodesBySystemAndConceptIds(target, conceptIds);
+				for (Integer conceptId : conceptIds) {
+					Set<String> targetCodes = codesByConceptId.getOrDefault(conceptId, Collections.emptySet());
+					for (String targetCode : new TreeSet<>(targetCodes)) {
+						matches.add(new Coding(target, targetCode, null));
+					}
+				}
+			}
+		}
+		
+		Parameters parameters = new Parameters();
+		parameters.addParameter().setName("result").setValue(new BooleanType(!matches.isEmpty()));
+		if (matches.isEmpty()) {
+			parameters.addParameter().setName("message")
+			        .setValue(new StringType(conceptIds.isEmpty() ? "The code is not mapped to any concept"
+			                : "The code has no equivalent in the target system"));
+		}
+		
+		for (Coding match : matches) {
+			Parameters.ParametersParameterComponent matchParameter = parameters.addParameter().setName("match");
+			matchParameter.addPart().setName("equivalence").setValue(new CodeType("equivalent"));
+			matchParameter.addPart().setName("concept").setValue(match);
+		}
+		
+		return parameters;
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Parameters lookup(String system, String code) {
+		Set<Integer> conceptIds = new TreeSet<>(conceptDao.getConceptIdsBySystemAndCode(system, code));
+		if (conceptIds.isEmpty()) {
+			return null;
+		}
+		
+		Parameters parameters = new Parameters();
+		conceptSourceDao.getFhirConceptSourceByUrl(system).ifPresent(conceptSource -> parameters.addParameter()
+		        .setName("name").setValue(new StringType(conceptSource.getConceptSource().getName())));
+		
+		boolean hasDisplay = false;
+		for (Integer conceptId : conceptIds) {
+			Concept concept = conceptDao.getConceptById(conceptId).orElse(null);
+			if (concept == null) {
+				continue;
+			}
+			
+			ConceptName name = concept.getName();
+			if (!hasDisplay && name != null) {
+				parameters.addParameter().setName("display").setValue(new StringType(name.getName()));
+				hasDisplay = true;
+			}
+			
+			Parameters.ParametersParameterComponent property = parameters.addParameter().setName("property");
+			property.addPart().setName("code").setValue(new CodeType("concept"));
+			property.addPart().setName("value").setValue(new CodeType(concept.getUuid()));
+		}
+		
+		return parameters;
+	}
+}
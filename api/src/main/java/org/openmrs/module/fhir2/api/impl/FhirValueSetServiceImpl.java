@@ -0,0 +1,121 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptSet;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.api.FhirValueSetService;
+import org.openmrs.module.fhir2.api.dao.FhirConceptDao;
+import org.openmrs.module.fhir2.api.util.ValueSetExpansion;
+import org.openmrs.module.fhir2.api.util.ValueSetExpansionCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+@Transactional
+@Setter(AccessLevel.PACKAGE)
+public class FhirValueSetServiceImpl implements FhirValueSetService {
+	
+	@Autowired
+	private FhirConceptDao dao;
+	
+	@Autowired
+	private ValueSetExpansionCache expansionCache;
+	
+	@Override
+	@Transactional(readOnly = true)
+	public ValueSet expand(String uuid, String filter, int offset, Integer count) {
+		Concept conceptSet = dao.getConceptByUuid(uuid).filter(concept -> Boolean.TRUE.equals(concept.getSet()))
+		        .orElse(null);
+		if (conceptSet == null) {
+			return null;
+		}
+		
+		ValueSetExpansion expansion = expansionCache.get(getExpansionKey(conceptSet), () -> buildExpansion(conceptSet));
+		List<ValueSetExpansion.Entry> matches = expansion.filter(filter);
+		
+		int from = Math.min(Math.max(offset, 0), matches.size());
+		// clamped before adding, as from + count overflows for large counts
+		int to = count == null ? matches.size() : from + Math.min(matches.size() - from, Math.max(count, 0));
+		
+		ValueSet valueSet = new ValueSet();
+		valueSet.setId(conceptSet.getUuid());
+		valueSet.setName(getDisplay(conceptSet));
+		valueSet.setStatus(
+		    Boolean.TRUE.equals(conceptSet.getRetired()) ? Enumerations.PublicationStatus.RETIRED
+		            : Enumerations.PublicationStatus.ACTIVE);
+		
+		ValueSet.ValueSetExpansionComponent expansionComponent = valueSet.getExpansion();
+		expansionComponent.setTimestamp(new Date());
+		expansionComponent.setTotal(matches.size());
+		expansionComponent.setOffset(from);
+		if (filter != null) {
+			expansionComponent.addParameter().setName("filter").setValue(new StringType(filter));
+		}
+		expansionComponent.addParameter().setName("offset").setValue(new IntegerType(from));
+		if (count != null) {
+			expansionComponent.addParameter().setName("count").setValue(new IntegerType(count));
+		}
+		
+		for (ValueSetExpansion.Entry entry : matches.subList(from, to)) {
+			expansionComponent.addContains().setCode(entry.getCode()).setDisplay(entry.getDisplay());
+		}
+		
+		return valueSet;
+	}
+	
+	private String getExpansionKey(Concept conceptSet) {
+		// displays depend on the user's locale, and members can be renamed or retired without changing the set
+		StringBuilder key = new StringBuilder().append(conceptSet.getConceptId()).append('|').append(Context.getLocale())
+		        .append('|').append(getTime(conceptSet.getDateChanged()));
+		for (ConceptSet membership : conceptSet.getConceptSets()) {
+			Concept member = membership.getConcept();
+			if (member != null) {
+				key.append('|').append(member.getConceptId()).append(':').append(getTime(member.getDateChanged()))
+				        .append(':').append(Boolean.TRUE.equals(member.getRetired()));
+			}
+		}
+		
+		return key.toString();
+	}
+	
+	private static long getTime(Date date) {
+		return date == null ? 0 : date.getTime();
+	}
+	
+	private ValueSetExpansion buildExpansion(Concept conceptSet) {
+		List<ValueSetExpansion.Entry> entries = new ArrayList<>();
+		for (Concept member : conceptSet.getSetMembers()) {
+			if (!Boolean.TRUE.equals(member.getRetired())) {
+				entries.add(new ValueSetExpansion.Entry(member.getUuid(), getDisplay(member)));
+			}
+		}
+		
+		return new ValueSetExpansion(entries);
+	}
+	
+	private static String getDisplay(Concept concept) {
+		ConceptName name = concept.getName();
+		return name == null ? null : name.getName();
+	}
+}
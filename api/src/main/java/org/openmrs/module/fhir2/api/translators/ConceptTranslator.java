@@ -9,6 +9,8 @@
  */
 package org.openmrs.module.fhir2.api.translators;
 
+import java.util.Collection;
+
 import org.hl7.fhir.r4.model.CodeableConcept;
 import org.openmrs.Concept;
 
@@ -31,4 +33,13 @@ public interface ConceptTranslator extends OpenmrsFhirTranslator<Concept, Codeab
 	 */
 	@Override
 	Concept toOpenmrsType(CodeableConcept concept);
+	
+	/**
+	 * Warms the concept resolution cache with the codings of all the given codeable concepts, using a
+	 * single query per concept source. Nothing is returned; the concepts still need to be translated
+	 * one at a time with {@link #toOpenmrsType(CodeableConcept)}, which then finds their codes cached.
+	 *
+	 * @param concepts the codeable concepts that are about to be translated
+	 */
+	void warmConceptCache(Collection<CodeableConcept> concepts);
 }
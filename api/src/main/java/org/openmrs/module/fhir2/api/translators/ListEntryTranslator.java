@@ -9,6 +9,7 @@
  */
 package org.openmrs.module.fhir2.api.translators;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.hl7.fhir.r4.model.ListResource;
@@ -24,6 +25,26 @@ public interface ListEntryTranslator<T> extends ToFhirTranslator<T, List<ListRes
 	@Override
 	List<ListResource.ListEntryComponent> toFhirResource(T data);
 	
+	/**
+	 * Maps a page of the entries of an OpenMRS data object to
+	 * {@link org.hl7.fhir.r4.model.ListResource.ListEntryComponent}s
+	 *
+	 * @param data the OpenMRS object to translate
+	 * @param offset the index of the first entry to return
+	 * @param count the maximum number of entries to return
+	 * @return the corresponding FHIR list entries
+	 */
+	default List<ListResource.ListEntryComponent> toFhirResource(T data, int offset, int count) {
+		List<ListResource.ListEntryComponent> entries = toFhirResource(data);
+		if (entries == null) {
+			return null;
+		}
+		
+		int fromIndex = Math.min(Math.max(offset, 0), entries.size());
+		int toIndex = (int) Math.min((long) fromIndex + Math.max(count, 0), entries.size());
+		return new ArrayList<>(entries.subList(fromIndex, toIndex));
+	}
+	
 	/**
 	 * Maps a {@link org.hl7.fhir.r4.model.ListResource} to an OpenMRS data object
 	 *
@@ -22,6 +22,17 @@ public interface ListTranslator<T> extends ToFhirTranslator<T, ListResource>, Up
 	@Override
 	ListResource toFhirResource(T cohort);
 	
+	/**
+	 * Maps an {@link org.openmrs.Cohort} to a {@link org.hl7.fhir.r4.model.ListResource} containing
+	 * only a page of its entries
+	 *
+	 * @param cohort the cohort to translate
+	 * @param offset the index of the first entry to include
+	 * @param count the maximum number of entries to include
+	 * @return the corresponding FHIR list resource
+	 */
+	ListResource toFhirResource(T cohort, int offset, int count);
+	
 	/**
 	 * Maps a {@link org.hl7.fhir.r4.model.ListResource} to an {@link org.openmrs.Cohort}
 	 *
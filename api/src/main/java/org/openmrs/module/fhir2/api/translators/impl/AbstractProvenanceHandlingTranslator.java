@@ -17,6 +17,7 @@ import org.hl7.fhir.r4.model.Provenance;
 import org.openmrs.User;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.translators.PractitionerReferenceTranslator;
+import org.openmrs.module.fhir2.api.util.TranslationMemo;
 import org.springframework.beans.factory.annotation.Autowired;
 
 @Setter(AccessLevel.PACKAGE)
@@ -50,6 +51,11 @@ public abstract class AbstractProvenanceHandlingTranslator {
 	}
 	
 	protected Provenance.ProvenanceAgentComponent createAgentComponent(User user) {
+		return TranslationMemo.memoize("ProvenanceAgent", user == null ? null : user.getUserId(),
+		    () -> buildAgentComponent(user));
+	}
+	
+	private Provenance.ProvenanceAgentComponent buildAgentComponent(User user) {
 		Provenance.ProvenanceAgentComponent agentComponent = new Provenance.ProvenanceAgentComponent();
 		return agentComponent.setWho(practitionerReferenceTranslator.toFhirResource(user)).addRole(addAgentRole())
 		        .setType(createAgentType());
@@ -28,6 +28,7 @@ import org.openmrs.Provider;
 import org.openmrs.User;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.translators.PatientIdentifierTranslator;
+import org.openmrs.module.fhir2.api.util.TranslationMemo;
 import org.springframework.beans.factory.annotation.Autowired;
 
 @Setter(AccessLevel.PACKAGE)
@@ -41,13 +42,31 @@ public abstract class AbstractReferenceHandlingTranslator {
 	private PatientIdentifierTranslator patientIdentifierTranslator;
 	
 	protected Reference createEncounterReference(@NotNull Encounter encounter) {
-		return new Reference().setReference(FhirConstants.ENCOUNTER + "/" + encounter.getUuid())
-		        .setType(FhirConstants.ENCOUNTER);
+		return TranslationMemo.memoize(FhirConstants.ENCOUNTER, encounter.getEncounterId(),
+		    () -> buildEncounterReference(encounter));
 	}
 	
 	protected Reference createMedicationReference(@NotNull Drug drug) {
-		return new Reference().setReference(FhirConstants.MEDICATION + "/" + drug.getUuid())
-		        .setType(FhirConstants.MEDICATION);
+		return TranslationMemo.memoize(FhirConstants.MEDICATION, drug.getDrugId(), () -> buildMedicationReference(drug));
+	}
+	
+	protected Reference createLocationReference(@NotNull Location location) {
+		return TranslationMemo.memoize(FhirConstants.LOCATION, location.getLocationId(),
+		    () -> buildLocationReference(location));
+	}
+	
+	protected Reference createPatientReference(@NotNull Patient patient) {
+		return TranslationMemo.memoize(FhirConstants.PATIENT, patient.getPatientId(), () -> buildPatientReference(patient));
+	}
+	
+	protected Reference createPractitionerReference(@NotNull User user) {
+		return TranslationMemo.memoize(User.class.getSimpleName(), user.getUserId(),
+		    () -> buildPractitionerReference(user));
+	}
+	
+	protected Reference createPractitionerReference(@NotNull Provider provider) {
+		return TranslationMemo.memoize(Provider.class.getSimpleName(), provider.getProviderId(),
+		    () -> buildPractitionerReference(provider));
 	}
 	
 	protected Reference createObservationReference(@NotNull Obs obs) {
@@ -55,12 +74,12 @@ public abstract class AbstractReferenceHandlingTranslator {
 		        .setType(FhirConstants.OBSERVATION);
 	}
 	
-	protected Reference createLocationReference(@NotNull Location location) {
+	private Reference buildLocationReference(Location location) {
 		return new Reference().setReference(FhirConstants.LOCATION + "/" + location.getUuid())
 		        .setType(FhirConstants.LOCATION).setDisplay(location.getName());
 	}
 	
-	protected Reference createPatientReference(@NotNull Patient patient) {
+	private Reference buildPatientReference(Patient patient) {
 		Reference reference = new Reference().setReference(FhirConstants.PATIENT + "/" + patient.getUuid())
 		        .setType(FhirConstants.PATIENT);
 		
@@ -83,7 +102,7 @@ public abstract class AbstractReferenceHandlingTranslator {
 		return reference;
 	}
 	
-	protected Reference createPractitionerReference(@NotNull User user) {
+	private Reference buildPractitionerReference(User user) {
 		Reference reference = new Reference().setReference(FhirConstants.PRACTITIONER + "/" + user.getUuid())
 		        .setType(FhirConstants.PRACTITIONER);
 		
@@ -97,7 +116,7 @@ public abstract class AbstractReferenceHandlingTranslator {
 		return reference;
 	}
 	
-	protected Reference createPractitionerReference(@NotNull Provider provider) {
+	private Reference buildPractitionerReference(Provider provider) {
 		Reference reference = new Reference().setReference(FhirConstants.PRACTITIONER + "/" + provider.getUuid())
 		        .setType(FhirConstants.PRACTITIONER);
 		
@@ -148,6 +167,16 @@ public abstract class AbstractReferenceHandlingTranslator {
 		return referenceToId(reference.getReference());
 	}
 	
+	private Reference buildEncounterReference(Encounter encounter) {
+		return new Reference().setReference(FhirConstants.ENCOUNTER + "/" + encounter.getUuid())
+		        .setType(FhirConstants.ENCOUNTER);
+	}
+	
+	private Reference buildMedicationReference(Drug drug) {
+		return new Reference().setReference(FhirConstants.MEDICATION + "/" + drug.getUuid())
+		        .setType(FhirConstants.MEDICATION);
+	}
+	
 	private String referenceToType(String fhirReference) {
 		if (fhirReference == null) {
 			return null;
@@ -9,6 +9,11 @@
  */
 package org.openmrs.module.fhir2.api.translators.impl;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 import lombok.AccessLevel;
@@ -90,6 +95,33 @@ public class ConceptTranslatorImpl implements ConceptTranslator {
 		return concept_;
 	}
 	
+	@Override
+	public void warmConceptCache(Collection<CodeableConcept> concepts) {
+		if (concepts == null) {
+			return;
+		}
+		
+		Map<String, Set<String>> codesBySource = new HashMap<>();
+		for (CodeableConcept concept : concepts) {
+			if (concept == null) {
+				continue;
+			}
+			
+			for (Coding coding : concept.getCoding()) {
+				if (!coding.hasSystem() || !coding.hasCode()) {
+					continue;
+				}
+				
+				String codingSource = conceptURLToSource(coding.getSystem());
+				if (codingSource != null) {
+					codesBySource.computeIfAbsent(codingSource, k -> new LinkedHashSet<>()).add(coding.getCode());
+				}
+			}
+		}
+		
+		codesBySource.forEach(conceptService::getConceptsBySourceNameAndCodes);
+	}
+	
 	private void addConceptCoding(Coding coding, String system, String code) {
 		coding.setSystem(system);
 		coding.setCode(code);
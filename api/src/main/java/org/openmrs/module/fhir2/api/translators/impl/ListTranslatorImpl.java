@@ -30,6 +30,25 @@ public class ListTranslatorImpl implements ListTranslator<Cohort> {
 	
 	@Override
 	public ListResource toFhirResource(Cohort cohort) {
+		ListResource list = toFhirResourceWithoutEntries(cohort);
+		if (list != null) {
+			list.setEntry(listEntryTranslator.toFhirResource(cohort));
+		}
+		
+		return list;
+	}
+	
+	@Override
+	public ListResource toFhirResource(Cohort cohort, int offset, int count) {
+		ListResource list = toFhirResourceWithoutEntries(cohort);
+		if (list != null) {
+			list.setEntry(listEntryTranslator.toFhirResource(cohort, offset, count));
+		}
+		
+		return list;
+	}
+	
+	private ListResource toFhirResourceWithoutEntries(Cohort cohort) {
 		if (cohort == null) {
 			return null;
 		}
@@ -53,8 +72,6 @@ public class ListTranslatorImpl implements ListTranslator<Cohort> {
 			list.setStatus(ListResource.ListStatus.RETIRED);
 		}
 		
-		list.setEntry(listEntryTranslator.toFhirResource(cohort));
-		
 		return list;
 	}
 	
@@ -11,12 +11,15 @@ package org.openmrs.module.fhir2.api.translators.impl;
 
 import javax.validation.constraints.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 
 import lombok.AccessLevel;
 import lombok.Setter;
+import org.hl7.fhir.r4.model.CodeableConcept;
 import org.hl7.fhir.r4.model.Extension;
 import org.hl7.fhir.r4.model.Medication;
 import org.hl7.fhir.r4.model.StringType;
@@ -75,6 +78,24 @@ public class MedicationTranslatorImpl implements MedicationTranslator {
 			existingDrug.setUuid(med.getId());
 		}
 		
+		// resolve all the codes used by the medication at once
+		List<CodeableConcept> codes = new ArrayList<>();
+		if (med.hasCode()) {
+			codes.add(med.getCode());
+		}
+		
+		if (med.hasForm()) {
+			codes.add(med.getForm());
+		}
+		
+		for (Medication.MedicationIngredientComponent ingredient : med.getIngredient()) {
+			if (ingredient.hasItemCodeableConcept()) {
+				codes.add(ingredient.getItemCodeableConcept());
+			}
+		}
+		
+		conceptTranslator.warmConceptCache(codes);
+		
 		if (med.hasCode()) {
 			existingDrug.setConcept(conceptTranslator.toOpenmrsType(med.getCode()));
 		}
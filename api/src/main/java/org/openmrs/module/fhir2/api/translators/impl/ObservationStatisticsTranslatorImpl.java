@@ -0,0 +1,60 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.translators.impl;
+
+import java.math.BigDecimal;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Quantity;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.translators.ConceptTranslator;
+import org.openmrs.module.fhir2.api.translators.ObservationStatisticsTranslator;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class ObservationStatisticsTranslatorImpl extends AbstractReferenceHandlingTranslator
+        implements ObservationStatisticsTranslator {
+	
+	@Autowired
+	private ConceptTranslator conceptTranslator;
+	
+	@Override
+	public Observation toFhirResource(ObservationStatistics statistics) {
+		if (statistics == null) {
+			return null;
+		}
+		
+		Observation observation = new Observation();
+		observation.setStatus(Observation.ObservationStatus.FINAL);
+		observation.setCode(conceptTranslator.toFhirResource(statistics.getConcept()));
+		if (statistics.getLocation() != null) {
+			observation.setSubject(createLocationReference(statistics.getLocation()));
+		}
+		
+		for (ObservationStatistics.Statistic statistic : ObservationStatistics.Statistic.values()) {
+			Number value = statistics.getValue(statistic);
+			if (value == null) {
+				continue;
+			}
+			
+			CodeableConcept code = new CodeableConcept();
+			code.addCoding().setSystem(FhirConstants.OBSERVATION_STATISTICS_URI).setCode(statistic.getCode());
+			observation.addComponent().setCode(code).setValue(new Quantity().setValue(new BigDecimal(value.toString())));
+		}
+		
+		return observation;
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.openmrs.module.fhir2.FhirCacheInvalidation;
+import org.openmrs.module.fhir2.api.dao.FhirCacheInvalidationDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the module's node-local caches correct when several OpenMRS servers share a database.
+ * Each server appends the invalidations it makes to the {@code fhir_cache_invalidation} table and
+ * polls it for the ones made elsewhere, passing them to every {@link CacheInvalidationListener}
+ * with a matching cache name.
+ * <p>
+ * Invalidations are written and read by a single background thread, so publishing one never touches
+ * the database on the caller's thread. Until {@link #start(long)} is called, e.g. on a single
+ * server where polling is disabled, publishing does nothing.
+ * </p>
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class CacheInvalidationBus {
+	
+	private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+	
+	public static final long DEFAULT_POLL_INTERVAL_SECONDS = 5L;
+	
+	// invalidations older than this are deleted; a server that hasn't polled for this long drops everything
+	static final long RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+	
+	// ids are allocated before rows are committed, so each poll re-reads this many ids before the last one
+	// seen to pick up rows committed out of order by other servers
+	static final int ID_OVERLAP = 100;
+	
+	static final int BATCH_SIZE = 1000;
+	
+	// above this many keys in a single poll, the whole cache is invalidated instead
+	static final int MAX_KEYS_PER_CACHE = 500;
+	
+	@Autowired
+	private FhirCacheInvalidationDao dao;
+	
+	// lazy, as many listeners depend on the session factory, whose interceptors depend on this bus
+	@Lazy
+	@Autowired
+	private List<CacheInvalidationListener> listeners;
+	
+	@Getter
+	private final String nodeId = UUID.randomUUID().toString();
+	
+	private final Queue<FhirCacheInvalidation> pending = new ConcurrentLinkedQueue<>();
+	
+	private final Set<Long> seenIds = new TreeSet<>();
+	
+	private volatile ScheduledExecutorService executor;
+	
+	private long lastSeenId;
+	
+	private long lastPollMillis;
+	
+	private long lastPruneMillis;
+	
+	/**
+	 * Starts polling for invalidations made by other servers. Polling starts from the end of the log, as
+	 * nothing has been cached yet.
+	 *
+	 * @param pollIntervalSeconds the number of seconds between polls
+	 */
+	public synchronized void start(long pollIntervalSeconds) {
+		if (executor != null || pollIntervalSeconds <= 0) {
+			return;
+		}
+		
+		lastSeenId = dao.getLatestInvalidationId();
+		lastPollMillis = lastPruneMillis = System.currentTimeMillis();
+		
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "fhir2-cache-invalidation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::pollSafely, pollIntervalSeconds, pollIntervalSeconds, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Stops polling. Invalidations not yet written are discarded.
+	 */
+	public synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		
+		pending.clear();
+	}
+	
+	public boolean isRunning() {
+		return executor != null;
+	}
+	
+	/**
+	 * Tells the other servers in the cluster that entries of a cache changed. The caller is responsible
+	 * for invalidating its own copy. If a transaction is active, the invalidation is only published
+	 * once it commits.
+	 *
+	 * @param cacheName the name of the cache
+	 * @param keys the keys of the entries that changed or null or empty to invalidate the whole cache
+	 */
+	public void publish(String cacheName, Collection<String> keys) {
+		if (!isRunning()) {
+			return;
+		}
+		
+		Collection<String> keysToPublish = keys == null || keys.isEmpty() ? Collections.<String> singleton(null)
+		        : new ArrayList<>(keys);
+		afterCommit(() -> {
+			Date now = new Date();
+			for (String key : keysToPublish) {
+				pending.add(newInvalidation(cacheName, key, now));
+			}
+		});
+	}
+	
+	/**
+	 * Invalidates entries of a cache on this server and every other server in the cluster. If a
+	 * transaction is active, nothing happens until it commits.
+	 *
+	 * @param cacheName the name of the cache
+	 * @param keys the keys of the entries that changed or null or empty to invalidate the whole cache
+	 */
+	public void invalidate(String cacheName, Collection<String> keys) {
+		Collection<String> keysToInvalidate = keys == null || keys.isEmpty() ? null : new ArrayList<>(keys);
+		afterCommit(() -> notifyListeners(Collections.singletonMap(cacheName, keysToInvalidate)));
+		publish(cacheName, keys);
+	}
+	
+	/**
+	 * Writes pending invalidations and applies the ones made by other servers since the last poll
+	 */
+	void poll() {
+		writePending();
+		
+		long now = System.currentTimeMillis();
+		if (now - lastPollMillis > RETENTION_MILLIS) {
+			// invalidations we haven't seen may already have been deleted
+			log.warn("Cache invalidations have not been read for over {} minutes; dropping all cached data",
+			    TimeUnit.MILLISECONDS.toMinutes(RETENTION_MILLIS));
+			notifyListeners(null);
+		}
+		
+		Map<String, Collection<String>> keysByCacheName = new LinkedHashMap<>();
+		long cursor = Math.max(0L, lastSeenId - ID_OVERLAP);
+		List<FhirCacheInvalidation> invalidations;
+		do {
+			invalidations = dao.getInvalidationsAfter(cursor, BATCH_SIZE);
+			for (FhirCacheInvalidation invalidation : invalidations) {
+				cursor = invalidation.getId();
+				if (!seenIds.add(invalidation.getId()) || nodeId.equals(invalidation.getNodeId())) {
+					continue;
+				}
+				
+				String cacheName = invalidation.getCacheName();
+				if (keysByCacheName.containsKey(cacheName) && keysByCacheName.get(cacheName) == null) {
+					continue;
+				}
+				
+				// a null key means the whole cache
+				if (invalidation.getCacheKey() == null) {
+					keysByCacheName.put(cacheName, null);
+					continue;
+				}
+				
+				Collection<String> keys = keysByCacheName.computeIfAbsent(cacheName, name -> new HashSet<>());
+				keys.add(invalidation.getCacheKey());
+				if (keys.size() > MAX_KEYS_PER_CACHE) {
+					keysByCacheName.put(cacheName, null);
+				}
+			}
+		} while (invalidations.size() == BATCH_SIZE);
+		
+		lastSeenId = Math.max(lastSeenId, cursor);
+		seenIds.removeIf(id -> id <= lastSeenId - ID_OVERLAP);
+		lastPollMillis = now;
+		
+		if (!keysByCacheName.isEmpty()) {
+			notifyListeners(keysByCacheName);
+		}
+		
+		if (now - lastPruneMillis > RETENTION_MILLIS / 4) {
+			lastPruneMillis = now;
+			dao.deleteInvalidationsBefore(new Date(now - RETENTION_MILLIS));
+		}
+	}
+	
+	private void pollSafely() {
+		try {
+			poll();
+		}
+		catch (Exception e) {
+			// the next poll catches up; if none succeeds within the retention period, everything is dropped
+			log.warn("Could not poll for cache invalidations", e);
+		}
+	}
+	
+	private void writePending() {
+		Map<String, Set<String>> keysByCacheName = new HashMap<>();
+		Date dateCreated = null;
+		FhirCacheInvalidation invalidation;
+		while ((invalidation = pending.poll()) != null) {
+			keysByCacheName.computeIfAbsent(invalidation.getCacheName(), name -> new HashSet<>())
+			        .add(invalidation.getCacheKey());
+			dateCreated = invalidation.getDateCreated();
+		}
+		
+		if (keysByCacheName.isEmpty()) {
+			return;
+		}
+		
+		List<FhirCacheInvalidation> invalidations = new ArrayList<>();
+		for (Map.Entry<String, Set<String>> entry : keysByCacheName.entrySet()) {
+			Set<String> keys = entry.getValue();
+			if (keys.contains(null) || keys.size() > MAX_KEYS_PER_CACHE) {
+				invalidations.add(newInvalidation(entry.getKey(), null, dateCreated));
+				continue;
+			}
+			
+			for (String key : keys) {
+				// keys too long to store invalidate the whole cache
+				invalidations.add(newInvalidation(entry.getKey(),
+				    key.length() > FhirCacheInvalidation.MAX_CACHE_KEY_LENGTH ? null : key, dateCreated));
+			}
+		}
+		
+		try {
+			dao.saveInvalidations(invalidations);
+		}
+		catch (RuntimeException e) {
+			// retried on the next poll; the grouping above keeps the retries from growing without bound
+			pending.addAll(invalidations);
+			throw e;
+		}
+	}
+	
+	private void notifyListeners(Map<String, Collection<String>> keysByCacheName) {
+		for (CacheInvalidationListener listener : listeners) {
+			if (keysByCacheName != null && !keysByCacheName.containsKey(listener.getCacheName())) {
+				continue;
+			}
+			
+			try {
+				listener.invalidate(keysByCacheName == null ? null : keysByCacheName.get(listener.getCacheName()));
+			}
+			catch (RuntimeException e) {
+				log.warn("Could not invalidate cache {}", listener.getCacheName(), e);
+			}
+		}
+	}
+	
+	private FhirCacheInvalidation newInvalidation(String cacheName, String key, Date dateCreated) {
+		FhirCacheInvalidation invalidation = new FhirCacheInvalidation();
+		invalidation.setCacheName(cacheName);
+		invalidation.setCacheKey(key);
+		invalidation.setNodeId(nodeId);
+		invalidation.setDateCreated(dateCreated);
+		return invalidation;
+	}
+	
+	private static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.Collection;
+
+/**
+ * Implemented by beans holding a node-local cache so that the {@link CacheInvalidationBus} can tell
+ * them about changes made on other servers in the cluster. Implementations are called from a
+ * background thread without an OpenMRS session, so they should only drop cached state and leave any
+ * reloading to the next caller.
+ */
+public interface CacheInvalidationListener {
+	
+	/**
+	 * @return the name of the cache this listener invalidates, shared by every server in the cluster
+	 */
+	String getCacheName();
+	
+	/**
+	 * @param keys the keys of the entries that changed or null if the whole cache should be dropped
+	 */
+	void invalidate(Collection<String> keys);
+}
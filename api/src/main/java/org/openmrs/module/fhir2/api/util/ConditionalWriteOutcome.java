@@ -0,0 +1,28 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.hl7.fhir.r4.model.DomainResource;
+
+/**
+ * The result of a conditional create or update: the resource that was written or, for a create that
+ * matched an existing resource, the existing resource
+ */
+@Getter
+@AllArgsConstructor
+public class ConditionalWriteOutcome<T extends DomainResource> {
+	
+	private final T resource;
+	
+	// false if an existing resource was matched
+	private final boolean created;
+}
@@ -0,0 +1,173 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory cache of encoded FHIR responses, so that responses for read-mostly resources such as
+ * Locations can be served without going to the database, translating and encoding them again.
+ * <p>
+ * Entries are grouped by resource type. When a transaction that changed the data behind a resource
+ * type commits, every entry of that type is dropped, see
+ * {@link org.openmrs.module.fhir2.api.dao.impl.ResponseCacheInvalidationInterceptor}. Responses built
+ * while such a change was committing are not cached: callers take the {@link #getGeneration(String)
+ * generation} of the type before building a response and pass it back when caching it.
+ * </p>
+ */
+@Component
+public class EncodedResponseCache implements CacheInvalidationListener {
+	
+	public static final String CACHE_NAME = "responses";
+	
+	public static final int MAX_ENTRY_BYTES = 1024 * 1024;
+	
+	public static final long MAX_TOTAL_BYTES = 32L * 1024 * 1024;
+	
+	private final LinkedHashMap<String, CachedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+	
+	private final Map<String, Long> generations = new HashMap<>();
+	
+	private volatile Set<String> resourceTypes = Collections.emptySet();
+	
+	private long totalBytes = 0;
+	
+	/**
+	 * @param resourceTypes the resource types whose responses may be cached
+	 */
+	public void setResourceTypes(Collection<String> resourceTypes) {
+		this.resourceTypes = Collections.unmodifiableSet(new HashSet<>(resourceTypes));
+		invalidateAll();
+	}
+	
+	public boolean isCacheable(String resourceType) {
+		return resourceType != null && resourceTypes.contains(resourceType);
+	}
+	
+	/**
+	 * @param resourceType the resource type
+	 * @return a number that changes every time the entries of the given type are invalidated
+	 */
+	public synchronized long getGeneration(String resourceType) {
+		return generations.getOrDefault(resourceType, 0L);
+	}
+	
+	public synchronized CachedResponse get(String key) {
+		return responses.get(key);
+	}
+	
+	/**
+	 * Caches a response unless the entries of its type were invalidated since it started being built
+	 *
+	 * @param key the key of the response
+	 * @param response the encoded response
+	 * @param generation the generation of the response's type, as returned by
+	 *            {@link #getGeneration(String)} before the response was built
+	 */
+	public synchronized void put(String key, CachedResponse response, long generation) {
+		if (!isCacheable(response.getResourceType()) || response.getBody().length > MAX_ENTRY_BYTES
+		        || generation != getGeneration(response.getResourceType())) {
+			return;
+		}
+		
+		CachedResponse previous = responses.put(key, response);
+		if (previous != null) {
+			totalBytes -= previous.getBody().length;
+		}
+		totalBytes += response.getBody().length;
+		
+		Iterator<CachedResponse> eldest = responses.values().iterator();
+		while (totalBytes > MAX_TOTAL_BYTES && eldest.hasNext()) {
+			totalBytes -= eldest.next().getBody().length;
+			eldest.remove();
+		}
+	}
+	
+	@Override
+	public String getCacheName() {
+		return CACHE_NAME;
+	}
+	
+	/**
+	 * Drops every cached response of the given resource types
+	 *
+	 * @param invalidatedTypes the resource types whose data changed or null to drop every response
+	 */
+	@Override
+	public synchronized void invalidate(Collection<String> invalidatedTypes) {
+		if (invalidatedTypes == null) {
+			invalidateAll();
+			return;
+		}
+		
+		if (invalidatedTypes.isEmpty()) {
+			return;
+		}
+		
+		for (String resourceType : invalidatedTypes) {
+			generations.merge(resourceType, 1L, Long::sum);
+		}
+		
+		Iterator<CachedResponse> iterator = responses.values().iterator();
+		while (iterator.hasNext()) {
+			CachedResponse response = iterator.next();
+			if (invalidatedTypes.contains(response.getResourceType())) {
+				totalBytes -= response.getBody().length;
+				iterator.remove();
+			}
+		}
+	}
+	
+	public synchronized void invalidateAll() {
+		Set<String> invalidatedTypes = new HashSet<>(generations.keySet());
+		invalidatedTypes.addAll(resourceTypes);
+		for (String resourceType : invalidatedTypes) {
+			generations.merge(resourceType, 1L, Long::sum);
+		}
+		
+		responses.clear();
+		totalBytes = 0;
+	}
+	
+	synchronized int size() {
+		return responses.size();
+	}
+	
+	@Getter
+	public static class CachedResponse {
+		
+		private final String resourceType;
+		
+		private final Map<String, String> headers;
+		
+		private final byte[] body;
+		
+		/**
+		 * @param resourceType the type of the resource the response is for
+		 * @param headers the headers to send with the response, e.g. its content type
+		 * @param body the encoded response
+		 */
+		public CachedResponse(String resourceType, Map<String, String> headers, byte[] body) {
+			this.resourceType = resourceType;
+			this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+			this.body = body;
+		}
+	}
+}
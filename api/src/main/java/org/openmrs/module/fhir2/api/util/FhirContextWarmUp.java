@@ -0,0 +1,120 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.List;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.ResourceType;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.module.fhir2.api.translators.ToFhirTranslator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scans every R4 resource definition up front, rather than the first time each resource type is
+ * parsed or encoded, then runs each resource translator once over a blank OpenMRS object and
+ * round-trips the result through the JSON and XML parsers.
+ */
+@Component
+@Order(1)
+@Setter(AccessLevel.PACKAGE)
+public class FhirContextWarmUp implements WarmUpTask {
+	
+	private static final Logger log = LoggerFactory.getLogger(FhirContextWarmUp.class);
+	
+	private static final String WARM_UP_ID = "warm-up";
+	
+	@Autowired
+	@Qualifier("fhirR4")
+	private FhirContext fhirContext;
+	
+	@Autowired
+	private List<ToFhirTranslator<?, ?>> translators;
+	
+	@Override
+	public void warmUp() {
+		for (ResourceType resourceType : ResourceType.values()) {
+			try {
+				fhirContext.getResourceDefinition(resourceType.name());
+			}
+			catch (RuntimeException e) {
+				log.debug("Could not scan the definition of {}", resourceType, e);
+			}
+		}
+		
+		for (ToFhirTranslator<?, ?> translator : translators) {
+			ResolvableType translatorType = ResolvableType.forClass(translator.getClass()).as(ToFhirTranslator.class);
+			Class<?> openmrsType = translatorType.getGeneric(0).resolve();
+			Class<?> fhirType = translatorType.getGeneric(1).resolve();
+			if (openmrsType == null || fhirType == null || !IBaseResource.class.isAssignableFrom(fhirType)) {
+				continue;
+			}
+			
+			IBaseResource resource = translate(translator, openmrsType);
+			if (resource == null) {
+				resource = newResource(fhirType.asSubclass(IBaseResource.class));
+			}
+			
+			if (resource != null) {
+				resource.setId(WARM_UP_ID);
+				roundTrip(fhirContext.newJsonParser(), resource);
+				roundTrip(fhirContext.newXmlParser(), resource);
+			}
+		}
+	}
+	
+	// translators are only given blank objects, so many fail part way through; everything they loaded still counts
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private IBaseResource translate(ToFhirTranslator translator, Class<?> openmrsType) {
+		try {
+			Object openmrsObject = BeanUtils.instantiateClass(openmrsType);
+			if (openmrsObject instanceof OpenmrsObject) {
+				((OpenmrsObject) openmrsObject).setUuid(WARM_UP_ID);
+			}
+			
+			return (IBaseResource) translator.toFhirResource(openmrsObject);
+		}
+		catch (Exception e) {
+			log.debug("Could not translate a blank {} with {}", openmrsType.getSimpleName(),
+			    translator.getClass().getSimpleName(), e);
+			return null;
+		}
+	}
+	
+	private IBaseResource newResource(Class<? extends IBaseResource> fhirType) {
+		try {
+			return (IBaseResource) fhirContext.getResourceDefinition(fhirType).newInstance();
+		}
+		catch (RuntimeException e) {
+			log.debug("Could not create a blank {}", fhirType.getSimpleName(), e);
+			return null;
+		}
+	}
+	
+	private void roundTrip(IParser parser, IBaseResource resource) {
+		try {
+			parser.parseResource(resource.getClass(), parser.encodeResourceToString(resource));
+		}
+		catch (RuntimeException e) {
+			log.debug("Could not encode and parse {}", resource.getClass().getSimpleName(), e);
+		}
+	}
+}
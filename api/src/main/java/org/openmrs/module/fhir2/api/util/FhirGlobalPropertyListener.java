@@ -0,0 +1,52 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.Collections;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidates values read from the module's global properties when they change, on this server and
+ * every other server in the cluster. Beans that keep such values implement
+ * {@link CacheInvalidationListener} with {@link #CACHE_NAME} and receive the names of the changed
+ * properties as keys.
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class FhirGlobalPropertyListener implements GlobalPropertyListener {
+	
+	public static final String CACHE_NAME = "globalProperties";
+	
+	private static final String PROPERTY_PREFIX = "fhir2.";
+	
+	@Autowired
+	private CacheInvalidationBus cacheInvalidationBus;
+	
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return propertyName != null && propertyName.startsWith(PROPERTY_PREFIX);
+	}
+	
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		cacheInvalidationBus.invalidate(CACHE_NAME, Collections.singleton(newValue.getProperty()));
+	}
+	
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		cacheInvalidationBus.invalidate(CACHE_NAME, Collections.singleton(propertyName));
+	}
+}
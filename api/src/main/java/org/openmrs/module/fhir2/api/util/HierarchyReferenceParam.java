@@ -0,0 +1,49 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import lombok.Getter;
+
+/**
+ * A reference qualified with the {@code :below} or {@code :above} modifier, e.g.
+ * {@code partof:below=Location/123}.
+ * <p>
+ * HAPI treats any reference modifier as a resource type, so {@code partof:below=123} arrives as a
+ * reference to the resource type "below" and the modifier is lost altogether when the value itself
+ * has a resource type. Providers read the modifier from the raw request parameters instead and pass
+ * it on explicitly with this class.
+ * </p>
+ */
+@Getter
+public class HierarchyReferenceParam extends ReferenceParam {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public enum Modifier {
+		
+		BELOW("below"),
+		ABOVE("above");
+		
+		@Getter
+		private final String code;
+		
+		Modifier(String code) {
+			this.code = code;
+		}
+	}
+	
+	private final Modifier modifier;
+	
+	public HierarchyReferenceParam(Modifier modifier, String value) {
+		super(value);
+		this.modifier = modifier;
+	}
+}
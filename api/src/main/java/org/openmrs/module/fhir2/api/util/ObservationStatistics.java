@@ -0,0 +1,97 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openmrs.Concept;
+import org.openmrs.Location;
+
+/**
+ * Aggregate statistics of the numeric observations of a concept, computed by the
+ * {@code Observation/$stats} operation
+ */
+@Getter
+@AllArgsConstructor
+public class ObservationStatistics {
+	
+	private final Concept concept;
+	
+	// null unless the statistics are grouped by location
+	private final Location location;
+	
+	private final long count;
+	
+	private final Double minimum;
+	
+	private final Double maximum;
+	
+	private final Double average;
+	
+	private final Double sum;
+	
+	/**
+	 * @param statistic the statistic to return
+	 * @return the value of the statistic or null if there were no values
+	 */
+	public Number getValue(Statistic statistic) {
+		switch (statistic) {
+			case COUNT:
+				return count;
+			case MINIMUM:
+				return minimum;
+			case MAXIMUM:
+				return maximum;
+			case AVERAGE:
+				return average;
+			case SUM:
+				return sum;
+			default:
+				return null;
+		}
+	}
+	
+	/**
+	 * The supported codes of the {@code observation-statistics} code system
+	 */
+	public enum Statistic {
+		
+		COUNT("count"),
+		
+		MINIMUM("minimum"),
+		
+		MAXIMUM("maximum"),
+		
+		AVERAGE("average"),
+		
+		SUM("sum");
+		
+		@Getter
+		private final String code;
+		
+		Statistic(String code) {
+			this.code = code;
+		}
+		
+		/**
+		 * @param code a code of the {@code observation-statistics} code system
+		 * @return the statistic with the given code or null if it isn't supported
+		 */
+		public static Statistic fromCode(String code) {
+			for (Statistic statistic : values()) {
+				if (statistic.code.equalsIgnoreCase(code)) {
+					return statistic;
+				}
+			}
+			
+			return null;
+		}
+	}
+}
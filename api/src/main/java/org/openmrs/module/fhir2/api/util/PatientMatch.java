@@ -0,0 +1,48 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.hl7.fhir.r4.model.Patient;
+
+/**
+ * A patient found by the {@code $match} operation, with how closely it matches the submitted patient
+ */
+@Getter
+@AllArgsConstructor
+public class PatientMatch {
+	
+	private final Patient resource;
+	
+	// between 0 and 1, where 1 is a certain match
+	private final double score;
+	
+	private final Grade grade;
+	
+	/**
+	 * The codes of the {@code match-grade} extension
+	 */
+	public enum Grade {
+		
+		CERTAIN("certain"),
+		
+		PROBABLE("probable"),
+		
+		POSSIBLE("possible");
+		
+		@Getter
+		private final String code;
+		
+		Grade(String code) {
+			this.code = code;
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.StringType;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
+import org.openmrs.PersonName;
+
+/**
+ * Scores how closely an OpenMRS patient matches the patient submitted to the {@code $match}
+ * operation. The family name, given names, birthdate and gender each contribute a weighted part of a
+ * score between 0 and 1; demographics missing from the submitted patient are left out of the score
+ * rather than counted as mismatches. A patient with one of the submitted identifiers always scores 1;
+ * the system of a submitted identifier is mapped to an identifier type the same way the patient
+ * identifier translator maps it.
+ * <p>
+ * Names are compared token by token in the form produced by the {@link PersonNameTokenizer}, so
+ * that a name that sounds the same, e.g. Smyth for Smith, still scores most of its weight.
+ * </p>
+ */
+public class PatientMatchScorer {
+	
+	static final double FAMILY_NAME_WEIGHT = 0.35;
+	
+	static final double GIVEN_NAME_WEIGHT = 0.25;
+	
+	static final double BIRTHDATE_WEIGHT = 0.3;
+	
+	static final double GENDER_WEIGHT = 0.1;
+	
+	private static final double PHONETIC_MATCH = 0.7;
+	
+	private static final double INITIAL_MATCH = 0.4;
+	
+	private final List<String> familyTokens = new ArrayList<>();
+	
+	private final List<String> givenTokens = new ArrayList<>();
+	
+	private final Calendar birthdate;
+	
+	private final String gender;
+	
+	// the value of each submitted identifier with its identifier type, or null if it has no system
+	private final List<Pair<String, PatientIdentifierType>> identifiers = new ArrayList<>();
+	
+	/**
+	 * @param patient the patient submitted to the operation
+	 * @param gender the OpenMRS gender of the submitted patient or null if it has none
+	 * @param identifierTypeResolver finds the identifier type of a submitted identifier from its system
+	 */
+	public PatientMatchScorer(Patient patient, String gender,
+	    Function<Identifier, PatientIdentifierType> identifierTypeResolver) {
+		for (HumanName name : patient.getName()) {
+			familyTokens.addAll(PersonNameTokenizer.tokenize(name.getFamily()));
+			for (StringType given : name.getGiven()) {
+				givenTokens.addAll(PersonNameTokenizer.tokenize(given.getValue()));
+			}
+		}
+		
+		this.birthdate = toCalendar(patient.getBirthDate());
+		this.gender = gender;
+		
+		for (Identifier identifier : patient.getIdentifier()) {
+			if (identifier.getValue() == null) {
+				continue;
+			}
+			
+			if (identifier.getSystem() == null) {
+				identifiers.add(Pair.of(identifier.getValue(), null));
+			} else {
+				// an identifier whose system isn't a known identifier type can't match any patient
+				PatientIdentifierType identifierType = identifierTypeResolver.apply(identifier);
+				if (identifierType != null) {
+					identifiers.add(Pair.of(identifier.getValue(), identifierType));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param candidate a patient found by the blocking search
+	 * @return how closely the candidate matches, between 0 and 1
+	 */
+	public double score(org.openmrs.Patient candidate) {
+		if (hasMatchingIdentifier(candidate)) {
+			return 1.0;
+		}
+		
+		double score = 0.0;
+		double totalWeight = 0.0;
+		
+		if (!familyTokens.isEmpty()) {
+			totalWeight += FAMILY_NAME_WEIGHT;
+			score += FAMILY_NAME_WEIGHT * scoreNames(candidate, familyTokens, true);
+		}
+		
+		if (!givenTokens.isEmpty()) {
+			totalWeight += GIVEN_NAME_WEIGHT;
+			score += GIVEN_NAME_WEIGHT * scoreNames(candidate, givenTokens, false);
+		}
+		
+		if (birthdate != null) {
+			totalWeight += BIRTHDATE_WEIGHT;
+			score += BIRTHDATE_WEIGHT * scoreBirthdate(toCalendar(candidate.getBirthdate()));
+		}
+		
+		if (gender != null) {
+			totalWeight += GENDER_WEIGHT;
+			score += gender.equalsIgnoreCase(candidate.getGender()) ? GENDER_WEIGHT : 0.0;
+		}
+		
+		return totalWeight == 0.0 ? 0.0 : score / totalWeight;
+	}
+	
+	private boolean hasMatchingIdentifier(org.openmrs.Patient candidate) {
+		for (Pair<String, PatientIdentifierType> identifier : identifiers) {
+			for (PatientIdentifier patientIdentifier : candidate.getActiveIdentifiers()) {
+				if (identifier.getLeft().equals(patientIdentifier.getIdentifier()) && (identifier.getRight() == null
+				        || identifier.getRight().equals(patientIdentifier.getIdentifierType()))) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	private static double scoreNames(org.openmrs.Patient candidate, List<String> queryTokens, boolean family) {
+		double best = 0.0;
+		for (PersonName name : candidate.getNames()) {
+			if (name.getVoided()) {
+				continue;
+			}
+			
+			List<String> candidateTokens = new ArrayList<>();
+			if (family) {
+				candidateTokens.addAll(PersonNameTokenizer.tokenize(name.getFamilyName()));
+				candidateTokens.addAll(PersonNameTokenizer.tokenize(name.getFamilyName2()));
+			} else {
+				candidateTokens.addAll(PersonNameTokenizer.tokenize(name.getGivenName()));
+				candidateTokens.addAll(PersonNameTokenizer.tokenize(name.getMiddleName()));
+			}
+			
+			best = Math.max(best, scoreTokens(queryTokens, candidateTokens));
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * @return the average over the query tokens of how well each matches its closest candidate token
+	 */
+	static double scoreTokens(Collection<String> queryTokens, Collection<String> candidateTokens) {
+		if (queryTokens.isEmpty() || candidateTokens.isEmpty()) {
+			return 0.0;
+		}
+		
+		double total = 0.0;
+		for (String queryToken : queryTokens) {
+			double best = 0.0;
+			for (String candidateToken : candidateTokens) {
+				best = Math.max(best, scoreToken(queryToken, candidateToken));
+			}
+			
+			total += best;
+		}
+		
+		return total / queryTokens.size();
+	}
+	
+	private static double scoreToken(String queryToken, String candidateToken) {
+		if (queryToken.equals(candidateToken)) {
+			return 1.0;
+		}
+		
+		String phoneticKey = PersonNameTokenizer.phoneticKey(queryToken);
+		if (phoneticKey != null && phoneticKey.equals(PersonNameTokenizer.phoneticKey(candidateToken))) {
+			return PHONETIC_MATCH;
+		}
+		
+		// an initial matches any name starting with it
+		if ((queryToken.length() == 1 || candidateToken.length() == 1)
+		        && queryToken.charAt(0) == candidateToken.charAt(0)) {
+			return INITIAL_MATCH;
+		}
+		
+		return 0.0;
+	}
+	
+	/**
+	 * Scores a birthdate, allowing for the usual data entry errors: a wrong day, swapped day and month
+	 * or a year off by one
+	 */
+	private double scoreBirthdate(Calendar candidate) {
+		if (candidate == null) {
+			return 0.0;
+		}
+		
+		int year = birthdate.get(Calendar.YEAR);
+		int month = birthdate.get(Calendar.MONTH);
+		int day = birthdate.get(Calendar.DAY_OF_MONTH);
+		int candidateYear = candidate.get(Calendar.YEAR);
+		int candidateMonth = candidate.get(Calendar.MONTH);
+		int candidateDay = candidate.get(Calendar.DAY_OF_MONTH);
+		
+		if (year == candidateYear) {
+			if (month == candidateMonth) {
+				return day == candidateDay ? 1.0 : 0.6;
+			}
+			
+			// day and month swapped, e.g. 03/08 for 08/03
+			return month + 1 == candidateDay && day == candidateMonth + 1 ? 0.8 : 0.4;
+		}
+		
+		return Math.abs(year - candidateYear) == 1 && month == candidateMonth && day == candidateDay ? 0.6 : 0.0;
+	}
+	
+	private static Calendar toCalendar(Date date) {
+		if (date == null) {
+			return null;
+		}
+		
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		return calendar;
+	}
+}
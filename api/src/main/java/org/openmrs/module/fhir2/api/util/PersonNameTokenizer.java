@@ -0,0 +1,91 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Splits person names into the normalised tokens and phonetic keys stored in the
+ * {@code fhir_person_name_token} table. The same rules are applied to search terms so that both
+ * sides of a name search are compared in the same form.
+ */
+public class PersonNameTokenizer {
+	
+	public static final int MAX_TOKEN_LENGTH = 50;
+	
+	private static final Pattern TOKEN_SEPARATORS = Pattern.compile("[\\s,\\-]+");
+	
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+	
+	private static final Pattern NON_TOKEN_CHARACTERS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+	
+	private static final DoubleMetaphone DOUBLE_METAPHONE = new DoubleMetaphone();
+	
+	/**
+	 * Splits a name into lower-cased, accent-stripped tokens, e.g. {@code "Jean-Rene O'Brien"} becomes
+	 * {@code ["jean", "rene", "obrien"]}
+	 *
+	 * @param name the name to split
+	 * @return the tokens of the name, which may be empty
+	 */
+	public static List<String> tokenize(String name) {
+		if (StringUtils.isBlank(name)) {
+			return Collections.emptyList();
+		}
+		
+		List<String> tokens = new ArrayList<>();
+		for (String part : TOKEN_SEPARATORS.split(name)) {
+			String token = normalize(part);
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		
+		return tokens;
+	}
+	
+	/**
+	 * Lower-cases a single name token and strips accents and punctuation from it
+	 *
+	 * @param token the token to normalise
+	 * @return the normalised token, which may be empty
+	 */
+	public static String normalize(String token) {
+		if (token == null) {
+			return "";
+		}
+		
+		String normalized = COMBINING_MARKS.matcher(Normalizer.normalize(token, Normalizer.Form.NFD)).replaceAll("");
+		normalized = NON_TOKEN_CHARACTERS.matcher(normalized).replaceAll("").toLowerCase(Locale.ROOT);
+		return StringUtils.left(normalized, MAX_TOKEN_LENGTH);
+	}
+	
+	/**
+	 * Computes the phonetic key for a normalised token
+	 *
+	 * @param token a token as returned by {@link #normalize(String)}
+	 * @return the Double Metaphone key of the token or null if it has none
+	 */
+	public static String phoneticKey(String token) {
+		if (StringUtils.isEmpty(token)) {
+			return null;
+		}
+		
+		return StringUtils.trimToNull(DOUBLE_METAPHONE.doubleMetaphone(token));
+	}
+}
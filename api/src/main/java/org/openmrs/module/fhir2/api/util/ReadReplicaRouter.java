@@ -0,0 +1,237 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jndi.JndiTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens Hibernate sessions on an optional read replica of the OpenMRS database, which
+ * {@link ReadReplicaRoutingAdvisor} uses to run read-only FHIR service methods.
+ * <p>
+ * The replica is configured in the OpenMRS runtime properties, either as a JNDI data source
+ * ({@value FhirConstants#OPENMRS_FHIR_REPLICA_JNDI_NAME}) or as a JDBC url
+ * ({@value FhirConstants#OPENMRS_FHIR_REPLICA_URL}, with
+ * {@value FhirConstants#OPENMRS_FHIR_REPLICA_USERNAME} and
+ * {@value FhirConstants#OPENMRS_FHIR_REPLICA_PASSWORD}). Without either, every method runs against
+ * the primary database.
+ * </p>
+ * <p>
+ * As replicas lag behind the primary, a user who has written through the FHIR services keeps reading
+ * from the primary for the number of seconds set by
+ * {@value FhirConstants#OPENMRS_FHIR_REPLICA_PRIMARY_STICKINESS} (default
+ * {@value #DEFAULT_PRIMARY_STICKINESS_SECONDS}) after the write.
+ * </p>
+ * <p>
+ * A replica configured by url is reached through a c3p0 connection pool, the same pool core uses
+ * for the primary database, sized by the same {@code hibernate.c3p0.min_size} and
+ * {@code hibernate.c3p0.max_size} runtime properties.
+ * </p>
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class ReadReplicaRouter implements DisposableBean {
+	
+	private static final Logger log = LoggerFactory.getLogger(ReadReplicaRouter.class);
+	
+	public static final int DEFAULT_PRIMARY_STICKINESS_SECONDS = 5;
+	
+	// above this many entries, expired writes are pruned whenever a write is recorded
+	private static final int MAX_TRACKED_WRITERS = 10000;
+	
+	private static final int DEFAULT_MIN_POOL_SIZE = 1;
+	
+	private static final int DEFAULT_MAX_POOL_SIZE = 20;
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	private final Map<Integer, Long> lastWriteByUserId = new ConcurrentHashMap<>();
+	
+	private volatile boolean configured = false;
+	
+	private DataSource replicaDataSource;
+	
+	// only set when the pool was created here rather than looked up in JNDI, as only then is it ours to close
+	private ComboPooledDataSource replicaPool;
+	
+	private long primaryStickinessMillis = TimeUnit.SECONDS.toMillis(DEFAULT_PRIMARY_STICKINESS_SECONDS);
+	
+	/**
+	 * @return true if a replica is configured and the current user has not written recently, i.e. the
+	 *         current read can be sent to the replica
+	 */
+	public boolean canReadFromReplica() {
+		return getReplicaDataSource() != null && !hasWrittenRecently(getCurrentUserId());
+	}
+	
+	/**
+	 * Records that the current user has just committed a write, so that their reads go to the primary
+	 * until the replica has caught up
+	 */
+	public void recordWrite() {
+		if (getReplicaDataSource() != null) {
+			recordWrite(getCurrentUserId());
+		}
+	}
+	
+	public SessionFactory getSessionFactory() {
+		return sessionFactory;
+	}
+	
+	/**
+	 * @return a new connection to the replica, which the caller must close, or null if the replica is
+	 *         not available
+	 */
+	public Connection openReplicaConnection() {
+		DataSource dataSource = getReplicaDataSource();
+		if (dataSource == null) {
+			return null;
+		}
+		
+		try {
+			return dataSource.getConnection();
+		}
+		catch (SQLException e) {
+			log.warn("Could not connect to the read replica, reading from the primary database instead", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Opens a session on a replica connection. The session never adds entities to the second-level
+	 * cache, as they may be older than what the primary has already cached.
+	 *
+	 * @param connection a connection returned by {@link #openReplicaConnection()}
+	 * @return a new session, which the caller must close before closing the connection
+	 */
+	public Session openReplicaSession(Connection connection) {
+		Session session = sessionFactory.withOptions().connection(connection).openSession();
+		session.setCacheMode(CacheMode.GET);
+		session.setDefaultReadOnly(true);
+		return session;
+	}
+	
+	void recordWrite(Integer userId) {
+		if (userId == null || getReplicaDataSource() == null) {
+			return;
+		}
+		
+		long now = System.currentTimeMillis();
+		lastWriteByUserId.put(userId, now);
+		
+		if (lastWriteByUserId.size() > MAX_TRACKED_WRITERS) {
+			lastWriteByUserId.values().removeIf(lastWrite -> now - lastWrite >= primaryStickinessMillis);
+		}
+	}
+	
+	boolean hasWrittenRecently(Integer userId) {
+		if (userId == null) {
+			return false;
+		}
+		
+		Long lastWrite = lastWriteByUserId.get(userId);
+		if (lastWrite == null) {
+			return false;
+		}
+		
+		if (System.currentTimeMillis() - lastWrite >= primaryStickinessMillis) {
+			lastWriteByUserId.remove(userId, lastWrite);
+			return false;
+		}
+		
+		return true;
+	}
+	
+	private Integer getCurrentUserId() {
+		User user = Context.getAuthenticatedUser();
+		return user == null ? null : user.getUserId();
+	}
+	
+	private DataSource getReplicaDataSource() {
+		if (!configured) {
+			synchronized (this) {
+				if (!configured) {
+					configure(Context.getRuntimeProperties());
+				}
+			}
+		}
+		
+		return replicaDataSource;
+	}
+	
+	void configure(Properties properties) {
+		int stickinessSeconds = NumberUtils.toInt(
+		    properties.getProperty(FhirConstants.OPENMRS_FHIR_REPLICA_PRIMARY_STICKINESS), DEFAULT_PRIMARY_STICKINESS_SECONDS);
+		primaryStickinessMillis = TimeUnit.SECONDS.toMillis(Math.max(stickinessSeconds, 0));
+		
+		String jndiName = properties.getProperty(FhirConstants.OPENMRS_FHIR_REPLICA_JNDI_NAME);
+		String url = properties.getProperty(FhirConstants.OPENMRS_FHIR_REPLICA_URL);
+		
+		if (StringUtils.isNotBlank(jndiName)) {
+			try {
+				replicaDataSource = new JndiTemplate().lookup(jndiName, DataSource.class);
+			}
+			catch (NamingException e) {
+				log.error("Could not find the read replica data source {}, reading from the primary database", jndiName, e);
+			}
+		} else if (StringUtils.isNotBlank(url)) {
+			replicaPool = new ComboPooledDataSource();
+			replicaPool.setJdbcUrl(url);
+			replicaPool.setUser(properties.getProperty(FhirConstants.OPENMRS_FHIR_REPLICA_USERNAME));
+			replicaPool.setPassword(properties.getProperty(FhirConstants.OPENMRS_FHIR_REPLICA_PASSWORD));
+			replicaPool.setMinPoolSize(
+			    NumberUtils.toInt(properties.getProperty("hibernate.c3p0.min_size"), DEFAULT_MIN_POOL_SIZE));
+			replicaPool.setMaxPoolSize(
+			    NumberUtils.toInt(properties.getProperty("hibernate.c3p0.max_size"), DEFAULT_MAX_POOL_SIZE));
+			// a replica can be restarted or fail over independently of the primary
+			replicaPool.setTestConnectionOnCheckin(true);
+			replicaPool.setIdleConnectionTestPeriod(60);
+			replicaDataSource = replicaPool;
+		}
+		
+		configured = true;
+	}
+	
+	@Override
+	public void destroy() {
+		if (replicaPool != null) {
+			replicaPool.close();
+			replicaPool = null;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.orm.hibernate4.SessionHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes the read-only methods of the FHIR services, i.e. those annotated with
+ * {@code @Transactional(readOnly = true)}, to the read replica configured for
+ * {@link ReadReplicaRouter}, and records the writes made by the other methods so that the users
+ * who made them keep reading from the primary.
+ * <p>
+ * A read is routed by binding a replica session in place of the current session for the duration of
+ * the method. This advisor is ordered before the transaction advisor, so the method's transaction
+ * is started on the replica session. Methods called from within an existing transaction always use
+ * that transaction.
+ * </p>
+ */
+@Component
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+@Setter(AccessLevel.PACKAGE)
+public class ReadReplicaRoutingAdvisor extends AbstractPointcutAdvisor {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final Logger log = LoggerFactory.getLogger(ReadReplicaRoutingAdvisor.class);
+	
+	private static final String SERVICE_PACKAGE = "org.openmrs.module.fhir2.api.impl";
+	
+	// advisors are created before most other beans, so the router is only resolved once first needed
+	@Lazy
+	@Autowired
+	private transient ReadReplicaRouter router;
+	
+	private final Pointcut pointcut = new StaticMethodMatcherPointcut() {
+		
+		@Override
+		public boolean matches(Method method, Class<?> targetClass) {
+			return targetClass != null && targetClass.getName().startsWith(SERVICE_PACKAGE)
+			        && getTransactional(method, targetClass) != null;
+		}
+	};
+	
+	private final MethodInterceptor interceptor = this::invoke;
+	
+	public ReadReplicaRoutingAdvisor() {
+		setOrder(Ordered.HIGHEST_PRECEDENCE);
+	}
+	
+	@Override
+	public Pointcut getPointcut() {
+		return pointcut;
+	}
+	
+	@Override
+	public Advice getAdvice() {
+		return interceptor;
+	}
+	
+	Object invoke(MethodInvocation invocation) throws Throwable {
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			return invocation.proceed();
+		}
+		
+		Class<?> targetClass = invocation.getThis() == null ? null : AopUtils.getTargetClass(invocation.getThis());
+		Transactional transactional = getTransactional(invocation.getMethod(), targetClass);
+		
+		if (transactional == null || !transactional.readOnly()) {
+			Object result = invocation.proceed();
+			router.recordWrite();
+			return result;
+		}
+		
+		if (!router.canReadFromReplica()) {
+			return invocation.proceed();
+		}
+		
+		Connection replicaConnection = router.openReplicaConnection();
+		if (replicaConnection == null) {
+			return invocation.proceed();
+		}
+		
+		// sessions are bound to the session factory itself, so it is looked up from the router rather than
+		// injected as a lazy proxy
+		SessionFactory sessionFactory = router.getSessionFactory();
+		Object previous = TransactionSynchronizationManager.unbindResourceIfPossible(sessionFactory);
+		Session replicaSession = null;
+		try {
+			replicaSession = router.openReplicaSession(replicaConnection);
+			TransactionSynchronizationManager.bindResource(sessionFactory, new SessionHolder(replicaSession));
+			return invocation.proceed();
+		}
+		finally {
+			TransactionSynchronizationManager.unbindResourceIfPossible(sessionFactory);
+			if (previous != null) {
+				TransactionSynchronizationManager.bindResource(sessionFactory, previous);
+			}
+			
+			close(replicaSession, replicaConnection);
+		}
+	}
+	
+	private static Transactional getTransactional(Method method, Class<?> targetClass) {
+		Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+		Transactional transactional = AnnotationUtils.findAnnotation(specificMethod, Transactional.class);
+		if (transactional == null && targetClass != null) {
+			transactional = AnnotationUtils.findAnnotation(targetClass, Transactional.class);
+		}
+		
+		return transactional;
+	}
+	
+	private static void close(Session replicaSession, Connection replicaConnection) {
+		try {
+			if (replicaSession != null && replicaSession.isOpen()) {
+				replicaSession.close();
+			}
+		}
+		catch (Exception e) {
+			log.warn("Could not close a read replica session", e);
+		}
+		
+		// the session was opened on a connection we supplied, so it is never closed by Hibernate
+		try {
+			replicaConnection.close();
+		}
+		catch (Exception e) {
+			log.warn("Could not close a read replica connection", e);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.function.Consumer;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+/**
+ * Hands FHIR resources to the response as searches translate them, so that a response without a
+ * Bundle envelope, such as NDJSON, can be written without holding the search results in memory.
+ * <p>
+ * The stream is only active between {@link #open(Consumer)} and {@link Scope#close()}, which the FHIR
+ * servlet calls around requests that ask for such a response. Searches that map their results as they
+ * read them {@link #offer(Object) offer} each result to the stream and only keep the ones it doesn't
+ * accept, so the search returns fewer results, usually none, while the stream is active.
+ * </p>
+ */
+public final class SearchResultStream {
+	
+	private static final ThreadLocal<Consumer<IBaseResource>> sink = new ThreadLocal<>();
+	
+	private SearchResultStream() {
+	}
+	
+	/**
+	 * Starts streaming the resources found by searches on the current thread
+	 *
+	 * @param consumer writes each resource to the response
+	 * @return a scope that must be closed once the request has been handled
+	 */
+	public static Scope open(Consumer<IBaseResource> consumer) {
+		Consumer<IBaseResource> previous = sink.get();
+		sink.set(consumer);
+		return () -> {
+			if (previous == null) {
+				sink.remove();
+			} else {
+				sink.set(previous);
+			}
+		};
+	}
+	
+	/**
+	 * Passes a search result to the stream, if one is active
+	 *
+	 * @param result the search result
+	 * @return true if the result was written to the stream, in which case the caller should drop it;
+	 *         false if the caller should keep it
+	 */
+	public static boolean offer(Object result) {
+		Consumer<IBaseResource> consumer = sink.get();
+		if (consumer == null || !(result instanceof IBaseResource)) {
+			return false;
+		}
+		
+		consumer.accept((IBaseResource) result);
+		return true;
+	}
+	
+	public interface Scope extends AutoCloseable {
+		
+		@Override
+		void close();
+	}
+}
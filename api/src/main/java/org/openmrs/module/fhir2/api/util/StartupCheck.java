@@ -0,0 +1,23 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+/**
+ * Validation run when the module starts, before any other startup work. Unlike a
+ * {@link WarmUpTask}, a check that fails stops the module from starting, so it should only be used
+ * for configuration the module cannot run without.
+ */
+public interface StartupCheck {
+	
+	/**
+	 * @throws org.openmrs.module.fhir2.FhirException describing what is misconfigured and how to fix it
+	 */
+	void check();
+}
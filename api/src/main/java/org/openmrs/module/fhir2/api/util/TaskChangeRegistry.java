@@ -0,0 +1,157 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory registry of callers waiting for a Task to change. Changes are reported by the Task
+ * service, so a caller can wait for a Task to change without polling the database.
+ * <p>
+ * Changes made on other servers in the cluster arrive through the {@link CacheInvalidationBus}, so
+ * they are only seen once it polls. Callers should re-read the Task once they are woken up or their
+ * wait times out.
+ * </p>
+ */
+@Component
+public class TaskChangeRegistry implements CacheInvalidationListener {
+	
+	// each waiter holds a request thread, so this is kept to a tenth of Tomcat's default of 200 threads to leave the
+	// server free to handle other requests, including the ones that change the Tasks being waited on
+	public static final int MAX_WAITERS = 20;
+	
+	public static final String CACHE_NAME = "tasks";
+	
+	@Autowired
+	@Setter(AccessLevel.PACKAGE)
+	private CacheInvalidationBus cacheInvalidationBus;
+	
+	private final Map<String, Set<CompletableFuture<String>>> waitersByUuid = new ConcurrentHashMap<>();
+	
+	private final AtomicInteger waiterCount = new AtomicInteger();
+	
+	/**
+	 * Registers interest in the next change to the Task with the given uuid. The returned future is
+	 * completed with the uuid once the Task changes. Callers must pass the future to
+	 * {@link #unregister(String, CompletableFuture)} once they stop waiting.
+	 *
+	 * @param uuid the uuid of the Task
+	 * @return a future completed when the Task changes or null if too many callers are already waiting
+	 */
+	public CompletableFuture<String> register(String uuid) {
+		if (waiterCount.incrementAndGet() > MAX_WAITERS) {
+			waiterCount.decrementAndGet();
+			return null;
+		}
+		
+		CompletableFuture<String> future = new CompletableFuture<>();
+		waitersByUuid.compute(uuid, (key, waiters) -> {
+			if (waiters == null) {
+				waiters = ConcurrentHashMap.newKeySet();
+			}
+			
+			waiters.add(future);
+			return waiters;
+		});
+		
+		return future;
+	}
+	
+	/**
+	 * Removes a waiter registered with {@link #register(String)}
+	 *
+	 * @param uuid the uuid of the Task
+	 * @param future the future returned when registering
+	 */
+	public void unregister(String uuid, CompletableFuture<String> future) {
+		if (future == null) {
+			return;
+		}
+		
+		waitersByUuid.computeIfPresent(uuid, (key, waiters) -> {
+			if (waiters.remove(future)) {
+				waiterCount.decrementAndGet();
+			}
+			
+			return waiters.isEmpty() ? null : waiters;
+		});
+	}
+	
+	/**
+	 * Wakes up every caller waiting on the Task with the given uuid. If a transaction is active, the
+	 * callers are woken once it commits so that they see the change when they re-read the Task.
+	 *
+	 * @param uuid the uuid of the Task that changed
+	 */
+	public void taskChanged(String uuid) {
+		if (uuid == null) {
+			return;
+		}
+		
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCommit() {
+					notifyWaiters(uuid);
+				}
+			});
+		} else {
+			notifyWaiters(uuid);
+		}
+		
+		cacheInvalidationBus.publish(CACHE_NAME, Collections.singleton(uuid));
+	}
+	
+	@Override
+	public String getCacheName() {
+		return CACHE_NAME;
+	}
+	
+	/**
+	 * Wakes up the callers waiting on Tasks changed on another server
+	 *
+	 * @param keys the uuids of the Tasks that changed or null to wake up every caller
+	 */
+	@Override
+	public void invalidate(Collection<String> keys) {
+		for (String uuid : keys == null ? new ArrayList<>(waitersByUuid.keySet()) : keys) {
+			notifyWaiters(uuid);
+		}
+	}
+	
+	int getWaiterCount() {
+		return waiterCount.get();
+	}
+	
+	private void notifyWaiters(String uuid) {
+		Set<CompletableFuture<String>> waiters = waitersByUuid.remove(uuid);
+		if (waiters != null) {
+			for (CompletableFuture<String> waiter : waiters) {
+				waiterCount.decrementAndGet();
+				waiter.complete(uuid);
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.hl7.fhir.r4.model.Base;
+
+/**
+ * Memoises FHIR elements, such as references, that are built from OpenMRS objects and repeated
+ * many times in the same response, e.g. the subject of every Observation in a page.
+ * <p>
+ * The memo is only active between {@link #open()} and {@link Scope#close()}, which the FHIR servlet
+ * calls around each request. Outside of a scope every call builds a new element. Callers always
+ * receive a copy of the memoised element, so they are free to modify it.
+ * </p>
+ */
+public final class TranslationMemo {
+	
+	private static final ThreadLocal<Map<String, Base>> memo = new ThreadLocal<>();
+	
+	private static final Scope NESTED_SCOPE = () -> {};
+	
+	private TranslationMemo() {
+	}
+	
+	/**
+	 * Starts memoising elements on the current thread
+	 *
+	 * @return a scope that must be closed once the request has been handled; closing a nested scope
+	 *         has no effect
+	 */
+	public static Scope open() {
+		if (memo.get() != null) {
+			return NESTED_SCOPE;
+		}
+		
+		memo.set(new HashMap<>());
+		return memo::remove;
+	}
+	
+	/**
+	 * Returns a copy of the element memoised for the given object, building it if needed
+	 *
+	 * @param type the type of the OpenMRS object, used to separate objects with the same id
+	 * @param id the database id of the OpenMRS object; objects without an id are never memoised
+	 * @param builder builds the element if it isn't memoised yet
+	 * @return the element built for the object
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Base> T memoize(String type, Integer id, Supplier<T> builder) {
+		Map<String, Base> current = memo.get();
+		if (current == null || id == null) {
+			return builder.get();
+		}
+		
+		String key = type + ":" + id;
+		Base element = current.get(key);
+		if (element == null) {
+			element = builder.get();
+			if (element == null) {
+				return null;
+			}
+			
+			current.put(key, element);
+		}
+		
+		return (T) element.copy();
+	}
+	
+	public interface Scope extends AutoCloseable {
+		
+		@Override
+		void close();
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The precomputed expansion of a value set: its entries, sorted by display, together with a sorted
+ * index of the words in each display so that entries can be filtered by word prefix without scanning
+ * every entry, e.g. {@code "blo pres"} matches "Systolic blood pressure".
+ * <p>
+ * Instances are immutable and so can be shared between threads.
+ * </p>
+ */
+public final class ValueSetExpansion {
+	
+	private final List<Entry> entries;
+	
+	// every word of every display, sorted, with the index of the entry each word came from
+	private final String[] words;
+	
+	private final int[] wordEntries;
+	
+	public ValueSetExpansion(Collection<Entry> entries) {
+		List<Entry> sortedEntries = new ArrayList<>(entries);
+		sortedEntries.sort(Comparator.comparing(Entry::getDisplay, String.CASE_INSENSITIVE_ORDER)
+		        .thenComparing(Entry::getCode));
+		this.entries = Collections.unmodifiableList(sortedEntries);
+		
+		List<WordEntry> wordList = new ArrayList<>();
+		for (int i = 0; i < sortedEntries.size(); i++) {
+			for (String word : toWords(sortedEntries.get(i).getDisplay())) {
+				wordList.add(new WordEntry(word, i));
+			}
+		}
+		
+		wordList.sort(Comparator.comparing(wordEntry -> wordEntry.word));
+		words = new String[wordList.size()];
+		wordEntries = new int[wordList.size()];
+		for (int i = 0; i < wordList.size(); i++) {
+			words[i] = wordList.get(i).word;
+			wordEntries[i] = wordList.get(i).entry;
+		}
+	}
+	
+	public List<Entry> getEntries() {
+		return entries;
+	}
+	
+	/**
+	 * Returns the entries whose display contains a word starting with each of the words in the filter
+	 *
+	 * @param filter the text to filter by; a blank filter matches every entry
+	 * @return the matching entries, sorted by display
+	 */
+	public List<Entry> filter(String filter) {
+		Set<String> filterWords = toWords(filter);
+		if (filterWords.isEmpty()) {
+			return entries;
+		}
+		
+		BitSet matches = null;
+		for (String filterWord : filterWords) {
+			BitSet wordMatches = new BitSet(entries.size());
+			for (int i = lowerBound(filterWord); i < words.length && words[i].startsWith(filterWord); i++) {
+				wordMatches.set(wordEntries[i]);
+			}
+			
+			if (matches == null) {
+				matches = wordMatches;
+			} else {
+				matches.and(wordMatches);
+			}
+			
+			if (matches.isEmpty()) {
+				return Collections.emptyList();
+			}
+		}
+		
+		List<Entry> result = new ArrayList<>(matches.cardinality());
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+			result.add(entries.get(i));
+		}
+		
+		return result;
+	}
+	
+	private int lowerBound(String word) {
+		int index = Arrays.binarySearch(words, word);
+		if (index < 0) {
+			return -(index + 1);
+		}
+		
+		// binarySearch returns any of several equal words, so step back to the first
+		while (index > 0 && words[index - 1].equals(word)) {
+			index--;
+		}
+		
+		return index;
+	}
+	
+	private static Set<String> toWords(String text) {
+		Set<String> result = new LinkedHashSet<>();
+		if (StringUtils.isBlank(text)) {
+			return result;
+		}
+		
+		for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (!word.isEmpty()) {
+				result.add(word);
+			}
+		}
+		
+		return result;
+	}
+	
+	@Getter
+	public static final class Entry {
+		
+		private final String code;
+		
+		private final String display;
+		
+		public Entry(String code, String display) {
+			this.code = code;
+			this.display = display == null ? code : display;
+		}
+	}
+	
+	private static final class WordEntry {
+		
+		private final String word;
+		
+		private final int entry;
+		
+		private WordEntry(String word, int entry) {
+			this.word = word;
+			this.entry = entry;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the most recently used {@link ValueSetExpansion}s. Callers key each expansion by everything
+ * it depends on, e.g. the value set's last change, so stale expansions are never returned; they are
+ * simply evicted once they are no longer used.
+ */
+@Component
+public class ValueSetExpansionCache {
+	
+	public static final int MAX_EXPANSIONS = 100;
+	
+	private final Map<String, ValueSetExpansion> expansions = Collections
+	        .synchronizedMap(new LinkedHashMap<String, ValueSetExpansion>(16, 0.75f, true) {
+		
+		        private static final long serialVersionUID = 1L;
+		
+		        @Override
+		        protected boolean removeEldestEntry(Map.Entry<String, ValueSetExpansion> eldest) {
+			        return size() > MAX_EXPANSIONS;
+		        }
+	        });
+	
+	/**
+	 * Returns the expansion cached under the given key, computing it if needed. The expansion is
+	 * computed outside of any lock, so two threads may compute the same expansion at once.
+	 *
+	 * @param key the key of the expansion
+	 * @param builder computes the expansion if it is not cached
+	 * @return the expansion
+	 */
+	public ValueSetExpansion get(String key, Supplier<ValueSetExpansion> builder) {
+		ValueSetExpansion expansion = expansions.get(key);
+		if (expansion == null) {
+			expansion = builder.get();
+			expansions.put(key, expansion);
+		}
+		
+		return expansion;
+	}
+	
+	int size() {
+		return expansions.size();
+	}
+}
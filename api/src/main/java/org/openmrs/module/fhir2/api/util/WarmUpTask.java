@@ -0,0 +1,21 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+/**
+ * Work run once when the module starts so that the first requests after a restart don't pay for
+ * class loading, reflection scans and lazily built caches. Tasks are run one after another on a
+ * background thread, in the order given by {@link org.springframework.core.annotation.Order}; a task
+ * that fails is logged and skipped. The thread is interrupted if the module stops first.
+ */
+public interface WarmUpTask {
+	
+	void warmUp() throws Exception;
+}
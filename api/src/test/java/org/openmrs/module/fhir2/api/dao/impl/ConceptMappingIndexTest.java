@@ -0,0 +1,115 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.fhir2.FhirTestConstants;
+import org.openmrs.module.fhir2.TestFhirSpringConfiguration;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+
+@ContextConfiguration(classes = TestFhirSpringConfiguration.class, inheritLocations = false)
+public class ConceptMappingIndexTest extends BaseModuleContextSensitiveTest {
+	
+	private static final String OBS_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirObservationDaoImplTest_initial_data_suppl.xml";
+	
+	private static final String LOINC_SYSTEM_URL = "http://loinc.org";
+	
+	private static final String LOINC_SYSTOLIC_BP = "8480-6";
+	
+	private static final String LOINC_RESPIRATORY_RATE = "LP7141-1";
+	
+	private static final Integer CIEL_CONCEPT_SOURCE_ID = 21;
+	
+	@Autowired
+	private SessionFactory sessionFactory;
+	
+	private ConceptMappingIndex conceptMappingIndex;
+	
+	@Before
+	public void setup() throws Exception {
+		executeDataSet(OBS_DATA_XML);
+		
+		conceptMappingIndex = new ConceptMappingIndex();
+		conceptMappingIndex.setSessionFactory(sessionFactory);
+	}
+	
+	@Test
+	public void getConceptIds_shouldResolveCodesInSystemToConceptIds() {
+		assertThat(conceptMappingIndex.getConceptIds(FhirTestConstants.CIEL_SYSTEM_URN, Arrays.asList("5085", "5086")),
+		    containsInAnyOrder(5085, 5086));
+	}
+	
+	@Test
+	public void getConceptIds_shouldIgnoreCaseOfCodeAndSystem() {
+		assertThat(conceptMappingIndex.getConceptIds(LOINC_SYSTEM_URL.toUpperCase(),
+		    Collections.singletonList(LOINC_RESPIRATORY_RATE.toLowerCase())), contains(5242));
+	}
+	
+	@Test
+	public void getConceptIds_shouldReturnEmptySetForUnmappedCode() {
+		assertThat(conceptMappingIndex.getConceptIds(LOINC_SYSTEM_URL, Collections.singletonList("0000-0")), empty());
+	}
+	
+	@Test
+	public void getConceptIds_shouldReturnEmptySetForUnknownSystem() {
+		assertThat(conceptMappingIndex.getConceptIds("http://example.com/unknown", Collections.singletonList("5085")),
+		    empty());
+	}
+	
+	@Test
+	public void getCodes_shouldReturnCodesOfConceptsInSystem() {
+		Map<Integer, Set<String>> codes = conceptMappingIndex.getCodes(LOINC_SYSTEM_URL, Arrays.asList(5085, 5086));
+		
+		assertThat(codes.keySet(), contains(5085));
+		assertThat(codes.get(5085), contains(LOINC_SYSTOLIC_BP));
+	}
+	
+	@Test
+	public void invalidateConceptSources_shouldOnlyReloadChangedSources() {
+		conceptMappingIndex.getConceptIds(FhirTestConstants.CIEL_SYSTEM_URN, Collections.singletonList("5085"));
+		conceptMappingIndex.getConceptIds(LOINC_SYSTEM_URL, Collections.singletonList(LOINC_SYSTOLIC_BP));
+		conceptMappingIndex.transactionCompleted(true);
+		
+		sessionFactory.getCurrentSession()
+		        .createSQLQuery("delete from concept_reference_map where concept_map_id in (11, 19)").executeUpdate();
+		conceptMappingIndex.invalidateConceptSources(Collections.singleton(CIEL_CONCEPT_SOURCE_ID));
+		
+		assertThat(conceptMappingIndex.getConceptIds(FhirTestConstants.CIEL_SYSTEM_URN, Collections.singletonList("5085")),
+		    empty());
+		assertThat(conceptMappingIndex.getConceptIds(LOINC_SYSTEM_URL, Collections.singletonList(LOINC_SYSTOLIC_BP)),
+		    contains(5085));
+	}
+	
+	@Test
+	public void getConceptIds_shouldNotShareMappingsFromRolledBackTransaction() {
+		conceptMappingIndex.getConceptIds(FhirTestConstants.CIEL_SYSTEM_URN, Collections.singletonList("5085"));
+		conceptMappingIndex.transactionCompleted(false);
+		
+		sessionFactory.getCurrentSession().createSQLQuery("delete from concept_reference_map where concept_map_id = 11")
+		        .executeUpdate();
+		
+		assertThat(conceptMappingIndex.getConceptIds(FhirTestConstants.CIEL_SYSTEM_URN, Collections.singletonList("5085")),
+		    empty());
+	}
+}
@@ -11,10 +11,15 @@ package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
 
+import org.hibernate.SessionFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.Concept;
@@ -42,6 +47,11 @@ public class FhirConceptDaoImplTest extends BaseModuleContextSensitiveTest {
 	@Qualifier("conceptService")
 	ConceptService conceptService;
 	
+	@Autowired
+	private SessionFactory sessionFactory;
+	
+	private ConceptResolutionCache conceptResolutionCache;
+	
 	private FhirConceptDaoImpl dao;
 	
 	@Before
@@ -49,8 +59,12 @@ public class FhirConceptDaoImplTest extends BaseModuleContextSensitiveTest {
 		executeDataSet(CONCEPT_DATA_XML);
 		executeDataSet(CONCEPT_FHIR_DATA_XML);
 		
+		conceptResolutionCache = new ConceptResolutionCache();
+		conceptResolutionCache.setSessionFactory(sessionFactory);
+		
 		dao = new FhirConceptDaoImpl();
 		dao.setConceptService(conceptService);
+		dao.setConceptResolutionCache(conceptResolutionCache);
 	}
 	
 	@Test
@@ -84,4 +98,40 @@ public class FhirConceptDaoImplTest extends BaseModuleContextSensitiveTest {
 		Optional<Concept> result = dao.getConceptBySourceNameAndCode("LOINC", "1000-2");
 		assertThat(result.isPresent(), is(false));
 	}
+	
+	@Test
+	public void getConceptsBySourceNameAndCodes_shouldResolveMappedCodesOnly() {
+		Map<String, Concept> result = dao.getConceptsBySourceNameAndCodes("LOINC", Arrays.asList("1000-1", "1000-2"));
+		
+		assertThat(result.get("1000-1").getUuid(), equalTo(MAPPED_CONCEPT_UUID));
+		assertThat(result, not(hasKey("1000-2")));
+		assertThat(conceptResolutionCache.size(), equalTo(2));
+	}
+	
+	@Test
+	public void getConceptBySourceNameAndCode_shouldNotResolveRetiredConcept() {
+		assertThat(dao.getConceptBySourceNameAndCode("LOINC", "1000-1").isPresent(), is(true));
+		
+		sessionFactory.getCurrentSession().createSQLQuery("update concept set retired = 1 where concept_id = 3")
+		        .executeUpdate();
+		sessionFactory.getCurrentSession().clear();
+		
+		assertThat(dao.getConceptBySourceNameAndCode("LOINC", "1000-1").isPresent(), is(false));
+	}
+	
+	@Test
+	public void getConceptBySourceNameAndCode_shouldResolveAgainOnceInvalidated() {
+		assertThat(dao.getConceptBySourceNameAndCode("LOINC", "1000-2").isPresent(), is(false));
+		
+		sessionFactory.getCurrentSession().createSQLQuery("update concept_reference_term set code = '1000-2' where "
+		        + "concept_reference_term_id = 1").executeUpdate();
+		sessionFactory.getCurrentSession().clear();
+		assertThat(dao.getConceptBySourceNameAndCode("LOINC", "1000-2").isPresent(), is(false));
+		
+		conceptResolutionCache.invalidate();
+		
+		Optional<Concept> result = dao.getConceptBySourceNameAndCode("LOINC", "1000-2");
+		assertThat(result.isPresent(), is(true));
+		assertThat(result.get().getUuid(), equalTo(MAPPED_CONCEPT_UUID));
+	}
 }
@@ -19,6 +19,7 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 
 import java.util.Collection;
+import java.util.Locale;
 import java.util.Optional;
 
 import org.hibernate.SessionFactory;
@@ -68,6 +69,23 @@ public class FhirConceptSourceDaoImplTest extends BaseModuleContextSensitiveTest
 		assertThat(result.get().getUrl(), equalTo(FhirTestConstants.LOINC_SYSTEM_URL));
 	}
 	
+	@Test
+	public void getFhirConceptSourceByUrl_shouldMatchUrlWithoutRegardToCase() {
+		Optional<FhirConceptSource> result = fhirConceptSourceDao
+		        .getFhirConceptSourceByUrl(FhirTestConstants.LOINC_SYSTEM_URL.toUpperCase(Locale.ROOT));
+		
+		assertThat(result.isPresent(), is(true));
+		assertThat(result.get().getUrl(), equalTo(FhirTestConstants.LOINC_SYSTEM_URL));
+	}
+	
+	@Test
+	public void getFhirConceptSourceByUrl_shouldPreferExactMatchOverUrlsDifferingInCase() {
+		Optional<FhirConceptSource> result = fhirConceptSourceDao.getFhirConceptSourceByUrl("http://LOINC.org");
+		
+		assertThat(result.isPresent(), is(true));
+		assertThat(result.get().getName(), equalTo("Legacy LOINC"));
+	}
+	
 	@Test
 	public void getFhirConceptSourceByUrl_shouldReturnEmptyOptionalForMissingUrl() {
 		Optional<FhirConceptSource> result = fhirConceptSourceDao.getFhirConceptSourceByUrl("https://www.example.com");
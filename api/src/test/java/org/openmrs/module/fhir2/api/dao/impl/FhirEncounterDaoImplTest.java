@@ -15,10 +15,12 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 
 import java.util.Collection;
+import java.util.HashSet;
 
 import ca.uhn.fhir.rest.param.DateParam;
 import ca.uhn.fhir.rest.param.DateRangeParam;
@@ -141,6 +143,41 @@ public class FhirEncounterDaoImplTest extends BaseModuleContextSensitiveTest {
 		    equalTo(PATIENT_FULL_NAME));
 	}
 	
+	@Test
+	public void searchForEncounters_shouldNotDuplicateEncountersForChainedSubjectName() {
+		ReferenceAndListParam subjectReference = new ReferenceAndListParam().addAnd(
+		    new ReferenceOrListParam().add(new ReferenceParam().setValue(PATIENT_FULL_NAME).setChain(Patient.SP_NAME)));
+		
+		Collection<Encounter> results = dao.searchForEncounters(null, null, null, subjectReference);
+		
+		assertThat(results, not(empty()));
+		assertThat(new HashSet<>(results), hasSize(results.size()));
+	}
+	
+	@Test
+	public void searchForEncounters_shouldReturnEmptyCollectionWhenNoSubjectMatchesChain() {
+		ReferenceAndListParam subjectReference = new ReferenceAndListParam().addAnd(
+		    new ReferenceOrListParam().add(new ReferenceParam().setValue("Unmatched").setChain(Patient.SP_FAMILY)));
+		
+		Collection<Encounter> results = dao.searchForEncounters(null, null, null, subjectReference);
+		
+		assertThat(results, empty());
+	}
+	
+	@Test
+	public void searchForEncounters_shouldUseExistsSubqueryWhenMoreChainedSubjectsMatchThanTheCap() {
+		ReferenceAndListParam subjectReference = new ReferenceAndListParam().addAnd(
+		    new ReferenceOrListParam().add(new ReferenceParam().setValue(PATIENT_FAMILY_NAME).setChain(Patient.SP_FAMILY)));
+		
+		Collection<Encounter> byIds = dao.searchForEncounters(null, null, null, subjectReference);
+		
+		dao.setMaxChainedPatientIds(0);
+		Collection<Encounter> byExists = dao.searchForEncounters(null, null, null, subjectReference);
+		
+		assertThat(byExists, not(empty()));
+		assertThat(new HashSet<>(byExists), equalTo(new HashSet<>(byIds)));
+	}
+	
 	@Test
 	public void searchForEncounters_shouldSearchForEncountersBySubjectFamilyName() {
 		ReferenceAndListParam subjectReference = new ReferenceAndListParam();
@@ -10,6 +10,8 @@
 package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
@@ -22,9 +24,11 @@ import static org.hamcrest.Matchers.nullValue;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import ca.uhn.fhir.rest.api.SortOrderEnum;
 import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.ReferenceOrListParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
@@ -37,6 +41,7 @@ import org.openmrs.Location;
 import org.openmrs.LocationAttribute;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.TestFhirSpringConfiguration;
+import org.openmrs.module.fhir2.api.util.HierarchyReferenceParam;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -83,6 +88,8 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	private static final String LOCATION_PARENT_NAME = "Test location 5";
 	
+	private static final String LOCATION_GRANDCHILD_UUID = "c0938432-1691-11df-2222-9038u432aabd";
+	
 	private static final String LOCATION_ATTRIBUTE_TYPE_UUID = "abcde432-1691-11df-97a5-7038c432abcd";
 	
 	private static final String LOCATION_INITIAL_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirLocationDaoImplTest_initial_data.xml";
@@ -97,6 +104,10 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 	public void setup() throws Exception {
 		fhirLocationDao = new FhirLocationDaoImpl();
 		fhirLocationDao.setSessionFactory(sessionFactory);
+		
+		LocationHierarchyIndex locationHierarchyIndex = new LocationHierarchyIndex();
+		locationHierarchyIndex.setSessionFactory(sessionFactory);
+		fhirLocationDao.setLocationHierarchyIndex(locationHierarchyIndex);
 		executeDataSet(LOCATION_INITIAL_DATA_XML);
 	}
 	
@@ -230,8 +241,8 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	@Test
 	public void searchForLocations_shouldReturnCorrectLocationByParentUUID() {
-		ReferenceOrListParam parentLocation = new ReferenceOrListParam()
-		        .add(new ReferenceParam().setValue(LOCATION_PARENT_ID).setChain(""));
+		ReferenceAndListParam parentLocation = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new ReferenceParam().setValue(LOCATION_PARENT_ID).setChain("")));
 		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
 		    parentLocation, null);
 		
@@ -242,8 +253,8 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	@Test
 	public void searchForLocations_shouldReturnCorrectLocationByParentName() {
-		ReferenceOrListParam parentLocation = new ReferenceOrListParam()
-		        .add(new ReferenceParam().setValue(LOCATION_PARENT_NAME).setChain("name"));
+		ReferenceAndListParam parentLocation = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new ReferenceParam().setValue(LOCATION_PARENT_NAME).setChain("name")));
 		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
 		    parentLocation, null);
 		
@@ -254,8 +265,8 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	@Test
 	public void searchForLocations_shouldReturnCorrectLocationByParentCity() {
-		ReferenceOrListParam parentLocation = new ReferenceOrListParam()
-		        .add(new ReferenceParam().setValue(LOCATION_PARENT_CITY).setChain("address-city"));
+		ReferenceAndListParam parentLocation = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new ReferenceParam().setValue(LOCATION_PARENT_CITY).setChain("address-city")));
 		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
 		    parentLocation, null);
 		
@@ -266,8 +277,8 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	@Test
 	public void searchForLocations_shouldReturnCorrectLocationByParentCountry() {
-		ReferenceOrListParam parentLocation = new ReferenceOrListParam()
-		        .add(new ReferenceParam().setValue(LOCATION_PARENT_COUNTRY).setChain("address-country"));
+		ReferenceAndListParam parentLocation = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new ReferenceParam().setValue(LOCATION_PARENT_COUNTRY).setChain("address-country")));
 		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
 		    parentLocation, null);
 		
@@ -278,8 +289,8 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	@Test
 	public void searchForLocations_shouldReturnCorrectLocationByParentPostalCode() {
-		ReferenceOrListParam parentLocation = new ReferenceOrListParam()
-		        .add(new ReferenceParam().setValue(LOCATION_PARENT_POSTAL_CODE).setChain("address-postalcode"));
+		ReferenceAndListParam parentLocation = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new ReferenceParam().setValue(LOCATION_PARENT_POSTAL_CODE).setChain("address-postalcode")));
 		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
 		    parentLocation, null);
 		
@@ -290,8 +301,8 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	@Test
 	public void searchForLocations_shouldReturnCorrectLocationByParentState() {
-		ReferenceOrListParam parentLocation = new ReferenceOrListParam()
-		        .add(new ReferenceParam().setValue(LOCATION_PARENT_STATE).setChain("address-state"));
+		ReferenceAndListParam parentLocation = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new ReferenceParam().setValue(LOCATION_PARENT_STATE).setChain("address-state")));
 		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
 		    parentLocation, null);
 		
@@ -300,6 +311,66 @@ public class FhirLocationDaoImplTest extends BaseModuleContextSensitiveTest {
 		assertThat(locations.iterator().next().getParentLocation().getStateProvince(), equalTo(LOCATION_PARENT_STATE));
 	}
 	
+	@Test
+	public void searchForLocations_shouldReturnWholeSubtreeForPartOfBelow() {
+		ReferenceAndListParam locationParentParam = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new HierarchyReferenceParam(HierarchyReferenceParam.Modifier.BELOW, LOCATION_PARENT_ID)));
+		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
+		    locationParentParam, null);
+		
+		assertThat(locations, notNullValue());
+		assertThat(locations.size(), equalTo(3));
+		assertThat(locations.stream().map(Location::getName).collect(Collectors.toList()),
+		    containsInAnyOrder("Test location 5", "Test location 7", "Test location 8"));
+	}
+	
+	@Test
+	public void searchForLocations_shouldReturnWholeSubtreeForPartOfBelowWithResourceType() {
+		ReferenceAndListParam locationParentParam = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new HierarchyReferenceParam(HierarchyReferenceParam.Modifier.BELOW, "Location/" + LOCATION_PARENT_ID)));
+		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
+		    locationParentParam, null);
+		
+		assertThat(locations.stream().map(Location::getName).collect(Collectors.toList()),
+		    containsInAnyOrder("Test location 5", "Test location 7", "Test location 8"));
+	}
+	
+	@Test
+	public void searchForLocations_shouldReturnAllAncestorsForPartOfAbove() {
+		ReferenceAndListParam locationParentParam = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new HierarchyReferenceParam(HierarchyReferenceParam.Modifier.ABOVE, LOCATION_GRANDCHILD_UUID)));
+		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
+		    locationParentParam, null);
+		
+		assertThat(locations, notNullValue());
+		assertThat(locations.size(), equalTo(3));
+		assertThat(locations.stream().map(Location::getName).collect(Collectors.toList()),
+		    containsInAnyOrder("Test location 5", "Test location 7", "Test location 8"));
+	}
+	
+	@Test
+	public void searchForLocations_shouldReturnEmptyCollectionForPartOfBelowUnknownLocation() {
+		ReferenceAndListParam locationParentParam = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new HierarchyReferenceParam(HierarchyReferenceParam.Modifier.BELOW, UNKNOWN_LOCATION_UUID)));
+		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
+		    locationParentParam, null);
+		
+		assertThat(locations, empty());
+	}
+	
+	@Test
+	public void searchForLocations_shouldReturnLocationsMatchingBothDirectParentAndHierarchyModifier() {
+		ReferenceAndListParam locationParentParam = new ReferenceAndListParam()
+		        .addAnd(new ReferenceOrListParam().add(new ReferenceParam().setValue(LOCATION_PARENT_ID).setChain("")))
+		        .addAnd(new ReferenceOrListParam()
+		                .add(new HierarchyReferenceParam(HierarchyReferenceParam.Modifier.ABOVE, LOCATION_GRANDCHILD_UUID)));
+		Collection<Location> locations = fhirLocationDao.searchForLocations(null, null, null, null, null, null,
+		    locationParentParam, null);
+		
+		assertThat(locations.stream().map(Location::getName).collect(Collectors.toList()),
+		    contains("Test location 7"));
+	}
+	
 	@Test
 	public void searchForLocations_shouldHandleComplexQuery() {
 		StringOrListParam postalCode = new StringOrListParam().add(new StringParam(POSTAL_CODE));
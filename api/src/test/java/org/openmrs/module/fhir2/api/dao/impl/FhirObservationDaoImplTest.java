@@ -12,8 +12,12 @@ package org.openmrs.module.fhir2.api.dao.impl;
 import static org.exparity.hamcrest.date.DateMatchers.sameOrAfter;
 import static org.exparity.hamcrest.date.DateMatchers.sameOrBefore;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
@@ -24,7 +28,9 @@ import static org.hamcrest.Matchers.nullValue;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.function.Function;
 
 import ca.uhn.fhir.rest.api.SortOrderEnum;
 import ca.uhn.fhir.rest.api.SortSpec;
@@ -43,13 +49,16 @@ import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.hibernate.SessionFactory;
 import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Patient;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.Obs;
 import org.openmrs.module.fhir2.FhirTestConstants;
 import org.openmrs.module.fhir2.TestFhirSpringConfiguration;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -59,6 +68,10 @@ public class FhirObservationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	private static final String OBS_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirObservationDaoImplTest_initial_data_suppl.xml";
 	
+	private static final String OBS_STATISTICS_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirObservationDaoImplTest_statistics_data.xml";
+	
+	private static final String STATISTICS_CONCEPT_ID = "6001";
+	
 	private static final String OBS_UUID = "39fb7f47-e80a-4056-9285-bd798be13c63";
 	
 	private static final String BAD_OBS_UUID = "121b73a6-e1a4-4424-8610-d5765bf2fdf7";
@@ -106,14 +119,31 @@ public class FhirObservationDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	private static final String LOINC_SYSTOLIC_BP = "8480-6";
 	
+	private static final String LOINC_RESPIRATORY_RATE = "LP7141-1";
+	
+	private static final int RESPIRATORY_RATE_CONCEPT_ID = 5242;
+	
 	@Autowired
 	FhirObservationDaoImpl dao;
 	
+	@Autowired
+	SessionFactory sessionFactory;
+	
+	@Autowired
+	ConceptMappingIndex conceptMappingIndex;
+	
 	@Before
 	public void setup() throws Exception {
 		executeDataSet(OBS_DATA_XML);
 	}
 	
+	@After
+	public void tearDown() {
+		// the DAO is shared by every test in this context
+		dao.setConceptMappingIndex(conceptMappingIndex);
+		dao.setMaxChainedPatientIds(BaseDaoImpl.MAX_CHAINED_PATIENT_IDS);
+	}
+	
 	@Test
 	public void getObsByUuid_shouldGetObsByUuid() {
 		Obs result = dao.getObsByUuid(OBS_UUID);
@@ -143,6 +173,37 @@ public class FhirObservationDaoImplTest extends BaseModuleContextSensitiveTest {
 		assertThat(results, hasItem(hasProperty("uuid", equalTo(OBS_UUID))));
 	}
 	
+	@Test
+	public void searchForObs_shouldLoadObsAsReadOnly() {
+		TokenAndListParam code = new TokenAndListParam();
+		TokenParam codingToken = new TokenParam();
+		codingToken.setValue(OBS_CONCEPT_ID);
+		code.addAnd(codingToken);
+		
+		Collection<Obs> results = dao.searchForObservations(null, null, null, null, null, null, null, null, code, null);
+		
+		assertThat(results, not(empty()));
+		for (Obs result : results) {
+			assertThat(sessionFactory.getCurrentSession().isReadOnly(result), equalTo(true));
+		}
+	}
+	
+	@Test
+	public void searchForObs_shouldMapEachObsAndDetachItFromTheSession() {
+		TokenAndListParam code = new TokenAndListParam();
+		TokenParam codingToken = new TokenParam();
+		codingToken.setValue(OBS_CONCEPT_ID);
+		code.addAnd(codingToken);
+		
+		Collection<Obs> results = dao.searchForObservations(null, null, null, null, null, null, null, null, code, null,
+		    Function.identity());
+		
+		assertThat(results, hasItem(hasProperty("uuid", equalTo(OBS_UUID))));
+		for (Obs result : results) {
+			assertThat(sessionFactory.getCurrentSession().contains(result), equalTo(false));
+		}
+	}
+	
 	@Test
 	public void searchForObs_shouldSearchForObsByConceptUuid() {
 		TokenAndListParam code = new TokenAndListParam();
@@ -196,6 +257,44 @@ public class FhirObservationDaoImplTest extends BaseModuleContextSensitiveTest {
 		}
 	}
 	
+	@Test
+	public void searchForObs_shouldIgnoreCaseOfMappedCodeWhenUsingConceptMappingIndex() {
+		ConceptMappingIndex index = new ConceptMappingIndex();
+		index.setSessionFactory(sessionFactory);
+		dao.setConceptMappingIndex(index);
+		
+		Collection<Obs> results = dao.searchForObservations(null, null, null, null, null, null, null, null,
+		    loincCode(LOINC_RESPIRATORY_RATE.toLowerCase()), null);
+		
+		assertThat(results, not(empty()));
+		assertThat(results,
+		    everyItem(hasProperty("concept", hasProperty("conceptId", equalTo(RESPIRATORY_RATE_CONCEPT_ID)))));
+	}
+	
+	@Test
+	public void searchForObs_shouldReturnEmptyCollectionForUnmappedCodeWhenUsingConceptMappingIndex() {
+		ConceptMappingIndex index = new ConceptMappingIndex();
+		index.setSessionFactory(sessionFactory);
+		dao.setConceptMappingIndex(index);
+		
+		Collection<Obs> results = dao.searchForObservations(null, null, null, null, null, null, null, null,
+		    loincCode("0000-0"), null);
+		
+		assertThat(results, empty());
+	}
+	
+	@Test
+	public void searchForObs_shouldMatchMappedCodeWithoutConceptMappingIndex() {
+		dao.setConceptMappingIndex(null);
+		
+		Collection<Obs> results = dao.searchForObservations(null, null, null, null, null, null, null, null,
+		    loincCode(LOINC_RESPIRATORY_RATE), null);
+		
+		assertThat(results, not(empty()));
+		assertThat(results,
+		    everyItem(hasProperty("concept", hasProperty("conceptId", equalTo(RESPIRATORY_RATE_CONCEPT_ID)))));
+	}
+	
 	@Test
 	public void searchForObs_shouldReturnFromMultipleConceptMappings() {
 		TokenAndListParam code = new TokenAndListParam();
@@ -316,6 +415,46 @@ public class FhirObservationDaoImplTest extends BaseModuleContextSensitiveTest {
 		assertThat(results, hasItem(hasProperty("uuid", equalTo(OBS_UUID))));
 	}
 	
+	@Test
+	public void searchForObs_shouldNotDuplicateObsForChainedPatientName() {
+		ReferenceAndListParam patientReference = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new ReferenceParam().setValue(PATIENT_GIVEN_NAME + " " + PATIENT_FAMILY_NAME).setChain(Patient.SP_NAME)));
+		
+		Collection<Obs> results = dao.searchForObservations(null, patientReference, null, null, null, null, null, null, null,
+		    null);
+		
+		assertThat(results, not(empty()));
+		assertThat(new HashSet<>(results), hasSize(results.size()));
+	}
+	
+	@Test
+	public void searchForObs_shouldUseExistsSubqueryWhenMoreChainedPatientsMatchThanTheCap() {
+		ReferenceAndListParam patientReference = new ReferenceAndListParam().addAnd(new ReferenceOrListParam()
+		        .add(new ReferenceParam().setValue(PATIENT_GIVEN_NAME + " " + PATIENT_FAMILY_NAME).setChain(Patient.SP_NAME)));
+		
+		Collection<Obs> byIds = dao.searchForObservations(null, patientReference, null, null, null, null, null, null, null,
+		    null);
+		
+		dao.setMaxChainedPatientIds(0);
+		Collection<Obs> byExists = dao.searchForObservations(null, patientReference, null, null, null, null, null, null,
+		    null, null);
+		
+		assertThat(byExists, not(empty()));
+		assertThat(byExists, hasSize(byIds.size()));
+		assertThat(new HashSet<>(byExists), equalTo(new HashSet<>(byIds)));
+	}
+	
+	@Test
+	public void searchForObs_shouldReturnEmptyCollectionWhenNoPatientMatchesChain() {
+		ReferenceAndListParam patientReference = new ReferenceAndListParam().addAnd(
+		    new ReferenceOrListParam().add(new ReferenceParam().setValue("Unmatched").setChain(Patient.SP_FAMILY)));
+		
+		Collection<Obs> results = dao.searchForObservations(null, patientReference, null, null, null, null, null, null, null,
+		    null);
+		
+		assertThat(results, empty());
+	}
+	
 	@Test
 	public void searchForObs_shouldReturnObsByPatientIdentifier() {
 		ReferenceAndListParam patientReference = new ReferenceAndListParam();
@@ -759,4 +898,107 @@ public class FhirObservationDaoImplTest extends BaseModuleContextSensitiveTest {
 		assertThat(results, hasItem(hasProperty("uuid", equalTo(OBS_VALUE_CONCEPT_UUID))));
 	}
 	
+	@Test
+	public void getLastnObservations_shouldReturnMostRecentObsOfCode() {
+		ReferenceAndListParam patientReference = new ReferenceAndListParam()
+		        .addAnd(new ReferenceOrListParam().add(new ReferenceParam().setValue(PATIENT_UUID)));
+		TokenAndListParam code = new TokenAndListParam().addAnd(new TokenParam().setValue(VALUE_CONCEPT_ID));
+		
+		Collection<String> results = dao.getLastnObservations(patientReference, code, 2, Obs::getUuid);
+		
+		// the observations share a date, so the later ones are the most recent
+		assertThat(results, contains("86sgf-1f7d-4394-a316-0a458edf28c3", "56htgf-1f7d-4394-a316-0a458edf28c3"));
+	}
+	
+	@Test
+	public void getLastnObservations_shouldReturnMostRecentObsOfEachCodeMostRecentFirst() throws Exception {
+		executeDataSet(OBS_STATISTICS_DATA_XML);
+		ReferenceAndListParam patientReference = new ReferenceAndListParam()
+		        .addAnd(new ReferenceOrListParam().add(new ReferenceParam().setValue(PATIENT_UUID)));
+		TokenAndListParam code = new TokenAndListParam().addAnd(new TokenOrListParam()
+		        .add(new TokenParam().setValue(STATISTICS_CONCEPT_ID)).add(new TokenParam().setValue(VALUE_CONCEPT_ID)));
+		
+		Collection<String> results = dao.getLastnObservations(patientReference, code, 2, Obs::getUuid);
+		
+		assertThat(results, contains("b1c2d3e4-0001-4a5b-8c6d-7e8f9a0b1c04", "b1c2d3e4-0001-4a5b-8c6d-7e8f9a0b1c03",
+		    "86sgf-1f7d-4394-a316-0a458edf28c3", "56htgf-1f7d-4394-a316-0a458edf28c3"));
+	}
+	
+	@Test
+	public void getLastnObservations_shouldReturnAtMostMaxObsPerConcept() {
+		ReferenceAndListParam patientReference = new ReferenceAndListParam()
+		        .addAnd(new ReferenceOrListParam().add(new ReferenceParam().setValue(PATIENT_UUID)));
+		
+		Collection<Integer> results = dao.getLastnObservations(patientReference, null, 1,
+		    obs -> obs.getConcept().getConceptId());
+		
+		assertThat(results, not(empty()));
+		assertThat(new HashSet<>(results), hasSize(results.size()));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldComputeStatisticsOfPatientObsInDatabase() {
+		ReferenceAndListParam patientReference = new ReferenceAndListParam()
+		        .addAnd(new ReferenceOrListParam().add(new ReferenceParam().setValue(PATIENT_UUID)));
+		TokenAndListParam code = new TokenAndListParam().addAnd(new TokenParam().setValue(VALUE_CONCEPT_ID));
+		
+		List<ObservationStatistics> results = dao.getObservationStatistics(patientReference, null, code, null, false);
+		
+		assertThat(results, hasSize(1));
+		ObservationStatistics statistics = results.get(0);
+		assertThat(statistics.getConcept().getConceptId(), equalTo(NumberUtils.toInt(VALUE_CONCEPT_ID)));
+		assertThat(statistics.getLocation(), nullValue());
+		assertThat(statistics.getCount(), equalTo(5L));
+		assertThat(statistics.getMinimum(), equalTo(0.007));
+		assertThat(statistics.getMaximum(), equalTo(134.0));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldGroupStatisticsByLocation() {
+		TokenAndListParam code = new TokenAndListParam().addAnd(new TokenParam().setValue(VALUE_CONCEPT_ID));
+		
+		List<ObservationStatistics> results = dao.getObservationStatistics(null, null, code, null, true);
+		
+		assertThat(results, not(empty()));
+		assertThat(results, everyItem(hasProperty("location", notNullValue())));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldAggregateObsAcrossLocationsUnlessGrouped() throws Exception {
+		executeDataSet(OBS_STATISTICS_DATA_XML);
+		TokenAndListParam code = new TokenAndListParam().addAnd(new TokenParam().setValue(STATISTICS_CONCEPT_ID));
+		
+		List<ObservationStatistics> results = dao.getObservationStatistics(null, null, code, null, false);
+		
+		assertThat(results, hasSize(1));
+		ObservationStatistics statistics = results.get(0);
+		assertThat(statistics.getLocation(), nullValue());
+		assertThat(statistics.getCount(), equalTo(4L));
+		assertThat(statistics.getMinimum(), equalTo(10.0));
+		assertThat(statistics.getMaximum(), equalTo(60.0));
+		assertThat(statistics.getAverage(), equalTo(30.0));
+		assertThat(statistics.getSum(), equalTo(120.0));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldComputeStatisticsOfEachLocationWhenGrouped() throws Exception {
+		executeDataSet(OBS_STATISTICS_DATA_XML);
+		TokenAndListParam code = new TokenAndListParam().addAnd(new TokenParam().setValue(STATISTICS_CONCEPT_ID));
+		
+		List<ObservationStatistics> results = dao.getObservationStatistics(null, null, code, null, true);
+		
+		assertThat(results, hasSize(2));
+		assertThat(results, containsInAnyOrder(
+		    allOf(hasProperty("location", hasProperty("locationId", equalTo(601))), hasProperty("count", equalTo(2L)),
+		        hasProperty("average", equalTo(15.0))),
+		    allOf(hasProperty("location", hasProperty("locationId", equalTo(602))), hasProperty("count", equalTo(2L)),
+		        hasProperty("average", equalTo(45.0)))));
+	}
+	
+	private static TokenAndListParam loincCode(String code) {
+		TokenParam codingToken = new TokenParam();
+		codingToken.setSystem(FhirTestConstants.LOINC_SYSTEM_URL);
+		codingToken.setValue(code);
+		return new TokenAndListParam().addAnd(codingToken);
+	}
 }
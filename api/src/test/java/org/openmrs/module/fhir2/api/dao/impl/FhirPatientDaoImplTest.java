@@ -35,9 +35,13 @@ import static org.hl7.fhir.r4.model.Patient.SP_GIVEN;
 import static org.hl7.fhir.r4.model.Patient.SP_NAME;
 import static org.openmrs.util.OpenmrsUtil.compareWithNullAsGreatest;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import ca.uhn.fhir.rest.api.SortOrderEnum;
 import ca.uhn.fhir.rest.api.SortSpec;
@@ -47,6 +51,7 @@ import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import org.apache.commons.lang3.StringUtils;
 import org.hamcrest.comparator.ComparatorMatcherBuilder;
 import org.hibernate.SessionFactory;
 import org.junit.Before;
@@ -78,6 +83,10 @@ public class FhirPatientDaoImplTest extends BaseModuleContextSensitiveTest {
 	
 	private static final String PATIENT_PARTIAL_FAMILY_NAME = "Claud";
 	
+	private static final String MATCH_FAMILY_NAME = "Chebaskwony";
+	
+	private static final Integer MATCH_PATIENT_ID = 7;
+	
 	private static final String PATIENT_NOT_FOUND_NAME = "Igor";
 	
 	private static final String PATIENT_IDENTIFIER_PATIENT_UUID = "30e2aa2a-4ed1-415d-84c5-ba29016c14b7";
@@ -160,6 +169,25 @@ public class FhirPatientDaoImplTest extends BaseModuleContextSensitiveTest {
 		}
 	}
 	
+	private static Date parseDate(String date) throws Exception {
+		return new SimpleDateFormat("yyyy-MM-dd").parse(date);
+	}
+	
+	private FhirPersonNameTokenDaoImpl useNameTokenIndex() {
+		FhirPersonNameTokenDaoImpl personNameTokenDao = new FhirPersonNameTokenDaoImpl();
+		personNameTokenDao.setSessionFactory(sessionFactory);
+		
+		Integer lastPersonNameId = null;
+		do {
+			lastPersonNameId = personNameTokenDao.indexNameBatch(lastPersonNameId, 100);
+		} while (lastPersonNameId != null);
+		personNameTokenDao.setIndexComplete(true);
+		
+		dao.setPersonNameTokenDao(personNameTokenDao);
+		
+		return personNameTokenDao;
+	}
+	
 	@Test
 	public void getPatientById_shouldRetrievePatientById() {
 		Patient result = dao.getPatientById(4);
@@ -189,6 +217,34 @@ public class FhirPatientDaoImplTest extends BaseModuleContextSensitiveTest {
 		assertThat(result, nullValue());
 	}
 	
+	@Test
+	public void getMatchCandidateIds_shouldReturnPatientsWithFamilyNameBornInRange() throws Exception {
+		assertThat(dao.getMatchCandidateIds(Collections.singletonList(MATCH_FAMILY_NAME), parseDate("1976-01-01"),
+		    parseDate("1977-01-01"), "F", 100), hasItem(MATCH_PATIENT_ID));
+	}
+	
+	@Test
+	public void getMatchCandidateIds_shouldReturnPatientsWithPhoneticFamilyNameUsingTokenIndex() throws Exception {
+		useNameTokenIndex();
+		
+		assertThat(dao.getMatchCandidateIds(Collections.singletonList("Chebaskwoni"), parseDate("1976-01-01"),
+		    parseDate("1977-01-01"), "F", 100), hasItem(MATCH_PATIENT_ID));
+	}
+	
+	@Test
+	public void getMatchCandidateIds_shouldNotReturnPatientsOfOtherGender() throws Exception {
+		useNameTokenIndex();
+		
+		assertThat(dao.getMatchCandidateIds(Collections.singletonList(MATCH_FAMILY_NAME), parseDate("1976-01-01"),
+		    parseDate("1977-01-01"), "M", 100), not(hasItem(MATCH_PATIENT_ID)));
+	}
+	
+	@Test
+	public void getMatchCandidateIds_shouldNotReturnPatientsBornOutsideRange() throws Exception {
+		assertThat(dao.getMatchCandidateIds(Collections.singletonList(MATCH_FAMILY_NAME), parseDate("1980-01-01"),
+		    parseDate("1981-01-01"), null, 100), empty());
+	}
+	
 	@Test
 	public void searchForPatients_shouldSearchForPatientsByName() {
 		Collection<Patient> results = dao.searchForPatients(new StringOrListParam().add(new StringParam(PATIENT_GIVEN_NAME)),
@@ -210,6 +266,61 @@ public class FhirPatientDaoImplTest extends BaseModuleContextSensitiveTest {
 		assertThat(results.size(), greaterThan(1));
 	}
 	
+	@Test
+	public void searchForPatients_shouldSearchForPatientsByNormalisedNameUsingTokenIndex() {
+		useNameTokenIndex();
+		
+		Collection<Patient> results = dao.searchForPatients(new StringOrListParam().add(new StringParam("JÉANNETTE")),
+		    null, null, null, null, null, null, null, null, null, null, null, null);
+		
+		assertThat(results, notNullValue());
+		assertThat(results, not(empty()));
+		assertThat(results.iterator().next().getGivenName(), equalTo(PATIENT_GIVEN_NAME));
+	}
+	
+	@Test
+	public void searchForPatients_shouldSearchForPatientsByPhoneticNameUsingTokenIndex() {
+		useNameTokenIndex();
+		
+		Collection<Patient> results = dao.searchForPatients(new StringOrListParam().add(new StringParam("Janet")), null,
+		    null, null, null, null, null, null, null, null, null, null, null);
+		
+		assertThat(results, notNullValue());
+		assertThat(results.stream().map(Patient::getGivenName).collect(Collectors.toList()), hasItem(PATIENT_GIVEN_NAME));
+	}
+	
+	@Test
+	public void searchForPatients_shouldNotMatchVoidedNamesUsingTokenIndex() {
+		FhirPersonNameTokenDaoImpl personNameTokenDao = useNameTokenIndex();
+		StringOrListParam family = new StringOrListParam().add(new StringParam(PATIENT_FAMILY_NAME));
+		
+		Collection<Patient> results = dao.searchForPatients(null, null, family, null, null, null, null, null, null, null,
+		    null, null, null);
+		List<PersonName> names = results.stream().flatMap(patient -> patient.getNames().stream())
+		        .filter(name -> StringUtils.startsWithIgnoreCase(name.getFamilyName(), PATIENT_FAMILY_NAME))
+		        .collect(Collectors.toList());
+		assertThat(names, not(empty()));
+		
+		names.forEach(name -> name.setVoided(true));
+		personNameTokenDao.saveNameTokens(names);
+		
+		assertThat(dao.searchForPatients(null, null, family, null, null, null, null, null, null, null, null, null, null),
+		    empty());
+	}
+	
+	@Test
+	public void searchForPatients_shouldSearchForPatientsByPartialFamilyNameUsingTokenIndex() {
+		useNameTokenIndex();
+		
+		Collection<Patient> results = dao.searchForPatients(null, null,
+		    new StringOrListParam().add(new StringParam(PATIENT_PARTIAL_FAMILY_NAME)), null, null, null, null, null, null,
+		    null, null, null, null);
+		
+		assertThat(results, notNullValue());
+		assertThat(results, not(empty()));
+		assertThat(results.iterator().next().getFamilyName(), equalTo(PATIENT_FAMILY_NAME));
+	}
+	
 	@Test
 	public void searchForPatients_shouldReturnEmptyCollectionWhenPatientNameNotMatched() {
 		Collection<Patient> results = dao.searchForPatients(
@@ -0,0 +1,83 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Collections;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.fhir2.FhirResourceIdentifier;
+import org.openmrs.module.fhir2.TestFhirSpringConfiguration;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+
+@ContextConfiguration(classes = TestFhirSpringConfiguration.class, inheritLocations = false)
+public class FhirResourceIdentifierDaoImplTest extends BaseModuleContextSensitiveTest {
+	
+	private static final String TASK_UUID = "bdd7e368-3d1a-42a9-9538-395391b64adf";
+	
+	private static final String OTHER_TASK_UUID = "df34a1c1-f57b-4c33-bee5-e601b56b9d5b";
+	
+	private static final String SYSTEM = "http://example.com/orders";
+	
+	@Autowired
+	private SessionFactory sessionFactory;
+	
+	private FhirResourceIdentifierDaoImpl dao;
+	
+	@Before
+	public void setup() {
+		dao = new FhirResourceIdentifierDaoImpl();
+		dao.setSessionFactory(sessionFactory);
+	}
+	
+	@Test
+	public void getResourceUuid_shouldReturnUuidOfResourceWithIdentifier() {
+		dao.saveResourceIdentifier(newIdentifier("Task", "123", TASK_UUID));
+		
+		assertThat(dao.getResourceUuid("Task", SYSTEM, "123"), equalTo(TASK_UUID));
+		assertThat(dao.getResourceUuid("Task", SYSTEM, "124"), nullValue());
+		assertThat(dao.getResourceUuid("Medication", SYSTEM, "123"), nullValue());
+	}
+	
+	@Test(expected = ConstraintViolationException.class)
+	public void saveResourceIdentifier_shouldNotAllowIdentifierToBeReused() {
+		dao.saveResourceIdentifier(newIdentifier("Task", "123", TASK_UUID));
+		dao.saveResourceIdentifier(newIdentifier("Task", "123", OTHER_TASK_UUID));
+	}
+	
+	@Test
+	public void deleteResourceIdentifiers_shouldDeleteIdentifiersOfGivenResources() {
+		dao.saveResourceIdentifier(newIdentifier("Task", "123", TASK_UUID));
+		dao.saveResourceIdentifier(newIdentifier("Task", "124", OTHER_TASK_UUID));
+		
+		dao.deleteResourceIdentifiers(Collections.singleton(TASK_UUID));
+		sessionFactory.getCurrentSession().clear();
+		
+		assertThat(dao.getResourceUuid("Task", SYSTEM, "123"), nullValue());
+		assertThat(dao.getResourceUuid("Task", SYSTEM, "124"), equalTo(OTHER_TASK_UUID));
+	}
+	
+	private static FhirResourceIdentifier newIdentifier(String resourceType, String value, String resourceUuid) {
+		FhirResourceIdentifier identifier = new FhirResourceIdentifier();
+		identifier.setResourceType(resourceType);
+		identifier.setSystem(SYSTEM);
+		identifier.setValue(value);
+		identifier.setResourceUuid(resourceUuid);
+		return identifier;
+	}
+}
@@ -20,6 +20,7 @@ import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -104,6 +105,25 @@ public class FhirTaskDaoImplTest extends BaseModuleContextSensitiveTest {
 		assertThat(result.getUuid(), equalTo(TASK_UUID));
 	}
 	
+	@Test
+	public void getLatestTaskByUuid_shouldSeeStatusChangedOutsideTheSession() {
+		FhirTask task = dao.getTaskByUuid(TASK_UUID);
+		assertThat(task.getStatus(), equalTo(FhirTask.TaskStatus.ACCEPTED));
+		
+		// a native update bypasses the session, as a change committed by another request does
+		sessionFactory.getCurrentSession().createSQLQuery("update fhir_task set status = :status where uuid = :uuid")
+		        .setParameter("status", FhirTask.TaskStatus.COMPLETED.name()).setParameter("uuid", TASK_UUID)
+		        .executeUpdate();
+		
+		assertThat(dao.getTaskByUuid(TASK_UUID).getStatus(), equalTo(FhirTask.TaskStatus.ACCEPTED));
+		assertThat(dao.getLatestTaskByUuid(TASK_UUID).getStatus(), equalTo(FhirTask.TaskStatus.COMPLETED));
+	}
+	
+	@Test
+	public void getLatestTaskByUuid_shouldReturnNullForMissingTask() {
+		assertThat(dao.getLatestTaskByUuid(OTHER_ORDER_UUID), nullValue());
+	}
+	
 	@Test
 	public void saveTask_shouldCreateNewTask() {
 		FhirTask newTask = new FhirTask();
@@ -456,4 +476,40 @@ public class FhirTaskDaoImplTest extends BaseModuleContextSensitiveTest {
 		assertThat(result.getBasedOnReferences(), notNullValue());
 		assertThat(result.getBasedOnReferences().size(), greaterThan(0));
 	}
+	
+	@Test
+	public void claimTasks_shouldAcceptRequestedTasksForOwner() throws Exception {
+		executeDataSet(TASK_DATA_OWNER_XML);
+		
+		ReferenceParam ownerReference = new ReferenceParam();
+		ownerReference.setValue(FhirConstants.PRACTITIONER + "/" + OWNER_USER_UUID);
+		
+		List<FhirTask> results = dao.claimTasks(ownerReference, 10);
+		
+		assertThat(results, hasSize(1));
+		assertThat(results.get(0).getUuid(), equalTo(OWNER_TASK_UUID));
+		assertThat(results.get(0).getStatus(), equalTo(NEW_STATUS));
+		assertThat(dao.getTaskByUuid(OWNER_TASK_UUID).getStatus(), equalTo(NEW_STATUS));
+	}
+	
+	@Test
+	public void claimTasks_shouldNotClaimTheSameTaskTwice() throws Exception {
+		executeDataSet(TASK_DATA_OWNER_XML);
+		
+		ReferenceParam ownerReference = new ReferenceParam();
+		ownerReference.setValue(FhirConstants.PRACTITIONER + "/" + OWNER_USER_UUID);
+		
+		assertThat(dao.claimTasks(ownerReference, 10), hasSize(1));
+		assertThat(dao.claimTasks(ownerReference, 10), empty());
+	}
+	
+	@Test
+	public void supportsSkipLocked_shouldOnlyBeTrueForDatabasesThatSkipLockedRows() {
+		assertThat(FhirTaskDaoImpl.supportsSkipLocked("MySQL", "8.0.19", 8, 0), equalTo(true));
+		assertThat(FhirTaskDaoImpl.supportsSkipLocked("MySQL", "5.7.29", 5, 7), equalTo(false));
+		assertThat(FhirTaskDaoImpl.supportsSkipLocked("MySQL", "5.5.5-10.6.4-MariaDB", 5, 5), equalTo(true));
+		assertThat(FhirTaskDaoImpl.supportsSkipLocked("MySQL", "5.5.5-10.3.22-MariaDB", 5, 5), equalTo(false));
+		assertThat(FhirTaskDaoImpl.supportsSkipLocked("PostgreSQL", "12.2", 12, 2), equalTo(true));
+		assertThat(FhirTaskDaoImpl.supportsSkipLocked("H2", "1.4.200", 1, 4), equalTo(false));
+	}
 }
@@ -0,0 +1,84 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Drug;
+import org.openmrs.Obs;
+import org.openmrs.module.fhir2.api.dao.FhirResourceIdentifierDao;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResourceIdentifierInterceptorTest {
+	
+	private static final String OBS_UUID = "bdd7e368-3d1a-42a9-9538-395391b64adf";
+	
+	private static final String[] PROPERTY_NAMES = { "voided", "comment" };
+	
+	@Mock
+	private FhirResourceIdentifierDao resourceIdentifierDao;
+	
+	private ResourceIdentifierInterceptor interceptor;
+	
+	private Obs obs;
+	
+	@Before
+	public void setup() {
+		interceptor = new ResourceIdentifierInterceptor();
+		interceptor.setResourceIdentifierDao(resourceIdentifierDao);
+		
+		obs = new Obs();
+		obs.setUuid(OBS_UUID);
+	}
+	
+	@After
+	public void tearDown() {
+		interceptor.afterTransactionCompletion(null);
+	}
+	
+	@Test
+	public void postFlush_shouldDeleteIdentifiersOfVoidedResource() {
+		interceptor.onFlushDirty(obs, 1, new Object[] { true, null }, new Object[] { false, null }, PROPERTY_NAMES,
+		    null);
+		interceptor.postFlush(Collections.emptyIterator());
+		
+		verify(resourceIdentifierDao).deleteResourceIdentifiers(Collections.singletonList(OBS_UUID));
+	}
+	
+	@Test
+	public void postFlush_shouldDeleteIdentifiersOfDeletedResource() {
+		Drug drug = new Drug();
+		drug.setUuid(OBS_UUID);
+		
+		interceptor.onDelete(drug, 1, null, null, null);
+		interceptor.postFlush(Collections.emptyIterator());
+		
+		verify(resourceIdentifierDao).deleteResourceIdentifiers(Collections.singletonList(OBS_UUID));
+	}
+	
+	@Test
+	public void postFlush_shouldKeepIdentifiersOfResourceThatWasAlreadyVoided() {
+		interceptor.onFlushDirty(obs, 1, new Object[] { true, "edited" }, new Object[] { true, null }, PROPERTY_NAMES,
+		    null);
+		interceptor.postFlush(Collections.emptyIterator());
+		
+		verify(resourceIdentifierDao, never()).deleteResourceIdentifiers(any());
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.hibernate.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Location;
+import org.openmrs.Obs;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationBus;
+import org.openmrs.module.fhir2.api.util.EncodedResponseCache;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResponseCacheInvalidationInterceptorTest {
+	
+	@Mock
+	private EncodedResponseCache responseCache;
+	
+	@Mock
+	private CacheInvalidationBus cacheInvalidationBus;
+	
+	@Mock
+	private Transaction transaction;
+	
+	private ResponseCacheInvalidationInterceptor interceptor;
+	
+	@Before
+	public void setup() {
+		interceptor = new ResponseCacheInvalidationInterceptor();
+		interceptor.setResponseCache(responseCache);
+		interceptor.setCacheInvalidationBus(cacheInvalidationBus);
+	}
+	
+	@After
+	public void tearDown() {
+		interceptor.afterTransactionCompletion(null);
+	}
+	
+	@Test
+	public void afterTransactionCompletion_shouldInvalidateChangedResourceTypesOnCommit() {
+		when(transaction.wasCommitted()).thenReturn(true);
+		
+		interceptor.onSave(new Location(), 1, null, null, null);
+		interceptor.afterTransactionCompletion(transaction);
+		
+		verify(responseCache).invalidate(Collections.singleton("Location"));
+		verify(cacheInvalidationBus).publish(EncodedResponseCache.CACHE_NAME, Collections.singleton("Location"));
+	}
+	
+	@Test
+	public void afterTransactionCompletion_shouldNotInvalidateAnythingOnRollback() {
+		when(transaction.wasCommitted()).thenReturn(false);
+		
+		interceptor.onFlushDirty(new Location(), 1, null, null, null, null);
+		interceptor.afterTransactionCompletion(transaction);
+		
+		verifyNoInteractions(responseCache, cacheInvalidationBus);
+	}
+	
+	@Test
+	public void afterTransactionCompletion_shouldNotInvalidateAnythingForUncachedObjects() {
+		interceptor.onSave(new Obs(), 1, null, null, null);
+		interceptor.afterTransactionCompletion(transaction);
+		
+		verifyNoInteractions(responseCache, cacheInvalidationBus, transaction);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.dao.FhirGlobalPropertyDao;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchFetchSizeTest {
+	
+	@Mock
+	private FhirGlobalPropertyDao globalPropertyDao;
+	
+	private SearchFetchSize searchFetchSize;
+	
+	@Before
+	public void setup() {
+		searchFetchSize = new SearchFetchSize();
+		searchFetchSize.setGlobalPropertyDao(globalPropertyDao);
+	}
+	
+	@Test
+	public void get_shouldReadFetchSizeOnlyOnce() {
+		when(globalPropertyDao.getGlobalProperty(FhirConstants.OPENMRS_FHIR_SEARCH_FETCH_SIZE)).thenReturn("250");
+		
+		assertThat(searchFetchSize.get(), equalTo(250));
+		assertThat(searchFetchSize.get(), equalTo(250));
+		verify(globalPropertyDao).getGlobalProperty(FhirConstants.OPENMRS_FHIR_SEARCH_FETCH_SIZE);
+	}
+	
+	@Test
+	public void get_shouldFallBackToDefaultForInvalidFetchSize() {
+		when(globalPropertyDao.getGlobalProperty(FhirConstants.OPENMRS_FHIR_SEARCH_FETCH_SIZE)).thenReturn("-1");
+		
+		assertThat(searchFetchSize.get(), equalTo(SearchFetchSize.DEFAULT_FETCH_SIZE));
+	}
+	
+	@Test
+	public void invalidate_shouldRereadFetchSizeAfterGlobalPropertyChanges() {
+		when(globalPropertyDao.getGlobalProperty(FhirConstants.OPENMRS_FHIR_SEARCH_FETCH_SIZE)).thenReturn("250", "50");
+		
+		assertThat(searchFetchSize.get(), equalTo(250));
+		searchFetchSize.invalidate(Collections.singleton("fhir2.someOtherProperty"));
+		assertThat(searchFetchSize.get(), equalTo(250));
+		searchFetchSize.invalidate(Collections.singleton(FhirConstants.OPENMRS_FHIR_SEARCH_FETCH_SIZE));
+		assertThat(searchFetchSize.get(), equalTo(50));
+		verify(globalPropertyDao, times(2)).getGlobalProperty(FhirConstants.OPENMRS_FHIR_SEARCH_FETCH_SIZE);
+	}
+}
@@ -15,6 +15,9 @@ import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.junit.Before;
@@ -80,4 +83,16 @@ public class FhirConceptServiceImplTest {
 		Optional<Concept> result = fhirConceptService.getConceptBySourceNameAndCode("LAINK", "999999");
 		assertThat(result.isPresent(), is(false));
 	}
+	
+	@Test
+	public void getConceptsBySourceNameAndCodes_shouldGetConceptsBySourceNameAndCodes() {
+		Concept concept = new Concept();
+		concept.setUuid(CONCEPT_UUID);
+		List<String> codes = Collections.singletonList("1000-1");
+		when(conceptDao.getConceptsBySourceNameAndCodes("LOINC", codes))
+		        .thenReturn(Collections.singletonMap("1000-1", concept));
+		
+		Map<String, Concept> result = fhirConceptService.getConceptsBySourceNameAndCodes("LOINC", codes);
+		assertThat(result.get("1000-1").getUuid(), equalTo(CONCEPT_UUID));
+	}
 }
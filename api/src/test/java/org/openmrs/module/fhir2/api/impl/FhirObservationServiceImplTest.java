@@ -10,39 +10,67 @@
 package org.openmrs.module.fhir2.api.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
+import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenAndListParam;
+import ca.uhn.fhir.rest.param.TokenOrListParam;
 import org.hl7.fhir.r4.model.Observation;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Concept;
 import org.openmrs.Obs;
+import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirObservationDao;
+import org.openmrs.module.fhir2.api.translators.ObservationStatisticsTranslator;
 import org.openmrs.module.fhir2.api.translators.ObservationTranslator;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
 
 @RunWith(MockitoJUnitRunner.class)
 public class FhirObservationServiceImplTest {
 	
 	private static final String OBS_UUID = "12345-abcde-12345";
 	
+	private static final String PATIENT_UUID = "5946f880-b197-400b-9caa-a3c661d23041";
+	
+	private static final TokenAndListParam CODE = new TokenAndListParam()
+	        .addAnd(new TokenOrListParam().add("http://loinc.org", "8480-6"));
+	
 	@Mock
 	FhirObservationDao dao;
 	
 	@Mock
 	ObservationTranslator observationTranslator;
 	
+	@Mock
+	ObservationStatisticsTranslator observationStatisticsTranslator;
+	
 	private FhirObservationServiceImpl fhirObservationService;
 	
 	@Before
@@ -50,6 +78,7 @@ public class FhirObservationServiceImplTest {
 		fhirObservationService = new FhirObservationServiceImpl();
 		fhirObservationService.setDao(dao);
 		fhirObservationService.setObservationTranslator(observationTranslator);
+		fhirObservationService.setObservationStatisticsTranslator(observationStatisticsTranslator);
 	}
 	
 	@Test
@@ -75,8 +104,11 @@ public class FhirObservationServiceImplTest {
 		obs.add(ob);
 		Observation observation = new Observation();
 		observation.setId(OBS_UUID);
-		when(dao.searchForObservations(any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
-		        .thenReturn(obs);
+		when(dao.searchForObservations(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+		        .thenAnswer(invocation -> {
+			        Function<Obs, Observation> mapper = invocation.getArgument(10);
+			        return obs.stream().map(mapper).collect(Collectors.toList());
+		        });
 		when(observationTranslator.toFhirResource(ob)).thenReturn(observation);
 		
 		Collection<Observation> results = fhirObservationService.searchForObservations(null, null, null, null, null, null,
@@ -86,4 +118,107 @@ public class FhirObservationServiceImplTest {
 		assertThat(results, not(empty()));
 		assertThat(results, hasItem(hasProperty("id", equalTo(OBS_UUID))));
 	}
+	
+	@Test
+	public void getLastnObservations_shouldReturnTranslatedObservations() {
+		Obs obs = new Obs();
+		obs.setUuid(OBS_UUID);
+		Observation observation = new Observation();
+		observation.setId(OBS_UUID);
+		when(dao.getLastnObservations(any(), any(), eq(2), any())).thenAnswer(invocation -> {
+			Function<Obs, Observation> mapper = invocation.getArgument(3);
+			return Collections.singletonList(mapper.apply(obs));
+		});
+		when(observationTranslator.toFhirResource(obs)).thenReturn(observation);
+		
+		Collection<Observation> results = fhirObservationService.getLastnObservations(null, null, 2);
+		
+		assertThat(results, hasItem(hasProperty("id", equalTo(OBS_UUID))));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldOnlyReturnRequestedStatistics() {
+		givenStatistics(false);
+		
+		Collection<Observation> results = fhirObservationService.getObservationStatistics(null, null, CODE, null,
+		    Arrays.asList(ObservationStatistics.Statistic.MINIMUM, ObservationStatistics.Statistic.MAXIMUM), false);
+		
+		assertThat(results.size(), equalTo(1));
+		assertThat(getComponentCodes(results.iterator().next()), contains("minimum", "maximum"));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldReturnEveryStatisticIfNoneRequested() {
+		givenStatistics(false);
+		
+		Collection<Observation> results = fhirObservationService.getObservationStatistics(null, null, CODE, null,
+		    Collections.emptyList(), false);
+		
+		assertThat(getComponentCodes(results.iterator().next()),
+		    contains("count", "minimum", "maximum", "average", "sum"));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldSetEffectivePeriodToRequestedPeriod() {
+		givenStatistics(false);
+		DateRangeParam period = new DateRangeParam(new DateParam("ge2020-01-01"), new DateParam("le2020-12-31"));
+		
+		Observation result = fhirObservationService
+		        .getObservationStatistics(null, null, CODE, period, Collections.emptyList(), false).iterator().next();
+		
+		assertThat(result.hasEffectivePeriod(), is(true));
+		assertThat(result.getEffectivePeriod().getStart(), equalTo(period.getLowerBoundAsInstant()));
+		assertThat(result.getEffectivePeriod().getEnd(), equalTo(period.getUpperBoundAsInstant()));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldNotSetEffectiveWithoutPeriod() {
+		givenStatistics(false);
+		
+		Observation result = fhirObservationService
+		        .getObservationStatistics(null, null, CODE, null, Collections.emptyList(), false).iterator().next();
+		
+		assertThat(result.hasEffective(), is(false));
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldGroupStatisticsByLocationOnlyWhenRequested() {
+		givenStatistics(true);
+		ReferenceAndListParam patientReference = new ReferenceAndListParam()
+		        .addAnd(new ReferenceOrListParam().add(new ReferenceParam(PATIENT_UUID)));
+		
+		Collection<Observation> results = fhirObservationService.getObservationStatistics(patientReference, null, CODE,
+		    null, Collections.emptyList(), true);
+		
+		assertThat(results.size(), equalTo(1));
+		verify(dao).getObservationStatistics(patientReference, null, CODE, null, true);
+	}
+	
+	@Test
+	public void getObservationStatistics_shouldNotGroupStatisticsByLocationUnlessRequested() {
+		givenStatistics(false);
+		
+		fhirObservationService.getObservationStatistics(null, null, CODE, null, Collections.emptyList(), false);
+		
+		verify(dao).getObservationStatistics(null, null, CODE, null, false);
+	}
+	
+	private void givenStatistics(boolean groupByLocation) {
+		ObservationStatistics statistics = new ObservationStatistics(new Concept(), null, 2, 110.0, 130.0, 120.0, 240.0);
+		when(dao.getObservationStatistics(any(), any(), eq(CODE), any(), eq(groupByLocation)))
+		        .thenReturn(Collections.singletonList(statistics));
+		
+		Observation observation = new Observation();
+		for (ObservationStatistics.Statistic statistic : ObservationStatistics.Statistic.values()) {
+			observation.addComponent().getCode().addCoding().setSystem(FhirConstants.OBSERVATION_STATISTICS_URI)
+			        .setCode(statistic.getCode());
+		}
+		
+		when(observationStatisticsTranslator.toFhirResource(statistics)).thenReturn(observation);
+	}
+	
+	private static List<String> getComponentCodes(Observation observation) {
+		return observation.getComponent().stream().map(component -> component.getCode().getCodingFirstRep().getCode())
+		        .collect(Collectors.toList());
+	}
 }
@@ -16,32 +16,50 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.hamcrest.MockitoHamcrest.argThat;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
+import org.hl7.fhir.r4.model.Enumerations;
 import org.hl7.fhir.r4.model.HumanName;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
 import org.openmrs.PersonAddress;
 import org.openmrs.PersonName;
 import org.openmrs.module.fhir2.api.dao.FhirPatientDao;
+import org.openmrs.module.fhir2.api.translators.GenderTranslator;
 import org.openmrs.module.fhir2.api.translators.PatientTranslator;
+import org.openmrs.module.fhir2.api.util.PatientMatch;
+import org.openmrs.module.fhir2.api.util.PatientMatchResults;
 
 @RunWith(MockitoJUnitRunner.class)
 public class FhirPatientServiceImplTest {
@@ -78,6 +96,10 @@ public class FhirPatientServiceImplTest {
 	
 	private static final String UNKNOWN_ADDRESS = "unknown address";
 	
+	private static final String IDENTIFIER = "1000-4";
+	
+	private static final String IDENTIFIER_SYSTEM = "OpenMRS ID";
+	
 	private static final SimpleDateFormat dateFormatter = new SimpleDateFormat("yyyy-MM-dd");
 	
 	@Mock
@@ -86,6 +108,9 @@ public class FhirPatientServiceImplTest {
 	@Mock
 	private FhirPatientDao dao;
 	
+	@Mock
+	private GenderTranslator genderTranslator;
+	
 	private FhirPatientServiceImpl patientService;
 	
 	private org.hl7.fhir.r4.model.Patient fhirPatient;
@@ -97,6 +122,7 @@ public class FhirPatientServiceImplTest {
 		patientService = new FhirPatientServiceImpl();
 		patientService.setDao(dao);
 		patientService.setTranslator(patientTranslator);
+		patientService.setGenderTranslator(genderTranslator);
 		
 		PersonName name = new PersonName();
 		name.setFamilyName(PATIENT_FAMILY_NAME);
@@ -473,4 +499,108 @@ public class FhirPatientServiceImplTest {
 		assertThat(results, notNullValue());
 		assertThat(results, empty());
 	}
+	
+	@Test
+	public void matchPatients_shouldScoreCandidatesBornInSameYearBeforeThoseAYearEitherSide() throws Exception {
+		List<String> familyNames = Collections.singletonList(PATIENT_FAMILY_NAME);
+		when(genderTranslator.toOpenmrsType(Enumerations.AdministrativeGender.MALE)).thenReturn(GENDER);
+		when(dao.getMatchCandidateIds(familyNames, dateFormatter.parse("1996-01-01"), dateFormatter.parse("1997-01-01"),
+		    GENDER, FhirPatientServiceImpl.MAX_MATCH_CANDIDATES + 1)).thenReturn(Collections.singletonList(1));
+		when(dao.getMatchCandidateIds(familyNames, dateFormatter.parse("1995-01-01"), dateFormatter.parse("1998-01-01"),
+		    GENDER, FhirPatientServiceImpl.MAX_MATCH_CANDIDATES + 1)).thenReturn(Arrays.asList(2, 1));
+		
+		Patient sameYear = newMatchCandidate(1, PATIENT_FAMILY_NAME, DATE);
+		Patient otherYear = newMatchCandidate(2, PATIENT_FAMILY_NAME, "1995-12-12");
+		when(dao.getPatientsByIds(new LinkedHashSet<>(Arrays.asList(1, 2)))).thenReturn(Arrays.asList(otherYear, sameYear));
+		when(patientTranslator.toFhirResource(sameYear)).thenReturn(fhirPatient);
+		
+		PatientMatchResults results = patientService.matchPatients(newPatientToMatch(), false, 1);
+		
+		assertThat(results.isIncomplete(), is(false));
+		assertThat(results.getMatches().size(), equalTo(1));
+		assertThat(results.getMatches().get(0).getResource(), equalTo(fhirPatient));
+		assertThat(results.getMatches().get(0).getGrade(), equalTo(PatientMatch.Grade.CERTAIN));
+	}
+	
+	@Test
+	public void matchPatients_shouldReportCandidatesLeftUnscored() throws Exception {
+		List<Integer> candidateIds = IntStream.rangeClosed(1, FhirPatientServiceImpl.MAX_MATCH_CANDIDATES + 1).boxed()
+		        .collect(Collectors.toList());
+		when(genderTranslator.toOpenmrsType(Enumerations.AdministrativeGender.MALE)).thenReturn(GENDER);
+		when(dao.getMatchCandidateIds(Collections.singletonList(PATIENT_FAMILY_NAME), dateFormatter.parse("1996-01-01"),
+		    dateFormatter.parse("1997-01-01"), GENDER, FhirPatientServiceImpl.MAX_MATCH_CANDIDATES + 1))
+		            .thenReturn(candidateIds);
+		when(dao.getPatientsByIds(any())).thenReturn(Collections.emptyList());
+		
+		PatientMatchResults results = patientService.matchPatients(newPatientToMatch(), false, 10);
+		
+		assertThat(results.isIncomplete(), is(true));
+		assertThat(results.getMatches(), empty());
+		verify(dao).getPatientsByIds(
+		    ArgumentMatchers.argThat(ids -> ids.size() == FhirPatientServiceImpl.MAX_MATCH_CANDIDATES));
+		// the candidates born in the same year already fill the candidates that are scored
+		verify(dao, never()).getMatchCandidateIds(any(), eq(dateFormatter.parse("1995-01-01")), any(), any(), anyInt());
+	}
+	
+	@Test
+	public void matchPatients_shouldMatchIdentifierOfTypeNamedBySystem() throws Exception {
+		PatientIdentifierType identifierType = new PatientIdentifierType();
+		identifierType.setName(IDENTIFIER_SYSTEM);
+		when(dao.getPatientIdentifierTypeByNameOrUuid(IDENTIFIER_SYSTEM, null)).thenReturn(identifierType);
+		when(dao.getMatchCandidateIds(any(), any(), any(), isNull(), anyInt())).thenReturn(Collections.singletonList(1));
+		
+		// a different family name and birthdate, but the same identifier
+		Patient candidate = newMatchCandidate(1, PATIENT_FAMILY_NAME_NOT_MATCHED, "1950-01-01");
+		PatientIdentifier identifier = new PatientIdentifier();
+		identifier.setIdentifier(IDENTIFIER);
+		identifier.setIdentifierType(identifierType);
+		candidate.addIdentifier(identifier);
+		when(dao.getPatientsByIds(Collections.singleton(1))).thenReturn(Collections.singletonList(candidate));
+		when(patientTranslator.toFhirResource(candidate)).thenReturn(fhirPatient);
+		
+		org.hl7.fhir.r4.model.Patient patientToMatch = newPatientToMatch();
+		patientToMatch.setGender(null);
+		patientToMatch.addIdentifier().setSystem(IDENTIFIER_SYSTEM).setValue(IDENTIFIER);
+		PatientMatchResults results = patientService.matchPatients(patientToMatch, true, 10);
+		
+		assertThat(results.getMatches().size(), equalTo(1));
+		assertThat(results.getMatches().get(0).getScore(), equalTo(1.0));
+	}
+	
+	@Test
+	public void matchPatients_shouldNotSearchForPatientWithoutBirthdate() {
+		org.hl7.fhir.r4.model.Patient patientToMatch = newPatientToMatch();
+		patientToMatch.setBirthDate(null);
+		
+		PatientMatchResults results = patientService.matchPatients(patientToMatch, false, 10);
+		
+		assertThat(results.getMatches(), empty());
+		verifyNoInteractions(dao);
+	}
+	
+	private org.hl7.fhir.r4.model.Patient newPatientToMatch() {
+		org.hl7.fhir.r4.model.Patient patientToMatch = new org.hl7.fhir.r4.model.Patient();
+		patientToMatch.addName().setFamily(PATIENT_FAMILY_NAME).addGiven(PATIENT_GIVEN_NAME);
+		patientToMatch.setGender(Enumerations.AdministrativeGender.MALE);
+		try {
+			patientToMatch.setBirthDate(dateFormatter.parse(DATE));
+		}
+		catch (ParseException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		return patientToMatch;
+	}
+	
+	private static Patient newMatchCandidate(int patientId, String familyName, String birthdate) throws ParseException {
+		PersonName name = new PersonName();
+		name.setFamilyName(familyName);
+		name.setGivenName(PATIENT_GIVEN_NAME);
+		
+		Patient candidate = new Patient(patientId);
+		candidate.addName(name);
+		candidate.setGender(GENDER);
+		candidate.setBirthdate(dateFormatter.parse(birthdate));
+		return candidate;
+	}
 }
@@ -0,0 +1,76 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameTokenDao;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FhirPersonNameIndexServiceImplTest {
+	
+	private static final Integer LAST_INDEXED_ID = 1000;
+	
+	private static final Integer NEXT_INDEXED_ID = 2000;
+	
+	@Mock
+	private FhirPersonNameTokenDao dao;
+	
+	private FhirPersonNameIndexServiceImpl personNameIndexService;
+	
+	@Before
+	public void setup() {
+		personNameIndexService = new FhirPersonNameIndexServiceImpl();
+		personNameIndexService.setDao(dao);
+	}
+	
+	@Test
+	public void indexNextNameBatch_shouldResumeAfterLastRecordedBatch() {
+		when(dao.getLastIndexedPersonNameId()).thenReturn(LAST_INDEXED_ID);
+		when(dao.indexNameBatch(eq(LAST_INDEXED_ID), anyInt())).thenReturn(NEXT_INDEXED_ID);
+		
+		assertThat(personNameIndexService.indexNextNameBatch(), is(true));
+		
+		verify(dao).setLastIndexedPersonNameId(NEXT_INDEXED_ID);
+		verify(dao, never()).setIndexComplete(true);
+	}
+	
+	@Test
+	public void indexNextNameBatch_shouldStartAtBeginningWhenNoBatchIsRecorded() {
+		when(dao.getLastIndexedPersonNameId()).thenReturn(null);
+		when(dao.indexNameBatch(isNull(), anyInt())).thenReturn(NEXT_INDEXED_ID);
+		
+		assertThat(personNameIndexService.indexNextNameBatch(), is(true));
+		
+		verify(dao).setLastIndexedPersonNameId(NEXT_INDEXED_ID);
+	}
+	
+	@Test
+	public void indexNextNameBatch_shouldMarkIndexCompleteWhenNoNamesRemain() {
+		when(dao.getLastIndexedPersonNameId()).thenReturn(LAST_INDEXED_ID);
+		when(dao.indexNameBatch(eq(LAST_INDEXED_ID), anyInt())).thenReturn(null);
+		
+		assertThat(personNameIndexService.indexNextNameBatch(), is(false));
+		
+		verify(dao).setIndexComplete(true);
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.Collections;
+
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceVersionConflictException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hl7.fhir.r4.model.Task;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.module.fhir2.api.dao.FhirResourceIdentifierDao;
+import org.openmrs.module.fhir2.api.util.ConditionalWriteOutcome;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FhirResourceIdentifierServiceImplTest {
+	
+	private static final String TASK_UUID = "bdd7e368-3d1a-42a9-9538-395391b64adf";
+	
+	private static final String OTHER_TASK_UUID = "df34a1c1-f57b-4c33-bee5-e601b56b9d5b";
+	
+	private static final String SYSTEM = "http://example.com/orders";
+	
+	private static final TokenParam IDENTIFIER = new TokenParam(SYSTEM, "123");
+	
+	@Mock
+	private FhirResourceIdentifierDao dao;
+	
+	private FhirResourceIdentifierServiceImpl service;
+	
+	private Task task;
+	
+	@Before
+	public void setup() {
+		service = new FhirResourceIdentifierServiceImpl();
+		service.setDao(dao);
+		
+		task = new Task();
+		task.setId(TASK_UUID);
+	}
+	
+	@Test
+	public void createIfNoneExist_shouldCreateResourceAndRecordIdentifier() {
+		ConditionalWriteOutcome<Task> result = service.createIfNoneExist("Task", IDENTIFIER, () -> task, uuid -> null);
+		
+		assertThat(result.isCreated(), is(true));
+		assertThat(result.getResource(), equalTo(task));
+		verify(dao).saveResourceIdentifier(argThat(identifier -> "Task".equals(identifier.getResourceType())
+		        && SYSTEM.equals(identifier.getSystem()) && "123".equals(identifier.getValue())
+		        && TASK_UUID.equals(identifier.getResourceUuid())));
+	}
+	
+	@Test
+	public void createIfNoneExist_shouldReturnExistingResource() {
+		when(dao.getResourceUuid("Task", SYSTEM, "123")).thenReturn(TASK_UUID);
+		
+		ConditionalWriteOutcome<Task> result = service.createIfNoneExist("Task", IDENTIFIER, () -> {
+			throw new AssertionError("should not create a second Task");
+		}, uuid -> TASK_UUID.equals(uuid) ? task : null);
+		
+		assertThat(result.isCreated(), is(false));
+		assertThat(result.getResource(), equalTo(task));
+		verify(dao, never()).saveResourceIdentifier(any());
+	}
+	
+	@Test
+	public void createIfNoneExist_shouldReplaceIdentifierOfResourceThatNoLongerExists() {
+		when(dao.getResourceUuid("Task", SYSTEM, "123")).thenReturn(OTHER_TASK_UUID);
+		
+		ConditionalWriteOutcome<Task> result = service.createIfNoneExist("Task", IDENTIFIER, () -> task, uuid -> {
+			throw new ResourceNotFoundException("Could not find Task with Id " + uuid);
+		});
+		
+		assertThat(result.isCreated(), is(true));
+		assertThat(result.getResource(), equalTo(task));
+		verify(dao).deleteResourceIdentifiers(Collections.singleton(OTHER_TASK_UUID));
+		verify(dao).saveResourceIdentifier(argThat(identifier -> TASK_UUID.equals(identifier.getResourceUuid())));
+	}
+	
+	@Test(expected = ResourceVersionConflictException.class)
+	public void createIfNoneExist_shouldKeepIdentifierOfResourceThatCannotBeRead() {
+		when(dao.getResourceUuid("Task", SYSTEM, "123")).thenReturn(OTHER_TASK_UUID);
+		
+		try {
+			service.createIfNoneExist("Task", IDENTIFIER, () -> task, uuid -> null);
+		}
+		finally {
+			verify(dao, never()).deleteResourceIdentifiers(any());
+			verify(dao, never()).saveResourceIdentifier(any());
+		}
+	}
+	
+	@Test(expected = APIAuthenticationException.class)
+	public void createIfNoneExist_shouldPassOnAuthorizationFailuresWithoutReleasingIdentifier() {
+		when(dao.getResourceUuid("Task", SYSTEM, "123")).thenReturn(OTHER_TASK_UUID);
+		
+		try {
+			service.createIfNoneExist("Task", IDENTIFIER, () -> task, uuid -> {
+				throw new APIAuthenticationException("Privileges required: Get Tasks");
+			});
+		}
+		finally {
+			verify(dao, never()).deleteResourceIdentifiers(any());
+			verify(dao, never()).saveResourceIdentifier(any());
+		}
+	}
+	
+	@Test
+	public void createIfNoneExist_shouldStoreMissingSystemAsEmpty() {
+		service.createIfNoneExist("Task", new TokenParam(null, "123"), () -> task, uuid -> null);
+		
+		verify(dao).getResourceUuid("Task", "", "123");
+	}
+	
+	@Test(expected = ResourceVersionConflictException.class)
+	public void createIfNoneExist_shouldReportConcurrentCreateAsConflict() {
+		when(dao.saveResourceIdentifier(any()))
+		        .thenThrow(new ConstraintViolationException("duplicate", new SQLException(), "fhir_resource_identifier_unique"));
+		
+		service.createIfNoneExist("Task", IDENTIFIER, () -> task, uuid -> null);
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void createIfNoneExist_shouldRejectEmptyIdentifierValue() {
+		service.createIfNoneExist("Task", new TokenParam(SYSTEM, ""), () -> task, uuid -> null);
+	}
+	
+	@Test
+	public void updateByIdentifier_shouldUpdateExistingResource() {
+		when(dao.getResourceUuid("Task", SYSTEM, "123")).thenReturn(TASK_UUID);
+		
+		ConditionalWriteOutcome<Task> result = service.updateByIdentifier("Task", IDENTIFIER,
+		    uuid -> TASK_UUID.equals(uuid) ? task : null, () -> {
+			    throw new AssertionError("should not create a second Task");
+		    });
+		
+		assertThat(result.isCreated(), is(false));
+		assertThat(result.getResource(), equalTo(task));
+	}
+	
+	@Test
+	public void updateByIdentifier_shouldCreateResourceIfNoneMatches() {
+		ConditionalWriteOutcome<Task> result = service.updateByIdentifier("Task", IDENTIFIER, uuid -> null, () -> task);
+		
+		assertThat(result.isCreated(), is(true));
+		verify(dao).saveResourceIdentifier(any());
+	}
+}
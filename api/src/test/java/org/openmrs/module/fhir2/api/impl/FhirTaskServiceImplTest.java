@@ -17,6 +17,7 @@ import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -24,6 +25,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 
+import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.MethodNotAllowedException;
 import org.hl7.fhir.r4.model.Patient;
@@ -37,6 +39,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.module.fhir2.FhirTask;
 import org.openmrs.module.fhir2.api.dao.FhirTaskDao;
 import org.openmrs.module.fhir2.api.translators.TaskTranslator;
+import org.openmrs.module.fhir2.api.util.TaskChangeRegistry;
 
 @RunWith(MockitoJUnitRunner.class)
 public class FhirTaskServiceImplTest {
@@ -65,6 +68,9 @@ public class FhirTaskServiceImplTest {
 	@Mock
 	TaskTranslator translator;
 	
+	@Mock
+	TaskChangeRegistry taskChangeRegistry;
+	
 	private FhirTaskServiceImpl fhirTaskService;
 	
 	@Before
@@ -72,6 +78,7 @@ public class FhirTaskServiceImplTest {
 		fhirTaskService = new FhirTaskServiceImpl();
 		fhirTaskService.setDao(dao);
 		fhirTaskService.setTranslator(translator);
+		fhirTaskService.setTaskChangeRegistry(taskChangeRegistry);
 	}
 	
 	@Test
@@ -91,6 +98,23 @@ public class FhirTaskServiceImplTest {
 		assertThat(result, equalTo(translatedTask));
 	}
 	
+	@Test
+	public void getLatestTaskByUuid_shouldRetrieveCurrentStateOfTask() {
+		FhirTask task = new FhirTask();
+		org.hl7.fhir.r4.model.Task translatedTask = new org.hl7.fhir.r4.model.Task();
+		
+		task.setUuid(TASK_UUID);
+		translatedTask.setId(TASK_UUID);
+		
+		when(dao.getLatestTaskByUuid(TASK_UUID)).thenReturn(task);
+		when(translator.toFhirResource(task)).thenReturn(translatedTask);
+		
+		org.hl7.fhir.r4.model.Task result = fhirTaskService.getLatestTaskByUuid(TASK_UUID);
+		
+		assertThat(result, notNullValue());
+		assertThat(result.getId(), equalTo(TASK_UUID));
+	}
+	
 	@Test
 	public void saveTask_shouldSaveNewTask() {
 		org.hl7.fhir.r4.model.Task fhirTask = new org.hl7.fhir.r4.model.Task();
@@ -111,6 +135,7 @@ public class FhirTaskServiceImplTest {
 		
 		assertThat(result, notNullValue());
 		assertThat(result, equalTo(fhirTask));
+		verify(taskChangeRegistry).taskChanged(TASK_UUID);
 	}
 	
 	@Test
@@ -232,4 +257,28 @@ public class FhirTaskServiceImplTest {
 		assertThat(results, not(empty()));
 		assertThat(results, hasItem(hasProperty("id", equalTo(TASK_UUID))));
 	}
+	
+	@Test
+	public void claimTasks_shouldReturnClaimedTasks() {
+		FhirTask openmrsTask = new FhirTask();
+		openmrsTask.setUuid(TASK_UUID);
+		
+		Task task = new Task();
+		task.setId(TASK_UUID);
+		
+		ReferenceParam ownerReference = new ReferenceParam("Practitioner/" + TASK_UUID);
+		
+		when(dao.claimTasks(ownerReference, 5)).thenReturn(Collections.singletonList(openmrsTask));
+		when(translator.toFhirResource(openmrsTask)).thenReturn(task);
+		
+		Collection<Task> results = fhirTaskService.claimTasks(ownerReference, 5);
+		
+		assertThat(results, notNullValue());
+		assertThat(results, hasItem(hasProperty("id", equalTo(TASK_UUID))));
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void claimTasks_shouldThrowExceptionWithoutOwner() {
+		fhirTaskService.claimTasks(null, 5);
+	}
 }
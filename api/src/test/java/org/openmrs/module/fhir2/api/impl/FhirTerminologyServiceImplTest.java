@@ -0,0 +1,156 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptSource;
+import org.openmrs.module.fhir2.FhirConceptSource;
+import org.openmrs.module.fhir2.api.dao.FhirConceptDao;
+import org.openmrs.module.fhir2.api.dao.FhirConceptSourceDao;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FhirTerminologyServiceImplTest {
+	
+	private static final String CIEL_URL = "urn:oid:2.16.840.1.113883.3.7201";
+	
+	private static final String LOINC_URL = "http://loinc.org";
+	
+	private static final String CIEL_CODE = "5085";
+	
+	private static final String LOINC_CODE = "8480-6";
+	
+	private static final Integer CONCEPT_ID = 5085;
+	
+	private static final String CONCEPT_UUID = "a09ab2c5-878e-4905-b25d-5784167d0216";
+	
+	@Mock
+	private FhirConceptDao conceptDao;
+	
+	@Mock
+	private FhirConceptSourceDao conceptSourceDao;
+	
+	@Mock
+	private Concept concept;
+	
+	private FhirTerminologyServiceImpl terminologyService;
+	
+	@Before
+	public void setup() {
+		terminologyService = new FhirTerminologyServiceImpl();
+		terminologyService.setConceptDao(conceptDao);
+		terminologyService.setConceptSourceDao(conceptSourceDao);
+	}
+	
+	@Test
+	public void translate_shouldReturnCodesInTargetSystem() {
+		when(conceptDao.getConceptIdsBySystemAndCode(CIEL_URL, CIEL_CODE)).thenReturn(Collections.singleton(CONCEPT_ID));
+		when(conceptDao.getCodesBySystemAndConceptIds(LOINC_URL, Collections.singleton(CONCEPT_ID)))
+		        .thenReturn(Collections.singletonMap(CONCEPT_ID, Collections.singleton(LOINC_CODE)));
+		
+		Parameters result = terminologyService.translate(CIEL_URL, CIEL_CODE, LOINC_URL);
+		
+		assertThat(((BooleanType) result.getParameter("result")).booleanValue(), equalTo(true));
+		List<Parameters.ParametersParameterComponent> parts = result.getParameter().get(1).getPart();
+		Coding match = (Coding) parts.get(1).getValue();
+		assertThat(match.getSystem(), equalTo(LOINC_URL));
+		assertThat(match.getCode(), equalTo(LOINC_CODE));
+	}
+	
+	@Test
+	public void translate_shouldTranslateIntoEveryOtherRegisteredSystemWhenNoTargetIsGiven() {
+		FhirConceptSource ciel = new FhirConceptSource();
+		ciel.setUrl(CIEL_URL);
+		FhirConceptSource loinc = new FhirConceptSource();
+		loinc.setUrl(LOINC_URL);
+		
+		when(conceptDao.getConceptIdsBySystemAndCode(CIEL_URL, CIEL_CODE)).thenReturn(Collections.singleton(CONCEPT_ID));
+		when(conceptSourceDao.getFhirConceptSources()).thenReturn(Arrays.asList(ciel, loinc));
+		when(conceptDao.getCodesBySystemAndConceptIds(LOINC_URL, Collections.singleton(CONCEPT_ID)))
+		        .thenReturn(Collections.singletonMap(CONCEPT_ID, Collections.singleton(LOINC_CODE)));
+		
+		Parameters result = terminologyService.translate(CIEL_URL, CIEL_CODE, null);
+		
+		assertThat(result.getParameter(), hasSize(2));
+		assertThat(((Coding) result.getParameter().get(1).getPart().get(1).getValue()).getCode(), equalTo(LOINC_CODE));
+	}
+	
+	@Test
+	public void translate_shouldNotTranslateIntoSourceSystemGivenInAnotherCase() {
+		FhirConceptSource ciel = new FhirConceptSource();
+		ciel.setUrl(CIEL_URL);
+		
+		when(conceptDao.getConceptIdsBySystemAndCode(CIEL_URL.toUpperCase(Locale.ROOT), CIEL_CODE))
+		        .thenReturn(Collections.singleton(CONCEPT_ID));
+		when(conceptSourceDao.getFhirConceptSources()).thenReturn(Collections.singletonList(ciel));
+		
+		Parameters result = terminologyService.translate(CIEL_URL.toUpperCase(Locale.ROOT), CIEL_CODE, null);
+		
+		assertThat(((BooleanType) result.getParameter("result")).booleanValue(), equalTo(false));
+		assertThat(((StringType) result.getParameter("message")).getValue(),
+		    equalTo("The code has no equivalent in the target system"));
+	}
+	
+	@Test
+	public void translate_shouldReturnFalseResultForUnmappedCode() {
+		when(conceptDao.getConceptIdsBySystemAndCode(CIEL_URL, CIEL_CODE)).thenReturn(Collections.emptySet());
+		
+		Parameters result = terminologyService.translate(CIEL_URL, CIEL_CODE, LOINC_URL);
+		
+		assertThat(((BooleanType) result.getParameter("result")).booleanValue(), equalTo(false));
+	}
+	
+	@Test
+	public void lookup_shouldReturnSourceNameAndConceptDisplay() {
+		when(concept.getName()).thenReturn(new ConceptName("Systolic blood pressure", Locale.ENGLISH));
+		when(concept.getUuid()).thenReturn(CONCEPT_UUID);
+		ConceptSource conceptSource = new ConceptSource();
+		conceptSource.setName("CIEL");
+		FhirConceptSource fhirConceptSource = new FhirConceptSource();
+		fhirConceptSource.setConceptSource(conceptSource);
+		
+		when(conceptDao.getConceptIdsBySystemAndCode(CIEL_URL, CIEL_CODE)).thenReturn(Collections.singleton(CONCEPT_ID));
+		when(conceptDao.getConceptById(CONCEPT_ID)).thenReturn(Optional.of(concept));
+		when(conceptSourceDao.getFhirConceptSourceByUrl(CIEL_URL)).thenReturn(Optional.of(fhirConceptSource));
+		
+		Parameters result = terminologyService.lookup(CIEL_URL, CIEL_CODE);
+		
+		assertThat(((StringType) result.getParameter("name")).getValue(), equalTo("CIEL"));
+		assertThat(((StringType) result.getParameter("display")).getValue(), equalTo("Systolic blood pressure"));
+	}
+	
+	@Test
+	public void lookup_shouldReturnNullForUnmappedCode() {
+		when(conceptDao.getConceptIdsBySystemAndCode(CIEL_URL, CIEL_CODE)).thenReturn(Collections.emptySet());
+		
+		assertThat(terminologyService.lookup(CIEL_URL, CIEL_CODE), nullValue());
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.hl7.fhir.r4.model.ValueSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptSet;
+import org.openmrs.module.fhir2.api.dao.FhirConceptDao;
+import org.openmrs.module.fhir2.api.util.ValueSetExpansionCache;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FhirValueSetServiceImplTest {
+	
+	private static final String SET_UUID = "0f97e14e-cdc2-49ac-9255-b5126f8a5147";
+	
+	private static final String SYSTOLIC_UUID = "a09ab2c5-878e-4905-b25d-5784167d0216";
+	
+	private static final String DIASTOLIC_UUID = "c607c80f-1ea9-4da3-bb88-6276ce8868dd";
+	
+	@Mock
+	private FhirConceptDao dao;
+	
+	@Mock
+	private Concept conceptSet;
+	
+	@Mock
+	private Concept systolic;
+	
+	@Mock
+	private Concept diastolic;
+	
+	private FhirValueSetServiceImpl valueSetService;
+	
+	@Before
+	public void setup() {
+		valueSetService = new FhirValueSetServiceImpl();
+		valueSetService.setDao(dao);
+		valueSetService.setExpansionCache(new ValueSetExpansionCache());
+	}
+	
+	@Test
+	public void expand_shouldReturnFilteredPageOfSetMembers() {
+		mockConceptSet();
+		
+		ValueSet result = valueSetService.expand(SET_UUID, "pressure", 1, 1);
+		
+		assertThat(result.getExpansion().getTotal(), equalTo(2));
+		assertThat(result.getExpansion().getOffset(), equalTo(1));
+		assertThat(result.getExpansion().getContains(), hasSize(1));
+		assertThat(result.getExpansion().getContains().get(0).getCode(), equalTo(SYSTOLIC_UUID));
+	}
+	
+	@Test
+	public void expand_shouldReuseExpansionWhileSetIsUnchanged() {
+		mockConceptSet();
+		
+		valueSetService.expand(SET_UUID, "sys", 0, null);
+		valueSetService.expand(SET_UUID, "dia", 0, null);
+		
+		verify(conceptSet, times(1)).getSetMembers();
+	}
+	
+	@Test
+	public void expand_shouldRebuildExpansionWhenMemberChanges() {
+		mockConceptSet();
+		
+		valueSetService.expand(SET_UUID, null, 0, null);
+		when(systolic.getDateChanged()).thenReturn(new Date());
+		when(systolic.getName()).thenReturn(new ConceptName("Systolic BP", Locale.ENGLISH));
+		ValueSet result = valueSetService.expand(SET_UUID, null, 0, null);
+		
+		verify(conceptSet, times(2)).getSetMembers();
+		assertThat(result.getExpansion().getContains().get(0).getDisplay(), equalTo("Systolic BP"));
+	}
+	
+	@Test
+	public void expand_shouldNotOverflowForLargeCount() {
+		mockConceptSet();
+		
+		ValueSet result = valueSetService.expand(SET_UUID, null, 1, Integer.MAX_VALUE);
+		
+		assertThat(result.getExpansion().getTotal(), equalTo(2));
+		assertThat(result.getExpansion().getContains(), hasSize(1));
+		assertThat(result.getExpansion().getContains().get(0).getCode(), equalTo(DIASTOLIC_UUID));
+	}
+	
+	@Test
+	public void expand_shouldReturnNullWhenConceptIsNotASet() {
+		when(dao.getConceptByUuid(SET_UUID)).thenReturn(Optional.of(conceptSet));
+		when(conceptSet.getSet()).thenReturn(false);
+		
+		assertThat(valueSetService.expand(SET_UUID, null, 0, null), nullValue());
+	}
+	
+	private void mockConceptSet() {
+		when(dao.getConceptByUuid(SET_UUID)).thenReturn(Optional.of(conceptSet));
+		when(conceptSet.getSet()).thenReturn(true);
+		when(conceptSet.getConceptId()).thenReturn(1);
+		when(conceptSet.getUuid()).thenReturn(SET_UUID);
+		when(conceptSet.getConceptSets())
+		        .thenReturn(Arrays.asList(new ConceptSet(systolic, 1.0), new ConceptSet(diastolic, 2.0)));
+		when(conceptSet.getSetMembers()).thenReturn(Arrays.asList(systolic, diastolic));
+		when(systolic.getUuid()).thenReturn(SYSTOLIC_UUID);
+		when(systolic.getName()).thenReturn(new ConceptName("Systolic blood pressure", Locale.ENGLISH));
+		when(diastolic.getUuid()).thenReturn(DIASTOLIC_UUID);
+		when(diastolic.getName()).thenReturn(new ConceptName("Diastolic blood pressure", Locale.ENGLISH));
+	}
+}
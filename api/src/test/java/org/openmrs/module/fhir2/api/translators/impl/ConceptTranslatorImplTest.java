@@ -18,10 +18,13 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Optional;
 
 import org.hl7.fhir.r4.model.CodeableConcept;
@@ -285,4 +288,26 @@ public class ConceptTranslatorImplTest {
 	public void shouldReturnNullWhenCodeableConceptNull() {
 		assertThat(conceptTranslator.toOpenmrsType(null), nullValue());
 	}
+	
+	@Test
+	public void warmConceptCache_shouldResolveCodesOfEachSourceTogether() {
+		CodeableConcept first = new CodeableConcept();
+		first.addCoding().setSystem(FhirTestConstants.LOINC_SYSTEM_URL).setCode("1000-1");
+		first.addCoding().setCode(CONCEPT_UUID);
+		CodeableConcept second = new CodeableConcept();
+		second.addCoding().setSystem(FhirTestConstants.LOINC_SYSTEM_URL).setCode("1000-2");
+		
+		ConceptSource loinc = new ConceptSource();
+		loinc.setName("LOINC");
+		FhirConceptSource fhirLoincSource = new FhirConceptSource();
+		fhirLoincSource.setConceptSource(loinc);
+		fhirLoincSource.setUrl(FhirTestConstants.LOINC_SYSTEM_URL);
+		when(conceptSourceService.getFhirConceptSourceByUrl(FhirTestConstants.LOINC_SYSTEM_URL))
+		        .thenReturn(Optional.of(fhirLoincSource));
+		
+		conceptTranslator.warmConceptCache(Arrays.asList(first, second, null));
+		
+		verify(conceptService).getConceptsBySourceNameAndCodes("LOINC",
+		    new LinkedHashSet<>(Arrays.asList("1000-1", "1000-2")));
+	}
 }
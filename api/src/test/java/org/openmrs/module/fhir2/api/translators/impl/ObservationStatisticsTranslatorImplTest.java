@@ -0,0 +1,89 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.translators.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Concept;
+import org.openmrs.Location;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.translators.ConceptTranslator;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ObservationStatisticsTranslatorImplTest {
+	
+	private static final String LOCATION_UUID = "8d6c993e-c2cc-11de-8d13-0010c6dffd0f";
+	
+	@Mock
+	private ConceptTranslator conceptTranslator;
+	
+	private ObservationStatisticsTranslatorImpl translator;
+	
+	@Before
+	public void setup() {
+		translator = new ObservationStatisticsTranslatorImpl();
+		translator.setConceptTranslator(conceptTranslator);
+	}
+	
+	@Test
+	public void toFhirResource_shouldMapStatisticsToComponents() {
+		Concept concept = new Concept(5085);
+		CodeableConcept code = new CodeableConcept();
+		when(conceptTranslator.toFhirResource(concept)).thenReturn(code);
+		
+		Observation result = translator
+		        .toFhirResource(new ObservationStatistics(concept, null, 4L, 0.5, 134.0, 62.0, 248.0));
+		
+		assertThat(result.getCode(), equalTo(code));
+		assertThat(result.getStatus(), equalTo(Observation.ObservationStatus.FINAL));
+		assertThat(result.hasSubject(), equalTo(false));
+		assertThat(result.getComponent(), hasSize(ObservationStatistics.Statistic.values().length));
+		
+		Observation.ObservationComponentComponent count = result.getComponent().get(0);
+		assertThat(count.getCode().getCodingFirstRep().getSystem(), equalTo(FhirConstants.OBSERVATION_STATISTICS_URI));
+		assertThat(count.getCode().getCodingFirstRep().getCode(), equalTo("count"));
+		assertThat(count.getValueQuantity().getValue(), equalTo(new BigDecimal("4")));
+		
+		Observation.ObservationComponentComponent maximum = result.getComponent().get(2);
+		assertThat(maximum.getCode().getCodingFirstRep().getCode(), equalTo("maximum"));
+		assertThat(maximum.getValueQuantity().getValue(), equalTo(new BigDecimal("134.0")));
+	}
+	
+	@Test
+	public void toFhirResource_shouldUseLocationAsSubject() {
+		Location location = new Location();
+		location.setUuid(LOCATION_UUID);
+		
+		Observation result = translator
+		        .toFhirResource(new ObservationStatistics(new Concept(5085), location, 0L, null, null, null, null));
+		
+		assertThat(result.getSubject().getReference(), equalTo(FhirConstants.LOCATION + "/" + LOCATION_UUID));
+		assertThat(result.getComponent(), hasSize(1));
+	}
+	
+	@Test
+	public void toFhirResource_shouldReturnNullForNullStatistics() {
+		assertThat(translator.toFhirResource(null), nullValue());
+	}
+}
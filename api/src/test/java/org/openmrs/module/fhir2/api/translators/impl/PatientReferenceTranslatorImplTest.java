@@ -11,8 +11,10 @@ package org.openmrs.module.fhir2.api.translators.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.Mockito.when;
 
 import org.hl7.fhir.r4.model.Identifier;
@@ -25,6 +27,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.Patient;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirPatientDao;
+import org.openmrs.module.fhir2.api.util.TranslationMemo;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PatientReferenceTranslatorImplTest {
@@ -54,6 +57,25 @@ public class PatientReferenceTranslatorImplTest {
 		assertThat(patientReferenceTranslator.getReferenceId(result), equalTo(PATIENT_UUID));
 	}
 	
+	@Test
+	public void toFhirResource_shouldReuseReferenceForSamePatientWithinScope() {
+		Patient patient = new Patient(1);
+		patient.setUuid(PATIENT_UUID);
+		
+		Reference first;
+		Reference second;
+		try (TranslationMemo.Scope ignored = TranslationMemo.open()) {
+			first = patientReferenceTranslator.toFhirResource(patient);
+			patient.setUuid("changed-uuid");
+			second = patientReferenceTranslator.toFhirResource(patient);
+		}
+		
+		assertThat(second, not(sameInstance(first)));
+		assertThat(patientReferenceTranslator.getReferenceId(second), equalTo(PATIENT_UUID));
+		assertThat(patientReferenceTranslator.getReferenceId(patientReferenceTranslator.toFhirResource(patient)),
+		    equalTo("changed-uuid"));
+	}
+	
 	@Test
 	public void toFhirResource_shouldReturnNullIfEncounterNull() {
 		Reference result = patientReferenceTranslator.toFhirResource(null);
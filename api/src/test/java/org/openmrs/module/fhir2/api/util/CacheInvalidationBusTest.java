@@ -0,0 +1,178 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.FhirCacheInvalidation;
+import org.openmrs.module.fhir2.api.dao.FhirCacheInvalidationDao;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CacheInvalidationBusTest {
+	
+	private static final String CACHE_NAME = "responses";
+	
+	private static final String OTHER_CACHE_NAME = "locationHierarchy";
+	
+	private static final String OTHER_NODE_ID = UUID.randomUUID().toString();
+	
+	// long enough that the scheduled poll never runs during a test
+	private static final long POLL_INTERVAL = 3600L;
+	
+	@Mock
+	private FhirCacheInvalidationDao dao;
+	
+	@Mock
+	private CacheInvalidationListener listener;
+	
+	@Mock
+	private CacheInvalidationListener otherListener;
+	
+	@Captor
+	private ArgumentCaptor<List<FhirCacheInvalidation>> invalidationsCaptor;
+	
+	private CacheInvalidationBus bus;
+	
+	@Before
+	public void setup() {
+		bus = new CacheInvalidationBus();
+		bus.setDao(dao);
+		bus.setListeners(Arrays.asList(listener, otherListener));
+	}
+	
+	@After
+	public void tearDown() {
+		bus.stop();
+	}
+	
+	@Test
+	public void publish_shouldDoNothingUntilStarted() {
+		bus.publish(CACHE_NAME, Collections.singleton("Location"));
+		bus.start(POLL_INTERVAL);
+		bus.poll();
+		
+		verify(dao, never()).saveInvalidations(any());
+	}
+	
+	@Test
+	public void poll_shouldWritePublishedInvalidations() {
+		bus.start(POLL_INTERVAL);
+		bus.publish(CACHE_NAME, Collections.singleton("Location"));
+		bus.poll();
+		
+		verify(dao).saveInvalidations(invalidationsCaptor.capture());
+		assertThat(invalidationsCaptor.getValue(), hasSize(1));
+		
+		FhirCacheInvalidation invalidation = invalidationsCaptor.getValue().get(0);
+		assertThat(invalidation.getCacheName(), equalTo(CACHE_NAME));
+		assertThat(invalidation.getCacheKey(), equalTo("Location"));
+		assertThat(invalidation.getNodeId(), equalTo(bus.getNodeId()));
+	}
+	
+	@Test
+	public void poll_shouldWriteSingleInvalidationForWholeCache() {
+		bus.start(POLL_INTERVAL);
+		bus.publish(CACHE_NAME, Collections.singleton("Location"));
+		bus.publish(CACHE_NAME, null);
+		bus.poll();
+		
+		verify(dao).saveInvalidations(invalidationsCaptor.capture());
+		assertThat(invalidationsCaptor.getValue(), hasSize(1));
+		assertThat(invalidationsCaptor.getValue().get(0).getCacheKey(), nullValue());
+	}
+	
+	@Test
+	public void poll_shouldPassInvalidationsFromOtherServersToListeners() {
+		when(listener.getCacheName()).thenReturn(CACHE_NAME);
+		when(otherListener.getCacheName()).thenReturn(OTHER_CACHE_NAME);
+		when(dao.getInvalidationsAfter(anyLong(), eq(CacheInvalidationBus.BATCH_SIZE))).thenReturn(Arrays.asList(
+		    newInvalidation(1L, CACHE_NAME, "Location", OTHER_NODE_ID),
+		    newInvalidation(2L, OTHER_CACHE_NAME, null, bus.getNodeId())));
+		
+		bus.start(POLL_INTERVAL);
+		bus.poll();
+		
+		verify(listener).invalidate(Collections.singleton("Location"));
+		verify(otherListener, never()).invalidate(any());
+	}
+	
+	@Test
+	public void poll_shouldInvalidateWholeCacheForInvalidationWithoutKey() {
+		when(listener.getCacheName()).thenReturn(CACHE_NAME);
+		when(otherListener.getCacheName()).thenReturn(OTHER_CACHE_NAME);
+		when(dao.getInvalidationsAfter(anyLong(), eq(CacheInvalidationBus.BATCH_SIZE))).thenReturn(Arrays.asList(
+		    newInvalidation(1L, CACHE_NAME, "Location", OTHER_NODE_ID),
+		    newInvalidation(2L, CACHE_NAME, null, OTHER_NODE_ID)));
+		
+		bus.start(POLL_INTERVAL);
+		bus.poll();
+		
+		verify(listener).invalidate(isNull());
+	}
+	
+	@Test
+	public void poll_shouldOnlyApplyEachInvalidationOnce() {
+		when(listener.getCacheName()).thenReturn(CACHE_NAME);
+		when(otherListener.getCacheName()).thenReturn(OTHER_CACHE_NAME);
+		when(dao.getInvalidationsAfter(anyLong(), eq(CacheInvalidationBus.BATCH_SIZE)))
+		        .thenReturn(Collections.singletonList(newInvalidation(1L, CACHE_NAME, "Location", OTHER_NODE_ID)));
+		
+		bus.start(POLL_INTERVAL);
+		bus.poll();
+		bus.poll();
+		
+		verify(listener).invalidate(Collections.singleton("Location"));
+	}
+	
+	@Test
+	public void invalidate_shouldNotifyListenersOnThisServer() {
+		when(listener.getCacheName()).thenReturn(CACHE_NAME);
+		when(otherListener.getCacheName()).thenReturn(OTHER_CACHE_NAME);
+		
+		bus.invalidate(CACHE_NAME, Collections.singleton("Location"));
+		
+		verify(listener).invalidate(Collections.singletonList("Location"));
+		verify(otherListener, never()).invalidate(any());
+	}
+	
+	private static FhirCacheInvalidation newInvalidation(Long id, String cacheName, String cacheKey, String nodeId) {
+		FhirCacheInvalidation invalidation = new FhirCacheInvalidation();
+		invalidation.setId(id);
+		invalidation.setCacheName(cacheName);
+		invalidation.setCacheKey(cacheKey);
+		invalidation.setNodeId(nodeId);
+		invalidation.setDateCreated(new Date());
+		return invalidation;
+	}
+}
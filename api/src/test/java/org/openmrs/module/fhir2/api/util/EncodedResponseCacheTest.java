@@ -0,0 +1,94 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.fhir2.api.util.EncodedResponseCache.CachedResponse;
+
+public class EncodedResponseCacheTest {
+	
+	private static final String LOCATION_KEY = "http://localhost/ws/fhir2/Location/1234";
+	
+	private static final String MEDICATION_KEY = "http://localhost/ws/fhir2/Medication/5678";
+	
+	private EncodedResponseCache cache;
+	
+	@Before
+	public void setup() {
+		cache = new EncodedResponseCache();
+		cache.setResourceTypes(Arrays.asList("Location", "Medication"));
+	}
+	
+	@Test
+	public void put_shouldCacheResponseOfConfiguredType() {
+		cache.put(LOCATION_KEY, response("Location", 10), cache.getGeneration("Location"));
+		
+		assertThat(cache.get(LOCATION_KEY), notNullValue());
+		assertThat(cache.get(LOCATION_KEY).getHeaders().get("Content-Type"), equalTo("application/fhir+json"));
+	}
+	
+	@Test
+	public void put_shouldNotCacheResponseOfOtherTypes() {
+		cache.put("http://localhost/ws/fhir2/Patient/1234", response("Patient", 10), cache.getGeneration("Patient"));
+		
+		assertThat(cache.isCacheable("Patient"), is(false));
+		assertThat(cache.size(), equalTo(0));
+	}
+	
+	@Test
+	public void invalidate_shouldOnlyDropResponsesOfChangedTypes() {
+		cache.put(LOCATION_KEY, response("Location", 10), cache.getGeneration("Location"));
+		cache.put(MEDICATION_KEY, response("Medication", 10), cache.getGeneration("Medication"));
+		
+		cache.invalidate(Collections.singleton("Location"));
+		
+		assertThat(cache.get(LOCATION_KEY), nullValue());
+		assertThat(cache.get(MEDICATION_KEY), notNullValue());
+	}
+	
+	@Test
+	public void put_shouldNotCacheResponseBuiltBeforeInvalidation() {
+		long generation = cache.getGeneration("Location");
+		cache.invalidate(Collections.singleton("Location"));
+		
+		cache.put(LOCATION_KEY, response("Location", 10), generation);
+		
+		assertThat(cache.get(LOCATION_KEY), nullValue());
+	}
+	
+	@Test
+	public void put_shouldEvictLeastRecentlyUsedResponsesOverTheSizeLimit() {
+		int entrySize = EncodedResponseCache.MAX_ENTRY_BYTES;
+		long entries = EncodedResponseCache.MAX_TOTAL_BYTES / entrySize;
+		
+		cache.put(LOCATION_KEY, response("Location", entrySize), cache.getGeneration("Location"));
+		for (int i = 1; i <= entries; i++) {
+			cache.put(MEDICATION_KEY + i, response("Medication", entrySize), cache.getGeneration("Medication"));
+		}
+		
+		assertThat(cache.get(LOCATION_KEY), nullValue());
+		assertThat(cache.size(), equalTo((int) entries));
+	}
+	
+	private static CachedResponse response(String resourceType, int size) {
+		return new CachedResponse(resourceType, Collections.singletonMap("Content-Type", "application/fhir+json"),
+		        new byte[size]);
+	}
+}
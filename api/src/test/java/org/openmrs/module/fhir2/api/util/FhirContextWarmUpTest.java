@@ -0,0 +1,78 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.Provider;
+import org.openmrs.module.fhir2.api.translators.ToFhirTranslator;
+
+public class FhirContextWarmUpTest {
+	
+	private RecordingLocationTranslator locationTranslator;
+	
+	private FhirContextWarmUp warmUp;
+	
+	@Before
+	public void setup() {
+		locationTranslator = new RecordingLocationTranslator();
+		
+		warmUp = new FhirContextWarmUp();
+		warmUp.setFhirContext(FhirContext.forR4());
+		warmUp.setTranslators(Arrays.asList(new FailingPractitionerTranslator(), locationTranslator));
+	}
+	
+	@Test
+	public void warmUp_shouldTranslateBlankObjectWithEachResourceTranslator() {
+		warmUp.warmUp();
+		
+		assertThat(locationTranslator.translated, contains("warm-up"));
+	}
+	
+	@Test
+	public void warmUp_shouldRoundTripTranslatedResources() {
+		warmUp.warmUp();
+		
+		assertThat(locationTranslator.encoded.getIdElement().getIdPart(), equalTo("warm-up"));
+	}
+	
+	private static class RecordingLocationTranslator implements ToFhirTranslator<Location, org.hl7.fhir.r4.model.Location> {
+		
+		private final List<String> translated = new ArrayList<>();
+		
+		private org.hl7.fhir.r4.model.Location encoded;
+		
+		@Override
+		public org.hl7.fhir.r4.model.Location toFhirResource(Location location) {
+			translated.add(location.getUuid());
+			encoded = new org.hl7.fhir.r4.model.Location();
+			encoded.setName("Warm-up location");
+			return encoded;
+		}
+	}
+	
+	private static class FailingPractitionerTranslator implements ToFhirTranslator<Provider, org.hl7.fhir.r4.model.Practitioner> {
+		
+		@Override
+		public org.hl7.fhir.r4.model.Practitioner toFhirResource(Provider provider) {
+			throw new IllegalStateException("Provider has no person");
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.Test;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
+import org.openmrs.PersonName;
+
+public class PatientMatchScorerTest {
+	
+	private static final String GIVEN_NAME = "Jeannette";
+	
+	private static final String FAMILY_NAME = "Smith";
+	
+	private static final String IDENTIFIER = "1000-4";
+	
+	private static final String IDENTIFIER_SYSTEM = "OpenMRS ID";
+	
+	@Test
+	public void score_shouldScoreExactMatchAsOne() {
+		PatientMatchScorer scorer = new PatientMatchScorer(newFhirPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 8, 25)), "F",
+		        fhirIdentifier -> null);
+		
+		assertThat(scorer.score(newPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 8, 25), "F")), closeTo(1.0, 0.0001));
+	}
+	
+	@Test
+	public void score_shouldScorePhoneticMatchBelowExactMatch() {
+		PatientMatchScorer scorer = new PatientMatchScorer(newFhirPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 8, 25)), "F",
+		        fhirIdentifier -> null);
+		
+		double score = scorer.score(newPatient(GIVEN_NAME, "Smyth", date(1976, 8, 25), "F"));
+		
+		assertThat(score, greaterThan(0.8));
+		assertThat(score, lessThan(1.0));
+	}
+	
+	@Test
+	public void score_shouldScoreSwappedDayAndMonthAbovePlainYearMatch() {
+		PatientMatchScorer scorer = new PatientMatchScorer(newFhirPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 8, 5)), "F",
+		        fhirIdentifier -> null);
+		
+		assertThat(scorer.score(newPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 5, 8), "F")),
+		    greaterThan(scorer.score(newPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 11, 20), "F"))));
+	}
+	
+	@Test
+	public void score_shouldScoreDifferentPersonLow() {
+		PatientMatchScorer scorer = new PatientMatchScorer(newFhirPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 8, 25)), "F",
+		        fhirIdentifier -> null);
+		
+		assertThat(scorer.score(newPatient("Robert", "Smithers", date(1977, 2, 11), "M")), lessThan(0.6));
+	}
+	
+	@Test
+	public void score_shouldScoreMatchingIdentifierAsOne() {
+		Patient fhirPatient = newFhirPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 8, 25));
+		fhirPatient.addIdentifier().setValue(IDENTIFIER);
+		
+		org.openmrs.Patient patient = newPatient("Robert", "Jones", date(1950, 1, 1), "M");
+		PatientIdentifier identifier = new PatientIdentifier();
+		identifier.setIdentifier(IDENTIFIER);
+		identifier.setIdentifierType(new PatientIdentifierType());
+		patient.addIdentifier(identifier);
+		
+		assertThat(new PatientMatchScorer(fhirPatient, "F", fhirIdentifier -> null).score(patient), equalTo(1.0));
+	}
+	
+	@Test
+	public void score_shouldMatchIdentifierOfTypeNamedBySystem() {
+		PatientIdentifierType identifierType = new PatientIdentifierType();
+		identifierType.setName(IDENTIFIER_SYSTEM);
+		Patient fhirPatient = newFhirPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 8, 25));
+		fhirPatient.addIdentifier().setSystem(IDENTIFIER_SYSTEM).setValue(IDENTIFIER);
+		PatientMatchScorer scorer = new PatientMatchScorer(fhirPatient, "F",
+		        fhirIdentifier -> IDENTIFIER_SYSTEM.equals(fhirIdentifier.getSystem()) ? identifierType : null);
+		
+		assertThat(scorer.score(newPatientWithIdentifier(identifierType)), equalTo(1.0));
+		assertThat(scorer.score(newPatientWithIdentifier(new PatientIdentifierType())), lessThan(0.6));
+	}
+	
+	@Test
+	public void score_shouldNotMatchIdentifierWithUnknownSystem() {
+		Patient fhirPatient = newFhirPatient(GIVEN_NAME, FAMILY_NAME, date(1976, 8, 25));
+		fhirPatient.addIdentifier().setSystem("http://example.org/unknown").setValue(IDENTIFIER);
+		
+		assertThat(new PatientMatchScorer(fhirPatient, "F", fhirIdentifier -> null)
+		        .score(newPatientWithIdentifier(new PatientIdentifierType())),
+		    lessThan(0.6));
+	}
+	
+	@Test
+	public void scoreTokens_shouldAverageOverQueryTokens() {
+		assertThat(PatientMatchScorer.scoreTokens(Arrays.asList("mary", "anne"), Collections.singletonList("mary")),
+		    closeTo(0.5, 0.0001));
+	}
+	
+	private static Patient newFhirPatient(String given, String family, Date birthdate) {
+		Patient patient = new Patient();
+		patient.addName().addGiven(given).setFamily(family);
+		patient.setBirthDate(birthdate);
+		return patient;
+	}
+	
+	private static org.openmrs.Patient newPatient(String given, String family, Date birthdate, String gender) {
+		org.openmrs.Patient patient = new org.openmrs.Patient();
+		patient.addName(new PersonName(given, null, family));
+		patient.setBirthdate(birthdate);
+		patient.setGender(gender);
+		return patient;
+	}
+	
+	private static Date date(int year, int month, int day) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(year, month - 1, day);
+		return calendar.getTime();
+	}
+	
+	private static org.openmrs.Patient newPatientWithIdentifier(PatientIdentifierType identifierType) {
+		org.openmrs.Patient patient = newPatient("Robert", "Jones", date(1950, 1, 1), "M");
+		PatientIdentifier identifier = new PatientIdentifier();
+		identifier.setIdentifier(IDENTIFIER);
+		identifier.setIdentifierType(identifierType);
+		patient.addIdentifier(identifier);
+		return patient;
+	}
+}
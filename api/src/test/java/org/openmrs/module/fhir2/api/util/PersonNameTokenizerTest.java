@@ -0,0 +1,49 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.Test;
+
+public class PersonNameTokenizerTest {
+	
+	@Test
+	public void tokenize_shouldSplitNameIntoLowerCaseTokens() {
+		assertThat(PersonNameTokenizer.tokenize("Jean-Rene  Doe,Smith"), contains("jean", "rene", "doe", "smith"));
+	}
+	
+	@Test
+	public void tokenize_shouldStripAccentsAndPunctuation() {
+		assertThat(PersonNameTokenizer.tokenize("Chloé O'Brien"), contains("chloe", "obrien"));
+	}
+	
+	@Test
+	public void tokenize_shouldReturnEmptyListForBlankName() {
+		assertThat(PersonNameTokenizer.tokenize(null), empty());
+		assertThat(PersonNameTokenizer.tokenize(" "), empty());
+		assertThat(PersonNameTokenizer.tokenize("' -"), empty());
+	}
+	
+	@Test
+	public void phoneticKey_shouldReturnSameKeyForNamesThatSoundAlike() {
+		assertThat(PersonNameTokenizer.phoneticKey("jeannette"), equalTo(PersonNameTokenizer.phoneticKey("janet")));
+		assertThat(PersonNameTokenizer.phoneticKey("smith"), equalTo(PersonNameTokenizer.phoneticKey("smyth")));
+	}
+	
+	@Test
+	public void phoneticKey_shouldReturnNullForEmptyToken() {
+		assertThat(PersonNameTokenizer.phoneticKey(""), nullValue());
+	}
+}
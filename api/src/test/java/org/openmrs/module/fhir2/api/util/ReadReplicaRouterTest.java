@@ -0,0 +1,91 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.fhir2.FhirConstants;
+
+public class ReadReplicaRouterTest {
+	
+	private static final String REPLICA_URL = "jdbc:h2:mem:replica";
+	
+	private ReadReplicaRouter router;
+	
+	private Properties properties;
+	
+	@Before
+	public void setup() {
+		router = new ReadReplicaRouter();
+		
+		properties = new Properties();
+		properties.setProperty(FhirConstants.OPENMRS_FHIR_REPLICA_URL, REPLICA_URL);
+	}
+	
+	@After
+	public void tearDown() {
+		router.destroy();
+	}
+	
+	@Test
+	public void hasWrittenRecently_shouldReturnTrueForUserWhoJustWrote() {
+		router.configure(properties);
+		
+		router.recordWrite(1);
+		
+		assertThat(router.hasWrittenRecently(1), equalTo(true));
+		assertThat(router.hasWrittenRecently(2), equalTo(false));
+	}
+	
+	@Test
+	public void hasWrittenRecently_shouldReturnFalseOnceStickinessHasElapsed() {
+		properties.setProperty(FhirConstants.OPENMRS_FHIR_REPLICA_PRIMARY_STICKINESS, "0");
+		router.configure(properties);
+		
+		router.recordWrite(1);
+		
+		assertThat(router.hasWrittenRecently(1), equalTo(false));
+	}
+	
+	@Test
+	public void hasWrittenRecently_shouldNotTrackWritesWithoutReplica() {
+		router.configure(new Properties());
+		
+		router.recordWrite(1);
+		
+		assertThat(router.hasWrittenRecently(1), equalTo(false));
+	}
+	
+	@Test
+	public void openReplicaConnection_shouldReturnNullWithoutReplica() {
+		router.configure(new Properties());
+		
+		assertThat(router.openReplicaConnection(), nullValue());
+	}
+	
+	@Test
+	public void openReplicaConnection_shouldReturnPooledConnectionToReplica() throws Exception {
+		router.configure(properties);
+		
+		try (Connection connection = router.openReplicaConnection()) {
+			assertThat(connection, notNullValue());
+			assertThat(connection.isValid(1), equalTo(true));
+		}
+	}
+}
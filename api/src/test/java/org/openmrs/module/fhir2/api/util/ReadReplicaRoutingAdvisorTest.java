@@ -0,0 +1,143 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.orm.hibernate4.SessionHolder;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadReplicaRoutingAdvisorTest {
+	
+	private static final String RESULT = "result";
+	
+	@Mock
+	private ReadReplicaRouter router;
+	
+	@Mock
+	private MethodInvocation invocation;
+	
+	@Mock
+	private SessionFactory sessionFactory;
+	
+	@Mock
+	private Session replicaSession;
+	
+	@Mock
+	private Connection replicaConnection;
+	
+	private ReadReplicaRoutingAdvisor advisor;
+	
+	@Before
+	public void setup() {
+		advisor = new ReadReplicaRoutingAdvisor();
+		advisor.setRouter(router);
+	}
+	
+	@After
+	public void tearDown() {
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+	}
+	
+	@Test
+	public void invoke_shouldRecordWriteAfterWriteMethod() throws Throwable {
+		givenInvocationOf("save");
+		when(invocation.proceed()).thenReturn(RESULT);
+		
+		assertThat(advisor.invoke(invocation), equalTo(RESULT));
+		
+		verify(router).recordWrite();
+		verify(router, never()).openReplicaConnection();
+	}
+	
+	@Test
+	public void invoke_shouldBindReplicaSessionForReadOnlyMethod() throws Throwable {
+		givenInvocationOf("get");
+		when(router.canReadFromReplica()).thenReturn(true);
+		when(router.openReplicaConnection()).thenReturn(replicaConnection);
+		when(router.getSessionFactory()).thenReturn(sessionFactory);
+		when(router.openReplicaSession(replicaConnection)).thenReturn(replicaSession);
+		when(replicaSession.isOpen()).thenReturn(true);
+		when(invocation.proceed()).then(i -> {
+			Object holder = TransactionSynchronizationManager.getResource(sessionFactory);
+			assertThat(holder, instanceOf(SessionHolder.class));
+			assertThat(((SessionHolder) holder).getSession(), sameInstance(replicaSession));
+			return RESULT;
+		});
+		
+		assertThat(advisor.invoke(invocation), equalTo(RESULT));
+		
+		assertThat(TransactionSynchronizationManager.getResource(sessionFactory), nullValue());
+		verify(replicaSession).close();
+		verify(replicaConnection).close();
+		verify(router, never()).recordWrite();
+	}
+	
+	@Test
+	public void invoke_shouldReadFromPrimaryWhenReplicaCannotBeUsed() throws Throwable {
+		givenInvocationOf("get");
+		when(router.canReadFromReplica()).thenReturn(false);
+		when(invocation.proceed()).thenReturn(RESULT);
+		
+		assertThat(advisor.invoke(invocation), equalTo(RESULT));
+		
+		verify(router, never()).openReplicaConnection();
+		verify(router, never()).recordWrite();
+	}
+	
+	@Test
+	public void invoke_shouldNotRouteWithinExistingTransaction() throws Throwable {
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		when(invocation.proceed()).thenReturn(RESULT);
+		
+		assertThat(advisor.invoke(invocation), equalTo(RESULT));
+		
+		verifyNoInteractions(router);
+	}
+	
+	private void givenInvocationOf(String methodName) throws NoSuchMethodException {
+		when(invocation.getThis()).thenReturn(new TestService());
+		when(invocation.getMethod()).thenReturn(TestService.class.getMethod(methodName));
+	}
+	
+	@Transactional
+	public static class TestService {
+		
+		public String save() {
+			return RESULT;
+		}
+		
+		@Transactional(readOnly = true)
+		public String get() {
+			return RESULT;
+		}
+	}
+}
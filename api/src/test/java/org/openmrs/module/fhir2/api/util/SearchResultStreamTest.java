@@ -0,0 +1,50 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.Test;
+
+public class SearchResultStreamTest {
+	
+	@Test
+	public void offer_shouldPassResourcesToOpenStream() {
+		List<IBaseResource> streamed = new ArrayList<>();
+		Observation observation = new Observation();
+		
+		try (SearchResultStream.Scope ignored = SearchResultStream.open(streamed::add)) {
+			assertThat(SearchResultStream.offer(observation), equalTo(true));
+			assertThat(SearchResultStream.offer("not a resource"), equalTo(false));
+		}
+		
+		assertThat(streamed, contains(observation));
+	}
+	
+	@Test
+	public void offer_shouldNotConsumeResultsWithoutOpenStream() {
+		List<IBaseResource> streamed = new ArrayList<>();
+		
+		try (SearchResultStream.Scope ignored = SearchResultStream.open(streamed::add)) {
+			// nothing offered
+		}
+		
+		assertThat(SearchResultStream.offer(new Observation()), equalTo(false));
+		assertThat(streamed, empty());
+	}
+}
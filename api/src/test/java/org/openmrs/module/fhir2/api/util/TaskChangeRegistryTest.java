@@ -0,0 +1,94 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskChangeRegistryTest {
+	
+	private static final String TASK_UUID = "d899333c-5bd4-45cc-b1e7-2f9542dbcbf6";
+	
+	private static final String OTHER_TASK_UUID = "3dc9f4a7-44dc-4b29-adfd-a8b297a41f33";
+	
+	@Mock
+	private CacheInvalidationBus cacheInvalidationBus;
+	
+	private TaskChangeRegistry registry;
+	
+	@Before
+	public void setup() {
+		registry = new TaskChangeRegistry();
+		registry.setCacheInvalidationBus(cacheInvalidationBus);
+	}
+	
+	@Test
+	public void taskChanged_shouldCompleteWaitersForThatTask() {
+		CompletableFuture<String> first = registry.register(TASK_UUID);
+		CompletableFuture<String> second = registry.register(TASK_UUID);
+		CompletableFuture<String> other = registry.register(OTHER_TASK_UUID);
+		
+		registry.taskChanged(TASK_UUID);
+		
+		assertThat(first.isDone(), equalTo(true));
+		assertThat(second.isDone(), equalTo(true));
+		assertThat(other.isDone(), equalTo(false));
+		assertThat(registry.getWaiterCount(), equalTo(1));
+		verify(cacheInvalidationBus).publish(TaskChangeRegistry.CACHE_NAME, Collections.singleton(TASK_UUID));
+	}
+	
+	@Test
+	public void invalidate_shouldCompleteWaitersForTasksChangedOnAnotherServer() {
+		CompletableFuture<String> future = registry.register(TASK_UUID);
+		CompletableFuture<String> other = registry.register(OTHER_TASK_UUID);
+		
+		registry.invalidate(Collections.singleton(TASK_UUID));
+		
+		assertThat(future.isDone(), equalTo(true));
+		assertThat(other.isDone(), equalTo(false));
+		verify(cacheInvalidationBus, never()).publish(anyString(), anyCollection());
+	}
+	
+	@Test
+	public void unregister_shouldRemoveWaiter() {
+		CompletableFuture<String> future = registry.register(TASK_UUID);
+		
+		registry.unregister(TASK_UUID, future);
+		registry.taskChanged(TASK_UUID);
+		
+		assertThat(future.isDone(), equalTo(false));
+		assertThat(registry.getWaiterCount(), equalTo(0));
+	}
+	
+	@Test
+	public void register_shouldRefuseWaitersOverTheLimit() {
+		for (int i = 0; i < TaskChangeRegistry.MAX_WAITERS; i++) {
+			assertThat(registry.register(TASK_UUID), notNullValue());
+		}
+		
+		assertThat(registry.register(TASK_UUID), nullValue());
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.Test;
+
+public class TranslationMemoTest {
+	
+	@Test
+	public void memoize_shouldBuildEachElementOnceWithinScope() {
+		AtomicInteger builds = new AtomicInteger();
+		
+		try (TranslationMemo.Scope ignored = TranslationMemo.open()) {
+			TranslationMemo.memoize("Patient", 1, () -> newReference(builds));
+			TranslationMemo.memoize("Patient", 1, () -> newReference(builds));
+			TranslationMemo.memoize("Location", 1, () -> newReference(builds));
+		}
+		
+		assertThat(builds.get(), equalTo(2));
+	}
+	
+	@Test
+	public void memoize_shouldAlwaysBuildOutsideScope() {
+		AtomicInteger builds = new AtomicInteger();
+		
+		TranslationMemo.memoize("Patient", 1, () -> newReference(builds));
+		TranslationMemo.memoize("Patient", 1, () -> newReference(builds));
+		
+		assertThat(builds.get(), equalTo(2));
+	}
+	
+	@Test
+	public void memoize_shouldNotMemoizeObjectsWithoutId() {
+		AtomicInteger builds = new AtomicInteger();
+		
+		try (TranslationMemo.Scope ignored = TranslationMemo.open()) {
+			TranslationMemo.memoize("Patient", null, () -> newReference(builds));
+			TranslationMemo.memoize("Patient", null, () -> newReference(builds));
+		}
+		
+		assertThat(builds.get(), equalTo(2));
+	}
+	
+	@Test
+	public void memoize_shouldReturnCopiesThatCanBeModified() {
+		try (TranslationMemo.Scope ignored = TranslationMemo.open()) {
+			Reference first = TranslationMemo.memoize("Patient", 1, () -> new Reference().setDisplay("John"));
+			first.setDisplay("Changed");
+			
+			Reference second = TranslationMemo.memoize("Patient", 1, () -> new Reference().setDisplay("Other"));
+			assertThat(second.getDisplay(), equalTo("John"));
+		}
+	}
+	
+	@Test
+	public void close_shouldOnlyEndOutermostScope() {
+		AtomicInteger builds = new AtomicInteger();
+		
+		try (TranslationMemo.Scope ignored = TranslationMemo.open()) {
+			TranslationMemo.memoize("Patient", 1, () -> newReference(builds));
+			try (TranslationMemo.Scope nested = TranslationMemo.open()) {
+				TranslationMemo.memoize("Patient", 1, () -> newReference(builds));
+			}
+			TranslationMemo.memoize("Patient", 1, () -> newReference(builds));
+		}
+		
+		assertThat(builds.get(), equalTo(1));
+	}
+	
+	private static Reference newReference(AtomicInteger builds) {
+		builds.incrementAndGet();
+		return new Reference().setReference("Patient/" + builds.get());
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ValueSetExpansionTest {
+	
+	private ValueSetExpansion expansion;
+	
+	@Before
+	public void setup() {
+		expansion = new ValueSetExpansion(Arrays.asList(new ValueSetExpansion.Entry("3", "Systolic blood pressure"),
+		    new ValueSetExpansion.Entry("1", "Diastolic blood pressure"), new ValueSetExpansion.Entry("2", "Blood sugar"),
+		    new ValueSetExpansion.Entry("4", "Pulse")));
+	}
+	
+	@Test
+	public void getEntries_shouldSortEntriesByDisplay() {
+		assertThat(codes(expansion.getEntries()), contains("2", "1", "4", "3"));
+	}
+	
+	@Test
+	public void filter_shouldMatchWordPrefixes() {
+		assertThat(codes(expansion.filter("blo")), contains("2", "1", "3"));
+	}
+	
+	@Test
+	public void filter_shouldRequireEveryFilterWord() {
+		assertThat(codes(expansion.filter("PRES blo")), contains("1", "3"));
+	}
+	
+	@Test
+	public void filter_shouldReturnEmptyListWhenNothingMatches() {
+		assertThat(expansion.filter("temperature"), empty());
+	}
+	
+	@Test
+	public void filter_shouldReturnEveryEntryForBlankFilter() {
+		assertThat(expansion.filter(" "), hasSize(4));
+	}
+	
+	private static List<String> codes(List<ValueSetExpansion.Entry> entries) {
+		return entries.stream().map(ValueSetExpansion.Entry::getCode).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers;
+
+import java.util.Map;
+
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.server.exceptions.ForbiddenOperationException;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.StringType;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.api.FhirCacheStatisticsService;
+import org.openmrs.util.PrivilegeConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Server-level {@code $cache-statistics} operation, which reports the hits, misses and size of each
+ * cache region used by this module. The statistics describe the server rather than any clinical
+ * data, so they are only available to users who can view the administration functions.
+ */
+@Component
+@Qualifier("fhirOperations")
+@Setter(AccessLevel.PACKAGE)
+public class CacheStatisticsOperationProvider {
+	
+	@Autowired
+	private FhirCacheStatisticsService cacheStatisticsService;
+	
+	/**
+	 * @return a {@code statisticsEnabled} parameter and a {@code region} parameter for each cache
+	 *         region, with its name, hit, miss and put counts and the number of entries it holds
+	 */
+	@Operation(name = "$cache-statistics", idempotent = true)
+	@SuppressWarnings("unused")
+	public Parameters getCacheStatistics() {
+		if (!Context.hasPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)) {
+			throw new ForbiddenOperationException("Privilege required: " + PrivilegeConstants.VIEW_ADMIN_FUNCTIONS);
+		}
+		
+		Parameters parameters = new Parameters();
+		parameters.addParameter().setName("statisticsEnabled")
+		        .setValue(new BooleanType(cacheStatisticsService.isStatisticsEnabled()));
+		
+		for (Map.Entry<String, SecondLevelCacheStatistics> region : cacheStatisticsService.getCacheRegionStatistics()
+		        .entrySet()) {
+			SecondLevelCacheStatistics statistics = region.getValue();
+			
+			Parameters.ParametersParameterComponent regionParameter = parameters.addParameter().setName("region");
+			regionParameter.addPart().setName("name").setValue(new StringType(region.getKey()));
+			regionParameter.addPart().setName("hitCount").setValue(toIntegerType(statistics.getHitCount()));
+			regionParameter.addPart().setName("missCount").setValue(toIntegerType(statistics.getMissCount()));
+			regionParameter.addPart().setName("putCount").setValue(toIntegerType(statistics.getPutCount()));
+			regionParameter.addPart().setName("elementCountInMemory")
+			        .setValue(toIntegerType(statistics.getElementCountInMemory()));
+		}
+		
+		return parameters;
+	}
+	
+	private static IntegerType toIntegerType(long value) {
+		// FHIR integers are 32-bit, so very large counters are reported as the largest integer
+		return new IntegerType((int) Math.min(value, Integer.MAX_VALUE));
+	}
+}
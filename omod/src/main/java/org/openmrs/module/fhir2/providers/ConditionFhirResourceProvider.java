@@ -13,6 +13,7 @@ import javax.validation.constraints.NotNull;
 
 import java.util.List;
 
+import ca.uhn.fhir.rest.annotation.ConditionalUrlParam;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.History;
 import ca.uhn.fhir.rest.annotation.IdParam;
@@ -38,6 +39,7 @@ import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Resource;
 import org.openmrs.module.fhir2.api.FhirConditionService;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
 import org.openmrs.module.fhir2.util.FhirServerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -51,6 +53,9 @@ public class ConditionFhirResourceProvider implements IResourceProvider {
 	@Autowired
 	private FhirConditionService conditionService;
 	
+	@Autowired
+	private FhirResourceIdentifierService resourceIdentifierService;
+	
 	@Override
 	public Class<? extends IBaseResource> getResourceType() {
 		return Condition.class;
@@ -77,7 +82,14 @@ public class ConditionFhirResourceProvider implements IResourceProvider {
 	
 	@Create
 	@SuppressWarnings("unused")
-	public MethodOutcome createCondition(@ResourceParam Condition newCondition) {
+	public MethodOutcome createCondition(@ResourceParam Condition newCondition,
+	        @ConditionalUrlParam String conditionalUrl) {
+		if (conditionalUrl != null) {
+			return FhirServerUtils.buildConditional(resourceIdentifierService.createIfNoneExist("Condition",
+			    FhirServerUtils.parseIdentifierCondition(conditionalUrl), () -> conditionService.saveCondition(newCondition),
+			    FhirServerUtils.notFoundIfNull("Condition", conditionService::getConditionByUuid)));
+		}
+		
 		return FhirServerUtils.buildCreate(conditionService.saveCondition(newCondition));
 	}
 	
@@ -11,6 +11,7 @@ package org.openmrs.module.fhir2.providers;
 
 import javax.validation.constraints.NotNull;
 
+import ca.uhn.fhir.rest.annotation.ConditionalUrlParam;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.IdParam;
 import ca.uhn.fhir.rest.annotation.Read;
@@ -25,6 +26,7 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.DiagnosticReport;
 import org.hl7.fhir.r4.model.IdType;
 import org.openmrs.module.fhir2.api.FhirDiagnosticReportService;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
 import org.openmrs.module.fhir2.util.FhirServerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -38,6 +40,9 @@ public class DiagnosticReportFhirResourceProvider implements IResourceProvider {
 	@Autowired
 	private FhirDiagnosticReportService service;
 	
+	@Autowired
+	private FhirResourceIdentifierService resourceIdentifierService;
+	
 	@Override
 	public Class<? extends IBaseResource> getResourceType() {
 		return DiagnosticReport.class;
@@ -55,12 +60,29 @@ public class DiagnosticReportFhirResourceProvider implements IResourceProvider {
 	}
 	
 	@Create
-	public MethodOutcome createDiagnosticReport(@ResourceParam DiagnosticReport diagnosticReport) {
+	public MethodOutcome createDiagnosticReport(@ResourceParam DiagnosticReport diagnosticReport,
+	        @ConditionalUrlParam String conditionalUrl) {
+		if (conditionalUrl != null) {
+			return FhirServerUtils.buildConditional(resourceIdentifierService.createIfNoneExist("DiagnosticReport",
+			    FhirServerUtils.parseIdentifierCondition(conditionalUrl),
+			    () -> service.saveDiagnosticReport(diagnosticReport),
+			    FhirServerUtils.notFoundIfNull("DiagnosticReport", service::getDiagnosticReportByUuid)));
+		}
+		
 		return FhirServerUtils.buildCreate(service.saveDiagnosticReport(diagnosticReport));
 	}
 	
 	@Update
-	public MethodOutcome updateDiagnosticReport(@IdParam IdType id, @ResourceParam DiagnosticReport diagnosticReport) {
+	public MethodOutcome updateDiagnosticReport(@IdParam IdType id, @ResourceParam DiagnosticReport diagnosticReport,
+	        @ConditionalUrlParam String conditionalUrl) {
+		if ((id == null || id.getIdPart() == null) && conditionalUrl != null) {
+			return FhirServerUtils.buildConditional(resourceIdentifierService.updateByIdentifier("DiagnosticReport",
+			    FhirServerUtils.parseIdentifierCondition(conditionalUrl), uuid -> {
+				    diagnosticReport.setId(uuid);
+				    return service.updateDiagnosticReport(uuid, diagnosticReport);
+			    }, () -> service.saveDiagnosticReport(diagnosticReport)));
+		}
+		
 		String idPart = null;
 		
 		if (id != null) {
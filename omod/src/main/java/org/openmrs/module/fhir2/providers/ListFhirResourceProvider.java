@@ -11,9 +11,13 @@ package org.openmrs.module.fhir2.providers;
 
 import javax.validation.constraints.NotNull;
 
+import java.util.Map;
+
 import ca.uhn.fhir.rest.annotation.IdParam;
 import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.AccessLevel;
 import lombok.Setter;
@@ -41,11 +45,40 @@ public class ListFhirResourceProvider implements IResourceProvider {
 	
 	@Read
 	@SuppressWarnings("unused")
-	public ListResource getListById(@IdParam @NotNull IdType id) {
-		ListResource listResource = cohortFhirListService.getListByUuid(id.getIdPart());
+	public ListResource getListById(@IdParam @NotNull IdType id, RequestDetails requestDetails) {
+		Map<String, String[]> parameters = requestDetails == null ? null : requestDetails.getParameters();
+		Integer offset = getIntegerParameter(parameters, "_offset");
+		Integer count = getIntegerParameter(parameters, "_count");
+		
+		ListResource listResource;
+		if (offset == null && count == null) {
+			listResource = cohortFhirListService.getListByUuid(id.getIdPart());
+		} else {
+			listResource = cohortFhirListService.getListByUuid(id.getIdPart(), offset == null ? 0 : offset,
+			    count == null ? Integer.MAX_VALUE : count);
+		}
+		
 		if (listResource == null) {
 			throw new ResourceNotFoundException("Could not find listResource with Id " + id.getIdPart());
 		}
 		return listResource;
 	}
+	
+	private static Integer getIntegerParameter(Map<String, String[]> parameters, String name) {
+		if (parameters == null || parameters.get(name) == null || parameters.get(name).length == 0) {
+			return null;
+		}
+		
+		try {
+			int value = Integer.parseInt(parameters.get(name)[0]);
+			if (value < 0) {
+				throw new InvalidRequestException("Parameter " + name + " must not be negative");
+			}
+			
+			return value;
+		}
+		catch (NumberFormatException e) {
+			throw new InvalidRequestException("Parameter " + name + " must be an integer", e);
+		}
+	}
 }
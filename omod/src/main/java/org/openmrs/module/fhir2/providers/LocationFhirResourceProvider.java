@@ -11,7 +11,10 @@ package org.openmrs.module.fhir2.providers;
 
 import javax.validation.constraints.NotNull;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import ca.uhn.fhir.rest.annotation.History;
 import ca.uhn.fhir.rest.annotation.IdParam;
@@ -20,6 +23,8 @@ import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.annotation.Sort;
 import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.ReferenceOrListParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
@@ -27,12 +32,14 @@ import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.AccessLevel;
 import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Location;
 import org.hl7.fhir.r4.model.Resource;
 import org.openmrs.module.fhir2.api.FhirLocationService;
+import org.openmrs.module.fhir2.api.util.HierarchyReferenceParam;
 import org.openmrs.module.fhir2.util.FhirServerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -78,8 +85,52 @@ public class LocationFhirResourceProvider implements IResourceProvider {
 	        @OptionalParam(name = Location.SP_ADDRESS_POSTALCODE) StringOrListParam postalCode,
 	        @OptionalParam(name = Location.SP_ADDRESS_STATE) StringOrListParam state,
 	        @OptionalParam(name = "_tag") TokenOrListParam tag,
-	        @OptionalParam(name = Location.SP_PARTOF) ReferenceOrListParam parent, @Sort SortSpec sort) {
-		return FhirServerUtils.convertSearchResultsToBundle(
-		    fhirLocationService.searchForLocations(name, city, country, postalCode, state, tag, parent, sort));
+	        @OptionalParam(name = Location.SP_PARTOF) ReferenceAndListParam parent, @Sort SortSpec sort,
+	        RequestDetails requestDetails) {
+		return FhirServerUtils.convertSearchResultsToBundle(fhirLocationService.searchForLocations(name, city, country,
+		    postalCode, state, tag, handleHierarchyModifiers(parent, requestDetails), sort));
+	}
+	
+	private static ReferenceAndListParam handleHierarchyModifiers(ReferenceAndListParam parent,
+	        RequestDetails requestDetails) {
+		Map<String, String[]> parameters = requestDetails == null ? null : requestDetails.getParameters();
+		if (parameters == null) {
+			return parent;
+		}
+		
+		Set<String> modifierCodes = new HashSet<>();
+		ReferenceAndListParam hierarchyReferences = new ReferenceAndListParam();
+		for (HierarchyReferenceParam.Modifier modifier : HierarchyReferenceParam.Modifier.values()) {
+			modifierCodes.add(modifier.getCode());
+			String[] values = parameters.get(Location.SP_PARTOF + ":" + modifier.getCode());
+			if (values == null) {
+				continue;
+			}
+			
+			for (String value : values) {
+				ReferenceOrListParam references = new ReferenceOrListParam();
+				for (String reference : StringUtils.split(value, ',')) {
+					references.addOr(new HierarchyReferenceParam(modifier, reference.trim()));
+				}
+				hierarchyReferences.addAnd(references);
+			}
+		}
+		
+		if (hierarchyReferences.getValuesAsQueryTokens().isEmpty()) {
+			return parent;
+		}
+		
+		// HAPI has already parsed the modified values as references to the resource types "below" or "above", so only
+		// the plain references are kept from the parsed parameter
+		if (parent != null) {
+			for (ReferenceOrListParam references : parent.getValuesAsQueryTokens()) {
+				if (references.getValuesAsQueryTokens().stream()
+				        .noneMatch(reference -> modifierCodes.contains(reference.getResourceType()))) {
+					hierarchyReferences.addAnd(references);
+				}
+			}
+		}
+		
+		return hierarchyReferences;
 	}
 }
@@ -11,6 +11,7 @@ package org.openmrs.module.fhir2.providers;
 
 import javax.validation.constraints.NotNull;
 
+import ca.uhn.fhir.rest.annotation.ConditionalUrlParam;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.IdParam;
 import ca.uhn.fhir.rest.annotation.OptionalParam;
@@ -30,6 +31,7 @@ import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Medication;
 import org.openmrs.module.fhir2.api.FhirMedicationService;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
 import org.openmrs.module.fhir2.util.FhirServerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -43,6 +45,9 @@ public class MedicationFhirResourceProvider implements IResourceProvider {
 	@Autowired
 	private FhirMedicationService fhirMedicationService;
 	
+	@Autowired
+	private FhirResourceIdentifierService resourceIdentifierService;
+	
 	@Override
 	public Class<? extends IBaseResource> getResourceType() {
 		return Medication.class;
@@ -69,13 +74,30 @@ public class MedicationFhirResourceProvider implements IResourceProvider {
 	
 	@Create
 	@SuppressWarnings("unused")
-	public MethodOutcome createMedication(@ResourceParam Medication medication) {
+	public MethodOutcome createMedication(@ResourceParam Medication medication,
+	        @ConditionalUrlParam String conditionalUrl) {
+		if (conditionalUrl != null) {
+			return FhirServerUtils.buildConditional(resourceIdentifierService.createIfNoneExist("Medication",
+			    FhirServerUtils.parseIdentifierCondition(conditionalUrl),
+			    () -> fhirMedicationService.saveMedication(medication),
+			    FhirServerUtils.notFoundIfNull("Medication", fhirMedicationService::getMedicationByUuid)));
+		}
+		
 		return FhirServerUtils.buildCreate(fhirMedicationService.saveMedication(medication));
 	}
 	
 	@Update
 	@SuppressWarnings("unused")
-	public MethodOutcome updateMedication(@IdParam IdType id, @ResourceParam Medication medication) {
+	public MethodOutcome updateMedication(@IdParam IdType id, @ResourceParam Medication medication,
+	        @ConditionalUrlParam String conditionalUrl) {
+		if ((id == null || id.getIdPart() == null) && conditionalUrl != null) {
+			return FhirServerUtils.buildConditional(resourceIdentifierService.updateByIdentifier("Medication",
+			    FhirServerUtils.parseIdentifierCondition(conditionalUrl), uuid -> {
+				    medication.setId(uuid);
+				    return fhirMedicationService.updateMedication(medication, uuid);
+			    }, () -> fhirMedicationService.saveMedication(medication)));
+		}
+		
 		if (id != null) {
 			medication.setId(id.getIdPart());
 		}
@@ -11,10 +11,14 @@ package org.openmrs.module.fhir2.providers;
 
 import javax.validation.constraints.NotNull;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import ca.uhn.fhir.rest.annotation.History;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
 import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.Search;
@@ -27,16 +31,22 @@ import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringAndListParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.AccessLevel;
 import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.BooleanType;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.IntegerType;
 import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.StringType;
 import org.openmrs.module.fhir2.api.FhirObservationService;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
 import org.openmrs.module.fhir2.util.FhirServerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -84,6 +94,79 @@ public class ObservationFhirResourceProvider implements IResourceProvider {
 		        valueDateParam, valueQuantityParam, valueStringParam, date, code, sort));
 	}
 	
+	/**
+	 * The {@code $lastn} operation returns the most recent observations of each code recorded for a
+	 * patient, e.g. the latest vital signs.
+	 *
+	 * @param patientReference the patient whose observations to return
+	 * @param code the codes to return observations of; if not given, every code is returned
+	 * @param max the number of observations to return for each code, by default 1
+	 * @return the observations, most recent first
+	 */
+	@Operation(name = "$lastn", idempotent = true)
+	public Bundle getLastnObservations(@OperationParam(name = "patient") ReferenceAndListParam patientReference,
+	        @OperationParam(name = Observation.SP_CODE) TokenAndListParam code,
+	        @OperationParam(name = "max") IntegerType max) {
+		if (patientReference == null) {
+			throw new InvalidRequestException("$lastn requires a patient");
+		}
+		
+		int maxValue = max == null || max.getValue() == null ? 1 : max.getValue();
+		if (maxValue < 1) {
+			throw new InvalidRequestException("max must be a positive integer");
+		}
+		
+		return FhirServerUtils
+		        .convertSearchResultsToBundle(observationService.getLastnObservations(patientReference, code, maxValue));
+	}
+	
+	/**
+	 * The {@code $stats} operation computes statistics of the numeric observations of each code, e.g.
+	 * for population dashboards. The statistics are computed per code across every location, unless
+	 * {@code groupByLocation} is true, in which case they are computed per code and location and the
+	 * subject of each Observation references its location.
+	 *
+	 * @param code the codes to compute statistics for
+	 * @param patientReference the patient whose observations to include
+	 * @param locationReference the locations whose observations to include
+	 * @param period the dates of the observations to include
+	 * @param statistic the statistics to compute, as codes of the {@code observation-statistics} code
+	 *            system; if not given, every supported statistic is computed
+	 * @param groupByLocation whether to compute separate statistics for each location; defaults to false
+	 * @return an Observation for each code (and location, if grouped) with a component for each requested
+	 *         statistic, effective over the requested period
+	 */
+	@Operation(name = "$stats", idempotent = true)
+	public Bundle getObservationStatistics(@OperationParam(name = Observation.SP_CODE) TokenAndListParam code,
+	        @OperationParam(name = Observation.SP_SUBJECT) ReferenceAndListParam patientReference,
+	        @OperationParam(name = "location") ReferenceAndListParam locationReference,
+	        @OperationParam(name = "period") DateRangeParam period,
+	        @OperationParam(name = "statistic", max = OperationParam.MAX_UNLIMITED) List<StringType> statistic,
+	        @OperationParam(name = "groupByLocation") BooleanType groupByLocation) {
+		if (code == null) {
+			throw new InvalidRequestException("$stats requires a code");
+		}
+		
+		Set<ObservationStatistics.Statistic> statistics = EnumSet.noneOf(ObservationStatistics.Statistic.class);
+		if (statistic != null) {
+			// statistics may be repeated or given as a comma-separated list
+			for (StringType value : statistic) {
+				for (String statisticCode : StringUtils.split(StringUtils.defaultString(value.getValue()), ",")) {
+					ObservationStatistics.Statistic parsed = ObservationStatistics.Statistic.fromCode(statisticCode.trim());
+					if (parsed == null) {
+						throw new InvalidRequestException("Unsupported statistic " + statisticCode);
+					}
+					
+					statistics.add(parsed);
+				}
+			}
+		}
+		
+		boolean byLocation = groupByLocation != null && Boolean.TRUE.equals(groupByLocation.getValue());
+		return FhirServerUtils.convertSearchResultsToBundle(observationService.getObservationStatistics(patientReference,
+		    locationReference, code, period, statistics, byLocation));
+	}
+	
 	@History
 	public List<Resource> getObservationHistoryById(@IdParam @NotNull IdType id) {
 		Observation observation = observationService.getObservationByUuid(id.getIdPart());
@@ -15,6 +15,8 @@ import java.util.List;
 
 import ca.uhn.fhir.rest.annotation.History;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
 import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.Search;
@@ -24,15 +26,23 @@ import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.AccessLevel;
 import lombok.Setter;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.BooleanType;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.HumanName;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.OperationOutcome;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Resource;
 import org.openmrs.module.fhir2.api.FhirPatientService;
+import org.openmrs.module.fhir2.api.util.PatientMatch;
+import org.openmrs.module.fhir2.api.util.PatientMatchResults;
 import org.openmrs.module.fhir2.util.FhirServerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -43,6 +53,16 @@ import org.springframework.stereotype.Component;
 @Setter(AccessLevel.PACKAGE)
 public class PatientFhirResourceProvider implements IResourceProvider {
 	
+	static final String MATCH_GRADE_EXTENSION_URL = "http://hl7.org/fhir/StructureDefinition/match-grade";
+	
+	static final int DEFAULT_MATCH_COUNT = 10;
+	
+	static final int MAX_MATCH_COUNT = 100;
+	
+	static final String INCOMPLETE_MATCH_DIAGNOSTICS = "Too many patients share the submitted family name and birth year "
+	        + "to score them all, so better matches may have been missed. Add given names, gender or identifiers "
+	        + "to the submitted patient to narrow the search.";
+	
 	@Autowired
 	private FhirPatientService patientService;
 	
@@ -79,6 +99,49 @@ public class PatientFhirResourceProvider implements IResourceProvider {
 		    gender, birthDate, deathDate, deceased, city, state, postalCode, country, sort));
 	}
 	
+	/**
+	 * The {@code $match} operation finds the patients most likely to be the same person as the submitted
+	 * patient, for duplicate detection at registration. The submitted patient must have a family name
+	 * and a birthdate; given names, gender and identifiers improve the scores of the matches.
+	 *
+	 * @param patient the patient to match
+	 * @param onlyCertainMatches whether to only return matches graded as certain
+	 * @param count the maximum number of matches to return
+	 * @return the matches, best first, with their scores and match grades, followed by a warning if more
+	 *         patients were found than could be scored
+	 */
+	@Operation(name = "$match", idempotent = false)
+	public Bundle matchPatients(@OperationParam(name = "resource", min = 1) Patient patient,
+	        @OperationParam(name = "onlyCertainMatches") BooleanType onlyCertainMatches,
+	        @OperationParam(name = "count") IntegerType count) {
+		if (patient == null || patient.getName().stream().noneMatch(HumanName::hasFamily) || !patient.hasBirthDate()) {
+			throw new InvalidRequestException("$match requires a Patient resource with a family name and a birthdate");
+		}
+		
+		int countValue = count == null || count.getValue() == null ? DEFAULT_MATCH_COUNT
+		        : Math.max(0, Math.min(count.getValue(), MAX_MATCH_COUNT));
+		PatientMatchResults results = patientService.matchPatients(patient,
+		    onlyCertainMatches != null && onlyCertainMatches.booleanValue(), countValue);
+		
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		bundle.setTotal(results.getMatches().size());
+		for (PatientMatch match : results.getMatches()) {
+			Bundle.BundleEntrySearchComponent search = bundle.addEntry().setResource(match.getResource()).getSearch();
+			search.setMode(Bundle.SearchEntryMode.MATCH).setScore(match.getScore());
+			search.addExtension(MATCH_GRADE_EXTENSION_URL, new CodeType(match.getGrade().getCode()));
+		}
+		
+		if (results.isIncomplete()) {
+			OperationOutcome outcome = new OperationOutcome();
+			outcome.addIssue().setSeverity(OperationOutcome.IssueSeverity.WARNING)
+			        .setCode(OperationOutcome.IssueType.TOOCOSTLY).setDiagnostics(INCOMPLETE_MATCH_DIAGNOSTICS);
+			bundle.addEntry().setResource(outcome).getSearch().setMode(Bundle.SearchEntryMode.OUTCOME);
+		}
+		
+		return bundle;
+	}
+	
 	@History
 	@SuppressWarnings("unused")
 	public List<Resource> getPatientResourceHistory(@IdParam @NotNull IdType id) {
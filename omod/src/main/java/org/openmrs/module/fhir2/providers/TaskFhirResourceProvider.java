@@ -9,11 +9,22 @@
  */
 package org.openmrs.module.fhir2.providers;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
+import ca.uhn.fhir.rest.annotation.ConditionalUrlParam;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.History;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
 import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
@@ -30,10 +41,15 @@ import lombok.AccessLevel;
 import lombok.Setter;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeType;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.Task;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
 import org.openmrs.module.fhir2.api.FhirTaskService;
+import org.openmrs.module.fhir2.api.util.TaskChangeRegistry;
 import org.openmrs.module.fhir2.util.FhirServerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -44,9 +60,19 @@ import org.springframework.stereotype.Component;
 @Setter(AccessLevel.PACKAGE)
 public class TaskFhirResourceProvider implements IResourceProvider {
 	
+	private static final int DEFAULT_WAIT_SECONDS = 20;
+	
+	private static final int MAX_WAIT_SECONDS = 60;
+	
 	@Autowired
 	private FhirTaskService service;
 	
+	@Autowired
+	private TaskChangeRegistry taskChangeRegistry;
+	
+	@Autowired
+	private FhirResourceIdentifierService resourceIdentifierService;
+	
 	@Override
 	public Class<? extends IBaseResource> getResourceType() {
 		return Task.class;
@@ -64,13 +90,28 @@ public class TaskFhirResourceProvider implements IResourceProvider {
 	
 	@Create
 	@SuppressWarnings("unused")
-	public MethodOutcome createTask(@ResourceParam Task newTask) {
+	public MethodOutcome createTask(@ResourceParam Task newTask, @ConditionalUrlParam String conditionalUrl) {
+		if (conditionalUrl != null) {
+			return FhirServerUtils.buildConditional(resourceIdentifierService.createIfNoneExist("Task",
+			    FhirServerUtils.parseIdentifierCondition(conditionalUrl), () -> service.saveTask(newTask),
+			    FhirServerUtils.notFoundIfNull("Task", service::getTaskByUuid)));
+		}
+		
 		return FhirServerUtils.buildCreate(service.saveTask(newTask));
 	}
 	
 	@Update
 	@SuppressWarnings("unused")
-	public MethodOutcome updateTask(@IdParam IdType id, @ResourceParam Task task) {
+	public MethodOutcome updateTask(@IdParam IdType id, @ResourceParam Task task,
+	        @ConditionalUrlParam String conditionalUrl) {
+		if ((id == null || id.getIdPart() == null) && conditionalUrl != null) {
+			return FhirServerUtils.buildConditional(resourceIdentifierService.updateByIdentifier("Task",
+			    FhirServerUtils.parseIdentifierCondition(conditionalUrl), uuid -> {
+				    task.setId(uuid);
+				    return service.updateTask(task.getId(), task);
+			    }, () -> service.saveTask(task)));
+		}
+		
 		return FhirServerUtils.buildUpdate(service.updateTask(id.getIdPart(), task));
 	}
 	
@@ -92,4 +133,89 @@ public class TaskFhirResourceProvider implements IResourceProvider {
 		return FhirServerUtils
 		        .convertSearchResultsToBundle(service.searchForTasks(basedOnReference, ownerReference, status, sort));
 	}
+	
+	/**
+	 * The {@code $claim} operation moves up to {@code count} requested Tasks for the given
+	 * {@code owner} to the accepted state and returns them. Workers polling the same owner can call
+	 * this concurrently without ever being handed the same Task.
+	 */
+	@Operation(name = "$claim", idempotent = false)
+	@SuppressWarnings("unused")
+	public Bundle claimTasks(@OperationParam(name = "owner", min = 1) Reference owner,
+	        @OperationParam(name = "count") IntegerType count) {
+		ReferenceParam ownerReference = owner == null || owner.getReference() == null ? null
+		        : new ReferenceParam(owner.getReference());
+		return FhirServerUtils.convertSearchResultsToBundle(
+		    service.claimTasks(ownerReference, count == null || count.getValue() == null ? 1 : count.getValue()));
+	}
+	
+	/**
+	 * The {@code $wait} operation returns the Task once it has one of the given {@code status} values,
+	 * or, if no status is given, once it next changes. If that doesn't happen within {@code timeout}
+	 * seconds (at most 60), the current state of the Task is returned. While waiting the request is
+	 * parked on the {@link TaskChangeRegistry}, so the database is only read when the Task changes.
+	 * Each waiting request holds a server thread, so once {@link TaskChangeRegistry#MAX_WAITERS}
+	 * requests are waiting, further requests return the current state of the Task straight away.
+	 */
+	@Operation(name = "$wait", idempotent = true)
+	@SuppressWarnings("unused")
+	public Task waitForTask(@IdParam IdType id,
+	        @OperationParam(name = "status", max = OperationParam.MAX_UNLIMITED) List<CodeType> status,
+	        @OperationParam(name = "timeout") IntegerType timeout) {
+		Set<String> statuses = status == null ? Collections.emptySet()
+		        : status.stream().map(CodeType::getValue).filter(s -> s != null).map(s -> s.toLowerCase(Locale.ROOT))
+		                .collect(Collectors.toSet());
+		
+		int waitSeconds = timeout == null || timeout.getValue() == null ? DEFAULT_WAIT_SECONDS
+		        : Math.max(0, Math.min(timeout.getValue(), MAX_WAIT_SECONDS));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitSeconds);
+		
+		String uuid = id.getIdPart();
+		// register before reading the task so that a change between the two is not missed
+		CompletableFuture<String> change = taskChangeRegistry.register(uuid);
+		try {
+			Task task = getTaskById(id);
+			if (!statuses.isEmpty() && hasStatus(task, statuses)) {
+				return task;
+			}
+			
+			while (change != null) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					break;
+				}
+				
+				try {
+					change.get(remaining, TimeUnit.NANOSECONDS);
+				}
+				catch (TimeoutException | ExecutionException e) {
+					break;
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				
+				change = taskChangeRegistry.register(uuid);
+				// the request's session still holds the task as it was first read
+				task = service.getLatestTaskByUuid(uuid);
+				if (task == null) {
+					throw new ResourceNotFoundException("Could not find Task with Id " + uuid);
+				}
+				
+				if (statuses.isEmpty() || hasStatus(task, statuses)) {
+					return task;
+				}
+			}
+			
+			return task;
+		}
+		finally {
+			taskChangeRegistry.unregister(uuid, change);
+		}
+	}
+	
+	private static boolean hasStatus(Task task, Set<String> statuses) {
+		return task.getStatus() != null && statuses.contains(task.getStatus().toCode());
+	}
 }
@@ -0,0 +1,70 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers;
+
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hl7.fhir.r4.model.CodeSystem;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.ConceptMap;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.UriType;
+import org.openmrs.module.fhir2.api.FhirTerminologyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Type-level {@code ConceptMap/$translate} and {@code CodeSystem/$lookup} operations, which
+ * translate and look up codes in the concept sources registered as FHIR concept sources
+ */
+@Component
+@Qualifier("fhirOperations")
+@Setter(AccessLevel.PACKAGE)
+public class TerminologyOperationProvider {
+	
+	@Autowired
+	private FhirTerminologyService terminologyService;
+	
+	@Operation(name = "$translate", type = ConceptMap.class, idempotent = true)
+	@SuppressWarnings("unused")
+	public Parameters translate(@OperationParam(name = "system", min = 1) UriType system,
+	        @OperationParam(name = "code", min = 1) CodeType code,
+	        @OperationParam(name = "targetsystem") UriType targetSystem) {
+		validate(system, code);
+		
+		return terminologyService.translate(system.getValue(), code.getValue(),
+		    targetSystem == null || targetSystem.isEmpty() ? null : targetSystem.getValue());
+	}
+	
+	@Operation(name = "$lookup", type = CodeSystem.class, idempotent = true)
+	@SuppressWarnings("unused")
+	public Parameters lookup(@OperationParam(name = "system", min = 1) UriType system,
+	        @OperationParam(name = "code", min = 1) CodeType code) {
+		validate(system, code);
+		
+		Parameters parameters = terminologyService.lookup(system.getValue(), code.getValue());
+		if (parameters == null) {
+			throw new ResourceNotFoundException("Code " + code.getValue() + " was not found in " + system.getValue());
+		}
+		
+		return parameters;
+	}
+	
+	private static void validate(UriType system, CodeType code) {
+		if (system == null || system.isEmpty() || code == null || code.isEmpty()) {
+			throw new InvalidRequestException("Both system and code must be supplied");
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers;
+
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.server.exceptions.AuthenticationException;
+import ca.uhn.fhir.rest.server.exceptions.ForbiddenOperationException;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.StringType;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.api.FhirUserService;
+import org.openmrs.module.fhir2.web.authentication.StatelessTokenService;
+import org.openmrs.module.fhir2.web.authentication.StatelessUserContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Server-level {@code $token} operation, which exchanges the credentials used to authenticate the
+ * request for a bearer token that can be used on subsequent requests without an HTTP session
+ * <p>
+ * Tokens are only issued to requests authenticated with a password or an existing session. A
+ * bearer-authenticated request is refused, as otherwise a token could be renewed indefinitely and
+ * would keep the roles it was issued with after the user is retired or loses them.
+ * </p>
+ */
+@Component
+@Qualifier("fhirOperations")
+@Setter(AccessLevel.PACKAGE)
+public class TokenOperationProvider {
+	
+	@Autowired
+	private StatelessTokenService tokenService;
+	
+	@Autowired
+	private FhirUserService userService;
+	
+	@Operation(name = "$token", idempotent = false)
+	@SuppressWarnings("unused")
+	public Parameters issueToken() {
+		User authenticatedUser = Context.getAuthenticatedUser();
+		if (authenticatedUser == null) {
+			throw new AuthenticationException("Not authenticated");
+		}
+		
+		if (Context.getUserContext() instanceof StatelessUserContext) {
+			throw new ForbiddenOperationException(
+			        "A bearer token cannot be used to issue another token; authenticate with a username and password");
+		}
+		
+		// the user held by the session may have been loaded long ago, so the status and roles are read again
+		User user = userService.getUserByUuid(authenticatedUser.getUuid());
+		if (user == null || Boolean.TRUE.equals(user.getRetired())) {
+			throw new AuthenticationException("Not authenticated");
+		}
+		
+		Parameters parameters = new Parameters();
+		parameters.addParameter().setName("access_token").setValue(new StringType(tokenService.issueToken(user)));
+		parameters.addParameter().setName("token_type").setValue(new StringType("Bearer"));
+		parameters.addParameter().setName("expires_in")
+		        .setValue(new IntegerType((int) tokenService.getTokenLifetime()));
+		return parameters;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers;
+
+import javax.validation.constraints.NotNull;
+
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
+import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.openmrs.module.fhir2.api.FhirValueSetService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes OpenMRS concept sets as value sets, identified by the uuid of the concept set
+ */
+@Component
+@Qualifier("fhirResources")
+@Setter(AccessLevel.PACKAGE)
+public class ValueSetFhirResourceProvider implements IResourceProvider {
+	
+	@Autowired
+	private FhirValueSetService valueSetService;
+	
+	@Override
+	public Class<? extends IBaseResource> getResourceType() {
+		return ValueSet.class;
+	}
+	
+	@Operation(name = "$expand", idempotent = true)
+	@SuppressWarnings("unused")
+	public ValueSet expandValueSet(@IdParam @NotNull IdType id, @OperationParam(name = "filter") StringType filter,
+	        @OperationParam(name = "offset") IntegerType offset, @OperationParam(name = "count") IntegerType count) {
+		int offsetValue = offset == null || offset.getValue() == null ? 0 : offset.getValue();
+		Integer countValue = count == null ? null : count.getValue();
+		if (offsetValue < 0 || (countValue != null && countValue < 0)) {
+			throw new InvalidRequestException("offset and count must not be negative");
+		}
+		
+		ValueSet valueSet = valueSetService.expand(id.getIdPart(), filter == null ? null : filter.getValue(), offsetValue,
+		    countValue);
+		if (valueSet == null) {
+			throw new ResourceNotFoundException("Could not find value set with Id " + id.getIdPart());
+		}
+		
+		return valueSet;
+	}
+}
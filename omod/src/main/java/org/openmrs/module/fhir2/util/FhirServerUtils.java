@@ -10,13 +10,21 @@
 package org.openmrs.module.fhir2.util;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
 
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.util.UrlUtil;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.DomainResource;
 import org.hl7.fhir.r4.model.Resource;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
+import org.openmrs.module.fhir2.api.util.ConditionalWriteOutcome;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class FhirServerUtils {
@@ -33,6 +41,58 @@ public class FhirServerUtils {
 		return buildWithResource(methodOutcome, resource);
 	}
 	
+	public static MethodOutcome buildConditional(ConditionalWriteOutcome<?> outcome) {
+		return outcome.isCreated() ? buildCreate(outcome.getResource()) : buildUpdate(outcome.getResource());
+	}
+	
+	/**
+	 * Parses the condition of a conditional create or update, i.e. the {@code If-None-Exist} header or
+	 * the query of a conditional update. Only conditions on a single business identifier, e.g.
+	 * {@code identifier=http://example.com/ids|123}, are supported.
+	 *
+	 * @param conditionalUrl the condition as passed by HAPI, with or without the resource type
+	 * @return the identifier the condition matches on
+	 */
+	public static TokenParam parseIdentifierCondition(String conditionalUrl) {
+		String query = conditionalUrl.substring(conditionalUrl.indexOf('?') + 1);
+		Map<String, String[]> parameters = UrlUtil.parseQueryString(query);
+		
+		String[] identifiers = parameters.get("identifier");
+		if (parameters.size() != 1 || identifiers == null || identifiers.length != 1) {
+			throw new InvalidRequestException("Conditional creates and updates are only supported on a single identifier,"
+			        + " e.g. identifier=system|value");
+		}
+		
+		String identifier = identifiers[0];
+		int separator = identifier.indexOf('|');
+		if (separator < 0) {
+			return new TokenParam(null, identifier);
+		}
+		
+		return new TokenParam(identifier.substring(0, separator), identifier.substring(separator + 1));
+	}
+	
+	/**
+	 * Adapts a read by uuid that returns null for a missing resource into a reader for
+	 * {@link FhirResourceIdentifierService#createIfNoneExist}, which expects a missing resource to be
+	 * reported with a {@link ResourceNotFoundException}
+	 *
+	 * @param resourceType the FHIR resource type, e.g. "Task"
+	 * @param reader reads a resource by uuid, returning null if there is none
+	 * @return a reader that throws {@link ResourceNotFoundException} instead of returning null
+	 */
+	public static <T extends DomainResource> Function<String, T> notFoundIfNull(String resourceType,
+	        Function<String, T> reader) {
+		return uuid -> {
+			T resource = reader.apply(uuid);
+			if (resource == null) {
+				throw new ResourceNotFoundException("Could not find " + resourceType + " with Id " + uuid);
+			}
+			
+			return resource;
+		};
+	}
+	
 	private static MethodOutcome buildWithResource(MethodOutcome methodOutcome, DomainResource resource) {
 		if (resource != null) {
 			if (resource.getId() != null) {
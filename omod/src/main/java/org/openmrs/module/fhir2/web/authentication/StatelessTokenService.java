@@ -0,0 +1,335 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.authentication;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.validation.constraints.NotNull;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.User;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.FhirException;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.util.CacheInvalidationListener;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyListener;
+import org.openmrs.module.fhir2.api.util.StartupCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Issues and verifies the signed, self-contained bearer tokens used for stateless authentication.
+ * <p>
+ * A token has the form {@code base64url(claims).base64url(HMAC-SHA256(claims))}, where the claims
+ * are a form-encoded list of the user's identity, roles and privileges along with the time the token
+ * was issued and expires. Since everything needed to build the user's privilege set is contained in
+ * the token, verifying a token requires neither an HTTP session nor a database lookup.
+ * </p>
+ */
+@Component
+@Setter(AccessLevel.PACKAGE)
+public class StatelessTokenService implements CacheInvalidationListener, StartupCheck {
+	
+	private static final Logger log = LoggerFactory.getLogger(StatelessTokenService.class);
+	
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+	
+	private static final String TOKEN_ROLE = "FHIR2 Bearer Token";
+	
+	private static final long DEFAULT_TOKEN_LIFETIME = 3600L;
+	
+	// the HMAC-SHA256 block size; shorter keys are accepted by the JCE but weaken the signature
+	private static final int MIN_SECRET_LENGTH = 32;
+	
+	private static final String CLAIM_USER_ID = "uid";
+	
+	private static final String CLAIM_UUID = "uuid";
+	
+	private static final String CLAIM_USERNAME = "sub";
+	
+	private static final String CLAIM_SYSTEM_ID = "sid";
+	
+	private static final String CLAIM_ISSUED_AT = "iat";
+	
+	private static final String CLAIM_EXPIRES = "exp";
+	
+	private static final String CLAIM_ROLE = "role";
+	
+	private static final String CLAIM_PRIVILEGE = "priv";
+	
+	@Autowired
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	private volatile SecretKeySpec signingKey;
+	
+	private volatile boolean generatedSigningKey;
+	
+	private volatile Long tokenLifetime;
+	
+	/**
+	 * Creates a signed token for the given user
+	 *
+	 * @param user the authenticated user to issue a token for
+	 * @return the encoded token
+	 */
+	public String issueToken(@NotNull User user) {
+		long issuedAt = currentTimeSeconds();
+		
+		StringBuilder claims = new StringBuilder();
+		appendClaim(claims, CLAIM_USER_ID, String.valueOf(user.getUserId()));
+		appendClaim(claims, CLAIM_UUID, user.getUuid());
+		appendClaim(claims, CLAIM_USERNAME, user.getUsername());
+		appendClaim(claims, CLAIM_SYSTEM_ID, user.getSystemId());
+		appendClaim(claims, CLAIM_ISSUED_AT, String.valueOf(issuedAt));
+		appendClaim(claims, CLAIM_EXPIRES, String.valueOf(issuedAt + getTokenLifetime()));
+		
+		Set<String> privileges = new TreeSet<>();
+		for (Role role : user.getAllRoles()) {
+			appendClaim(claims, CLAIM_ROLE, role.getRole());
+			
+			if (role.getPrivileges() != null) {
+				for (Privilege privilege : role.getPrivileges()) {
+					privileges.add(privilege.getPrivilege());
+				}
+			}
+		}
+		
+		for (String privilege : privileges) {
+			appendClaim(claims, CLAIM_PRIVILEGE, privilege);
+		}
+		
+		byte[] payload = claims.toString().getBytes(StandardCharsets.UTF_8);
+		return Base64.encodeBase64URLSafeString(payload) + "." + Base64.encodeBase64URLSafeString(sign(payload));
+	}
+	
+	/**
+	 * Verifies the signature and expiry of a token and, if valid, builds a transient {@link User}
+	 * carrying the roles and privileges recorded in the token
+	 *
+	 * @param token the encoded token
+	 * @return the user the token was issued to or an empty optional if the token is invalid
+	 */
+	public Optional<User> verifyToken(String token) {
+		if (StringUtils.isBlank(token)) {
+			return Optional.empty();
+		}
+		
+		int split = token.indexOf('.');
+		if (split <= 0 || split == token.length() - 1) {
+			return Optional.empty();
+		}
+		
+		byte[] payload = Base64.decodeBase64(token.substring(0, split));
+		byte[] signature = Base64.decodeBase64(token.substring(split + 1));
+		if (!MessageDigest.isEqual(sign(payload), signature)) {
+			return Optional.empty();
+		}
+		
+		Map<String, List<String>> claims = parseClaims(new String(payload, StandardCharsets.UTF_8));
+		long expires = NumberUtils.toLong(getClaim(claims, CLAIM_EXPIRES), 0L);
+		if (expires <= currentTimeSeconds()) {
+			return Optional.empty();
+		}
+		
+		User user = new User(NumberUtils.createInteger(getClaim(claims, CLAIM_USER_ID)));
+		user.setUuid(getClaim(claims, CLAIM_UUID));
+		user.setUsername(getClaim(claims, CLAIM_USERNAME));
+		user.setSystemId(getClaim(claims, CLAIM_SYSTEM_ID));
+		
+		// privileges are flattened into a single synthetic role; the real role names are kept so that checks such as
+		// User#isSuperUser() still work
+		Role tokenRole = new Role(TOKEN_ROLE);
+		for (String privilege : claims.getOrDefault(CLAIM_PRIVILEGE, new ArrayList<>())) {
+			tokenRole.addPrivilege(new Privilege(privilege));
+		}
+		user.addRole(tokenRole);
+		
+		for (String role : claims.getOrDefault(CLAIM_ROLE, new ArrayList<>())) {
+			user.addRole(new Role(role));
+		}
+		
+		return Optional.of(user);
+	}
+	
+	/**
+	 * Fails the module startup if the configured secret cannot be used to sign tokens, rather than
+	 * failing the first request that needs a token
+	 */
+	@Override
+	public void check() {
+		String configuredSecret = globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_TOKEN_SECRET);
+		if (StringUtils.isNotBlank(configuredSecret)) {
+			decodeSecret(configuredSecret);
+		}
+	}
+	
+	@Override
+	public String getCacheName() {
+		return FhirGlobalPropertyListener.CACHE_NAME;
+	}
+	
+	@Override
+	public void invalidate(Collection<String> keys) {
+		// replacing a generated key would invalidate every token issued so far, so that only happens when the
+		// secret itself changes
+		if (keys == null ? !generatedSigningKey : keys.contains(FhirConstants.OPENMRS_FHIR_TOKEN_SECRET)) {
+			signingKey = null;
+		}
+		
+		if (keys == null || keys.contains(FhirConstants.OPENMRS_FHIR_TOKEN_LIFETIME)) {
+			tokenLifetime = null;
+		}
+	}
+	
+	/**
+	 * @return the number of seconds a token is valid for
+	 */
+	public long getTokenLifetime() {
+		Long lifetime = tokenLifetime;
+		if (lifetime == null) {
+			lifetime = NumberUtils.toLong(
+			    globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_TOKEN_LIFETIME), DEFAULT_TOKEN_LIFETIME);
+			tokenLifetime = lifetime;
+		}
+		
+		return lifetime;
+	}
+	
+	protected long currentTimeSeconds() {
+		return System.currentTimeMillis() / 1000L;
+	}
+	
+	private byte[] sign(byte[] payload) {
+		try {
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(getSigningKey());
+			return mac.doFinal(payload);
+		}
+		catch (GeneralSecurityException e) {
+			throw new FhirException("Unable to sign bearer token", e);
+		}
+	}
+	
+	private SecretKeySpec getSigningKey() {
+		SecretKeySpec key = signingKey;
+		if (key == null) {
+			synchronized (this) {
+				key = signingKey;
+				if (key == null) {
+					byte[] secret;
+					String configuredSecret = globalPropertyService
+					        .getGlobalProperty(FhirConstants.OPENMRS_FHIR_TOKEN_SECRET);
+					if (StringUtils.isNotBlank(configuredSecret)) {
+						secret = decodeSecret(configuredSecret);
+						generatedSigningKey = false;
+					} else {
+						log.warn("No value set for {}; bearer tokens will only be valid on this node until it is restarted",
+						    FhirConstants.OPENMRS_FHIR_TOKEN_SECRET);
+						secret = new byte[32];
+						new SecureRandom().nextBytes(secret);
+						generatedSigningKey = true;
+					}
+					
+					signingKey = key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+				}
+			}
+		}
+		
+		return key;
+	}
+	
+	private static byte[] decodeSecret(String configuredSecret) {
+		String trimmedSecret = configuredSecret.trim();
+		if (!Base64.isBase64(trimmedSecret)) {
+			throw new FhirException("The value of " + FhirConstants.OPENMRS_FHIR_TOKEN_SECRET
+			        + " is not valid base64; set it to a base64-encoded random value of at least " + MIN_SECRET_LENGTH
+			        + " bytes or clear it to generate one on startup");
+		}
+		
+		byte[] secret = Base64.decodeBase64(trimmedSecret);
+		if (secret.length < MIN_SECRET_LENGTH) {
+			throw new FhirException("The value of " + FhirConstants.OPENMRS_FHIR_TOKEN_SECRET + " decodes to "
+			        + secret.length + " bytes; set it to a base64-encoded random value of at least " + MIN_SECRET_LENGTH
+			        + " bytes or clear it to generate one on startup");
+		}
+		
+		return secret;
+	}
+	
+	private static void appendClaim(StringBuilder claims, String name, String value) {
+		if (value == null) {
+			return;
+		}
+		
+		if (claims.length() > 0) {
+			claims.append('&');
+		}
+		
+		try {
+			claims.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8.name()));
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new FhirException(e);
+		}
+	}
+	
+	private static Map<String, List<String>> parseClaims(String claims) {
+		Map<String, List<String>> result = new HashMap<>();
+		for (String claim : StringUtils.split(claims, '&')) {
+			int split = claim.indexOf('=');
+			if (split <= 0) {
+				continue;
+			}
+			
+			try {
+				result.computeIfAbsent(claim.substring(0, split), k -> new ArrayList<>())
+				        .add(URLDecoder.decode(claim.substring(split + 1), StandardCharsets.UTF_8.name()));
+			}
+			catch (UnsupportedEncodingException e) {
+				throw new FhirException(e);
+			}
+		}
+		
+		return result;
+	}
+	
+	private static String getClaim(Map<String, List<String>> claims, String name) {
+		List<String> values = claims.get(name);
+		if (values == null || values.isEmpty()) {
+			return null;
+		}
+		
+		return values.get(0);
+	}
+}
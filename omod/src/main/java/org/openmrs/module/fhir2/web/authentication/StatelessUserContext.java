@@ -0,0 +1,50 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.authentication;
+
+import org.openmrs.User;
+import org.openmrs.api.context.UserContext;
+
+/**
+ * A {@link UserContext} for a single request authenticated by a bearer token. The user is the
+ * transient user built by {@link StatelessTokenService#verifyToken(String)}, so the context is
+ * never stored in the HTTP session and never touches the database to resolve privileges.
+ */
+public class StatelessUserContext extends UserContext {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final User user;
+	
+	public StatelessUserContext(User user) {
+		super();
+		this.user = user;
+	}
+	
+	@Override
+	public User getAuthenticatedUser() {
+		return user;
+	}
+	
+	@Override
+	public boolean isAuthenticated() {
+		return user != null;
+	}
+	
+	@Override
+	public boolean hasPrivilege(String privilege) {
+		return (user != null && user.hasPrivilege(privilege)) || super.hasPrivilege(privilege);
+	}
+	
+	@Override
+	public void logout() {
+		// there is nothing to log out of; the token simply expires
+	}
+}
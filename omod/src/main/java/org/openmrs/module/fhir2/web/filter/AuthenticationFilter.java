@@ -17,16 +17,25 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
+import org.openmrs.User;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.fhir2.web.authentication.StatelessTokenService;
+import org.openmrs.module.fhir2.web.authentication.StatelessUserContext;
 
 public class AuthenticationFilter implements Filter {
 	
+	private static final String BEARER_PREFIX = "Bearer ";
+	
 	@Override
 	public void init(FilterConfig filterConfig) {
 	}
@@ -37,6 +46,13 @@ public class AuthenticationFilter implements Filter {
 		// skip if the session has timed out, we're already authenticated, or it's not an HTTP request
 		if (request instanceof HttpServletRequest) {
 			HttpServletRequest httpRequest = (HttpServletRequest) request;
+			String authorization = httpRequest.getHeader("Authorization");
+			if (StringUtils.startsWithIgnoreCase(authorization, BEARER_PREFIX)) {
+				doFilterWithBearerToken(httpRequest, (HttpServletResponse) response, chain,
+				    authorization.substring(BEARER_PREFIX.length()).trim());
+				return;
+			}
+			
 			if (httpRequest.getRequestedSessionId() != null && !httpRequest.isRequestedSessionIdValid()) {
 				Context.logout();
 			}
@@ -67,6 +83,41 @@ public class AuthenticationFilter implements Filter {
 		chain.doFilter(request, response);
 	}
 	
+	private void doFilterWithBearerToken(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+	        String token) throws IOException, ServletException {
+		Optional<User> user = getTokenService().flatMap(tokenService -> tokenService.verifyToken(token));
+		if (!user.isPresent()) {
+			response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Not authenticated");
+			return;
+		}
+		
+		// the user context only lives for the duration of this request; nothing is stored in the session
+		UserContext previousUserContext = Context.getUserContext();
+		Context.setUserContext(new StatelessUserContext(user.get()));
+		try {
+			chain.doFilter(request, response);
+		}
+		finally {
+			Context.setUserContext(previousUserContext);
+			
+			// the OpenMRS filter creates a session for every request; expire one created for a token-authenticated
+			// request as soon as possible rather than invalidating it, as upstream filters may still reference it
+			HttpSession session = request.getSession(false);
+			if (session != null && session.isNew()) {
+				session.setMaxInactiveInterval(1);
+			}
+		}
+	}
+	
+	private Optional<StatelessTokenService> getTokenService() {
+		List<StatelessTokenService> tokenServices = Context.getRegisteredComponents(StatelessTokenService.class);
+		if (tokenServices == null || tokenServices.isEmpty()) {
+			return Optional.empty();
+		}
+		
+		return Optional.of(tokenServices.get(0));
+	}
+	
 	@Override
 	public void destroy() {
 	}
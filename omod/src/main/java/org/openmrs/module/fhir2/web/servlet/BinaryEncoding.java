@@ -0,0 +1,119 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.Locale;
+
+import ca.uhn.fhir.rest.api.Constants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Binary encodings of the FHIR JSON data model that the FHIR servlet can negotiate in addition to
+ * the JSON and XML encodings supported by HAPI. Resources are still parsed and encoded as JSON by
+ * HAPI; the {@link BinaryEncodingRequestWrapper} and {@link BinaryEncodingResponseWrapper} transcode
+ * between JSON and the binary encoding token by token.
+ */
+public enum BinaryEncoding {
+	
+	CBOR("application/fhir+cbor", "cbor", new CBORFactory(), "application/cbor"),
+	
+	SMILE("application/x-jackson-smile", "smile", new SmileFactory());
+	
+	private final String contentType;
+	
+	private final String formatParameter;
+	
+	private final JsonFactory factory;
+	
+	private final String[] alternativeContentTypes;
+	
+	BinaryEncoding(String contentType, String formatParameter, JsonFactory factory, String... alternativeContentTypes) {
+		this.contentType = contentType;
+		this.formatParameter = formatParameter;
+		this.factory = factory;
+		this.alternativeContentTypes = alternativeContentTypes;
+	}
+	
+	public String getContentType() {
+		return contentType;
+	}
+	
+	JsonFactory getFactory() {
+		return factory;
+	}
+	
+	/**
+	 * Determines the encoding the client asked the response to be written in, either through the
+	 * {@code _format} parameter or through the Accept header. Only the first binary media type in the
+	 * Accept header is considered and quality values are ignored.
+	 *
+	 * @param request the request
+	 * @return the encoding to write the response in or null if the response should be written by HAPI
+	 *         as-is
+	 */
+	public static BinaryEncoding forResponse(HttpServletRequest request) {
+		String format = BinaryEncodingRequestWrapper.getFormat(request);
+		if (format != null) {
+			return forMediaType(format);
+		}
+		
+		String accept = request.getHeader(Constants.HEADER_ACCEPT);
+		if (accept == null) {
+			return null;
+		}
+		
+		for (String mediaType : accept.split(",")) {
+			BinaryEncoding encoding = forMediaType(mediaType);
+			if (encoding != null) {
+				return encoding;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * @param request the request
+	 * @return the encoding of the request body or null if it isn't binary-encoded
+	 */
+	public static BinaryEncoding forRequest(HttpServletRequest request) {
+		return forMediaType(request.getContentType());
+	}
+	
+	/**
+	 * @param mediaType a media type, optionally with parameters, or a {@code _format} value
+	 * @return the matching encoding or null if the media type isn't one of the binary encodings
+	 */
+	public static BinaryEncoding forMediaType(String mediaType) {
+		if (mediaType == null) {
+			return null;
+		}
+		
+		String type = StringUtils.substringBefore(mediaType, ";").trim().toLowerCase(Locale.ROOT);
+		for (BinaryEncoding encoding : values()) {
+			if (encoding.contentType.equals(type) || encoding.formatParameter.equals(type)) {
+				return encoding;
+			}
+			
+			for (String alternative : encoding.alternativeContentTypes) {
+				if (alternative.equals(type)) {
+					return encoding;
+				}
+			}
+		}
+		
+		return null;
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.util.UrlUtil;
+
+/**
+ * Request wrapper that presents a request using one of the {@link BinaryEncoding}s to HAPI as a
+ * JSON request.
+ * <p>
+ * A binary-encoded body is transcoded to JSON up-front, as HAPI reads the whole body before parsing
+ * it anyway. If the response should be transcoded, the request asks for a JSON response without
+ * compression instead, so that the {@link BinaryEncodingResponseWrapper} or the
+ * {@link NdjsonResponseWrapper} can transcode and compress it.
+ * </p>
+ */
+public class BinaryEncodingRequestWrapper extends HttpServletRequestWrapper {
+	
+	private static final String JSON_CONTENT_TYPE = Constants.CT_FHIR_JSON_NEW + Constants.CHARSET_UTF8_CTSUFFIX;
+	
+	private final byte[] body;
+	
+	private final boolean transcodedResponse;
+	
+	private Map<String, String[]> parameters;
+	
+	/**
+	 * @param request the request to wrap
+	 * @param requestEncoding the encoding of the request body or null if it isn't binary-encoded
+	 * @param transcodedResponse whether the JSON response written by HAPI will be transcoded, e.g. to a
+	 *            binary encoding
+	 * @throws IOException if the body cannot be read or isn't valid in the request encoding
+	 */
+	public BinaryEncodingRequestWrapper(HttpServletRequest request, BinaryEncoding requestEncoding,
+	    boolean transcodedResponse) throws IOException {
+		super(request);
+		this.body = requestEncoding == null ? null : JsonTranscoder.toJson(request.getInputStream(), requestEncoding);
+		this.transcodedResponse = transcodedResponse;
+	}
+	
+	/**
+	 * @param request the request
+	 * @return the value of the {@code _format} parameter of the request or null if there is none
+	 */
+	static String getFormat(HttpServletRequest request) {
+		String format = request.getParameter(Constants.PARAM_FORMAT);
+		if (format == null && request.getQueryString() != null) {
+			// HAPI reads the parameters of GET requests from the query string
+			String[] values = UrlUtil.parseQueryString(request.getQueryString()).get(Constants.PARAM_FORMAT);
+			format = values == null || values.length == 0 ? null : values[0];
+		}
+		
+		return format;
+	}
+	
+	@Override
+	public String getContentType() {
+		return body == null ? super.getContentType() : JSON_CONTENT_TYPE;
+	}
+	
+	@Override
+	public String getCharacterEncoding() {
+		return body == null ? super.getCharacterEncoding() : StandardCharsets.UTF_8.name();
+	}
+	
+	@Override
+	public int getContentLength() {
+		return body == null ? super.getContentLength() : body.length;
+	}
+	
+	@Override
+	public long getContentLengthLong() {
+		return body == null ? super.getContentLengthLong() : body.length;
+	}
+	
+	@Override
+	public ServletInputStream getInputStream() throws IOException {
+		if (body == null) {
+			return super.getInputStream();
+		}
+		
+		return new ByteArrayServletInputStream(body);
+	}
+	
+	@Override
+	public BufferedReader getReader() throws IOException {
+		if (body == null) {
+			return super.getReader();
+		}
+		
+		return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+	}
+	
+	@Override
+	public String getHeader(String name) {
+		if (body != null && Constants.HEADER_CONTENT_TYPE.equalsIgnoreCase(name)) {
+			return JSON_CONTENT_TYPE;
+		}
+		
+		if (transcodedResponse) {
+			if (Constants.HEADER_ACCEPT.equalsIgnoreCase(name)) {
+				return Constants.CT_FHIR_JSON_NEW;
+			} else if (Constants.HEADER_ACCEPT_ENCODING.equalsIgnoreCase(name)) {
+				return null;
+			}
+		}
+		
+		return super.getHeader(name);
+	}
+	
+	@Override
+	public Enumeration<String> getHeaders(String name) {
+		if ((body != null && Constants.HEADER_CONTENT_TYPE.equalsIgnoreCase(name))
+		        || (transcodedResponse && (Constants.HEADER_ACCEPT.equalsIgnoreCase(name)
+		                || Constants.HEADER_ACCEPT_ENCODING.equalsIgnoreCase(name)))) {
+			String value = getHeader(name);
+			return value == null ? Collections.emptyEnumeration() : Collections.enumeration(Collections.singleton(value));
+		}
+		
+		return super.getHeaders(name);
+	}
+	
+	@Override
+	public String getParameter(String name) {
+		String[] values = getParameterValues(name);
+		return values == null || values.length == 0 ? null : values[0];
+	}
+	
+	@Override
+	public String[] getParameterValues(String name) {
+		return getParameterMap().get(name);
+	}
+	
+	@Override
+	public Enumeration<String> getParameterNames() {
+		return Collections.enumeration(getParameterMap().keySet());
+	}
+	
+	@Override
+	public Map<String, String[]> getParameterMap() {
+		// the _format has been dealt with and would otherwise be rejected by HAPI
+		if (!transcodedResponse) {
+			return super.getParameterMap();
+		}
+		
+		if (parameters == null) {
+			Map<String, String[]> result = new LinkedHashMap<>(super.getParameterMap());
+			result.remove(Constants.PARAM_FORMAT);
+			parameters = Collections.unmodifiableMap(result);
+		}
+		
+		return parameters;
+	}
+	
+	@Override
+	public String getQueryString() {
+		// conditional writes, e.g. PUT Task?identifier=..., carry their search in the query string
+		String queryString = super.getQueryString();
+		if (!transcodedResponse || queryString == null) {
+			return queryString;
+		}
+		
+		String result = Arrays.stream(queryString.split("&"))
+		        .filter(parameter -> !parameter.equals(Constants.PARAM_FORMAT)
+		                && !parameter.startsWith(Constants.PARAM_FORMAT + "="))
+		        .collect(Collectors.joining("&"));
+		return result.isEmpty() ? null : result;
+	}
+	
+	private static class ByteArrayServletInputStream extends ServletInputStream {
+		
+		private final ByteArrayInputStream delegate;
+		
+		private ByteArrayServletInputStream(byte[] body) {
+			this.delegate = new ByteArrayInputStream(body);
+		}
+		
+		@Override
+		public int read() {
+			return delegate.read();
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) {
+			return delegate.read(b, off, len);
+		}
+		
+		@Override
+		public boolean isFinished() {
+			return delegate.available() == 0;
+		}
+		
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+		
+		// the whole body is already in memory, so it can all be read without blocking straight away
+		@Override
+		public void setReadListener(ReadListener readListener) {
+			try {
+				readListener.onDataAvailable();
+				if (isFinished()) {
+					readListener.onAllDataRead();
+				}
+			}
+			catch (IOException e) {
+				readListener.onError(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import ca.uhn.fhir.rest.api.Constants;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Response wrapper that transcodes the JSON written by HAPI into a {@link BinaryEncoding} as it is
+ * written. Responses with any other content type, e.g. XML, are passed straight through.
+ * <p>
+ * The wrapper reports the JSON content type to the code writing the response, so that anything
+ * looking at the response, such as the {@link ResponseCachingInterceptor}, sees the JSON response
+ * HAPI wrote. {@link #finish()} must be called once the response has been written.
+ * </p>
+ */
+public class BinaryEncodingResponseWrapper extends HttpServletResponseWrapper {
+	
+	private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+	
+	private final HttpServletRequest request;
+	
+	private final BinaryEncoding encoding;
+	
+	private String jsonContentType;
+	
+	private JsonTranscoder.TranscodingOutputStream outputStream;
+	
+	private PrintWriter writer;
+	
+	public BinaryEncodingResponseWrapper(HttpServletRequest request, HttpServletResponse response,
+	    BinaryEncoding encoding) {
+		super(response);
+		this.request = request;
+		this.encoding = encoding;
+	}
+	
+	@Override
+	public void setContentType(String type) {
+		if (outputStream == null && writer == null && JsonTranscoder.isJson(type)) {
+			jsonContentType = type;
+			super.setContentType(encoding.getContentType());
+			super.addHeader(Constants.HEADER_VARY, Constants.HEADER_ACCEPT);
+		} else if (!isTranscoding()) {
+			super.setContentType(type);
+		}
+	}
+	
+	@Override
+	public String getContentType() {
+		return isTranscoding() ? jsonContentType : super.getContentType();
+	}
+	
+	@Override
+	public void setCharacterEncoding(String charset) {
+		// the binary encodings don't have a character encoding
+		if (!isTranscoding()) {
+			super.setCharacterEncoding(charset);
+		}
+	}
+	
+	@Override
+	public String getCharacterEncoding() {
+		return isTranscoding() ? StandardCharsets.UTF_8.name() : super.getCharacterEncoding();
+	}
+	
+	@Override
+	public void setContentLength(int len) {
+		if (!isTranscoding()) {
+			super.setContentLength(len);
+		}
+	}
+	
+	@Override
+	public void setContentLengthLong(long len) {
+		if (!isTranscoding()) {
+			super.setContentLengthLong(len);
+		}
+	}
+	
+	@Override
+	public void setHeader(String name, String value) {
+		if (!handleHeader(name, value)) {
+			super.setHeader(name, value);
+		}
+	}
+	
+	@Override
+	public void addHeader(String name, String value) {
+		if (!handleHeader(name, value)) {
+			super.addHeader(name, value);
+		}
+	}
+	
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (!isTranscoding()) {
+			return super.getOutputStream();
+		}
+		
+		if (outputStream == null) {
+			ServletOutputStream servletOutputStream = super.getOutputStream();
+			OutputStream target = servletOutputStream;
+			if (StringUtils.contains(request.getHeader(Constants.HEADER_ACCEPT_ENCODING), Constants.ENCODING_GZIP)) {
+				super.setHeader(Constants.HEADER_CONTENT_ENCODING, Constants.ENCODING_GZIP);
+				super.addHeader(Constants.HEADER_VARY, Constants.HEADER_ACCEPT_ENCODING);
+				target = new GZIPOutputStream(servletOutputStream);
+			}
+			
+			outputStream = new JsonTranscoder.TranscodingOutputStream(target, servletOutputStream, encoding);
+		}
+		
+		return outputStream;
+	}
+	
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (!isTranscoding()) {
+			return super.getWriter();
+		}
+		
+		if (writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), StandardCharsets.UTF_8));
+		}
+		
+		return writer;
+	}
+	
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		
+		super.flushBuffer();
+	}
+	
+	/**
+	 * Writes out the rest of the transcoded response, if any
+	 */
+	public void finish() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		
+		if (outputStream != null) {
+			outputStream.finish();
+		}
+	}
+	
+	boolean isTranscoding() {
+		return jsonContentType != null;
+	}
+	
+	private boolean handleHeader(String name, String value) {
+		if (Constants.HEADER_CONTENT_TYPE.equalsIgnoreCase(name)) {
+			setContentType(value);
+			return true;
+		}
+		
+		return isTranscoding() && HEADER_CONTENT_LENGTH.equalsIgnoreCase(name);
+	}
+}
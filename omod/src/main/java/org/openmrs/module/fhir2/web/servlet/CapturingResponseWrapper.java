@@ -0,0 +1,160 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import org.openmrs.module.fhir2.api.util.EncodedResponseCache;
+
+/**
+ * Response wrapper that keeps a copy of the response body when the {@link ResponseCachingInterceptor}
+ * has marked the request as cacheable. Other responses are passed straight through. The copy is
+ * dropped as soon as the body grows past {@link EncodedResponseCache#MAX_ENTRY_BYTES}, as the cache
+ * would not keep it anyway.
+ */
+public class CapturingResponseWrapper extends HttpServletResponseWrapper {
+	
+	private final HttpServletRequest request;
+	
+	private CapturingOutputStream capturingStream;
+	
+	private ServletOutputStream outputStream;
+	
+	private PrintWriter writer;
+	
+	public CapturingResponseWrapper(HttpServletRequest request, HttpServletResponse response) {
+		super(response);
+		this.request = request;
+	}
+	
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (outputStream == null) {
+			ServletOutputStream delegate = super.getOutputStream();
+			if (ResponseCachingInterceptor.isPending(request)) {
+				capturingStream = new CapturingOutputStream(delegate, EncodedResponseCache.MAX_ENTRY_BYTES);
+				outputStream = capturingStream;
+			} else {
+				outputStream = delegate;
+			}
+		}
+		
+		return outputStream;
+	}
+	
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			if (ResponseCachingInterceptor.isPending(request)) {
+				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+			} else {
+				writer = super.getWriter();
+			}
+		}
+		
+		return writer;
+	}
+	
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		
+		super.flushBuffer();
+	}
+	
+	/**
+	 * @return the body written so far or null if the response wasn't captured or was too large to keep
+	 */
+	byte[] getCapturedBody() {
+		if (capturingStream == null) {
+			return null;
+		}
+		
+		if (writer != null) {
+			writer.flush();
+		}
+		
+		return capturingStream.getCopy();
+	}
+	
+	private static class CapturingOutputStream extends ServletOutputStream {
+		
+		private final ServletOutputStream delegate;
+		
+		private final int limit;
+		
+		// null once the body has outgrown the limit
+		private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		
+		private CapturingOutputStream(ServletOutputStream delegate, int limit) {
+			this.delegate = delegate;
+			this.limit = limit;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			delegate.write(b);
+			if (hasRoomFor(1)) {
+				copy.write(b);
+			}
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			delegate.write(b, off, len);
+			if (hasRoomFor(len)) {
+				copy.write(b, off, len);
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			delegate.flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			delegate.close();
+		}
+		
+		@Override
+		public boolean isReady() {
+			return delegate.isReady();
+		}
+		
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			delegate.setWriteListener(writeListener);
+		}
+		
+		private byte[] getCopy() {
+			return copy == null ? null : copy.toByteArray();
+		}
+		
+		private boolean hasRoomFor(int len) {
+			if (copy != null && copy.size() + len > limit) {
+				copy = null;
+			}
+			
+			return copy != null;
+		}
+	}
+}
@@ -9,19 +9,31 @@
  */
 package org.openmrs.module.fhir2.web.servlet;
 
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.server.FifoMemoryPagingProvider;
 import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.RestfulServer;
 import ca.uhn.fhir.rest.server.interceptor.LoggingInterceptor;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.AccessLevel;
 import lombok.Setter;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.util.SearchResultStream;
+import org.openmrs.module.fhir2.api.util.TranslationMemo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -40,6 +52,9 @@ public class FhirRestServlet extends RestfulServer {
 	@Qualifier("hapiLoggingInterceptor")
 	private LoggingInterceptor loggingInterceptor;
 	
+	@Autowired(required = false)
+	private ResponseCachingInterceptor responseCachingInterceptor;
+	
 	@Override
 	protected void initialize() {
 		// ensure properties for this class are properly injected
@@ -59,6 +74,94 @@ public class FhirRestServlet extends RestfulServer {
 		setPagingProvider(pp);
 		setDefaultResponseEncoding(EncodingEnum.JSON);
 		registerInterceptor(loggingInterceptor);
+		
+		if (responseCachingInterceptor != null) {
+			responseCachingInterceptor.setCachedResourceTypes(
+			    globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_RESPONSE_CACHE_RESOURCE_TYPES));
+			registerInterceptor(responseCachingInterceptor);
+		}
+	}
+	
+	@Override
+	protected void service(HttpServletRequest request, HttpServletResponse response)
+	        throws ServletException, IOException {
+		if (NdjsonResponseWrapper.isRequested(request)) {
+			serviceNdjson(request, response);
+			return;
+		}
+		
+		BinaryEncoding responseEncoding = BinaryEncoding.forResponse(request);
+		BinaryEncoding requestEncoding = BinaryEncoding.forRequest(request);
+		if (responseEncoding == null && requestEncoding == null) {
+			serviceJson(request, response);
+			return;
+		}
+		
+		// binary encodings are transcoded to and from the JSON that HAPI reads and writes
+		BinaryEncodingRequestWrapper wrappedRequest;
+		try {
+			wrappedRequest = new BinaryEncodingRequestWrapper(request, requestEncoding, responseEncoding != null);
+		}
+		catch (JsonProcessingException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+			    "Request body is not valid " + requestEncoding.name() + ": " + e.getOriginalMessage());
+			return;
+		}
+		
+		if (responseEncoding == null) {
+			serviceJson(wrappedRequest, response);
+			return;
+		}
+		
+		BinaryEncodingResponseWrapper wrappedResponse = new BinaryEncodingResponseWrapper(request, response,
+		        responseEncoding);
+		serviceJson(wrappedRequest, wrappedResponse);
+		wrappedResponse.finish();
+	}
+	
+	private void serviceNdjson(HttpServletRequest request, HttpServletResponse response)
+	        throws ServletException, IOException {
+		String unsupportedParameter = NdjsonResponseWrapper.getUnsupportedParameter(request);
+		if (unsupportedParameter != null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+			    "The " + unsupportedParameter + " parameter is not supported for NDJSON responses");
+			return;
+		}
+		
+		NdjsonResponseWrapper wrappedResponse = new NdjsonResponseWrapper(request, response);
+		IParser parser = getFhirContext().newJsonParser();
+		
+		Consumer<IBaseResource> resourceWriter = resource -> {
+			try {
+				wrappedResponse.writeResource(parser.encodeResourceToString(resource));
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+		
+		// search results are written as they are translated, so the response is not cached
+		try (TranslationMemo.Scope ignored = TranslationMemo.open();
+		        SearchResultStream.Scope stream = SearchResultStream.open(resourceWriter)) {
+			super.service(new BinaryEncodingRequestWrapper(request, null, true), wrappedResponse);
+		}
+		
+		wrappedResponse.finish();
+	}
+	
+	private void serviceJson(HttpServletRequest request, HttpServletResponse response)
+	        throws ServletException, IOException {
+		// references to the same patient, practitioner, etc. are only built once per response
+		try (TranslationMemo.Scope ignored = TranslationMemo.open()) {
+			if (responseCachingInterceptor == null) {
+				super.service(request, response);
+				return;
+			}
+			
+			CapturingResponseWrapper wrappedResponse = new CapturingResponseWrapper(request, response);
+			super.service(request, wrappedResponse);
+			responseCachingInterceptor.responseCompleted(request, wrappedResponse);
+		}
 	}
 	
 	@Override
@@ -85,4 +188,11 @@ public class FhirRestServlet extends RestfulServer {
 	public void setResourceProviders(Collection<IResourceProvider> theProviders) {
 		super.setResourceProviders(theProviders);
 	}
+	
+	@Override
+	@Autowired(required = false)
+	@Qualifier("fhirOperations")
+	public void setPlainProviders(Collection<Object> theProviders) {
+		super.setPlainProviders(theProviders);
+	}
 }
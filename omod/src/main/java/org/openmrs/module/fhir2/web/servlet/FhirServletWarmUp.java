@@ -0,0 +1,224 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import ca.uhn.fhir.rest.api.Constants;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.openmrs.module.fhir2.api.util.WarmUpTask;
+import org.openmrs.module.web.WebModuleUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends a synthetic {@code GET /metadata} through the FHIR servlet registered with OpenMRS, so that
+ * the servlet, its resource bindings and the capability statement are built before the first real
+ * request. The request bypasses the module's filters and is answered without touching any patient
+ * data.
+ * <p>
+ * OpenMRS only registers a module's servlets once the module has started, so this waits up to a
+ * minute for the servlet to appear.
+ * </p>
+ */
+@Component
+@Order(2)
+@Setter(AccessLevel.PACKAGE)
+public class FhirServletWarmUp implements WarmUpTask {
+	
+	private static final Logger log = LoggerFactory.getLogger(FhirServletWarmUp.class);
+	
+	static final String SERVLET_NAME = "fhir2Servlet";
+	
+	// the path OpenMRS serves module servlets under
+	static final String MODULE_SERVLET_PATH = "/ms";
+	
+	private static final long SERVLET_POLL_INTERVAL_MILLIS = 500L;
+	
+	// returned by a stub's handler for methods it doesn't answer, which then return an empty value
+	private static final Object NO_VALUE = new Object();
+	
+	private Function<String, HttpServlet> servletLookup = WebModuleUtil::getServlet;
+	
+	private long servletWaitMillis = 60_000L;
+	
+	@Override
+	public void warmUp() throws Exception {
+		HttpServlet servlet = waitForServlet();
+		if (servlet == null) {
+			log.debug("The {} servlet was not registered within {} ms; skipping warm-up", SERVLET_NAME, servletWaitMillis);
+			return;
+		}
+		
+		String contextPath = servlet.getServletContext() == null ? "" : servlet.getServletContext().getContextPath();
+		servlet.service(newRequest(contextPath, "/metadata"), newResponse());
+	}
+	
+	private HttpServlet waitForServlet() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + servletWaitMillis;
+		HttpServlet servlet = servletLookup.apply(SERVLET_NAME);
+		while (servlet == null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(SERVLET_POLL_INTERVAL_MILLIS);
+			servlet = servletLookup.apply(SERVLET_NAME);
+		}
+		
+		return servlet;
+	}
+	
+	private static HttpServletRequest newRequest(String contextPath, String path) {
+		String pathInfo = "/" + SERVLET_NAME + path;
+		String requestUri = contextPath + MODULE_SERVLET_PATH + pathInfo;
+		
+		Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		headers.put(Constants.HEADER_ACCEPT, Constants.CT_FHIR_JSON_NEW);
+		// never serve or store a cached response
+		headers.put(Constants.HEADER_CACHE_CONTROL, Constants.CACHE_CONTROL_NO_CACHE);
+		
+		Map<String, Object> attributes = new HashMap<>();
+		
+		return stub(HttpServletRequest.class, (method, args) -> {
+			switch (method) {
+				case "getMethod":
+					return "GET";
+				case "getScheme":
+					return "http";
+				case "getProtocol":
+					return "HTTP/1.1";
+				case "getServerName":
+				case "getLocalName":
+					return "localhost";
+				case "getServerPort":
+				case "getLocalPort":
+					return 80;
+				case "getContextPath":
+					return contextPath;
+				case "getServletPath":
+					return MODULE_SERVLET_PATH;
+				case "getPathInfo":
+					return pathInfo;
+				case "getRequestURI":
+					return requestUri;
+				case "getRequestURL":
+					return new StringBuffer("http://localhost").append(requestUri);
+				case "getHeader":
+					return headers.get(args[0]);
+				case "getHeaders":
+					String header = headers.get(args[0]);
+					return Collections.enumeration(
+					    header == null ? Collections.<String> emptyList() : Collections.singletonList(header));
+				case "getHeaderNames":
+					return Collections.enumeration(headers.keySet());
+				case "getLocale":
+					return Locale.getDefault();
+				case "getLocales":
+					return Collections.enumeration(Collections.singletonList(Locale.getDefault()));
+				case "getAttribute":
+					return attributes.get(args[0]);
+				case "getAttributeNames":
+					return Collections.enumeration(attributes.keySet());
+				case "setAttribute":
+					attributes.put((String) args[0], args[1]);
+					return null;
+				case "removeAttribute":
+					attributes.remove(args[0]);
+					return null;
+				default:
+					return NO_VALUE;
+			}
+		});
+	}
+	
+	private static HttpServletResponse newResponse() {
+		ServletOutputStream outputStream = new ServletOutputStream() {
+			
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+			
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+			
+			@Override
+			public void write(int b) {
+			}
+		};
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		
+		return stub(HttpServletResponse.class, (method, args) -> {
+			switch (method) {
+				case "getOutputStream":
+					return outputStream;
+				case "getWriter":
+					return writer;
+				case "getCharacterEncoding":
+					return StandardCharsets.UTF_8.name();
+				default:
+					return NO_VALUE;
+			}
+		});
+	}
+	
+	private static <T> T stub(Class<T> type, BiFunction<String, Object[], Object> handler) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "warm-up " + type.getSimpleName();
+			}
+			
+			Object value = handler.apply(method.getName(), args);
+			return value == NO_VALUE ? emptyValue(method.getReturnType()) : value;
+		}));
+	}
+	
+	private static Object emptyValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		} else if (Enumeration.class.isAssignableFrom(type)) {
+			return Collections.emptyEnumeration();
+		} else if (Map.class.isAssignableFrom(type)) {
+			return Collections.emptyMap();
+		} else if (Collection.class.isAssignableFrom(type)) {
+			return Collections.emptyList();
+		}
+		
+		return null;
+	}
+}
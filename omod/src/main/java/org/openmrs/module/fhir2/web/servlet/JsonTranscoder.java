@@ -0,0 +1,178 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import ca.uhn.fhir.rest.api.Constants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Converts between the JSON encoding of FHIR resources and the {@link BinaryEncoding}s, one token
+ * at a time, so that neither side is ever held as a tree in memory.
+ */
+final class JsonTranscoder {
+	
+	static final JsonFactory JSON_FACTORY = new JsonFactory();
+	
+	private JsonTranscoder() {
+	}
+	
+	/**
+	 * Reads a binary-encoded body and returns it encoded as JSON
+	 *
+	 * @param input the binary-encoded body
+	 * @param encoding the encoding of the body
+	 * @return the body as UTF-8 encoded JSON
+	 */
+	static byte[] toJson(InputStream input, BinaryEncoding encoding) throws IOException {
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		try (JsonParser parser = encoding.getFactory().createParser(input);
+		        JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				copyToken(token, parser, generator);
+			}
+		}
+		
+		return json.toByteArray();
+	}
+	
+	/**
+	 * @param contentType a content type, optionally with parameters
+	 * @return whether the content type is one of the JSON content types HAPI writes
+	 */
+	static boolean isJson(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		
+		String type = StringUtils.substringBefore(contentType, ";").trim().toLowerCase(Locale.ROOT);
+		return Constants.CT_FHIR_JSON_NEW.equals(type) || Constants.CT_FHIR_JSON.equals(type)
+		        || Constants.CT_JSON.equals(type);
+	}
+	
+	/**
+	 * Writes the token the parser is positioned on to the generator
+	 */
+	static void copyToken(JsonToken token, JsonParser parser, JsonGenerator generator) throws IOException {
+		switch (token) {
+			case VALUE_NUMBER_FLOAT:
+				// FHIR decimals are significant to the last digit, e.g. 1.50 must not become 1.5
+				generator.writeNumber(parser.getDecimalValue());
+				break;
+			case VALUE_EMBEDDED_OBJECT:
+				// binary values are written as base64 strings, which is how FHIR represents them in JSON
+				generator.writeBinary(parser.getBinaryValue());
+				break;
+			default:
+				generator.copyCurrentEvent(parser);
+		}
+	}
+	
+	/**
+	 * Output stream that accepts a JSON document and writes it to the underlying stream in a binary
+	 * encoding as it arrives. Nothing is written to the underlying stream once the JSON is complete
+	 * until {@link #finish()} is called.
+	 */
+	static class TranscodingOutputStream extends ServletOutputStream {
+		
+		private final ServletOutputStream servletOutputStream;
+		
+		private final JsonParser parser;
+		
+		private final ByteArrayFeeder feeder;
+		
+		private final JsonGenerator generator;
+		
+		private boolean finished = false;
+		
+		TranscodingOutputStream(OutputStream target, ServletOutputStream servletOutputStream, BinaryEncoding encoding)
+		        throws IOException {
+			this.servletOutputStream = servletOutputStream;
+			this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+			this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+			this.generator = encoding.getFactory().createGenerator(target);
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (finished) {
+				throw new IOException("Response has already been completed");
+			}
+			
+			if (len > 0) {
+				feeder.feedInput(b, off, off + len);
+				drain();
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			if (!finished) {
+				generator.flush();
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			finish();
+		}
+		
+		/**
+		 * Writes out any tokens still buffered and closes the underlying stream
+		 */
+		void finish() throws IOException {
+			if (finished) {
+				return;
+			}
+			
+			finished = true;
+			feeder.endOfInput();
+			drain();
+			parser.close();
+			generator.close();
+		}
+		
+		@Override
+		public boolean isReady() {
+			return servletOutputStream.isReady();
+		}
+		
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			servletOutputStream.setWriteListener(writeListener);
+		}
+		
+		private void drain() throws IOException {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+				copyToken(token, parser, generator);
+			}
+		}
+	}
+}
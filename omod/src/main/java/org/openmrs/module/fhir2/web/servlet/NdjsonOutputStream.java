@@ -0,0 +1,214 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+/**
+ * Output stream that accepts the JSON written by HAPI and writes it to the underlying stream as
+ * NDJSON, one resource per line, as it arrives. The entries of a Bundle are written without the
+ * Bundle itself; any other resource, e.g. an OperationOutcome, is written as a single line.
+ * Resources can also be written directly with {@link #writeLine(String)}.
+ */
+class NdjsonOutputStream extends ServletOutputStream {
+	
+	private static final String RESOURCE_TYPE = "resourceType";
+	
+	private static final String ENTRY = "entry";
+	
+	private static final String RESOURCE = "resource";
+	
+	private final OutputStream target;
+	
+	private final ServletOutputStream servletOutputStream;
+	
+	private final JsonParser parser;
+	
+	private final ByteArrayFeeder feeder;
+	
+	private final JsonGenerator generator;
+	
+	// the nesting depth in the document, not counting the resource being copied
+	private int depth = 0;
+	
+	// the name of the current field of the outermost object
+	private String field;
+	
+	private boolean bundle = false;
+	
+	private boolean nextObjectIsResource = false;
+	
+	// the nesting depth in the resource being copied, zero when no resource is being copied
+	private int copyDepth = 0;
+	
+	private boolean finished = false;
+	
+	NdjsonOutputStream(OutputStream target, ServletOutputStream servletOutputStream) throws IOException {
+		this.target = target;
+		this.servletOutputStream = servletOutputStream;
+		this.parser = JsonTranscoder.JSON_FACTORY.createNonBlockingByteArrayParser();
+		this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+		this.generator = JsonTranscoder.JSON_FACTORY.createGenerator(target);
+		// lines are ended explicitly, as NDJSON requires every line, including the last, to be ended
+		this.generator.setRootValueSeparator(null);
+	}
+	
+	/**
+	 * Writes a line to the underlying stream
+	 *
+	 * @param json a resource encoded as JSON on a single line
+	 */
+	void writeLine(String json) throws IOException {
+		if (finished) {
+			throw new IOException("Response has already been completed");
+		}
+		
+		generator.flush();
+		target.write(json.getBytes(StandardCharsets.UTF_8));
+		target.write('\n');
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (finished) {
+			throw new IOException("Response has already been completed");
+		}
+		
+		if (len > 0) {
+			feeder.feedInput(b, off, off + len);
+			drain();
+		}
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		if (!finished) {
+			generator.flush();
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		finish();
+	}
+	
+	/**
+	 * Writes out any lines still buffered and closes the underlying stream
+	 */
+	void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		
+		finished = true;
+		feeder.endOfInput();
+		drain();
+		parser.close();
+		generator.close();
+	}
+	
+	@Override
+	public boolean isReady() {
+		return servletOutputStream.isReady();
+	}
+	
+	@Override
+	public void setWriteListener(WriteListener writeListener) {
+		servletOutputStream.setWriteListener(writeListener);
+	}
+	
+	private void drain() throws IOException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+			if (copyDepth > 0) {
+				copy(token);
+			} else {
+				skip(token);
+			}
+		}
+	}
+	
+	private void copy(JsonToken token) throws IOException {
+		JsonTranscoder.copyToken(token, parser, generator);
+		if (token.isStructStart()) {
+			copyDepth++;
+		} else if (token.isStructEnd() && --copyDepth == 0) {
+			endLine();
+		}
+	}
+	
+	private void skip(JsonToken token) throws IOException {
+		boolean resource = nextObjectIsResource;
+		nextObjectIsResource = false;
+		
+		switch (token) {
+			case START_OBJECT:
+				if (resource) {
+					copy(token);
+					return;
+				}
+				// fall through
+			case START_ARRAY:
+				depth++;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				if (--depth == 0) {
+					bundle = false;
+					field = null;
+				}
+				break;
+			case FIELD_NAME:
+				if (depth == 1) {
+					field = parser.getCurrentName();
+				} else if (depth == 3 && bundle && ENTRY.equals(field)) {
+					// the resource of an entry
+					nextObjectIsResource = RESOURCE.equals(parser.getCurrentName());
+				}
+				break;
+			case VALUE_STRING:
+				if (depth == 1 && RESOURCE_TYPE.equals(field)) {
+					if ("Bundle".equals(parser.getText())) {
+						bundle = true;
+					} else {
+						// HAPI writes the resource type first, so the rest of the resource can be copied as-is
+						generator.writeStartObject();
+						generator.writeStringField(RESOURCE_TYPE, parser.getText());
+						copyDepth = 1;
+						depth = 0;
+						field = null;
+					}
+				}
+				break;
+			default:
+				break;
+		}
+	}
+	
+	private void endLine() throws IOException {
+		generator.flush();
+		target.write('\n');
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.util.UrlUtil;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Response wrapper that writes a response as NDJSON, one resource per line, when the client asks for
+ * it with {@code _format=ndjson} or an NDJSON media type in the Accept header.
+ * <p>
+ * Resources found by searches that stream their results are written with
+ * {@link #writeResource(String)} as they are translated. Whatever HAPI writes afterwards, usually a
+ * Bundle holding any results that weren't streamed, is transcoded by the {@link NdjsonOutputStream}
+ * as it is written. Error responses written before anything was streamed are passed through as JSON,
+ * so that clients see the status code. {@link #finish()} must be called once the response has been
+ * written. Requests with any of the parameters that shape a Bundle, such as {@code _count} or
+ * {@code _include}, are rejected, as they can't be applied to results that are streamed.
+ * </p>
+ */
+public class NdjsonResponseWrapper extends HttpServletResponseWrapper {
+	
+	public static final String CONTENT_TYPE = "application/fhir+ndjson";
+	
+	private static final List<String> FORMATS = Arrays.asList("ndjson", CONTENT_TYPE, "application/ndjson",
+	    "application/x-ndjson");
+	
+	// parameters that shape a Bundle, which an NDJSON response doesn't have, or that streamed results
+	// can't honour, as they are written as they are translated
+	private static final List<String> UNSUPPORTED_PARAMETERS = Arrays.asList(Constants.PARAM_COUNT,
+	    Constants.PARAM_SUMMARY, Constants.PARAM_ELEMENTS, Constants.PARAM_INCLUDE, Constants.PARAM_REVINCLUDE);
+	
+	private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+	
+	private final HttpServletRequest request;
+	
+	private String jsonContentType;
+	
+	private NdjsonOutputStream outputStream;
+	
+	private PrintWriter writer;
+	
+	public NdjsonResponseWrapper(HttpServletRequest request, HttpServletResponse response) {
+		super(response);
+		this.request = request;
+	}
+	
+	/**
+	 * @param request the request
+	 * @return whether the client asked for the response to be written as NDJSON
+	 */
+	public static boolean isRequested(HttpServletRequest request) {
+		String format = BinaryEncodingRequestWrapper.getFormat(request);
+		if (format == null) {
+			format = StringUtils.substringBefore(request.getHeader(Constants.HEADER_ACCEPT), ",");
+		}
+		
+		return format != null
+		        && FORMATS.contains(StringUtils.substringBefore(format, ";").trim().toLowerCase(Locale.ROOT));
+	}
+	
+	/**
+	 * @param request the request
+	 * @return the first parameter of the request that can't be applied to an NDJSON response or null if
+	 *         there is none
+	 */
+	public static String getUnsupportedParameter(HttpServletRequest request) {
+		Set<String> names = new HashSet<>(request.getParameterMap().keySet());
+		if (request.getQueryString() != null) {
+			// HAPI reads the parameters of GET requests from the query string
+			names.addAll(UrlUtil.parseQueryString(request.getQueryString()).keySet());
+		}
+		
+		for (String name : names) {
+			// e.g. _include:iterate or _elements:exclude
+			String parameter = StringUtils.substringBefore(name, ":");
+			if (UNSUPPORTED_PARAMETERS.contains(parameter)) {
+				return parameter;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Writes a resource as the next line of the response, starting a successful NDJSON response if
+	 * nothing has been written yet
+	 *
+	 * @param json the resource, encoded as JSON on a single line
+	 */
+	public void writeResource(String json) throws IOException {
+		if (!isStreaming()) {
+			super.setStatus(HttpServletResponse.SC_OK);
+			startStreaming(Constants.CT_FHIR_JSON_NEW);
+		}
+		
+		getNdjsonOutputStream().writeLine(json);
+	}
+	
+	@Override
+	public void setContentType(String type) {
+		if (isStreaming()) {
+			return;
+		}
+		
+		if (JsonTranscoder.isJson(type) && getStatus() < HttpServletResponse.SC_MULTIPLE_CHOICES) {
+			startStreaming(type);
+		} else {
+			super.setContentType(type);
+		}
+	}
+	
+	@Override
+	public String getContentType() {
+		return isStreaming() ? jsonContentType : super.getContentType();
+	}
+	
+	@Override
+	public void setStatus(int sc) {
+		// once lines have been written, the response has succeeded as far as the client is concerned
+		if (!isStreaming()) {
+			super.setStatus(sc);
+		}
+	}
+	
+	@Override
+	public void setCharacterEncoding(String charset) {
+		if (!isStreaming()) {
+			super.setCharacterEncoding(charset);
+		}
+	}
+	
+	@Override
+	public String getCharacterEncoding() {
+		return isStreaming() ? StandardCharsets.UTF_8.name() : super.getCharacterEncoding();
+	}
+	
+	@Override
+	public void setContentLength(int len) {
+		if (!isStreaming()) {
+			super.setContentLength(len);
+		}
+	}
+	
+	@Override
+	public void setContentLengthLong(long len) {
+		if (!isStreaming()) {
+			super.setContentLengthLong(len);
+		}
+	}
+	
+	@Override
+	public void setHeader(String name, String value) {
+		if (!handleHeader(name, value)) {
+			super.setHeader(name, value);
+		}
+	}
+	
+	@Override
+	public void addHeader(String name, String value) {
+		if (!handleHeader(name, value)) {
+			super.addHeader(name, value);
+		}
+	}
+	
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		return isStreaming() ? getNdjsonOutputStream() : super.getOutputStream();
+	}
+	
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (!isStreaming()) {
+			return super.getWriter();
+		}
+		
+		if (writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(getNdjsonOutputStream(), StandardCharsets.UTF_8));
+		}
+		
+		return writer;
+	}
+	
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		
+		super.flushBuffer();
+	}
+	
+	/**
+	 * Writes out the rest of the response, if any
+	 */
+	public void finish() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		
+		if (outputStream != null) {
+			outputStream.finish();
+		}
+	}
+	
+	boolean isStreaming() {
+		return jsonContentType != null;
+	}
+	
+	private void startStreaming(String type) {
+		jsonContentType = type;
+		super.setContentType(CONTENT_TYPE);
+	}
+	
+	private NdjsonOutputStream getNdjsonOutputStream() throws IOException {
+		if (outputStream == null) {
+			ServletOutputStream servletOutputStream = super.getOutputStream();
+			OutputStream target = servletOutputStream;
+			if (StringUtils.contains(request.getHeader(Constants.HEADER_ACCEPT_ENCODING), Constants.ENCODING_GZIP)) {
+				super.setHeader(Constants.HEADER_CONTENT_ENCODING, Constants.ENCODING_GZIP);
+				super.addHeader(Constants.HEADER_VARY, Constants.HEADER_ACCEPT_ENCODING);
+				target = new GZIPOutputStream(servletOutputStream);
+			}
+			
+			outputStream = new NdjsonOutputStream(target, servletOutputStream);
+		}
+		
+		return outputStream;
+	}
+	
+	private boolean handleHeader(String name, String value) {
+		if (Constants.HEADER_CONTENT_TYPE.equalsIgnoreCase(name)) {
+			setContentType(value);
+			return true;
+		}
+		
+		return isStreaming() && HEADER_CONTENT_LENGTH.equalsIgnoreCase(name);
+	}
+}
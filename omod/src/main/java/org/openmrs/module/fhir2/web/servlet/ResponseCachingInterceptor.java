@@ -0,0 +1,204 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openmrs.Privilege;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.api.util.EncodedResponseCache;
+import org.openmrs.module.fhir2.api.util.EncodedResponseCache.CachedResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * HAPI interceptor that serves reads and searches of the resource types configured in
+ * {@link org.openmrs.module.fhir2.FhirConstants#OPENMRS_FHIR_RESPONSE_CACHE_RESOURCE_TYPES} from the
+ * {@link EncodedResponseCache}. Responses are keyed by the normalised request URL, the requested
+ * format and encoding, the user's locale and the user's privileges, so users only ever see responses
+ * built for users who could see the same data.
+ * <p>
+ * The body of a cacheable response is captured by the {@link CapturingResponseWrapper} the
+ * {@link FhirRestServlet} wraps every response in, and stored by
+ * {@link #responseCompleted(HttpServletRequest, CapturingResponseWrapper)} once the response is
+ * complete.
+ * </p>
+ */
+@Component
+@Interceptor
+@Setter(AccessLevel.PACKAGE)
+public class ResponseCachingInterceptor {
+	
+	static final String PENDING_RESPONSE_ATTRIBUTE = ResponseCachingInterceptor.class.getName() + ".pending";
+	
+	private static final String[] CACHED_HEADERS = { Constants.HEADER_CONTENT_ENCODING, Constants.HEADER_ETAG,
+	        Constants.HEADER_LAST_MODIFIED, Constants.HEADER_CONTENT_LOCATION };
+	
+	@Autowired
+	private EncodedResponseCache responseCache;
+	
+	/**
+	 * @param resourceTypes a comma-separated list of the resource types whose responses are cached
+	 */
+	public void setCachedResourceTypes(String resourceTypes) {
+		responseCache.setResourceTypes(Arrays.stream(StringUtils.defaultString(resourceTypes).split(","))
+		        .map(String::trim).filter(StringUtils::isNotBlank).collect(Collectors.toList()));
+	}
+	
+	@Hook(Pointcut.SERVER_INCOMING_REQUEST_POST_PROCESSED)
+	public boolean serveCachedResponse(RequestDetails requestDetails, HttpServletRequest request,
+	        HttpServletResponse response) throws IOException {
+		if (!isCacheable(requestDetails, request)) {
+			return true;
+		}
+		
+		String key = buildKey(requestDetails, request);
+		CachedResponse cachedResponse = responseCache.get(key);
+		if (cachedResponse != null) {
+			response.setStatus(HttpServletResponse.SC_OK);
+			cachedResponse.getHeaders().forEach(response::setHeader);
+			response.setContentLength(cachedResponse.getBody().length);
+			response.getOutputStream().write(cachedResponse.getBody());
+			return false;
+		}
+		
+		String resourceType = requestDetails.getResourceName();
+		request.setAttribute(PENDING_RESPONSE_ATTRIBUTE,
+		    new PendingResponse(key, resourceType, responseCache.getGeneration(resourceType)));
+		return true;
+	}
+	
+	@Hook(Pointcut.SERVER_OUTGOING_RESPONSE)
+	public boolean checkOutgoingResponse(ServletRequestDetails requestDetails, IBaseResource resource) {
+		// the next link of a paged search points to a page this server only keeps for a while, so only
+		// complete search results are cached
+		if (resource instanceof Bundle && ((Bundle) resource).getLink(Bundle.LINK_NEXT) != null) {
+			requestDetails.getServletRequest().removeAttribute(PENDING_RESPONSE_ATTRIBUTE);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Caches the response to the given request if it was marked as cacheable and succeeded
+	 *
+	 * @param request the request
+	 * @param response the wrapped response, which holds a copy of the body of cacheable responses
+	 */
+	public void responseCompleted(HttpServletRequest request, CapturingResponseWrapper response) {
+		PendingResponse pending = (PendingResponse) request.getAttribute(PENDING_RESPONSE_ATTRIBUTE);
+		if (pending == null || response.getStatus() != HttpServletResponse.SC_OK) {
+			return;
+		}
+		
+		byte[] body = response.getCapturedBody();
+		if (body == null) {
+			return;
+		}
+		
+		Map<String, String> headers = new LinkedHashMap<>();
+		if (response.getContentType() != null) {
+			headers.put(Constants.HEADER_CONTENT_TYPE, response.getContentType());
+		}
+		
+		for (String header : CACHED_HEADERS) {
+			String value = response.getHeader(header);
+			if (value != null) {
+				headers.put(header, value);
+			}
+		}
+		
+		responseCache.put(pending.key, new CachedResponse(pending.resourceType, headers, body), pending.generation);
+	}
+	
+	static boolean isPending(HttpServletRequest request) {
+		return request.getAttribute(PENDING_RESPONSE_ATTRIBUTE) != null;
+	}
+	
+	private boolean isCacheable(RequestDetails requestDetails, HttpServletRequest request) {
+		RestOperationTypeEnum operation = requestDetails.getRestOperationType();
+		return requestDetails.getRequestType() == RequestTypeEnum.GET
+		        && (operation == RestOperationTypeEnum.READ || operation == RestOperationTypeEnum.VREAD
+		                || operation == RestOperationTypeEnum.SEARCH_TYPE)
+		        && responseCache.isCacheable(requestDetails.getResourceName())
+		        && !StringUtils.contains(request.getHeader(Constants.HEADER_CACHE_CONTROL),
+		            Constants.CACHE_CONTROL_NO_CACHE);
+	}
+	
+	private static String buildKey(RequestDetails requestDetails, HttpServletRequest request) {
+		StringBuilder key = new StringBuilder(requestDetails.getFhirServerBase()).append('/')
+		        .append(requestDetails.getRequestPath()).append('?');
+		
+		// parameters are sorted so that the same query always has the same key
+		new TreeMap<>(requestDetails.getParameters()).forEach((name, values) -> {
+			for (String value : values) {
+				key.append(name).append('=').append(value).append('&');
+			}
+		});
+		
+		key.append("|accept=").append(StringUtils.defaultString(request.getHeader(Constants.HEADER_ACCEPT)));
+		key.append("|gzip=").append(
+		    StringUtils.contains(request.getHeader(Constants.HEADER_ACCEPT_ENCODING), Constants.ENCODING_GZIP));
+		key.append("|locale=").append(Context.getLocale());
+		key.append("|privileges=").append(getPrivilegeKey());
+		
+		return key.toString();
+	}
+	
+	private static String getPrivilegeKey() {
+		User user = Context.getAuthenticatedUser();
+		if (user == null) {
+			return "";
+		}
+		
+		if (user.isSuperUser()) {
+			return "*";
+		}
+		
+		return user.getPrivileges().stream().map(Privilege::getPrivilege).sorted().collect(Collectors.joining(","));
+	}
+	
+	private static class PendingResponse {
+		
+		private final String key;
+		
+		private final String resourceType;
+		
+		private final long generation;
+		
+		private PendingResponse(String key, String resourceType, long generation) {
+			this.key = key;
+			this.resourceType = resourceType;
+			this.generation = generation;
+		}
+	}
+}
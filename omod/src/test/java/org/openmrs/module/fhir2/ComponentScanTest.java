@@ -0,0 +1,116 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assume.assumeTrue;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import java.io.InputStream;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Element;
+
+/**
+ * Checks that the packages scanned by moduleApplicationContext.xml contain every component in the
+ * module. It lives in omod, whose classpath has the components of api, api-2.1, api-2.2 and omod
+ * itself. When run with {@code -Dfhir2.benchmarkComponentScan=true}, it also logs how long scanning
+ * them takes compared to scanning the whole module.
+ */
+public class ComponentScanTest {
+	
+	private static final Logger log = LoggerFactory.getLogger(ComponentScanTest.class);
+	
+	private static final String MODULE_PACKAGE = "org.openmrs.module.fhir2";
+	
+	private static final String CONTEXT_NAMESPACE = "http://www.springframework.org/schema/context";
+	
+	private static final String BENCHMARK_PROPERTY = "fhir2.benchmarkComponentScan";
+	
+	private static final int ROUNDS = 20;
+	
+	private String[] scannedPackages;
+	
+	@Before
+	public void setup() throws Exception {
+		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		documentBuilderFactory.setNamespaceAware(true);
+		
+		try (InputStream context = getClass().getClassLoader().getResourceAsStream("moduleApplicationContext.xml")) {
+			Element componentScan = (Element) documentBuilderFactory.newDocumentBuilder().parse(context)
+			        .getElementsByTagNameNS(CONTEXT_NAMESPACE, "component-scan").item(0);
+			scannedPackages = StringUtils.tokenizeToStringArray(componentScan.getAttribute("base-package"),
+			    ConfigurableApplicationContext.CONFIG_LOCATION_DELIMITERS);
+		}
+	}
+	
+	@Test
+	public void scannedPackages_shouldContainEveryComponentInTheModule() {
+		Set<String> moduleComponents = scan(MODULE_PACKAGE);
+		
+		assertThat(moduleComponents, not(empty()));
+		assertThat(scan(scannedPackages), equalTo(moduleComponents));
+	}
+	
+	@Test
+	public void scannedPackages_shouldBenchmarkAgainstScanningTheWholeModule() {
+		// only a measurement, so it is skipped unless asked for
+		assumeTrue(Boolean.getBoolean(BENCHMARK_PROPERTY));
+		
+		// the first rounds warm up class loading and the JIT for both variants
+		for (int i = 0; i < ROUNDS; i++) {
+			scan(MODULE_PACKAGE);
+			scan(scannedPackages);
+		}
+		
+		long moduleNanos = 0;
+		long scannedNanos = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			scan(MODULE_PACKAGE);
+			moduleNanos += System.nanoTime() - start;
+			
+			start = System.nanoTime();
+			scan(scannedPackages);
+			scannedNanos += System.nanoTime() - start;
+		}
+		
+		log.info("Scanning {} took {} ms on average; scanning only the component packages took {} ms", MODULE_PACKAGE,
+		    TimeUnit.NANOSECONDS.toMillis(moduleNanos / ROUNDS), TimeUnit.NANOSECONDS.toMillis(scannedNanos / ROUNDS));
+	}
+	
+	// a new provider each time, as it caches the class metadata it has read
+	private static Set<String> scan(String... packages) {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		
+		Set<String> components = new TreeSet<>();
+		for (String basePackage : packages) {
+			for (BeanDefinition candidate : provider.findCandidateComponents(basePackage)) {
+				components.add(candidate.getBeanClassName());
+			}
+		}
+		
+		return components;
+	}
+}
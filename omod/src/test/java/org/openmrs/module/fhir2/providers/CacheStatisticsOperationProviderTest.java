@@ -0,0 +1,110 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import ca.uhn.fhir.rest.server.exceptions.ForbiddenOperationException;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.fhir2.api.FhirCacheStatisticsService;
+import org.openmrs.util.PrivilegeConstants;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CacheStatisticsOperationProviderTest {
+	
+	private static final String TASK_REGION = "org.openmrs.module.fhir2.FhirTask";
+	
+	@Mock
+	private FhirCacheStatisticsService cacheStatisticsService;
+	
+	@Mock
+	private SecondLevelCacheStatistics taskStatistics;
+	
+	@Mock
+	private UserContext userContext;
+	
+	private CacheStatisticsOperationProvider operationProvider;
+	
+	@Before
+	public void setup() {
+		operationProvider = new CacheStatisticsOperationProvider();
+		operationProvider.setCacheStatisticsService(cacheStatisticsService);
+		
+		Context.setUserContext(userContext);
+	}
+	
+	@After
+	public void tearDown() {
+		Context.clearUserContext();
+	}
+	
+	@Test
+	public void getCacheStatistics_shouldReportEachRegion() {
+		when(userContext.hasPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)).thenReturn(true);
+		when(cacheStatisticsService.isStatisticsEnabled()).thenReturn(true);
+		when(cacheStatisticsService.getCacheRegionStatistics())
+		        .thenReturn(Collections.singletonMap(TASK_REGION, taskStatistics));
+		when(taskStatistics.getHitCount()).thenReturn(7L);
+		when(taskStatistics.getMissCount()).thenReturn(2L);
+		when(taskStatistics.getPutCount()).thenReturn(3L);
+		when(taskStatistics.getElementCountInMemory()).thenReturn(Long.MAX_VALUE);
+		
+		Parameters parameters = operationProvider.getCacheStatistics();
+		
+		assertThat(((BooleanType) parameters.getParameter("statisticsEnabled")).booleanValue(), equalTo(true));
+		
+		List<Parameters.ParametersParameterComponent> regions = parameters.getParameter().subList(1,
+		    parameters.getParameter().size());
+		assertThat(regions, hasSize(1));
+		
+		List<Parameters.ParametersParameterComponent> parts = regions.get(0).getPart();
+		assertThat(((StringType) parts.get(0).getValue()).getValue(), equalTo(TASK_REGION));
+		assertThat(((IntegerType) parts.get(1).getValue()).getValue(), equalTo(7));
+		assertThat(((IntegerType) parts.get(2).getValue()).getValue(), equalTo(2));
+		assertThat(((IntegerType) parts.get(3).getValue()).getValue(), equalTo(3));
+		assertThat(((IntegerType) parts.get(4).getValue()).getValue(), equalTo(Integer.MAX_VALUE));
+	}
+	
+	@Test
+	public void getCacheStatistics_shouldReportNoRegionsWhenNoneAreInUse() {
+		when(userContext.hasPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)).thenReturn(true);
+		when(cacheStatisticsService.getCacheRegionStatistics()).thenReturn(Collections.emptyMap());
+		
+		Parameters parameters = operationProvider.getCacheStatistics();
+		
+		assertThat(parameters.getParameter(), hasSize(1));
+		assertThat(((BooleanType) parameters.getParameter("statisticsEnabled")).booleanValue(), equalTo(false));
+	}
+	
+	@Test(expected = ForbiddenOperationException.class)
+	public void getCacheStatistics_shouldRequireAdministrationPrivilege() {
+		when(userContext.hasPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)).thenReturn(false);
+		
+		operationProvider.getCacheStatistics();
+	}
+}
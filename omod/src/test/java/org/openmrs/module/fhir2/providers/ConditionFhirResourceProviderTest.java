@@ -16,10 +16,17 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.api.SortSpec;
@@ -45,6 +52,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.module.fhir2.api.FhirConditionService;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
+import org.openmrs.module.fhir2.api.util.ConditionalWriteOutcome;
 import org.openmrs.module.fhir2.web.servlet.BaseFhirProvenanceResourceTest;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -57,6 +66,9 @@ public class ConditionFhirResourceProviderTest extends BaseFhirProvenanceResourc
 	@Mock
 	private FhirConditionService conditionService;
 	
+	@Mock
+	private FhirResourceIdentifierService resourceIdentifierService;
+	
 	private Condition condition;
 	
 	private ConditionFhirResourceProvider resourceProvider;
@@ -65,6 +77,7 @@ public class ConditionFhirResourceProviderTest extends BaseFhirProvenanceResourc
 	public void setUp() {
 		resourceProvider = new ConditionFhirResourceProvider();
 		resourceProvider.setConditionService(conditionService);
+		resourceProvider.setResourceIdentifierService(resourceIdentifierService);
 	}
 	
 	@Before
@@ -124,7 +137,7 @@ public class ConditionFhirResourceProviderTest extends BaseFhirProvenanceResourc
 	public void shouldCreateNewCondition() {
 		when(conditionService.saveCondition(condition)).thenReturn(condition);
 		
-		MethodOutcome result = resourceProvider.createCondition(condition);
+		MethodOutcome result = resourceProvider.createCondition(condition, null);
 		assertThat(result, notNullValue());
 		assertThat(result.getCreated(), is(true));
 		assertThat(result.getResource(), equalTo(condition));
@@ -154,4 +167,34 @@ public class ConditionFhirResourceProviderTest extends BaseFhirProvenanceResourc
 		assertThat(result.getTotal(), is(1));
 		assertThat(result.getEntry().get(0).getResource(), equalTo(condition));
 	}
+	
+	@Test
+	public void createCondition_shouldCreateConditionWhenNoneHasIdentifier() {
+		when(conditionService.saveCondition(condition)).thenReturn(condition);
+		when(resourceIdentifierService.createIfNoneExist(eq("Condition"),
+		    argThat(identifier -> "http://example.com/conditions".equals(identifier.getSystem())
+		            && "123".equals(identifier.getValue())),
+		    any(), any())).then(invocation -> new ConditionalWriteOutcome<>(
+		        invocation.<Supplier<Condition>> getArgument(2).get(), true));
+		
+		MethodOutcome result = resourceProvider.createCondition(condition, "identifier=http://example.com/conditions|123");
+		
+		assertThat(result.getCreated(), is(true));
+		assertThat(result.getResource(), equalTo(condition));
+	}
+	
+	@Test
+	public void createCondition_shouldReturnExistingConditionWithIdentifier() {
+		when(conditionService.getConditionByUuid(CONDITION_UUID)).thenReturn(condition);
+		when(resourceIdentifierService.createIfNoneExist(eq("Condition"), any(), any(), any()))
+		        .then(invocation -> new ConditionalWriteOutcome<>(
+		            invocation.<Function<String, Condition>> getArgument(3).apply(CONDITION_UUID), false));
+		
+		MethodOutcome result = resourceProvider.createCondition(new Condition(),
+		    "identifier=http://example.com/conditions|123");
+		
+		assertThat(result.getCreated(), is(false));
+		assertThat(result.getResource(), equalTo(condition));
+		verify(conditionService, never()).saveCondition(any());
+	}
 }
@@ -14,8 +14,15 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.MethodNotAllowedException;
@@ -30,6 +37,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.module.fhir2.api.FhirDiagnosticReportService;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
+import org.openmrs.module.fhir2.api.util.ConditionalWriteOutcome;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DiagnosticReportFhirResourceProviderTest {
@@ -41,6 +50,9 @@ public class DiagnosticReportFhirResourceProviderTest {
 	@Mock
 	private FhirDiagnosticReportService service;
 	
+	@Mock
+	private FhirResourceIdentifierService resourceIdentifierService;
+	
 	@Getter(AccessLevel.PUBLIC)
 	private DiagnosticReportFhirResourceProvider resourceProvider;
 	
@@ -50,6 +62,7 @@ public class DiagnosticReportFhirResourceProviderTest {
 	public void setup() {
 		resourceProvider = new DiagnosticReportFhirResourceProvider();
 		resourceProvider.setService(service);
+		resourceProvider.setResourceIdentifierService(resourceIdentifierService);
 	}
 	
 	@Before
@@ -92,7 +105,7 @@ public class DiagnosticReportFhirResourceProviderTest {
 	public void createDiagnosticReport_shouldCreateNewDiagnosticReport() {
 		when(service.saveDiagnosticReport(diagnosticReport)).thenReturn(diagnosticReport);
 		
-		MethodOutcome result = resourceProvider.createDiagnosticReport(diagnosticReport);
+		MethodOutcome result = resourceProvider.createDiagnosticReport(diagnosticReport, null);
 		
 		assertThat(result, notNullValue());
 		assertThat(result.getResource(), equalTo(diagnosticReport));
@@ -102,7 +115,7 @@ public class DiagnosticReportFhirResourceProviderTest {
 	public void updateDiagnosticReport_shouldUpdateExistingDiagnosticReport() {
 		when(service.updateDiagnosticReport(UUID, diagnosticReport)).thenReturn(diagnosticReport);
 		
-		MethodOutcome result = resourceProvider.updateDiagnosticReport(new IdType().setValue(UUID), diagnosticReport);
+		MethodOutcome result = resourceProvider.updateDiagnosticReport(new IdType().setValue(UUID), diagnosticReport, null);
 		
 		assertThat(result, notNullValue());
 		assertThat(result.getResource(), equalTo(diagnosticReport));
@@ -112,7 +125,7 @@ public class DiagnosticReportFhirResourceProviderTest {
 	public void updateDiagnosticReport_shouldThrowInvalidRequestForUuidMismatch() {
 		when(service.updateDiagnosticReport(WRONG_UUID, diagnosticReport)).thenThrow(InvalidRequestException.class);
 		
-		resourceProvider.updateDiagnosticReport(new IdType().setValue(WRONG_UUID), diagnosticReport);
+		resourceProvider.updateDiagnosticReport(new IdType().setValue(WRONG_UUID), diagnosticReport, null);
 	}
 	
 	@Test(expected = InvalidRequestException.class)
@@ -121,7 +134,7 @@ public class DiagnosticReportFhirResourceProviderTest {
 		
 		when(service.updateDiagnosticReport(UUID, noIdDiagnostiReport)).thenThrow(InvalidRequestException.class);
 		
-		resourceProvider.updateDiagnosticReport(new IdType().setValue(UUID), noIdDiagnostiReport);
+		resourceProvider.updateDiagnosticReport(new IdType().setValue(UUID), noIdDiagnostiReport, null);
 	}
 	
 	@Test(expected = MethodNotAllowedException.class)
@@ -132,6 +145,50 @@ public class DiagnosticReportFhirResourceProviderTest {
 		
 		when(service.updateDiagnosticReport(WRONG_UUID, wrongDiagnosticReport)).thenThrow(MethodNotAllowedException.class);
 		
-		resourceProvider.updateDiagnosticReport(new IdType().setValue(WRONG_UUID), wrongDiagnosticReport);
+		resourceProvider.updateDiagnosticReport(new IdType().setValue(WRONG_UUID), wrongDiagnosticReport, null);
+	}
+	
+	@Test
+	public void createDiagnosticReport_shouldReturnExistingDiagnosticReportWithIdentifier() {
+		when(service.getDiagnosticReportByUuid(UUID)).thenReturn(diagnosticReport);
+		when(resourceIdentifierService.createIfNoneExist(eq("DiagnosticReport"), any(), any(), any()))
+		        .then(invocation -> new ConditionalWriteOutcome<>(
+		            invocation.<Function<String, DiagnosticReport>> getArgument(3).apply(UUID), false));
+		
+		MethodOutcome result = resourceProvider.createDiagnosticReport(new DiagnosticReport(),
+		    "identifier=http://example.com/reports|123");
+		
+		assertThat(result.getCreated(), is(false));
+		assertThat(result.getResource(), equalTo(diagnosticReport));
+		verify(service, never()).saveDiagnosticReport(any());
+	}
+	
+	@Test
+	public void createDiagnosticReport_shouldCreateDiagnosticReportWhenNoneHasIdentifier() {
+		when(service.saveDiagnosticReport(diagnosticReport)).thenReturn(diagnosticReport);
+		when(resourceIdentifierService.createIfNoneExist(eq("DiagnosticReport"), any(), any(), any())).then(
+		    invocation -> new ConditionalWriteOutcome<>(invocation.<Supplier<DiagnosticReport>> getArgument(2).get(), true));
+		
+		MethodOutcome result = resourceProvider.createDiagnosticReport(diagnosticReport,
+		    "identifier=http://example.com/reports|123");
+		
+		assertThat(result.getCreated(), is(true));
+		assertThat(result.getResource(), equalTo(diagnosticReport));
+	}
+	
+	@Test
+	public void updateDiagnosticReport_shouldUpdateDiagnosticReportWithIdentifier() {
+		DiagnosticReport update = new DiagnosticReport();
+		when(service.updateDiagnosticReport(UUID, update)).thenReturn(diagnosticReport);
+		when(resourceIdentifierService.updateByIdentifier(eq("DiagnosticReport"), any(), any(), any()))
+		        .then(invocation -> new ConditionalWriteOutcome<>(
+		            invocation.<Function<String, DiagnosticReport>> getArgument(2).apply(UUID), false));
+		
+		MethodOutcome result = resourceProvider.updateDiagnosticReport(null, update,
+		    "DiagnosticReport?identifier=http://example.com/reports|123");
+		
+		assertThat(update.getIdElement().getIdPart(), equalTo(UUID));
+		assertThat(result.getCreated(), is(false));
+		assertThat(result.getResource(), equalTo(diagnosticReport));
 	}
 }
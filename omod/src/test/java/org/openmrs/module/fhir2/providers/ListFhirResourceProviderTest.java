@@ -78,7 +78,7 @@ public class ListFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		when(cohortFhirListService.getListByUuid(LIST_UUID)).thenReturn(list);
 		IdType id = new IdType();
 		id.setValue(LIST_UUID);
-		ListResource result = listFhirResourceProvider.getListById(id);
+		ListResource result = listFhirResourceProvider.getListById(id, null);
 		assertThat(result, notNullValue());
 		assertThat(result.getId(), notNullValue());
 		assertThat(result.getId(), equalTo(LIST_UUID));
@@ -88,7 +88,7 @@ public class ListFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 	public void getListWithWrongId_shouldThrowResourceNotFoundException() {
 		IdType id = new IdType();
 		id.setValue(UNKNOWN_UUID);
-		ListResource result = listFhirResourceProvider.getListById(id);
+		ListResource result = listFhirResourceProvider.getListById(id, null);
 		assertThat(result, nullValue());
 	}
 }
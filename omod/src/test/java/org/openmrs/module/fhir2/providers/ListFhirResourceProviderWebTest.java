@@ -67,6 +67,21 @@ public class ListFhirResourceProviderWebTest extends BaseFhirResourceProviderTes
 		assertThat(resource.getIdElement().getIdPart(), equalTo(LIST_UUID));
 	}
 	
+	@Test
+	public void getListById_shouldReturnPageOfListEntries() throws Exception {
+		ListResource listResource = new ListResource();
+		listResource.setId(LIST_UUID);
+		when(cohortFhirListService.getListByUuid(LIST_UUID, 1, 2)).thenReturn(listResource);
+		
+		MockHttpServletResponse response = get("/List/" + LIST_UUID + "?_offset=1&_count=2").accept(FhirMediaTypes.JSON)
+		        .go();
+		
+		assertThat(response, isOk());
+		
+		ListResource resource = readResponse(response);
+		assertThat(resource.getIdElement().getIdPart(), equalTo(LIST_UUID));
+	}
+	
 	@Test
 	public void shouldReturn404IfListNotFound() throws Exception {
 		when(cohortFhirListService.getListByUuid(UNKNOWN_UUID)).thenReturn(null);
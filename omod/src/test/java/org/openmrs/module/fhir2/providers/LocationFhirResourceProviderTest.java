@@ -130,7 +130,7 @@ public class LocationFhirResourceProviderTest extends BaseFhirProvenanceResource
 		when(locationService.searchForLocations(argThat(Matchers.is(nameParam)), isNull(), isNull(), isNull(), isNull(),
 		    isNull(), isNull(), isNull())).thenReturn(Collections.singletonList(location));
 		
-		Bundle results = resourceProvider.searchLocations(nameParam, null, null, null, null, null, null, null);
+		Bundle results = resourceProvider.searchLocations(nameParam, null, null, null, null, null, null, null, null);
 		
 		assertThat(results, notNullValue());
 		assertThat(results.isResource(), is(true));
@@ -143,7 +143,7 @@ public class LocationFhirResourceProviderTest extends BaseFhirProvenanceResource
 		when(locationService.searchForLocations(isNull(), argThat(Matchers.is(cityParam)), isNull(), isNull(), isNull(),
 		    isNull(), isNull(), isNull())).thenReturn(Collections.singletonList(location));
 		
-		Bundle results = resourceProvider.searchLocations(null, cityParam, null, null, null, null, null, null);
+		Bundle results = resourceProvider.searchLocations(null, cityParam, null, null, null, null, null, null, null);
 		
 		assertThat(results, Matchers.notNullValue());
 		assertThat(results.isResource(), Matchers.is(true));
@@ -156,7 +156,7 @@ public class LocationFhirResourceProviderTest extends BaseFhirProvenanceResource
 		when(locationService.searchForLocations(isNull(), isNull(), argThat(Matchers.is(countryParam)), isNull(), isNull(),
 		    isNull(), isNull(), isNull())).thenReturn(Collections.singletonList(location));
 		
-		Bundle results = resourceProvider.searchLocations(null, null, countryParam, null, null, null, null, null);
+		Bundle results = resourceProvider.searchLocations(null, null, countryParam, null, null, null, null, null, null);
 		
 		assertThat(results, Matchers.notNullValue());
 		assertThat(results.isResource(), Matchers.is(true));
@@ -169,7 +169,7 @@ public class LocationFhirResourceProviderTest extends BaseFhirProvenanceResource
 		when(locationService.searchForLocations(isNull(), isNull(), isNull(), isNull(), argThat(Matchers.is(stateParam)),
 		    isNull(), isNull(), isNull())).thenReturn(Collections.singletonList(location));
 		
-		Bundle results = resourceProvider.searchLocations(null, null, null, null, stateParam, null, null, null);
+		Bundle results = resourceProvider.searchLocations(null, null, null, null, stateParam, null, null, null, null);
 		
 		assertThat(results, Matchers.notNullValue());
 		assertThat(results.isResource(), Matchers.is(true));
@@ -182,7 +182,7 @@ public class LocationFhirResourceProviderTest extends BaseFhirProvenanceResource
 		when(locationService.searchForLocations(isNull(), isNull(), isNull(), argThat(Matchers.is(postalCodeParam)),
 		    isNull(), isNull(), isNull(), isNull())).thenReturn(Collections.singletonList(location));
 		
-		Bundle results = resourceProvider.searchLocations(null, null, null, postalCodeParam, null, null, null, null);
+		Bundle results = resourceProvider.searchLocations(null, null, null, postalCodeParam, null, null, null, null, null);
 		
 		assertThat(results, Matchers.notNullValue());
 		assertThat(results.isResource(), Matchers.is(true));
@@ -196,7 +196,7 @@ public class LocationFhirResourceProviderTest extends BaseFhirProvenanceResource
 		when(locationService.searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), argThat(Matchers.is(tag)),
 		    isNull(), isNull())).thenReturn(Collections.singletonList(location));
 		
-		Bundle results = resourceProvider.searchLocations(null, null, null, null, null, tag, null, null);
+		Bundle results = resourceProvider.searchLocations(null, null, null, null, null, tag, null, null, null);
 		
 		assertThat(results, notNullValue());
 		assertThat(results.isResource(), is(true));
@@ -212,7 +212,7 @@ public class LocationFhirResourceProviderTest extends BaseFhirProvenanceResource
 		
 		StringOrListParam location = new StringOrListParam().add(new StringParam(LOCATION_NAME));
 		
-		Bundle resultLocations = resourceProvider.searchLocations(location, null, null, null, null, null, null, null);
+		Bundle resultLocations = resourceProvider.searchLocations(location, null, null, null, null, null, null, null, null);
 		
 		assertThat(resultLocations, notNullValue());
 		assertThat(resultLocations.isResource(), is(true));
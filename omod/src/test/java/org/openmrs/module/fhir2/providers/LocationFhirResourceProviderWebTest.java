@@ -12,7 +12,10 @@ package org.openmrs.module.fhir2.providers;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNull;
@@ -27,10 +30,16 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import lombok.AccessLevel;
 import lombok.Getter;
 import org.hamcrest.CoreMatchers;
@@ -51,7 +60,9 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirLocationService;
 import org.openmrs.module.fhir2.api.util.FhirUtils;
+import org.openmrs.module.fhir2.api.util.HierarchyReferenceParam;
 import org.openmrs.module.fhir2.web.servlet.BaseFhirResourceProviderTest;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -102,7 +113,7 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 	ArgumentCaptor<StringOrListParam> stringOrListParamCaptor;
 	
 	@Captor
-	ArgumentCaptor<ReferenceOrListParam> referenceOrListParamCaptor;
+	ArgumentCaptor<ReferenceAndListParam> referenceAndListParamCaptor;
 	
 	@Before
 	@Override
@@ -132,6 +143,25 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 		assertThat(resource.getIdElement().getIdPart(), equalTo(LOCATION_UUID));
 	}
 	
+	@Test
+	public void getLocationById_shouldReturnCborEncodedLocationWhenRequested() throws Exception {
+		Location location = new Location();
+		location.setId(LOCATION_UUID);
+		location.setName(LOCATION_NAME);
+		when(locationService.getLocationByUuid(LOCATION_UUID)).thenReturn(location);
+		
+		MockHttpServletResponse response = get("/Location/" + LOCATION_UUID).accept(MediaType.valueOf("application/fhir+cbor"))
+		        .go();
+		
+		assertThat(response, isOk());
+		assertThat(response.getContentType(), equalTo("application/fhir+cbor"));
+		
+		JsonNode resource = new ObjectMapper(new CBORFactory()).readTree(response.getContentAsByteArray());
+		assertThat(resource.get("resourceType").asText(), equalTo("Location"));
+		assertThat(resource.get("id").asText(), equalTo(LOCATION_UUID));
+		assertThat(resource.get("name").asText(), equalTo(LOCATION_NAME));
+	}
+	
 	@Test
 	public void findLocationByName_shouldReturnBundleOfLocationsWithMatchingName() throws Exception {
 		verifyURI(String.format("/Location?name=%s", LOCATION_NAME));
@@ -215,10 +245,60 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 		verifyURI(String.format("/Location?partof=%s", PARENT_LOCATION_ID));
 		
 		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
-		    referenceOrListParamCaptor.capture(), isNull());
-		assertThat(referenceOrListParamCaptor.getValue(), notNullValue());
-		assertThat(referenceOrListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValue(),
-		    equalTo(PARENT_LOCATION_ID.toString()));
+		    referenceAndListParamCaptor.capture(), isNull());
+		assertThat(referenceAndListParamCaptor.getValue(), notNullValue());
+		assertThat(referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0)
+		        .getValue(), equalTo(PARENT_LOCATION_ID.toString()));
+	}
+	
+	@Test
+	public void findLocationsByParent_shouldParseBelowModifier() throws Exception {
+		verifyURI(String.format("/Location?partof:below=Location/%s", LOCATION_UUID));
+		
+		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+		    referenceAndListParamCaptor.capture(), isNull());
+		
+		ReferenceParam parentReference = referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0)
+		        .getValuesAsQueryTokens().get(0);
+		assertThat(parentReference, instanceOf(HierarchyReferenceParam.class));
+		assertThat(((HierarchyReferenceParam) parentReference).getModifier(),
+		    equalTo(HierarchyReferenceParam.Modifier.BELOW));
+		assertThat(parentReference.getIdPart(), equalTo(LOCATION_UUID));
+	}
+	
+	@Test
+	public void findLocationsByParent_shouldParseAboveModifier() throws Exception {
+		verifyURI(String.format("/Location?partof:above=%s", LOCATION_UUID));
+		
+		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+		    referenceAndListParamCaptor.capture(), isNull());
+		
+		ReferenceParam parentReference = referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0)
+		        .getValuesAsQueryTokens().get(0);
+		assertThat(((HierarchyReferenceParam) parentReference).getModifier(),
+		    equalTo(HierarchyReferenceParam.Modifier.ABOVE));
+		assertThat(parentReference.getIdPart(), equalTo(LOCATION_UUID));
+	}
+	
+	@Test
+	public void findLocationsByParent_shouldCombineDirectParentWithHierarchyModifier() throws Exception {
+		verifyURI(String.format("/Location?partof=%s&partof:below=%s", PARENT_LOCATION_ID, LOCATION_UUID));
+		
+		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+		    referenceAndListParamCaptor.capture(), isNull());
+		
+		List<ReferenceOrListParam> parentReferences = referenceAndListParamCaptor.getValue().getValuesAsQueryTokens();
+		assertThat(parentReferences, hasSize(2));
+		
+		ReferenceParam hierarchyReference = parentReferences.get(0).getValuesAsQueryTokens().get(0);
+		assertThat(hierarchyReference, instanceOf(HierarchyReferenceParam.class));
+		assertThat(((HierarchyReferenceParam) hierarchyReference).getModifier(),
+		    equalTo(HierarchyReferenceParam.Modifier.BELOW));
+		assertThat(hierarchyReference.getIdPart(), equalTo(LOCATION_UUID));
+		
+		ReferenceParam directReference = parentReferences.get(1).getValuesAsQueryTokens().get(0);
+		assertThat(directReference, not(instanceOf(HierarchyReferenceParam.class)));
+		assertThat(directReference.getIdPart(), equalTo(PARENT_LOCATION_ID.toString()));
 	}
 	
 	@Test
@@ -226,10 +306,10 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 		verifyURI(String.format("/Location?partof.name=%s", PARENT_LOCATION_NAME));
 		
 		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
-		    referenceOrListParamCaptor.capture(), isNull());
-		assertThat(referenceOrListParamCaptor.getValue(), notNullValue());
-		assertThat(referenceOrListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValue(),
-		    CoreMatchers.equalTo(PARENT_LOCATION_NAME));
+		    referenceAndListParamCaptor.capture(), isNull());
+		assertThat(referenceAndListParamCaptor.getValue(), notNullValue());
+		assertThat(referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0)
+		        .getValue(), CoreMatchers.equalTo(PARENT_LOCATION_NAME));
 	}
 	
 	@Test
@@ -237,10 +317,10 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 		verifyURI(String.format("/Location?partof.address-city=%s", PARENT_LOCATION_CITY));
 		
 		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
-		    referenceOrListParamCaptor.capture(), isNull());
-		assertThat(referenceOrListParamCaptor.getValue(), notNullValue());
-		assertThat(referenceOrListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValue(),
-		    CoreMatchers.equalTo(PARENT_LOCATION_CITY));
+		    referenceAndListParamCaptor.capture(), isNull());
+		assertThat(referenceAndListParamCaptor.getValue(), notNullValue());
+		assertThat(referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0)
+		        .getValue(), CoreMatchers.equalTo(PARENT_LOCATION_CITY));
 	}
 	
 	@Test
@@ -248,10 +328,10 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 		verifyURI(String.format("/Location?partof.address-country=%s", PARENT_LOCATION_COUNTRY));
 		
 		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
-		    referenceOrListParamCaptor.capture(), isNull());
-		assertThat(referenceOrListParamCaptor.getValue(), notNullValue());
-		assertThat(referenceOrListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValue(),
-		    CoreMatchers.equalTo(PARENT_LOCATION_COUNTRY));
+		    referenceAndListParamCaptor.capture(), isNull());
+		assertThat(referenceAndListParamCaptor.getValue(), notNullValue());
+		assertThat(referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0)
+		        .getValue(), CoreMatchers.equalTo(PARENT_LOCATION_COUNTRY));
 	}
 	
 	@Test
@@ -259,10 +339,10 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 		verifyURI(String.format("/Location?partof.address-postalcode=%s", PARENT_LOCATION_POSTAL_CODE));
 		
 		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
-		    referenceOrListParamCaptor.capture(), isNull());
-		assertThat(referenceOrListParamCaptor.getValue(), notNullValue());
-		assertThat(referenceOrListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValue(),
-		    CoreMatchers.equalTo(PARENT_LOCATION_POSTAL_CODE));
+		    referenceAndListParamCaptor.capture(), isNull());
+		assertThat(referenceAndListParamCaptor.getValue(), notNullValue());
+		assertThat(referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0)
+		        .getValue(), CoreMatchers.equalTo(PARENT_LOCATION_POSTAL_CODE));
 	}
 	
 	@Test
@@ -270,10 +350,10 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 		verifyURI(String.format("/Location?partof.address-state=%s", PARENT_LOCATION_STATE));
 		
 		verify(locationService).searchForLocations(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
-		    referenceOrListParamCaptor.capture(), isNull());
-		assertThat(referenceOrListParamCaptor.getValue(), notNullValue());
-		assertThat(referenceOrListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValue(),
-		    CoreMatchers.equalTo(PARENT_LOCATION_STATE));
+		    referenceAndListParamCaptor.capture(), isNull());
+		assertThat(referenceAndListParamCaptor.getValue(), notNullValue());
+		assertThat(referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0)
+		        .getValue(), CoreMatchers.equalTo(PARENT_LOCATION_STATE));
 	}
 	
 	@Test
@@ -281,14 +361,14 @@ public class LocationFhirResourceProviderWebTest extends BaseFhirResourceProvide
 		verifyURI(String.format("/Location?name=%s&partof.address-city=%s", LOCATION_NAME, PARENT_LOCATION_CITY));
 		
 		verify(locationService).searchForLocations(stringOrListParamCaptor.capture(), isNull(), isNull(), isNull(), isNull(),
-		    isNull(), referenceOrListParamCaptor.capture(), isNull());
+		    isNull(), referenceAndListParamCaptor.capture(), isNull());
 		
 		assertThat(stringOrListParamCaptor.getValue(), notNullValue());
 		assertThat(stringOrListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValue(), equalTo(LOCATION_NAME));
 		
-		assertThat(referenceOrListParamCaptor.getValue(), notNullValue());
-		assertThat(referenceOrListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValue(),
-		    equalTo(PARENT_LOCATION_CITY));
+		assertThat(referenceAndListParamCaptor.getValue(), notNullValue());
+		assertThat(referenceAndListParamCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0)
+		        .getValue(), equalTo(PARENT_LOCATION_CITY));
 	}
 	
 	@Test
@@ -15,11 +15,17 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.hamcrest.MockitoHamcrest.argThat;
 
 import java.util.Collections;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
@@ -38,6 +44,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.module.fhir2.api.FhirMedicationService;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
+import org.openmrs.module.fhir2.api.util.ConditionalWriteOutcome;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MedicationFhirResourceProviderTest {
@@ -51,6 +59,9 @@ public class MedicationFhirResourceProviderTest {
 	@Mock
 	private FhirMedicationService fhirMedicationService;
 	
+	@Mock
+	private FhirResourceIdentifierService resourceIdentifierService;
+	
 	private MedicationFhirResourceProvider resourceProvider;
 	
 	private Medication medication;
@@ -59,6 +70,7 @@ public class MedicationFhirResourceProviderTest {
 	public void setup() {
 		resourceProvider = new MedicationFhirResourceProvider();
 		resourceProvider.setFhirMedicationService(fhirMedicationService);
+		resourceProvider.setResourceIdentifierService(resourceIdentifierService);
 		
 		medication = new Medication();
 		medication.setId(MEDICATION_UUID);
@@ -136,7 +148,7 @@ public class MedicationFhirResourceProviderTest {
 	public void shouldCreateNewMedication() {
 		when(fhirMedicationService.saveMedication(medication)).thenReturn(medication);
 		
-		MethodOutcome result = resourceProvider.createMedication(medication);
+		MethodOutcome result = resourceProvider.createMedication(medication, null);
 		assertThat(result, CoreMatchers.notNullValue());
 		assertThat(result.getCreated(), is(true));
 		assertThat(result.getResource(), CoreMatchers.equalTo(medication));
@@ -149,7 +161,7 @@ public class MedicationFhirResourceProviderTest {
 		
 		when(fhirMedicationService.updateMedication(medication, MEDICATION_UUID)).thenReturn(med);
 		
-		MethodOutcome result = resourceProvider.updateMedication(new IdType().setValue(MEDICATION_UUID), medication);
+		MethodOutcome result = resourceProvider.updateMedication(new IdType().setValue(MEDICATION_UUID), medication, null);
 		assertThat(result, CoreMatchers.notNullValue());
 		assertThat(result.getResource(), CoreMatchers.equalTo(med));
 	}
@@ -159,7 +171,7 @@ public class MedicationFhirResourceProviderTest {
 		when(fhirMedicationService.updateMedication(medication, WRONG_MEDICATION_UUID))
 		        .thenThrow(InvalidRequestException.class);
 		
-		resourceProvider.updateMedication(new IdType().setValue(WRONG_MEDICATION_UUID), medication);
+		resourceProvider.updateMedication(new IdType().setValue(WRONG_MEDICATION_UUID), medication, null);
 	}
 	
 	@Test(expected = MethodNotAllowedException.class)
@@ -171,6 +183,59 @@ public class MedicationFhirResourceProviderTest {
 		when(fhirMedicationService.updateMedication(wrongMedication, WRONG_MEDICATION_UUID))
 		        .thenThrow(MethodNotAllowedException.class);
 		
-		resourceProvider.updateMedication(new IdType().setValue(WRONG_MEDICATION_UUID), wrongMedication);
+		resourceProvider.updateMedication(new IdType().setValue(WRONG_MEDICATION_UUID), wrongMedication, null);
+	}
+	
+	@Test
+	public void createMedication_shouldReturnExistingMedicationWithIdentifier() {
+		when(fhirMedicationService.getMedicationByUuid(MEDICATION_UUID)).thenReturn(medication);
+		when(resourceIdentifierService.createIfNoneExist(eq("Medication"), any(), any(), any()))
+		        .then(invocation -> new ConditionalWriteOutcome<>(
+		            invocation.<Function<String, Medication>> getArgument(3).apply(MEDICATION_UUID), false));
+		
+		MethodOutcome result = resourceProvider.createMedication(new Medication(),
+		    "identifier=http://example.com/formulary|123");
+		
+		assertThat(result.getCreated(), is(false));
+		assertThat(result.getResource(), equalTo(medication));
+		verify(fhirMedicationService, never()).saveMedication(any());
+	}
+	
+	@Test(expected = ResourceNotFoundException.class)
+	public void createMedication_shouldReportMissingMedicationWithIdentifierAsNotFound() {
+		when(resourceIdentifierService.createIfNoneExist(eq("Medication"), any(), any(), any()))
+		        .then(invocation -> new ConditionalWriteOutcome<>(
+		            invocation.<Function<String, Medication>> getArgument(3).apply(MEDICATION_UUID), false));
+		
+		resourceProvider.createMedication(new Medication(), "identifier=http://example.com/formulary|123");
+	}
+	
+	@Test
+	public void updateMedication_shouldUpdateMedicationWithIdentifier() {
+		Medication update = new Medication();
+		when(fhirMedicationService.updateMedication(update, MEDICATION_UUID)).thenReturn(medication);
+		when(resourceIdentifierService.updateByIdentifier(eq("Medication"), any(), any(), any()))
+		        .then(invocation -> new ConditionalWriteOutcome<>(
+		            invocation.<Function<String, Medication>> getArgument(2).apply(MEDICATION_UUID), false));
+		
+		MethodOutcome result = resourceProvider.updateMedication(null, update,
+		    "Medication?identifier=http://example.com/formulary|123");
+		
+		assertThat(update.getIdElement().getIdPart(), equalTo(MEDICATION_UUID));
+		assertThat(result.getCreated(), is(false));
+		assertThat(result.getResource(), equalTo(medication));
+	}
+	
+	@Test
+	public void updateMedication_shouldCreateMedicationWhenNoneHasIdentifier() {
+		when(fhirMedicationService.saveMedication(medication)).thenReturn(medication);
+		when(resourceIdentifierService.updateByIdentifier(eq("Medication"), any(), any(), any())).then(
+		    invocation -> new ConditionalWriteOutcome<>(invocation.<Supplier<Medication>> getArgument(3).get(), true));
+		
+		MethodOutcome result = resourceProvider.updateMedication(null, medication,
+		    "Medication?identifier=http://example.com/formulary|123");
+		
+		assertThat(result.getCreated(), is(true));
+		assertThat(result.getResource(), equalTo(medication));
 	}
 }
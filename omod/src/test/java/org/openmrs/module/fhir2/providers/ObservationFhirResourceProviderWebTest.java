@@ -16,6 +16,7 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,10 +24,14 @@ import static org.mockito.Mockito.when;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.net.URLEncoder;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.QuantityAndListParam;
 import ca.uhn.fhir.rest.param.ReferenceAndListParam;
@@ -48,7 +53,9 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.module.fhir2.api.FhirObservationService;
+import org.openmrs.module.fhir2.api.util.ObservationStatistics;
 import org.openmrs.module.fhir2.web.servlet.BaseFhirResourceProviderTest;
+import org.openmrs.module.fhir2.web.servlet.NdjsonResponseWrapper;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -578,6 +585,110 @@ public class ObservationFhirResourceProviderWebTest extends BaseFhirResourceProv
 		assertThat(dateCaptor.getValue().getUpperBound(), nullValue());
 	}
 	
+	@Test
+	public void shouldReturnSearchResultsAsNdjsonWhenRequested() throws Exception {
+		Observation first = new Observation();
+		first.setId(OBS_UUID);
+		Observation second = new Observation();
+		second.setId(BAD_OBS_UUID);
+		when(observationService.searchForObservations(any(), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+		        .thenReturn(Arrays.asList(first, second));
+		
+		MockHttpServletResponse response = get("/Observation?subject=" + PATIENT_UUID + "&_format=ndjson").go();
+		
+		assertThat(response, isOk());
+		assertThat(response.getContentType(), equalTo(NdjsonResponseWrapper.CONTENT_TYPE));
+		
+		IParser parser = FhirContext.forR4().newJsonParser();
+		String[] lines = response.getContentAsString().split("\n");
+		assertThat(lines.length, equalTo(2));
+		assertThat(parser.parseResource(Observation.class, lines[0]).getIdElement().getIdPart(), equalTo(OBS_UUID));
+		assertThat(parser.parseResource(Observation.class, lines[1]).getIdElement().getIdPart(), equalTo(BAD_OBS_UUID));
+	}
+	
+	@Test
+	public void shouldRejectNdjsonSearchWithParametersThatShapeBundle() throws Exception {
+		for (String parameter : Arrays.asList("_count=10", "_summary=true", "_elements=status",
+		    "_include=Observation:patient", "_include:iterate=Observation:patient")) {
+			MockHttpServletResponse response = get("/Observation?subject=" + PATIENT_UUID + "&" + parameter + "&_format=ndjson")
+			        .go();
+			
+			assertThat(parameter, response, isBadRequest());
+		}
+	}
+	
+	@Test
+	public void shouldReturnLastnObservationsOfPatient() throws Exception {
+		Observation observation = new Observation();
+		observation.setId(OBS_UUID);
+		when(observationService.getLastnObservations(patientCaptor.capture(), codeCaptor.capture(), eq(3)))
+		        .thenReturn(Collections.singletonList(observation));
+		
+		MockHttpServletResponse response = get("/Observation/$lastn?patient=" + PATIENT_UUID + "&code=5085&max=3")
+		        .accept(FhirMediaTypes.JSON).go();
+		
+		assertThat(response, isOk());
+		
+		Bundle results = readBundleResponse(response);
+		assertThat(results.getEntry().size(), equalTo(1));
+		assertThat(results.getEntryFirstRep().getResource().getIdElement().getIdPart(), equalTo(OBS_UUID));
+		
+		assertThat(patientCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0).getIdPart(),
+		    equalTo(PATIENT_UUID));
+		assertThat(codeCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0).getValue(),
+		    equalTo("5085"));
+	}
+	
+	@Test
+	public void shouldReturnBadRequestForLastnWithoutPatient() throws Exception {
+		MockHttpServletResponse response = get("/Observation/$lastn?code=5085").accept(FhirMediaTypes.JSON).go();
+		
+		assertThat(response, isBadRequest());
+	}
+	
+	@Test
+	public void shouldReturnRequestedObservationStatistics() throws Exception {
+		Observation statistics = new Observation();
+		statistics.addComponent().getCode().addCoding().setCode("average");
+		when(observationService.getObservationStatistics(isNull(), isNull(), codeCaptor.capture(), dateCaptor.capture(),
+		    eq(EnumSet.of(ObservationStatistics.Statistic.AVERAGE, ObservationStatistics.Statistic.COUNT)), eq(false)))
+		            .thenReturn(Collections.singletonList(statistics));
+		
+		MockHttpServletResponse response = get(
+		    "/Observation/$stats?code=5085&period=ge2020-01-01&period=lt2021-01-01&statistic=average,count")
+		            .accept(FhirMediaTypes.JSON).go();
+		
+		assertThat(response, isOk());
+		
+		Bundle results = readBundleResponse(response);
+		assertThat(results.getEntry().size(), equalTo(1));
+		assertThat(codeCaptor.getValue().getValuesAsQueryTokens().get(0).getValuesAsQueryTokens().get(0).getValue(),
+		    equalTo("5085"));
+		assertThat(dateCaptor.getValue().getLowerBound().getValueAsString(), equalTo("2020-01-01"));
+		assertThat(dateCaptor.getValue().getUpperBound().getValueAsString(), equalTo("2021-01-01"));
+	}
+	
+	@Test
+	public void shouldGroupObservationStatisticsByLocationWhenRequested() throws Exception {
+		when(observationService.getObservationStatistics(isNull(), isNull(), any(), isNull(),
+		    eq(EnumSet.noneOf(ObservationStatistics.Statistic.class)), eq(true)))
+		            .thenReturn(Collections.singletonList(new Observation()));
+		
+		MockHttpServletResponse response = get("/Observation/$stats?code=5085&groupByLocation=true")
+		        .accept(FhirMediaTypes.JSON).go();
+		
+		assertThat(response, isOk());
+		assertThat(readBundleResponse(response).getEntry().size(), equalTo(1));
+	}
+	
+	@Test
+	public void shouldReturnBadRequestForUnsupportedStatistic() throws Exception {
+		MockHttpServletResponse response = get("/Observation/$stats?code=5085&statistic=median")
+		        .accept(FhirMediaTypes.JSON).go();
+		
+		assertThat(response, isBadRequest());
+	}
+	
 	private void verifyUri(String uri) throws Exception {
 		Observation observation = new Observation();
 		observation.setId(OBS_UUID);
@@ -29,11 +29,16 @@ import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.StringOrListParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.r4.model.BooleanType;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Extension;
 import org.hl7.fhir.r4.model.HumanName;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.OperationOutcome;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Provenance;
 import org.hl7.fhir.r4.model.Resource;
@@ -43,6 +48,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.module.fhir2.api.FhirPatientService;
+import org.openmrs.module.fhir2.api.util.PatientMatch;
+import org.openmrs.module.fhir2.api.util.PatientMatchResults;
 import org.openmrs.module.fhir2.web.servlet.BaseFhirProvenanceResourceTest;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -129,6 +136,46 @@ public class PatientFhirResourceProviderTest extends BaseFhirProvenanceResourceT
 		assertThat(resourceProvider.getPatientById(idType), nullValue());
 	}
 	
+	@Test
+	public void matchPatients_shouldReturnScoredMatches() {
+		when(patientService.matchPatients(patient, false, PatientFhirResourceProvider.DEFAULT_MATCH_COUNT))
+		        .thenReturn(new PatientMatchResults(
+		                Collections.singletonList(new PatientMatch(patient, 0.9, PatientMatch.Grade.PROBABLE)), false));
+		
+		Bundle results = resourceProvider.matchPatients(patient, null, null);
+		
+		assertThat(results.getType(), equalTo(Bundle.BundleType.SEARCHSET));
+		assertThat(results.getTotal(), equalTo(1));
+		Bundle.BundleEntryComponent entry = results.getEntryFirstRep();
+		assertThat(entry.getResource(), equalTo(patient));
+		assertThat(entry.getSearch().getMode(), equalTo(Bundle.SearchEntryMode.MATCH));
+		assertThat(entry.getSearch().getScore().doubleValue(), equalTo(0.9));
+		Extension grade = entry.getSearch().getExtensionByUrl(PatientFhirResourceProvider.MATCH_GRADE_EXTENSION_URL);
+		assertThat(grade.getValue().primitiveValue(), equalTo("probable"));
+	}
+	
+	@Test
+	public void matchPatients_shouldWarnWhenNotAllCandidatesWereScored() {
+		when(patientService.matchPatients(patient, true, 5)).thenReturn(new PatientMatchResults(
+		        Collections.singletonList(new PatientMatch(patient, 1.0, PatientMatch.Grade.CERTAIN)), true));
+		
+		Bundle results = resourceProvider.matchPatients(patient, new BooleanType(true), new IntegerType(5));
+		
+		assertThat(results.getTotal(), equalTo(1));
+		assertThat(results.getEntry().size(), equalTo(2));
+		Bundle.BundleEntryComponent outcome = results.getEntry().get(1);
+		assertThat(outcome.getSearch().getMode(), equalTo(Bundle.SearchEntryMode.OUTCOME));
+		assertThat(((OperationOutcome) outcome.getResource()).getIssueFirstRep().getSeverity(),
+		    equalTo(OperationOutcome.IssueSeverity.WARNING));
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void matchPatients_shouldRejectPatientWithoutBirthDate() {
+		patient.setBirthDate(null);
+		
+		resourceProvider.matchPatients(patient, new BooleanType(true), new IntegerType(5));
+	}
+	
 	@Test
 	public void searchPatients_shouldReturnMatchingBundleOfPatientsByName() {
 		StringOrListParam nameParam = new StringOrListParam().add(new StringParam(NAME));
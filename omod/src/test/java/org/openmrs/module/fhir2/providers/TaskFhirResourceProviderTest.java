@@ -15,12 +15,22 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
@@ -32,8 +42,11 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import org.hamcrest.Matchers;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeType;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.IntegerType;
 import org.hl7.fhir.r4.model.Provenance;
+import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.Task;
 import org.junit.Before;
@@ -41,7 +54,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.FhirResourceIdentifierService;
 import org.openmrs.module.fhir2.api.FhirTaskService;
+import org.openmrs.module.fhir2.api.util.ConditionalWriteOutcome;
+import org.openmrs.module.fhir2.api.util.TaskChangeRegistry;
 import org.openmrs.module.fhir2.web.servlet.BaseFhirProvenanceResourceTest;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -54,15 +70,22 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 	@Mock
 	private FhirTaskService taskService;
 	
+	@Mock
+	private FhirResourceIdentifierService resourceIdentifierService;
+	
 	@Getter(AccessLevel.PUBLIC)
 	private TaskFhirResourceProvider resourceProvider;
 	
+	private TaskChangeRegistry taskChangeRegistry = new TaskChangeRegistry();
+	
 	private Task task;
 	
 	@Before
 	public void setup() {
 		resourceProvider = new TaskFhirResourceProvider();
 		resourceProvider.setService(taskService);
+		resourceProvider.setTaskChangeRegistry(taskChangeRegistry);
+		resourceProvider.setResourceIdentifierService(resourceIdentifierService);
 	}
 	
 	@Before
@@ -138,7 +161,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 	public void createTask_shouldCreateNewTask() {
 		when(taskService.saveTask(task)).thenReturn(task);
 		
-		MethodOutcome result = resourceProvider.createTask(task);
+		MethodOutcome result = resourceProvider.createTask(task, null);
 		assertThat(result.getResource(), equalTo(task));
 	}
 	
@@ -149,7 +172,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		IdType uuid = new IdType();
 		uuid.setValue(TASK_UUID);
 		
-		MethodOutcome result = resourceProvider.updateTask(uuid, task);
+		MethodOutcome result = resourceProvider.updateTask(uuid, task, null);
 		assertThat(result.getResource(), equalTo(task));
 	}
 	
@@ -157,7 +180,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 	public void updateTask_shouldThrowInvalidRequestForTaskUuidMismatch() {
 		when(taskService.updateTask(WRONG_TASK_UUID, task)).thenThrow(InvalidRequestException.class);
 		
-		resourceProvider.updateTask(new IdType().setValue(WRONG_TASK_UUID), task);
+		resourceProvider.updateTask(new IdType().setValue(WRONG_TASK_UUID), task, null);
 	}
 	
 	@Test(expected = InvalidRequestException.class)
@@ -166,7 +189,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		
 		when(taskService.updateTask(TASK_UUID, noIdTask)).thenThrow(InvalidRequestException.class);
 		
-		resourceProvider.updateTask(new IdType().setValue(TASK_UUID), noIdTask);
+		resourceProvider.updateTask(new IdType().setValue(TASK_UUID), noIdTask, null);
 	}
 	
 	@Test(expected = MethodNotAllowedException.class)
@@ -176,7 +199,36 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		
 		when(taskService.updateTask(WRONG_TASK_UUID, wrongTask)).thenThrow(MethodNotAllowedException.class);
 		
-		resourceProvider.updateTask(new IdType().setValue(WRONG_TASK_UUID), wrongTask);
+		resourceProvider.updateTask(new IdType().setValue(WRONG_TASK_UUID), wrongTask, null);
+	}
+	
+	@Test
+	public void createTask_shouldReturnExistingTaskForMatchingIdentifier() {
+		when(resourceIdentifierService.createIfNoneExist(eq("Task"),
+		    argThat(identifier -> "http://example.com/orders".equals(identifier.getSystem())
+		            && "123".equals(identifier.getValue())),
+		    any(), any())).thenReturn(new ConditionalWriteOutcome<>(task, false));
+		
+		MethodOutcome result = resourceProvider.createTask(new Task(), "identifier=http://example.com/orders|123");
+		
+		assertThat(result.getCreated(), is(false));
+		assertThat(result.getResource(), equalTo(task));
+	}
+	
+	@Test
+	public void updateTask_shouldUpdateTaskMatchingIdentifier() {
+		when(resourceIdentifierService.updateByIdentifier(eq("Task"), argThat(identifier -> "123".equals(identifier.getValue())),
+		    any(), any())).thenReturn(new ConditionalWriteOutcome<>(task, false));
+		
+		MethodOutcome result = resourceProvider.updateTask(null, task, "Task?identifier=http://example.com/orders|123");
+		
+		assertThat(result.getCreated(), is(false));
+		assertThat(result.getResource(), equalTo(task));
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void createTask_shouldRejectConditionsOtherThanIdentifier() {
+		resourceProvider.createTask(task, "status=requested");
 	}
 	
 	@Test
@@ -199,4 +251,100 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		assertThat(results.getEntry().get(0).getResource().fhirType(), equalTo("Task"));
 		assertThat(results.getEntry().get(0).getResource().getId(), equalTo(TASK_UUID));
 	}
+	
+	@Test
+	public void claimTasks_shouldReturnClaimedTasks() {
+		when(taskService.claimTasks(any(), eq(2))).thenReturn(Collections.singletonList(task));
+		
+		Bundle results = resourceProvider.claimTasks(new Reference("Practitioner/" + TASK_UUID), new IntegerType(2));
+		
+		assertThat(results, notNullValue());
+		assertThat(results.getTotal(), equalTo(1));
+		assertThat(results.getEntry().get(0).getResource().getId(), equalTo(TASK_UUID));
+	}
+	
+	@Test
+	public void waitForTask_shouldReturnImmediatelyIfTaskHasRequestedStatus() {
+		task.setStatus(Task.TaskStatus.COMPLETED);
+		when(taskService.getTaskByUuid(TASK_UUID)).thenReturn(task);
+		
+		Task result = resourceProvider.waitForTask(new IdType().setValue(TASK_UUID),
+		    Collections.singletonList(new CodeType("completed")), new IntegerType(30));
+		
+		assertThat(result, equalTo(task));
+	}
+	
+	@Test
+	public void waitForTask_shouldReturnTaskOnceItChanges() throws Exception {
+		Task completedTask = new Task();
+		completedTask.setId(TASK_UUID);
+		completedTask.setStatus(Task.TaskStatus.COMPLETED);
+		
+		task.setStatus(Task.TaskStatus.REQUESTED);
+		when(taskService.getTaskByUuid(TASK_UUID)).thenReturn(task);
+		when(taskService.getLatestTaskByUuid(TASK_UUID)).thenReturn(completedTask);
+		
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		try {
+			executor.schedule(() -> taskChangeRegistry.invalidate(Collections.singleton(TASK_UUID)), 100, TimeUnit.MILLISECONDS);
+			
+			Task result = resourceProvider.waitForTask(new IdType().setValue(TASK_UUID),
+			    Collections.singletonList(new CodeType("completed")), new IntegerType(30));
+			
+			assertThat(result, equalTo(completedTask));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void waitForTask_shouldNotWaitForTimeoutOnceStatusChangedByAnotherRequest() throws Exception {
+		Task completedTask = new Task();
+		completedTask.setId(TASK_UUID);
+		completedTask.setStatus(Task.TaskStatus.COMPLETED);
+		
+		// the first read stays in the request's session, so only a fresh read sees the new status
+		task.setStatus(Task.TaskStatus.REQUESTED);
+		when(taskService.getTaskByUuid(TASK_UUID)).thenReturn(task);
+		when(taskService.getLatestTaskByUuid(TASK_UUID)).thenReturn(completedTask);
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			executor.submit(() -> {
+				Thread.sleep(100);
+				taskChangeRegistry.taskChanged(TASK_UUID);
+				return null;
+			});
+			
+			long start = System.nanoTime();
+			Task result = resourceProvider.waitForTask(new IdType().setValue(TASK_UUID),
+			    Collections.singletonList(new CodeType("completed")), new IntegerType(30));
+			
+			assertThat(result.getStatus(), equalTo(Task.TaskStatus.COMPLETED));
+			assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), lessThan(30L));
+			verify(taskService, times(1)).getTaskByUuid(TASK_UUID);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void waitForTask_shouldReturnCurrentTaskWhenTimeoutExpires() {
+		task.setStatus(Task.TaskStatus.REQUESTED);
+		when(taskService.getTaskByUuid(TASK_UUID)).thenReturn(task);
+		
+		Task result = resourceProvider.waitForTask(new IdType().setValue(TASK_UUID),
+		    Collections.singletonList(new CodeType("completed")), new IntegerType(0));
+		
+		assertThat(result, equalTo(task));
+	}
+	
+	@Test(expected = ResourceNotFoundException.class)
+	public void waitForTask_shouldThrowResourceNotFoundForMissingTask() {
+		when(taskService.getTaskByUuid(WRONG_TASK_UUID)).thenReturn(null);
+		
+		resourceProvider.waitForTask(new IdType().setValue(WRONG_TASK_UUID), null, new IntegerType(0));
+	}
 }
@@ -0,0 +1,110 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.when;
+
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.UriType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.FhirTerminologyService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TerminologyOperationProviderTest {
+	
+	private static final String CIEL_URL = "urn:oid:2.16.840.1.113883.3.7201";
+	
+	private static final String LOINC_URL = "http://loinc.org";
+	
+	private static final String CIEL_CODE = "5085";
+	
+	@Mock
+	private FhirTerminologyService terminologyService;
+	
+	private TerminologyOperationProvider operationProvider;
+	
+	@Before
+	public void setup() {
+		operationProvider = new TerminologyOperationProvider();
+		operationProvider.setTerminologyService(terminologyService);
+	}
+	
+	@Test
+	public void translate_shouldPassTargetSystemToService() {
+		Parameters parameters = new Parameters();
+		when(terminologyService.translate(CIEL_URL, CIEL_CODE, LOINC_URL)).thenReturn(parameters);
+		
+		Parameters result = operationProvider.translate(new UriType(CIEL_URL), new CodeType(CIEL_CODE),
+		    new UriType(LOINC_URL));
+		
+		assertThat(result, equalTo(parameters));
+	}
+	
+	@Test
+	public void translate_shouldTreatEmptyTargetSystemAsAbsent() {
+		Parameters parameters = new Parameters();
+		when(terminologyService.translate(CIEL_URL, CIEL_CODE, null)).thenReturn(parameters);
+		
+		Parameters result = operationProvider.translate(new UriType(CIEL_URL), new CodeType(CIEL_CODE), new UriType());
+		
+		assertThat(result, equalTo(parameters));
+	}
+	
+	@Test
+	public void translate_shouldReturnNoMatchResultFromService() {
+		Parameters parameters = new Parameters();
+		parameters.addParameter().setName("result").setValue(new BooleanType(false));
+		when(terminologyService.translate(CIEL_URL, CIEL_CODE, null)).thenReturn(parameters);
+		
+		Parameters result = operationProvider.translate(new UriType(CIEL_URL), new CodeType(CIEL_CODE), null);
+		
+		assertThat(((BooleanType) result.getParameter("result")).booleanValue(), equalTo(false));
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void translate_shouldRejectMissingSystem() {
+		operationProvider.translate(null, new CodeType(CIEL_CODE), null);
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void translate_shouldRejectEmptyCode() {
+		operationProvider.translate(new UriType(CIEL_URL), new CodeType(), null);
+	}
+	
+	@Test
+	public void lookup_shouldReturnParametersFromService() {
+		Parameters parameters = new Parameters();
+		when(terminologyService.lookup(CIEL_URL, CIEL_CODE)).thenReturn(parameters);
+		
+		assertThat(operationProvider.lookup(new UriType(CIEL_URL), new CodeType(CIEL_CODE)), equalTo(parameters));
+	}
+	
+	@Test(expected = ResourceNotFoundException.class)
+	public void lookup_shouldThrowResourceNotFoundWhenCodeIsNotMapped() {
+		when(terminologyService.lookup(CIEL_URL, CIEL_CODE)).thenReturn(null);
+		
+		operationProvider.lookup(new UriType(CIEL_URL), new CodeType(CIEL_CODE));
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void lookup_shouldRejectMissingCode() {
+		operationProvider.lookup(new UriType(CIEL_URL), null);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ca.uhn.fhir.rest.server.exceptions.AuthenticationException;
+import ca.uhn.fhir.rest.server.exceptions.ForbiddenOperationException;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.fhir2.api.FhirUserService;
+import org.openmrs.module.fhir2.web.authentication.StatelessTokenService;
+import org.openmrs.module.fhir2.web.authentication.StatelessUserContext;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenOperationProviderTest {
+	
+	private static final String USER_UUID = "c98a1558-e131-11de-babe-001e378eb67e";
+	
+	private static final String TOKEN = "Y2xhaW1z.c2lnbmF0dXJl";
+	
+	@Mock
+	private StatelessTokenService tokenService;
+	
+	@Mock
+	private FhirUserService userService;
+	
+	@Mock
+	private UserContext userContext;
+	
+	private TokenOperationProvider operationProvider;
+	
+	private User sessionUser;
+	
+	@Before
+	public void setup() {
+		operationProvider = new TokenOperationProvider();
+		operationProvider.setTokenService(tokenService);
+		operationProvider.setUserService(userService);
+		
+		sessionUser = new User(1);
+		sessionUser.setUuid(USER_UUID);
+	}
+	
+	@After
+	public void tearDown() {
+		Context.clearUserContext();
+	}
+	
+	@Test
+	public void issueToken_shouldIssueTokenForCurrentStateOfSessionUser() {
+		User currentUser = new User(1);
+		currentUser.setUuid(USER_UUID);
+		when(userContext.getAuthenticatedUser()).thenReturn(sessionUser);
+		when(userService.getUserByUuid(USER_UUID)).thenReturn(currentUser);
+		when(tokenService.issueToken(currentUser)).thenReturn(TOKEN);
+		when(tokenService.getTokenLifetime()).thenReturn(60L);
+		Context.setUserContext(userContext);
+		
+		Parameters parameters = operationProvider.issueToken();
+		
+		assertThat(((StringType) parameters.getParameter("access_token")).getValue(), equalTo(TOKEN));
+		assertThat(((StringType) parameters.getParameter("token_type")).getValue(), equalTo("Bearer"));
+	}
+	
+	@Test(expected = ForbiddenOperationException.class)
+	public void issueToken_shouldRefuseBearerAuthenticatedRequest() {
+		Context.setUserContext(new StatelessUserContext(sessionUser));
+		
+		try {
+			operationProvider.issueToken();
+		}
+		finally {
+			verify(tokenService, never()).issueToken(any());
+		}
+	}
+	
+	@Test(expected = AuthenticationException.class)
+	public void issueToken_shouldRefuseRetiredUser() {
+		User currentUser = new User(1);
+		currentUser.setUuid(USER_UUID);
+		currentUser.setRetired(true);
+		when(userContext.getAuthenticatedUser()).thenReturn(sessionUser);
+		when(userService.getUserByUuid(USER_UUID)).thenReturn(currentUser);
+		Context.setUserContext(userContext);
+		
+		operationProvider.issueToken();
+	}
+	
+	@Test(expected = AuthenticationException.class)
+	public void issueToken_shouldRefuseUnauthenticatedRequest() {
+		Context.setUserContext(userContext);
+		
+		operationProvider.issueToken();
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.when;
+
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.FhirValueSetService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ValueSetFhirResourceProviderTest {
+	
+	private static final String SET_UUID = "0f97e14e-cdc2-49ac-9255-b5126f8a5147";
+	
+	@Mock
+	private FhirValueSetService valueSetService;
+	
+	private ValueSetFhirResourceProvider resourceProvider;
+	
+	@Before
+	public void setup() {
+		resourceProvider = new ValueSetFhirResourceProvider();
+		resourceProvider.setValueSetService(valueSetService);
+	}
+	
+	@Test
+	public void getResourceType_shouldReturnResourceType() {
+		assertThat(resourceProvider.getResourceType(), equalTo(ValueSet.class));
+	}
+	
+	@Test
+	public void expandValueSet_shouldExpandWithFilterAndPaging() {
+		ValueSet valueSet = new ValueSet();
+		when(valueSetService.expand(SET_UUID, "blood", 10, 5)).thenReturn(valueSet);
+		
+		ValueSet result = resourceProvider.expandValueSet(new IdType(SET_UUID), new StringType("blood"),
+		    new IntegerType(10), new IntegerType(5));
+		
+		assertThat(result, equalTo(valueSet));
+	}
+	
+	@Test(expected = ResourceNotFoundException.class)
+	public void expandValueSet_shouldThrowWhenValueSetIsNotFound() {
+		resourceProvider.expandValueSet(new IdType(SET_UUID), null, null, null);
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void expandValueSet_shouldRejectNegativeOffset() {
+		resourceProvider.expandValueSet(new IdType(SET_UUID), null, new IntegerType(-1), null);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.authentication;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.User;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.FhirException;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatelessTokenServiceTest {
+	
+	private static final String USER_UUID = "c98a1558-e131-11de-babe-001e378eb67e";
+	
+	private static final String USERNAME = "admin";
+	
+	private static final String SECRET = "c2VjcmV0LXVzZWQtdG8tc2lnbi1iZWFyZXItdG9rZW5z";
+	
+	private static final String PRIVILEGE = "Get Patients";
+	
+	@Mock
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	private StatelessTokenService tokenService;
+	
+	private User user;
+	
+	@Before
+	public void setup() {
+		tokenService = new StatelessTokenService();
+		tokenService.setGlobalPropertyService(globalPropertyService);
+		
+		Role role = new Role("Clerk");
+		role.addPrivilege(new Privilege(PRIVILEGE));
+		
+		user = new User(1);
+		user.setUuid(USER_UUID);
+		user.setUsername(USERNAME);
+		user.addRole(role);
+	}
+	
+	private void setupGlobalProperties() {
+		when(globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_TOKEN_SECRET)).thenReturn(SECRET);
+		when(globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_TOKEN_LIFETIME)).thenReturn("60");
+	}
+	
+	@Test
+	public void verifyToken_shouldReturnUserForIssuedToken() {
+		setupGlobalProperties();
+		
+		String token = tokenService.issueToken(user);
+		
+		Optional<User> result = tokenService.verifyToken(token);
+		
+		assertThat(result.isPresent(), is(true));
+		assertThat(result.get().getUserId(), equalTo(1));
+		assertThat(result.get().getUuid(), equalTo(USER_UUID));
+		assertThat(result.get().getUsername(), equalTo(USERNAME));
+		assertThat(result.get().containsRole("Clerk"), is(true));
+		assertThat(result.get().hasPrivilege(PRIVILEGE), is(true));
+		assertThat(result.get().hasPrivilege("Delete Patients"), is(false));
+	}
+	
+	@Test
+	public void verifyToken_shouldReturnEmptyForTamperedToken() {
+		setupGlobalProperties();
+		
+		String token = tokenService.issueToken(user);
+		String tampered = (token.charAt(0) == 'A' ? "B" : "A") + token.substring(1);
+		
+		assertThat(tokenService.verifyToken(tampered).isPresent(), is(false));
+	}
+	
+	@Test
+	public void verifyToken_shouldReturnEmptyForExpiredToken() {
+		setupGlobalProperties();
+		
+		String token = tokenService.issueToken(user);
+		
+		StatelessTokenService laterTokenService = new StatelessTokenService() {
+			
+			@Override
+			protected long currentTimeSeconds() {
+				return super.currentTimeSeconds() + 61;
+			}
+		};
+		laterTokenService.setGlobalPropertyService(globalPropertyService);
+		
+		assertThat(tokenService.verifyToken(token).isPresent(), is(true));
+		assertThat(laterTokenService.verifyToken(token).isPresent(), is(false));
+	}
+	
+	@Test
+	public void verifyToken_shouldReturnEmptyForMalformedToken() {
+		assertThat(tokenService.verifyToken(null).isPresent(), is(false));
+		assertThat(tokenService.verifyToken("not-a-token").isPresent(), is(false));
+		assertThat(tokenService.verifyToken("abc.").isPresent(), is(false));
+	}
+	
+	@Test
+	public void getTokenLifetime_shouldReadLifetimeFromGlobalProperty() {
+		setupGlobalProperties();
+		
+		assertThat(tokenService.getTokenLifetime(), equalTo(60L));
+		assertThat(tokenService.issueToken(user), notNullValue());
+	}
+	
+	@Test
+	public void check_shouldAcceptValidSecret() {
+		when(globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_TOKEN_SECRET)).thenReturn(SECRET);
+		
+		tokenService.check();
+	}
+	
+	@Test
+	public void check_shouldAcceptBlankSecret() {
+		tokenService.check();
+	}
+	
+	@Test(expected = FhirException.class)
+	public void check_shouldRejectSecretThatIsNotBase64() {
+		when(globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_TOKEN_SECRET))
+		        .thenReturn("not base64!");
+		
+		tokenService.check();
+	}
+	
+	@Test(expected = FhirException.class)
+	public void check_shouldRejectSecretThatIsTooShort() {
+		when(globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_TOKEN_SECRET)).thenReturn("c2VjcmV0");
+		
+		tokenService.check();
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import ca.uhn.fhir.rest.api.Constants;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class BinaryEncodingRequestWrapperTest {
+	
+	private static final String TASK_JSON = "{\"resourceType\":\"Task\",\"status\":\"requested\",\"intent\":\"order\"}";
+	
+	private static final String CONDITIONAL_QUERY = "identifier=http://example.org/tasks|1234";
+	
+	@Test
+	public void shouldPresentBinaryBodyOfConditionalUpdateAsJson() throws Exception {
+		MockHttpServletRequest request = newRequest("PUT", "/Task", CONDITIONAL_QUERY);
+		request.setContent(toCbor(TASK_JSON));
+		
+		BinaryEncodingRequestWrapper wrapper = new BinaryEncodingRequestWrapper(request, BinaryEncoding.CBOR, false);
+		
+		assertThat(wrapper.getQueryString(), equalTo(CONDITIONAL_QUERY));
+		assertThat(wrapper.getContentType(), equalTo(Constants.CT_FHIR_JSON_NEW + Constants.CHARSET_UTF8_CTSUFFIX));
+		assertThat(new String(IOUtils.toByteArray(wrapper.getInputStream()), StandardCharsets.UTF_8), equalTo(TASK_JSON));
+	}
+	
+	@Test
+	public void getQueryString_shouldOnlyRemoveFormatWhenResponseIsTranscoded() throws Exception {
+		MockHttpServletRequest request = newRequest("GET", "/Task", "_format=cbor&" + CONDITIONAL_QUERY);
+		
+		assertThat(new BinaryEncodingRequestWrapper(request, null, true).getQueryString(), equalTo(CONDITIONAL_QUERY));
+		assertThat(new BinaryEncodingRequestWrapper(request, null, false).getQueryString(),
+		    equalTo("_format=cbor&" + CONDITIONAL_QUERY));
+		
+		request.setQueryString("_format=cbor");
+		assertThat(new BinaryEncodingRequestWrapper(request, null, true).getQueryString(), nullValue());
+	}
+	
+	@Test
+	public void setReadListener_shouldReadWholeBodyStraightAway() throws Exception {
+		MockHttpServletRequest request = newRequest("POST", "/Task", null);
+		request.setContent(toCbor(TASK_JSON));
+		ServletInputStream inputStream = new BinaryEncodingRequestWrapper(request, BinaryEncoding.CBOR, false)
+		        .getInputStream();
+		
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		boolean[] allDataRead = { false };
+		inputStream.setReadListener(new ReadListener() {
+			
+			@Override
+			public void onDataAvailable() throws IOException {
+				int b;
+				while (inputStream.isReady() && (b = inputStream.read()) != -1) {
+					body.write(b);
+				}
+			}
+			
+			@Override
+			public void onAllDataRead() {
+				allDataRead[0] = true;
+			}
+			
+			@Override
+			public void onError(Throwable t) {
+				throw new AssertionError(t);
+			}
+		});
+		
+		assertThat(allDataRead[0], is(true));
+		assertThat(new String(body.toByteArray(), StandardCharsets.UTF_8), equalTo(TASK_JSON));
+	}
+	
+	private static MockHttpServletRequest newRequest(String method, String path, String queryString) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		request.setQueryString(queryString);
+		return request;
+	}
+	
+	private static byte[] toCbor(String json) throws Exception {
+		ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+		JsonTranscoder.TranscodingOutputStream outputStream = new JsonTranscoder.TranscodingOutputStream(cbor, null,
+		        BinaryEncoding.CBOR);
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		outputStream.write(bytes, 0, bytes.length);
+		outputStream.finish();
+		return cbor.toByteArray();
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.fhir2.api.util.EncodedResponseCache;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class CapturingResponseWrapperTest {
+	
+	private static final String BODY = "{\"resourceType\":\"Location\"}";
+	
+	private MockHttpServletRequest request;
+	
+	private MockHttpServletResponse response;
+	
+	@Before
+	public void setup() {
+		request = new MockHttpServletRequest();
+		response = new MockHttpServletResponse();
+	}
+	
+	@Test
+	public void shouldCaptureBodyOfPendingResponse() throws Exception {
+		request.setAttribute(ResponseCachingInterceptor.PENDING_RESPONSE_ATTRIBUTE, new Object());
+		CapturingResponseWrapper wrapper = new CapturingResponseWrapper(request, response);
+		
+		wrapper.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+		
+		assertThat(new String(wrapper.getCapturedBody(), StandardCharsets.UTF_8), equalTo(BODY));
+		assertThat(response.getContentAsString(), equalTo(BODY));
+	}
+	
+	@Test
+	public void shouldCaptureBodyWrittenThroughWriter() throws Exception {
+		request.setAttribute(ResponseCachingInterceptor.PENDING_RESPONSE_ATTRIBUTE, new Object());
+		response.setCharacterEncoding("UTF-8");
+		CapturingResponseWrapper wrapper = new CapturingResponseWrapper(request, response);
+		
+		wrapper.getWriter().write(BODY);
+		
+		assertThat(new String(wrapper.getCapturedBody(), StandardCharsets.UTF_8), equalTo(BODY));
+	}
+	
+	@Test
+	public void shouldPassThroughResponseThatIsNotPending() throws Exception {
+		CapturingResponseWrapper wrapper = new CapturingResponseWrapper(request, response);
+		
+		wrapper.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+		
+		assertThat(wrapper.getCapturedBody(), nullValue());
+		assertThat(response.getContentAsString(), equalTo(BODY));
+	}
+	
+	@Test
+	public void shouldStopCapturingOnceBodyIsTooLargeToCache() throws Exception {
+		request.setAttribute(ResponseCachingInterceptor.PENDING_RESPONSE_ATTRIBUTE, new Object());
+		CapturingResponseWrapper wrapper = new CapturingResponseWrapper(request, response);
+		
+		wrapper.getOutputStream().write(new byte[EncodedResponseCache.MAX_ENTRY_BYTES]);
+		wrapper.getOutputStream().write('x');
+		
+		assertThat(wrapper.getCapturedBody(), nullValue());
+		assertThat(response.getContentAsByteArray().length, equalTo(EncodedResponseCache.MAX_ENTRY_BYTES + 1));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ca.uhn.fhir.rest.api.Constants;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockServletContext;
+
+public class FhirServletWarmUpTest {
+	
+	private static final String CONTEXT_PATH = "/openmrs";
+	
+	private RecordingServlet servlet;
+	
+	private FhirServletWarmUp warmUp;
+	
+	@Before
+	public void setup() {
+		servlet = new RecordingServlet();
+		warmUp = new FhirServletWarmUp();
+		warmUp.setServletWaitMillis(0L);
+	}
+	
+	@Test
+	public void warmUp_shouldSendMetadataRequestThroughServlet() throws Exception {
+		warmUp.setServletLookup(name -> FhirServletWarmUp.SERVLET_NAME.equals(name) ? servlet : null);
+		
+		warmUp.warmUp();
+		
+		assertThat(servlet.request, equalTo(
+		    "GET " + CONTEXT_PATH + FhirServletWarmUp.MODULE_SERVLET_PATH + "/" + FhirServletWarmUp.SERVLET_NAME + "/metadata"));
+		assertThat(servlet.pathInfo, equalTo("/" + FhirServletWarmUp.SERVLET_NAME + "/metadata"));
+		assertThat(servlet.accept, equalTo(Constants.CT_FHIR_JSON_NEW));
+		assertThat(servlet.cacheControl, equalTo(Constants.CACHE_CONTROL_NO_CACHE));
+	}
+	
+	@Test
+	public void warmUp_shouldWaitForServletToBeRegistered() throws Exception {
+		AtomicInteger lookups = new AtomicInteger();
+		warmUp.setServletLookup(name -> lookups.incrementAndGet() < 2 ? null : servlet);
+		warmUp.setServletWaitMillis(10_000L);
+		
+		warmUp.warmUp();
+		
+		assertThat(lookups.get(), equalTo(2));
+		assertThat(servlet.pathInfo, equalTo("/" + FhirServletWarmUp.SERVLET_NAME + "/metadata"));
+	}
+	
+	@Test
+	public void warmUp_shouldSkipWhenServletIsNotRegistered() throws Exception {
+		warmUp.setServletLookup(name -> null);
+		
+		warmUp.warmUp();
+		
+		assertThat(servlet.request, nullValue());
+	}
+	
+	private static class RecordingServlet extends HttpServlet {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final MockServletContext servletContext = new MockServletContext();
+		
+		private String request;
+		
+		private String pathInfo;
+		
+		private String accept;
+		
+		private String cacheControl;
+		
+		private RecordingServlet() {
+			servletContext.setContextPath(CONTEXT_PATH);
+		}
+		
+		@Override
+		public ServletContext getServletContext() {
+			return servletContext;
+		}
+		
+		@Override
+		protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+			request = req.getMethod() + " " + req.getRequestURI();
+			pathInfo = req.getPathInfo();
+			accept = req.getHeader("accept");
+			cacheControl = req.getHeader(Constants.HEADER_CACHE_CONTROL);
+			
+			// the response must accept a body like a real one does
+			resp.setStatus(HttpServletResponse.SC_OK);
+			resp.getWriter().write("{\"resourceType\":\"CapabilityStatement\"}");
+			resp.getWriter().flush();
+		}
+	}
+}
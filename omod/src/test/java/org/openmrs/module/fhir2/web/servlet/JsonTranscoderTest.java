@@ -0,0 +1,73 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class JsonTranscoderTest {
+	
+	private static final String OBSERVATION_JSON = "{\"resourceType\":\"Observation\",\"id\":\"39fb7f47-e80a-4056-9285-bd798be13c63\","
+	        + "\"status\":\"final\",\"code\":{\"coding\":[{\"system\":\"http://loinc.org\",\"code\":\"8480-6\"}]},"
+	        + "\"valueQuantity\":{\"value\":1.50,\"unit\":\"mmHg\"},\"component\":[{\"valueInteger\":120},"
+	        + "{\"valueString\":\"Grüße\"},{\"valueBoolean\":true},{\"valueString\":null}]}";
+	
+	@Test
+	public void shouldRoundTripJsonThroughEachBinaryEncoding() throws Exception {
+		for (BinaryEncoding encoding : BinaryEncoding.values()) {
+			byte[] binary = toBinary(OBSERVATION_JSON.getBytes(StandardCharsets.UTF_8), encoding, Integer.MAX_VALUE);
+			
+			assertThat(binary.length, lessThan(OBSERVATION_JSON.getBytes(StandardCharsets.UTF_8).length));
+			assertThat(new String(JsonTranscoder.toJson(new ByteArrayInputStream(binary), encoding), StandardCharsets.UTF_8),
+			    equalTo(OBSERVATION_JSON));
+		}
+	}
+	
+	@Test
+	public void shouldTranscodeJsonWrittenOneByteAtATime() throws Exception {
+		byte[] json = OBSERVATION_JSON.getBytes(StandardCharsets.UTF_8);
+		
+		assertThat(toBinary(json, BinaryEncoding.CBOR, 1), equalTo(toBinary(json, BinaryEncoding.CBOR, json.length)));
+	}
+	
+	@Test
+	public void forResponse_shouldPreferFormatParameterOverAcceptHeader() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Accept", "application/fhir+json, application/x-jackson-smile");
+		assertThat(BinaryEncoding.forResponse(request), equalTo(BinaryEncoding.SMILE));
+		
+		request.setParameter("_format", "cbor");
+		assertThat(BinaryEncoding.forResponse(request), equalTo(BinaryEncoding.CBOR));
+		
+		request.setParameter("_format", "json");
+		assertThat(BinaryEncoding.forResponse(request), nullValue());
+	}
+	
+	private static byte[] toBinary(byte[] json, BinaryEncoding encoding, int chunkSize) throws Exception {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		JsonTranscoder.TranscodingOutputStream outputStream = new JsonTranscoder.TranscodingOutputStream(binary, null,
+		        encoding);
+		for (int i = 0; i < json.length; i += chunkSize) {
+			outputStream.write(json, i, Math.min(chunkSize, json.length - i));
+		}
+		
+		outputStream.finish();
+		return binary.toByteArray();
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class NdjsonOutputStreamTest {
+	
+	private static final String FIRST_OBSERVATION = "{\"resourceType\":\"Observation\",\"id\":\"1\",\"valueQuantity\":{\"value\":1.50}}";
+	
+	private static final String SECOND_OBSERVATION = "{\"resourceType\":\"Observation\",\"id\":\"2\",\"component\":[{\"valueInteger\":3}]}";
+	
+	@Test
+	public void shouldWriteEachBundleEntryOnItsOwnLine() throws Exception {
+		String bundle = "{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"total\":2,\"link\":[{\"relation\":\"self\","
+		        + "\"url\":\"http://localhost/Observation\"}],\"entry\":[{\"fullUrl\":\"http://localhost/Observation/1\","
+		        + "\"resource\":" + FIRST_OBSERVATION + "},{\"fullUrl\":\"http://localhost/Observation/2\",\"resource\":"
+		        + SECOND_OBSERVATION + ",\"search\":{\"mode\":\"match\"}}]}";
+		
+		assertThat(toNdjson(bundle, 7), equalTo(FIRST_OBSERVATION + "\n" + SECOND_OBSERVATION + "\n"));
+	}
+	
+	@Test
+	public void shouldWriteOtherResourcesOnASingleLine() throws Exception {
+		String operationOutcome = "{\"resourceType\":\"OperationOutcome\",\"issue\":[{\"severity\":\"error\"}]}";
+		
+		assertThat(toNdjson(operationOutcome, 1), equalTo(operationOutcome + "\n"));
+	}
+	
+	@Test
+	public void writeLine_shouldWriteLinesBeforeTranscodedOutput() throws Exception {
+		ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+		NdjsonOutputStream outputStream = new NdjsonOutputStream(ndjson, null);
+		
+		outputStream.writeLine(FIRST_OBSERVATION);
+		outputStream.write("{\"resourceType\":\"Bundle\",\"type\":\"searchset\",\"total\":0}".getBytes(StandardCharsets.UTF_8));
+		outputStream.finish();
+		
+		assertThat(new String(ndjson.toByteArray(), StandardCharsets.UTF_8), equalTo(FIRST_OBSERVATION + "\n"));
+	}
+	
+	private static String toNdjson(String json, int chunkSize) throws Exception {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+		NdjsonOutputStream outputStream = new NdjsonOutputStream(ndjson, null);
+		for (int i = 0; i < bytes.length; i += chunkSize) {
+			outputStream.write(bytes, i, Math.min(chunkSize, bytes.length - i));
+		}
+		
+		outputStream.finish();
+		return new String(ndjson.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
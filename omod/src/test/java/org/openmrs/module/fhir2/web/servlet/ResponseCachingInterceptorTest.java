@@ -0,0 +1,174 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.servlet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import ca.uhn.fhir.rest.api.RequestTypeEnum;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.hl7.fhir.r4.model.Bundle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.fhir2.api.util.EncodedResponseCache;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResponseCachingInterceptorTest {
+	
+	private static final String LOCATION_JSON = "{\"resourceType\":\"Location\",\"id\":\"c0938432-1691-11df-97a5-7038c432aaba\"}";
+	
+	@Mock
+	private RequestDetails requestDetails;
+	
+	@Mock
+	private ServletRequestDetails servletRequestDetails;
+	
+	@Mock
+	private UserContext userContext;
+	
+	private EncodedResponseCache responseCache;
+	
+	private ResponseCachingInterceptor interceptor;
+	
+	@Before
+	public void setup() {
+		responseCache = new EncodedResponseCache();
+		interceptor = new ResponseCachingInterceptor();
+		interceptor.setResponseCache(responseCache);
+		interceptor.setCachedResourceTypes("Location, Medication");
+		
+		Context.setUserContext(userContext);
+	}
+	
+	@After
+	public void tearDown() {
+		Context.clearUserContext();
+	}
+	
+	@Test
+	public void serveCachedResponse_shouldServeResponseCachedForSameRequest() throws Exception {
+		givenRequest(RequestTypeEnum.GET, RestOperationTypeEnum.READ, "Location");
+		respond(new MockHttpServletRequest());
+		
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		boolean proceed = interceptor.serveCachedResponse(requestDetails, new MockHttpServletRequest(), response);
+		
+		assertThat(proceed, is(false));
+		assertThat(response.getContentAsString(), equalTo(LOCATION_JSON));
+	}
+	
+	@Test
+	public void serveCachedResponse_shouldNotServeResponseOnceItsTypeIsInvalidated() throws Exception {
+		givenRequest(RequestTypeEnum.GET, RestOperationTypeEnum.READ, "Location");
+		respond(new MockHttpServletRequest());
+		
+		responseCache.invalidate(Collections.singleton("Location"));
+		
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		assertThat(interceptor.serveCachedResponse(requestDetails, request, new MockHttpServletResponse()), is(true));
+		assertThat(ResponseCachingInterceptor.isPending(request), is(true));
+	}
+	
+	@Test
+	public void serveCachedResponse_shouldBypassCacheForWrites() throws Exception {
+		when(requestDetails.getRequestType()).thenReturn(RequestTypeEnum.PUT);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		
+		assertThat(interceptor.serveCachedResponse(requestDetails, request, new MockHttpServletResponse()), is(true));
+		assertThat(ResponseCachingInterceptor.isPending(request), is(false));
+	}
+	
+	@Test
+	public void serveCachedResponse_shouldBypassCacheForTypesThatAreNotCached() throws Exception {
+		when(requestDetails.getRequestType()).thenReturn(RequestTypeEnum.GET);
+		when(requestDetails.getRestOperationType()).thenReturn(RestOperationTypeEnum.READ);
+		when(requestDetails.getResourceName()).thenReturn("Patient");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		
+		assertThat(interceptor.serveCachedResponse(requestDetails, request, new MockHttpServletResponse()), is(true));
+		assertThat(ResponseCachingInterceptor.isPending(request), is(false));
+	}
+	
+	@Test
+	public void serveCachedResponse_shouldBypassCacheWhenClientAsksForNoCache() throws Exception {
+		when(requestDetails.getRequestType()).thenReturn(RequestTypeEnum.GET);
+		when(requestDetails.getRestOperationType()).thenReturn(RestOperationTypeEnum.READ);
+		when(requestDetails.getResourceName()).thenReturn("Location");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Cache-Control", "no-cache");
+		
+		assertThat(interceptor.serveCachedResponse(requestDetails, request, new MockHttpServletResponse()), is(true));
+		assertThat(ResponseCachingInterceptor.isPending(request), is(false));
+	}
+	
+	@Test
+	public void checkOutgoingResponse_shouldNotCachePagedSearchResults() throws Exception {
+		givenRequest(RequestTypeEnum.GET, RestOperationTypeEnum.SEARCH_TYPE, "Location");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		interceptor.serveCachedResponse(requestDetails, request, new MockHttpServletResponse());
+		
+		Bundle bundle = new Bundle();
+		bundle.addLink().setRelation(Bundle.LINK_NEXT).setUrl("http://localhost/ws/fhir2?_getpages=1234");
+		when(servletRequestDetails.getServletRequest()).thenReturn(request);
+		interceptor.checkOutgoingResponse(servletRequestDetails, bundle);
+		
+		assertThat(ResponseCachingInterceptor.isPending(request), is(false));
+	}
+	
+	@Test
+	public void responseCompleted_shouldNotCacheFailedResponses() throws Exception {
+		givenRequest(RequestTypeEnum.GET, RestOperationTypeEnum.READ, "Location");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		interceptor.serveCachedResponse(requestDetails, request, new MockHttpServletResponse());
+		
+		CapturingResponseWrapper response = new CapturingResponseWrapper(request, new MockHttpServletResponse());
+		response.setStatus(404);
+		response.getOutputStream().write(LOCATION_JSON.getBytes(StandardCharsets.UTF_8));
+		interceptor.responseCompleted(request, response);
+		
+		assertThat(interceptor.serveCachedResponse(requestDetails, new MockHttpServletRequest(),
+		    new MockHttpServletResponse()), is(true));
+	}
+	
+	private void givenRequest(RequestTypeEnum requestType, RestOperationTypeEnum operation, String resourceName) {
+		when(requestDetails.getRequestType()).thenReturn(requestType);
+		when(requestDetails.getRestOperationType()).thenReturn(operation);
+		when(requestDetails.getResourceName()).thenReturn(resourceName);
+		when(requestDetails.getFhirServerBase()).thenReturn("http://localhost/ws/fhir2/R4");
+		when(requestDetails.getRequestPath()).thenReturn(resourceName + "/c0938432-1691-11df-97a5-7038c432aaba");
+		when(requestDetails.getParameters()).thenReturn(Collections.emptyMap());
+	}
+	
+	// runs a request that misses the cache through to completion, so its response is cached
+	private void respond(MockHttpServletRequest request) throws Exception {
+		assertThat(interceptor.serveCachedResponse(requestDetails, request, new MockHttpServletResponse()), is(true));
+		
+		CapturingResponseWrapper response = new CapturingResponseWrapper(request, new MockHttpServletResponse());
+		response.setStatus(200);
+		response.setContentType("application/fhir+json");
+		response.getOutputStream().write(LOCATION_JSON.getBytes(StandardCharsets.UTF_8));
+		interceptor.responseCompleted(request, response);
+	}
+}